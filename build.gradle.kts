@@ -17,6 +17,17 @@ application {
     mainClassName = "com.cburch.logisim.Main"
 }
 
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 dependencies {
     implementation(fileTree("lib") {
         include("**/*.jar")
@@ -34,6 +45,9 @@ dependencies {
     testImplementation("ch.qos.logback:logback-classic:1.2.3")
     testImplementation("ch.qos.logback:logback-core:1.2.3")
     testImplementation("junit:junit:4.13")
+
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.25")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.25")
 }
 
 java {
@@ -50,6 +64,22 @@ task<Jar>("sourcesJar") {
     from(sourceSets.main.get().allSource)
 }
 
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks in src/jmh and writes the results to build/reports/jmh/results.json. Use -Pjmh.args=\"...\" to pass JMH options."
+    dependsOn("jmhClasses")
+    classpath = sourceSets["jmh"].runtimeClasspath
+    main = "org.openjdk.jmh.Main"
+    val results = File("$buildDir/reports/jmh/results.json")
+    val jmhArgs = if (project.hasProperty("jmh.args")) (project.property("jmh.args") as String).split(" ") else listOf()
+    if (!jmhArgs.contains("-rf")) args("-rf", "json")
+    if (!jmhArgs.contains("-rff")) args("-rff", results.path)
+    args(jmhArgs)
+    doFirst {
+        results.parentFile.mkdirs()
+    }
+}
+
 tasks.register("jpackage") {
     group = "build"
     description = "Makes the platform specific packages"
@@ -0,0 +1,84 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to minimize one output column of a truth table with <code>inputs</code> inputs, in the
+ * heuristic and in the exact mode. The column is random with one row in ten a don't care, which
+ * is about the worst case for both modes; the tables students build have far more structure.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinimizerBenchmark {
+  @Param({"8", "10", "12", "14", "16"})
+  public int inputs;
+
+  private long[] on;
+  private long[] off;
+
+  @Setup
+  public void setup() {
+    on = Minimizer.newRowSet(inputs);
+    off = Minimizer.newRowSet(inputs);
+    Random rand = new Random(1);
+    for (int row = 0; row < 1 << inputs; row++) {
+      int kind = rand.nextInt(10);
+      if (kind == 0) continue;
+      Minimizer.add(kind % 2 == 0 ? on : off, row);
+    }
+  }
+
+  @Benchmark
+  public long[] heuristic() {
+    return Minimizer.minimize(inputs, on, off, false);
+  }
+
+  @Benchmark
+  public long[] exact() {
+    return Minimizer.minimize(inputs, on, off, true);
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of a single wire edit on a large circuit: bringing the bundle map up to date and
+ * propagating the change through a circuit state. The circuit consists of rows of 8-bit buses,
+ * each driven by a pin and joined in pairs by tunnels. The wire is handed to CircuitWires
+ * directly, leaving out the rest of a circuit transaction (wire repair, events), so that the
+ * numbers show the cost of the bundle map. With <code>incremental</code> off, the map is thrown
+ * away after every edit, which is how every edit used to be handled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleMapBenchmark {
+  private static final int WIRES_PER_ROW = 100;
+
+  @Param({"20000"})
+  public int wireCount;
+
+  @Param({"true", "false"})
+  public boolean incremental;
+
+  private Circuit circuit;
+  private CircuitState state;
+  private Wire stub;
+
+  @Setup
+  public void setup() {
+    LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+    Project proj = new Project(file);
+    circuit = file.getMainCircuit();
+    circuit.SetProject(proj);
+
+    ArrayList<Component> comps = new ArrayList<Component>();
+    int rows = wireCount / WIRES_PER_ROW;
+    for (int row = 0; row < rows; row++) {
+      int y = 20 + 20 * row;
+      int x = 100;
+      AttributeSet pinAttrs = Pin.FACTORY.createAttributeSet();
+      pinAttrs.setValue(StdAttr.WIDTH, BitWidth.create(8));
+      pinAttrs.setValue(StdAttr.FACING, Direction.EAST);
+      comps.add(Pin.FACTORY.createComponent(Location.create(x, y), pinAttrs));
+      for (int i = 0; i < WIRES_PER_ROW; i++, x += 10) {
+        comps.add(Wire.create(Location.create(x, y), Location.create(x + 10, y)));
+      }
+      AttributeSet tunnelAttrs = Tunnel.FACTORY.createAttributeSet();
+      tunnelAttrs.setValue(StdAttr.WIDTH, BitWidth.create(8));
+      tunnelAttrs.setValue(StdAttr.LABEL, "bus" + (row / 2));
+      comps.add(Tunnel.FACTORY.createComponent(Location.create(x, y), tunnelAttrs));
+    }
+    CircuitMutation xn = new CircuitMutation(circuit);
+    xn.addAll(comps);
+    xn.execute();
+
+    state = new CircuitState(proj, circuit);
+    state.getPropagator().propagate();
+    Location end = Location.create(100 + 10 * WIRES_PER_ROW / 2, 20);
+    stub = Wire.create(end, Location.create(end.getX(), end.getY() + 10));
+  }
+
+  @Benchmark
+  public void addAndRemoveWire() {
+    circuit.wires.add(stub);
+    update();
+    circuit.wires.remove(stub);
+    update();
+  }
+
+  private void update() {
+    if (!incremental) circuit.wires.voidBundleMap();
+    state.markPointAsDirty(stub.getEnd0());
+    state.markPointAsDirty(stub.getEnd1());
+    state.getPropagator().propagate();
+  }
+}
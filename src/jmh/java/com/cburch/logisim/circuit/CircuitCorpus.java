@@ -0,0 +1,288 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Mem;
+import com.cburch.logisim.std.memory.RamAppearance;
+import com.cburch.logisim.std.memory.Register;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Constant;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the circuits the simulator benchmarks run on. Components are not wired together;
+ * instead, every port that takes part in a net gets a tunnel labelled with the name of that net,
+ * which keeps the layout trivial while giving the same netlist. Each circuit is added to a new
+ * project, whose main circuit is left empty.
+ */
+public class CircuitCorpus {
+  private static final int ADDER_IN0 = 0;
+  private static final int ADDER_IN1 = 1;
+  private static final int ADDER_OUT = 2;
+  private static final int ADDER_C_IN = 3;
+  private static final int ADDER_C_OUT = 4;
+  private static final int REGISTER_IN = 1;
+
+  private final Loader loader;
+  private final LogisimFile file;
+  private final Project proj;
+
+  public CircuitCorpus() {
+    loader = new Loader(null);
+    file = LogisimFile.createNew(loader, null);
+    proj = new Project(file);
+    file.getMainCircuit().SetProject(proj);
+  }
+
+  public Project getProject() {
+    return proj;
+  }
+
+  /**
+   * Returns an n-bit ripple-carry adder built from 1-bit adders. Its inputs are the pins
+   * <code>a0</code>..., <code>b0</code>... and <code>cin</code>, its outputs <code>s0</code>... and
+   * <code>cout</code>.
+   */
+  public Circuit rippleAdder(String name, int bits) {
+    Circuit circ = newCircuit(name);
+    ComponentFactory adder = getFactory("Arithmetic", "Adder");
+    ArrayList<Component> comps = new ArrayList<Component>();
+    int y = 20;
+    for (int i = 0; i < bits; i++) {
+      comps.addAll(pin(Location.create(20, y), 1, false, "a" + i));
+      comps.addAll(pin(Location.create(20, y + 20), 1, false, "b" + i));
+      comps.addAll(pin(Location.create(1000, y), 1, true, "s" + i));
+      y += 40;
+    }
+    comps.addAll(pin(Location.create(20, y), 1, false, "c0"));
+    comps.addAll(pin(Location.create(1000, y), 1, true, "c" + bits));
+    for (int i = 0; i < bits; i++) {
+      AttributeSet attrs = adder.createAttributeSet();
+      attrs.setValue(StdAttr.WIDTH, BitWidth.ONE);
+      Component comp = adder.createComponent(Location.create(500, 100 + 100 * i), attrs);
+      comps.add(comp);
+      comps.add(tunnel(comp, ADDER_IN0, "a" + i));
+      comps.add(tunnel(comp, ADDER_IN1, "b" + i));
+      comps.add(tunnel(comp, ADDER_OUT, "s" + i));
+      comps.add(tunnel(comp, ADDER_C_IN, "c" + i));
+      comps.add(tunnel(comp, ADDER_C_OUT, "c" + (i + 1)));
+    }
+    return finish(circ, comps);
+  }
+
+  /**
+   * Returns a tree of subcircuits <code>depth</code> levels deep. The leaves are
+   * <code>leafBits</code>-bit ripple adders; every other level holds two instances of the level
+   * below, the second one fed by the outputs of the first, so that the tree holds
+   * 2<sup>depth</sup> adders in a chain.
+   */
+  public Circuit subcircuitTree(String name, int depth, int leafBits) {
+    Circuit circ = rippleAdder(name + "0", leafBits);
+    for (int level = 1; level <= depth; level++) {
+      Circuit child = circ;
+      circ = newCircuit(name + level);
+      ArrayList<Component> comps = new ArrayList<Component>();
+      SubcircuitFactory factory = child.getSubcircuitFactory();
+      AttributeSet attrs = factory.createAttributeSet();
+      attrs.setValue(StdAttr.LABEL, "first");
+      Component first = factory.createComponent(Location.create(500, 100), attrs);
+      attrs = factory.createAttributeSet();
+      attrs.setValue(StdAttr.LABEL, "second");
+      Component second = factory.createComponent(Location.create(500, 600), attrs);
+      comps.add(first);
+      comps.add(second);
+      List<EndData> ends = first.getEnds();
+      int outputs = 0;
+      for (EndData end : ends) {
+        if (end.isOutput()) outputs++;
+      }
+      int in = 0;
+      int out = 0;
+      for (int i = 0; i < ends.size(); i++) {
+        if (ends.get(i).isInput()) {
+          comps.addAll(pin(Location.create(20, 20 + 40 * in), 1, false, "in" + in));
+          comps.add(tunnel(first, i, "in" + in));
+          comps.add(tunnel(second, i, "mid" + (in % outputs)));
+          in++;
+        } else {
+          comps.addAll(pin(Location.create(1000, 20 + 40 * out), 1, true, "out" + out));
+          comps.add(tunnel(first, i, "mid" + out));
+          comps.add(tunnel(second, i, "out" + out));
+          out++;
+        }
+      }
+      finish(circ, comps);
+    }
+    return circ;
+  }
+
+  /**
+   * Returns a clocked circuit around <code>rams</code> RAMs of 2<sup>addrBits</sup> bytes. A
+   * program counter steps through the address space on every clock cycle, all RAMs are read at
+   * that address, and an adder chain sums their outputs into an accumulator register.
+   */
+  public Circuit ramCpu(String name, int rams, int addrBits) {
+    Circuit circ = newCircuit(name);
+    ComponentFactory adder = getFactory("Arithmetic", "Adder");
+    ComponentFactory register = getFactory("Memory", "Register");
+    ComponentFactory ram = getFactory("Memory", "RAM");
+    ArrayList<Component> comps = new ArrayList<Component>();
+
+    AttributeSet attrs = Clock.FACTORY.createAttributeSet();
+    Component clock = Clock.FACTORY.createComponent(Location.create(20, 20), attrs);
+    comps.add(clock);
+    comps.add(tunnel(clock, 0, "clk"));
+    comps.addAll(constant(Location.create(20, 60), 1, 0, "zero"));
+    comps.addAll(constant(Location.create(20, 100), 1, 1, "enable"));
+    comps.addAll(constant(Location.create(20, 140), addrBits, 1, "step"));
+
+    attrs = register.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(addrBits));
+    Component pc = register.createComponent(Location.create(300, 100), attrs);
+    comps.add(pc);
+    comps.add(tunnel(pc, Register.OUT, "pc"));
+    comps.add(tunnel(pc, REGISTER_IN, "pcNext"));
+    comps.add(tunnel(pc, Register.CK, "clk"));
+    attrs = adder.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(addrBits));
+    Component inc = adder.createComponent(Location.create(600, 100), attrs);
+    comps.add(inc);
+    comps.add(tunnel(inc, ADDER_IN0, "pc"));
+    comps.add(tunnel(inc, ADDER_IN1, "step"));
+    comps.add(tunnel(inc, ADDER_OUT, "pcNext"));
+
+    for (int i = 0; i < rams; i++) {
+      attrs = ram.createAttributeSet();
+      attrs.setValue(Mem.ADDR_ATTR, BitWidth.create(addrBits));
+      attrs.setValue(Mem.DATA_ATTR, BitWidth.create(8));
+      Component comp = ram.createComponent(Location.create(300, 400 + 500 * i), attrs);
+      comps.add(comp);
+      attrs = comp.getAttributeSet();
+      comps.add(tunnel(comp, RamAppearance.getAddrIndex(0, attrs), "pc"));
+      comps.add(tunnel(comp, RamAppearance.getDataOutIndex(0, attrs), "data" + i));
+      comps.add(tunnel(comp, RamAppearance.getWEIndex(0, attrs), "zero"));
+      int oe = RamAppearance.getOEIndex(0, attrs);
+      if (oe >= 0) comps.add(tunnel(comp, oe, "enable"));
+      int clk = RamAppearance.getClkIndex(0, attrs);
+      if (clk >= 0) comps.add(tunnel(comp, clk, "clk"));
+      if (i > 0) {
+        attrs = adder.createAttributeSet();
+        attrs.setValue(StdAttr.WIDTH, BitWidth.create(8));
+        Component sum = adder.createComponent(Location.create(800, 400 + 500 * i), attrs);
+        comps.add(sum);
+        comps.add(tunnel(sum, ADDER_IN0, i == 1 ? "data0" : "sum" + (i - 1)));
+        comps.add(tunnel(sum, ADDER_IN1, "data" + i));
+        comps.add(tunnel(sum, ADDER_OUT, "sum" + i));
+      }
+    }
+
+    attrs = register.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(8));
+    Component acc = register.createComponent(Location.create(1100, 100), attrs);
+    comps.add(acc);
+    comps.add(tunnel(acc, REGISTER_IN, rams > 1 ? "sum" + (rams - 1) : "data0"));
+    comps.add(tunnel(acc, Register.CK, "clk"));
+    comps.addAll(pin(Location.create(1400, 100), 8, true, "acc"));
+    comps.add(tunnel(acc, Register.OUT, "acc"));
+    return finish(circ, comps);
+  }
+
+  /** Returns the input pins of <code>circ</code>. */
+  public static List<Component> getInputPins(Circuit circ) {
+    ArrayList<Component> ret = new ArrayList<Component>();
+    for (Component pin : circ.getNonWires()) {
+      if (pin.getFactory() == Pin.FACTORY && !pin.getAttributeSet().getValue(Pin.ATTR_TYPE)) {
+        ret.add(pin);
+      }
+    }
+    return ret;
+  }
+
+  private Circuit newCircuit(String name) {
+    Circuit circ = new Circuit(name, file, proj);
+    file.addCircuit(circ);
+    return circ;
+  }
+
+  private Circuit finish(Circuit circ, List<Component> comps) {
+    CircuitMutation xn = new CircuitMutation(circ);
+    xn.addAll(comps);
+    xn.execute();
+    return circ;
+  }
+
+  private ComponentFactory getFactory(String lib, String name) {
+    return ((AddTool) loader.getBuiltin().getLibrary(lib).getTool(name)).getFactory();
+  }
+
+  private static List<Component> pin(Location loc, int width, boolean output, String net) {
+    AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+    attrs.setValue(Pin.ATTR_TYPE, output);
+    attrs.setValue(StdAttr.LABEL, net);
+    Component pin = Pin.FACTORY.createComponent(loc, attrs);
+    ArrayList<Component> ret = new ArrayList<Component>();
+    ret.add(pin);
+    ret.add(tunnel(pin, 0, net));
+    return ret;
+  }
+
+  private static List<Component> constant(Location loc, int width, long value, String net) {
+    AttributeSet attrs = Constant.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+    attrs.setValue(Constant.ATTR_VALUE, value);
+    Component constant = Constant.FACTORY.createComponent(loc, attrs);
+    ArrayList<Component> ret = new ArrayList<Component>();
+    ret.add(constant);
+    ret.add(tunnel(constant, 0, net));
+    return ret;
+  }
+
+  private static Component tunnel(Component comp, int end, String net) {
+    EndData data = comp.getEnd(end);
+    AttributeSet attrs = Tunnel.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, data.getWidth());
+    attrs.setValue(StdAttr.LABEL, net);
+    return Tunnel.FACTORY.createComponent(data.getLocation(), attrs);
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for the propagator to settle after a change, on the circuits from {@link CircuitCorpus}.
+ * For <code>adder</code> (a 64-bit ripple adder) and <code>tree</code> (a subcircuit tree eight
+ * levels deep, 256 4-bit adders in all), <code>step</code> inverts all inputs and propagates.
+ * For <code>cpu</code> (16 RAMs of 64K bytes read by a program counter), <code>step</code> runs
+ * one full clock cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagatorBenchmark {
+  @Param({"adder", "tree", "cpu"})
+  public String circuit;
+
+  private CircuitState state;
+  private InstanceState[] inputs;
+  private Value value = Value.FALSE;
+
+  @Setup
+  public void setup() {
+    CircuitCorpus corpus = new CircuitCorpus();
+    Circuit circ;
+    if (circuit.equals("adder")) circ = corpus.rippleAdder("adder", 64);
+    else if (circuit.equals("tree")) circ = corpus.subcircuitTree("tree", 8, 4);
+    else circ = corpus.ramCpu("cpu", 16, 16);
+    state = new CircuitState(corpus.getProject(), circ);
+    List<Component> pins = CircuitCorpus.getInputPins(circ);
+    inputs = new InstanceState[pins.size()];
+    for (int i = 0; i < inputs.length; i++) inputs[i] = state.getInstanceState(pins.get(i));
+    state.getPropagator().propagate();
+  }
+
+  @Benchmark
+  public void step() {
+    Propagator prop = state.getPropagator();
+    if (inputs.length == 0) {
+      prop.tick();
+      prop.propagate();
+      prop.tick();
+    } else {
+      value = value.not();
+      for (InstanceState input : inputs) {
+        Pin.FACTORY.setValue(input, value);
+        Pin.FACTORY.propagate(input);
+      }
+    }
+    prop.propagate();
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.data;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the value operations that components perform on every propagation step, on
+ * <code>width</code>-bit values. The operands are drawn from a fixed pool of random values, some
+ * of which have unknown or error bits, so that both the fast paths and the general ones are hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueBenchmark {
+  private static final int POOL_SIZE = 256;
+
+  @Param({"1", "8", "32", "64"})
+  public int width;
+
+  private Value[] pool;
+  private int next;
+
+  @Setup
+  public void setup() {
+    Random rand = new Random(1);
+    pool = new Value[POOL_SIZE];
+    for (int i = 0; i < POOL_SIZE; i++) {
+      long error = i % 8 == 0 ? rand.nextLong() & rand.nextLong() : 0;
+      long unknown = i % 4 == 0 ? rand.nextLong() & rand.nextLong() : 0;
+      pool[i] = Value.create(width, error, unknown, rand.nextLong());
+    }
+  }
+
+  @Benchmark
+  public Value logic() {
+    Value a = pool[next];
+    Value b = pool[(next + 1) % POOL_SIZE];
+    next = (next + 2) % POOL_SIZE;
+    return a.and(b).or(a.xor(b)).not();
+  }
+
+  @Benchmark
+  public Value combine() {
+    Value a = pool[next];
+    Value b = pool[(next + 1) % POOL_SIZE];
+    next = (next + 2) % POOL_SIZE;
+    return a.combine(b);
+  }
+
+  @Benchmark
+  public Value splitAndJoin() {
+    Value a = pool[next];
+    next = (next + 1) % POOL_SIZE;
+    return Value.create(a.getAll());
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Mem;
+import com.cburch.logisim.std.memory.MemContents;
+import com.cburch.logisim.std.memory.Rom;
+import com.cburch.logisim.tools.AddTool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.ParserConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to load a .circ file holding <code>circuits</code> circuits, each with <code>roms</code>
+ * ROMs of 64K random bytes. Such contents make up most of the size of large files. With
+ * <code>background</code> off, all contents are decoded on the loading thread, which is how files
+ * used to be read. <code>loadSnapshot</code> loads the same project from a binary snapshot, which
+ * does not decode the contents at all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+  @Param({"16"})
+  public int circuits;
+
+  @Param({"4"})
+  public int roms;
+
+  @Param({"true", "false"})
+  public boolean background;
+
+  private byte[] data;
+  private byte[] snapshot;
+  private int savedLength;
+
+  @Setup
+  public void setup() throws IOException {
+    Loader loader = new Loader(null);
+    LogisimFile file = LogisimFile.createNew(loader, null);
+    file.addLibrary(loader.getBuiltin().getLibrary("Memory"));
+    Project proj = new Project(file);
+    ComponentFactory rom =
+        ((AddTool) loader.getBuiltin().getLibrary("Memory").getTool("ROM")).getFactory();
+    Random rand = new Random(1);
+    for (int i = 0; i < circuits; i++) {
+      Circuit circ = i == 0 ? file.getMainCircuit() : new Circuit("circ" + i, file, proj);
+      if (i > 0) file.addCircuit(circ);
+      CircuitMutation xn = new CircuitMutation(circ);
+      for (int j = 0; j < roms; j++) {
+        MemContents contents = MemContents.create(16, 8);
+        for (int addr = 0; addr < 1 << 16; addr++) contents.set(addr, rand.nextInt(256));
+        AttributeSet attrs = rom.createAttributeSet();
+        attrs.setValue(Mem.ADDR_ATTR, BitWidth.create(16));
+        attrs.setValue(Mem.DATA_ATTR, BitWidth.create(8));
+        attrs.setValue(Rom.CONTENTS_ATTR, contents);
+        Component comp = rom.createComponent(Location.create(100, 100 + 300 * j), attrs);
+        xn.add(comp);
+      }
+      xn.execute();
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    file.write(out, loader);
+    data = out.toByteArray();
+    out.reset();
+    try {
+      XmlWriter.writeSnapshot(file, out, loader, null);
+    } catch (ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+    snapshot = out.toByteArray();
+
+    savedLength = XmlReader.backgroundDecodeLength;
+    if (!background) XmlReader.backgroundDecodeLength = Integer.MAX_VALUE;
+  }
+
+  @TearDown
+  public void tearDown() {
+    XmlReader.backgroundDecodeLength = savedLength;
+  }
+
+  @Benchmark
+  public LogisimFile load() throws IOException {
+    return LogisimFile.load(new ByteArrayInputStream(data), new Loader(null));
+  }
+
+  @Benchmark
+  public LogisimFile loadSnapshot() throws IOException {
+    return LogisimFile.load(new ByteArrayInputStream(snapshot), new Loader(null));
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.fpga.designrulecheck;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitCorpus;
+import com.cburch.logisim.fpga.gui.FPGAReport;
+import com.cburch.logisim.fpga.hdlgenerator.HDLGeneratorFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to build the netlists of a design from scratch, as the design rule check does before HDL
+ * generation, on <code>adder</code> (a 64-bit ripple adder) or <code>tree</code> (a subcircuit
+ * tree eight levels deep) from {@link CircuitCorpus}. The netlists of all circuits are cleared
+ * first, so that every level of the hierarchy is rebuilt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetlistBenchmark {
+  @Param({"adder", "tree"})
+  public String circuit;
+
+  private List<Circuit> circuits;
+  private Circuit root;
+  private FPGAReport reporter;
+
+  @Setup
+  public void setup() {
+    Main.headless = true;
+    CircuitCorpus corpus = new CircuitCorpus();
+    if (circuit.equals("adder")) root = corpus.rippleAdder("adder", 64);
+    else root = corpus.subcircuitTree("tree", 8, 4);
+    circuits = corpus.getProject().getLogisimFile().getCircuits();
+    reporter = new FPGAReport();
+  }
+
+  @Benchmark
+  public int designRuleCheck() {
+    for (Circuit circ : circuits) circ.getNetList().clear();
+    return root.getNetList()
+        .DesignRuleCheckResult(reporter, HDLGeneratorFactory.VHDL, true, new ArrayList<String>());
+  }
+}
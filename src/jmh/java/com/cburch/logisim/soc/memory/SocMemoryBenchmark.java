@@ -0,0 +1,96 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.soc.memory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load and store throughput of the SoC memory for a program touching <code>footprintKB</code> of
+ * memory, with the accesses spread at random over it the way loads and stores of a program end up
+ * all over its data, and the cost of cloning a filled memory state and writing into the clone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SocMemoryBenchmark {
+  private static final int ACCESSES = 4096;
+
+  @Param({"256"})
+  public int footprintKB;
+
+  private SocMemoryState.SocMemoryInfo memory;
+  private int[] addresses;
+
+  @Setup
+  public void setup() {
+    memory = new SocMemoryState().getNewState();
+    int words = footprintKB * 256;
+    for (int i = 0; i < words; i++) memory.writeWord(0x10000000 + 4 * i, i);
+    Random rand = new Random(1);
+    addresses = new int[ACCESSES];
+    for (int i = 0; i < ACCESSES; i++) addresses[i] = 0x10000000 + 4 * rand.nextInt(words);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ACCESSES)
+  public int load() {
+    int sum = 0;
+    for (int address : addresses) sum += memory.getWord(address);
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ACCESSES)
+  public void store() {
+    for (int i = 0; i < ACCESSES; i++) memory.writeWord(addresses[i], i);
+  }
+
+  @Benchmark
+  public SocMemoryState.SocMemoryInfo cloneAndStore() {
+    SocMemoryState.SocMemoryInfo copy = memory.clone();
+    copy.writeWord(addresses[0], 0);
+    return copy;
+  }
+}
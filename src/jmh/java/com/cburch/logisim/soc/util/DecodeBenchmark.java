@@ -0,0 +1,105 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.soc.util;
+
+import com.cburch.logisim.soc.rv32im.RV32imAssembler;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Instruction decode throughput of an RV32IM core running a loop of <code>loopSize</code> distinct
+ * instruction words, once by handing every fetched word to all execution units of the assembler
+ * and once through the decoder of a core, which only decodes a word the first time it is fetched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+  private static final int FETCHES = 4096;
+  /* ADDI, ADD, LW, SW, BEQ and MUL with the register and immediate fields left to fill in */
+  private static final int[] TEMPLATES = {0x00000013, 0x00000033, 0x00002003, 0x00002023, 0x00000063, 0x02000033};
+
+  @Param({"64"})
+  public int loopSize;
+
+  private AbstractAssembler assembler;
+  private InstructionDecoder decoder;
+  private int[] fetches;
+
+  @Setup
+  public void setup() {
+    assembler = new RV32imAssembler();
+    decoder = new InstructionDecoder(new RV32imAssembler());
+    Random rand = new Random(1);
+    int[] loop = new int[loopSize];
+    for (int i = 0; i < loopSize; i++) {
+      int template = TEMPLATES[rand.nextInt(TEMPLATES.length)];
+      loop[i] = template | (rand.nextInt(32) << 7) | (rand.nextInt(32) << 15) | (rand.nextInt(32) << 20);
+    }
+    fetches = new int[FETCHES];
+    for (int i = 0; i < FETCHES; i++) fetches[i] = loop[i % loopSize];
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FETCHES)
+  public int assembler() {
+    int valid = 0;
+    for (int instruction : fetches) {
+      assembler.decode(instruction);
+      if (assembler.getExeUnit() != null) valid++;
+    }
+    return valid;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FETCHES)
+  public int decoder() {
+    int valid = 0;
+    for (int instruction : fetches) {
+      decoder.decode(instruction);
+      if (decoder.getExeUnit() != null) valid++;
+    }
+    return valid;
+  }
+}
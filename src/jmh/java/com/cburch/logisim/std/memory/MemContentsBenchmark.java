@@ -0,0 +1,83 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.std.memory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of cloning a memory with <code>addrBits</code> address bits and every page allocated, as
+ * happens when a circuit state holding a RAM is duplicated, and of the first write to the clone,
+ * which has to copy the one page it touches. A page holds 4096 words, so the 24-bit case clones
+ * 4096 pages of 32-bit words.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemContentsBenchmark {
+  @Param({"16", "20", "24"})
+  public int addrBits;
+
+  private MemContents contents;
+  private long addr;
+
+  @Setup
+  public void setup() {
+    contents = MemContents.create(addrBits, 32);
+    Random rand = new Random(1);
+    for (long a = 0; a < 1L << addrBits; a += 1024) contents.set(a, rand.nextInt());
+    addr = (1L << addrBits) / 2;
+  }
+
+  @Benchmark
+  public MemContents cloneOnly() {
+    return contents.clone();
+  }
+
+  @Benchmark
+  public MemContents cloneAndWrite() {
+    MemContents ret = contents.clone();
+    ret.set(addr, ret.get(addr) + 1);
+    return ret;
+  }
+}
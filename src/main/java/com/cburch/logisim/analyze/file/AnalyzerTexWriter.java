@@ -401,9 +401,10 @@ public class AnalyzerTexWriter {
 
   public static void doSave(File file, AnalyzerModel model) throws IOException {
     boolean linedStyle = AppPreferences.KMAP_LINED_STYLE.getBoolean();
-    /* make sure the model is up to date */
+    /* make sure the model is up to date; callers on the event thread wait for it first */
     boolean modelIsUpdating = model.getOutputExpressions().UpdatesEnabled();
     model.getOutputExpressions().enableUpdates();
+    model.getOutputExpressions().waitForUpdates();
     PrintStream out = new PrintStream(file);
     try {
       /*
@@ -33,6 +33,7 @@ import static com.cburch.logisim.analyze.Strings.S;
 import com.cburch.logisim.analyze.file.AnalyzerTexWriter;
 import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.analyze.model.OutputExpressions;
 import com.cburch.logisim.analyze.model.Parser;
 import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.TruthTableEvent;
@@ -48,6 +49,10 @@ import java.awt.Dimension;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.swing.JComponent;
@@ -266,6 +271,32 @@ public class Analyzer extends LFrame {
     tabbedPane.setSelectedIndex(index);
   }
 
+  /**
+   * Waits for the minimal expressions still being computed in the background behind a progress
+   * dialog, so that the event thread is not blocked, and publishes them.
+   */
+  @SuppressWarnings("serial")
+  static void waitForUpdates(OutputExpressions exprs, java.awt.Component parent) {
+    final List<Future<?>> pending = exprs.getPendingUpdates();
+    if (!pending.isEmpty()) {
+      (new PleaseWait<Void>(S.get("expressionCalc"), parent) {
+            @Override
+            public Void doInBackground() throws Exception {
+              for (Future<?> task : pending) {
+                try {
+                  task.get();
+                } catch (CancellationException | ExecutionException e) {
+                  // waitForUpdates reports failures
+                }
+              }
+              return null;
+            }
+          })
+          .get();
+    }
+    exprs.waitForUpdates();
+  }
+
   public abstract static class PleaseWait<T> extends JDialog {
     /** */
     private static final long serialVersionUID = 1L;
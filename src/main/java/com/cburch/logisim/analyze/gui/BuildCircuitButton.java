@@ -148,6 +148,7 @@ class BuildCircuitButton extends JButton {
       boolean useNands = false;
       boolean replace = false;
 
+      Analyzer.waitForUpdates(model.getOutputExpressions(), parent);
       boolean ok = false;
       while (!ok) {
         DialogPanel dlog = new DialogPanel();
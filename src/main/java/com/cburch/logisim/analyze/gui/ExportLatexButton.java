@@ -109,6 +109,7 @@ public class ExportLatexButton extends JButton {
         if (confirm != OptionPane.YES_OPTION) return;
       }
       try {
+        Analyzer.waitForUpdates(model.getOutputExpressions(), parent);
         AnalyzerTexWriter.doSave(file, model);
         lastFile = file;
       } catch (IOException e) {
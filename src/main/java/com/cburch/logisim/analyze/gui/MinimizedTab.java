@@ -234,6 +234,7 @@ class MinimizedTab extends AnalyzerTab {
       String output = getCurrentVariable();
       int format = outputExprs.getMinimizedFormat(output);
       formatChoice.setSelectedIndex(FormatModel.getFormatIndex(format));
+      outputExprs.waitForUpdate(output);
       outputExprs.setExpression(output, outputExprs.getMinimalExpression(output));
     }
 
@@ -39,6 +39,11 @@ public class AnalyzerModel {
   public static final int FORMAT_SUM_OF_PRODUCTS = 0;
   public static final int FORMAT_PRODUCT_OF_SUMS = 1;
 
+  // exact for small tables, heuristic for large ones
+  public static final int MINIMIZE_AUTO = 0;
+  public static final int MINIMIZE_EXACT = 1;
+  public static final int MINIMIZE_HEURISTIC = 2;
+
   private VariableList inputs = new VariableList(MAX_INPUTS);
   private VariableList outputs = new VariableList(MAX_OUTPUTS);
   private TruthTable table;
@@ -64,6 +69,10 @@ public class AnalyzerModel {
     return currentProject;
   }
 
+  public int getMinimizer() {
+    return outputExpressions.getMinimizer();
+  }
+
   public VariableList getInputs() {
     return inputs;
   }
@@ -88,6 +97,10 @@ public class AnalyzerModel {
     currentCircuit = circuit;
   }
 
+  public void setMinimizer(int value) {
+    outputExpressions.setMinimizer(value);
+  }
+
   public void setVariables(List<Var> inputs, List<Var> outputs) {
     this.inputs.setAll(inputs);
     this.outputs.setAll(outputs);
@@ -0,0 +1,443 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Two-level minimizer behind the minimal expressions of the analyzer. A
+ * cover is a list of cubes packed into longs, the upper half holding the
+ * don't-care mask and the lower half the values, exactly as in
+ * {@link Implicant}. The on- and off-set are kept as bitsets over the rows.
+ *
+ * <p>The heuristic mode follows Espresso: every uncovered on-row is expanded
+ * into a prime, the cover is made irredundant, and reduce/expand/irredundant
+ * passes are repeated as long as the cover gets cheaper. The exact mode
+ * generates all primes and searches for a minimum cover by branch and bound,
+ * starting from the heuristic cover. The exact mode is only tried on tables
+ * of at most {@link #MAX_EXACT_INPUTS} inputs, the prime generation gives up
+ * once it produced more than a fixed number of cubes or primes, and the search
+ * is bounded by a node count; whenever a limit is hit, the best cover found so
+ * far, at worst the heuristic one, is returned.
+ *
+ * <p>Both modes give up with a {@link CancellationException} once the
+ * calling thread is interrupted, so a stale background computation does not
+ * keep running after the table changed again.
+ */
+final class Minimizer {
+  /** Tables up to this many inputs are minimized exactly in automatic mode. */
+  static final int AUTO_EXACT_INPUTS = 8;
+  /** Tables with more inputs are minimized heuristically even in exact mode. */
+  static final int MAX_EXACT_INPUTS = 12;
+
+  private static final int MAX_IMPROVE_PASSES = 8;
+  private static final int EXACT_NODE_BUDGET = 100000;
+  private static final int EXACT_CUBE_BUDGET = 1 << 18;
+  private static final int EXACT_PRIME_BUDGET = 4096;
+
+  static long cube(int unknowns, int values) {
+    return ((long) unknowns << 32) | (values & 0xFFFFFFFFL);
+  }
+
+  static int unknowns(long cube) {
+    return (int) (cube >>> 32);
+  }
+
+  static int values(long cube) {
+    return (int) cube;
+  }
+
+  /**
+   * Returns a minimal cover of the on-set, using the off-set to decide how
+   * far cubes may grow; rows in neither set are don't cares.
+   */
+  static long[] minimize(int inputs, long[] on, long[] off, boolean exact) {
+    Minimizer m = new Minimizer(inputs, on, off);
+    long[] cover = m.heuristic();
+    return exact && inputs <= MAX_EXACT_INPUTS ? m.exact(cover) : cover;
+  }
+
+  static long[] newRowSet(int inputs) {
+    return new long[((1 << inputs) + 63) >>> 6];
+  }
+
+  static void add(long[] set, int row) {
+    set[row >>> 6] |= 1L << row;
+  }
+
+  private static boolean contains(long[] set, int row) {
+    return (set[row >>> 6] & (1L << row)) != 0;
+  }
+
+  private static void checkInterrupted() {
+    if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+  }
+
+  private final int inputs;
+  private final int full;
+  private final long[] on;
+  private final long[] off;
+  /* number of cubes of the current cover containing each on-row */
+  private final int[] count;
+
+  private Minimizer(int inputs, long[] on, long[] off) {
+    this.inputs = inputs;
+    this.full = (1 << inputs) - 1;
+    this.on = on;
+    this.off = off;
+    this.count = new int[1 << inputs];
+  }
+
+  //
+  // heuristic minimization
+  //
+  private long[] heuristic() {
+    long[] cover = new long[16];
+    int size = 0;
+    for (int row = 0; row <= full; row++) {
+      if (!contains(on, row) || count[row] != 0) continue;
+      checkInterrupted();
+      long c = expand(cube(0, row));
+      addCount(c, 1);
+      if (size == cover.length) cover = Arrays.copyOf(cover, 2 * size);
+      cover[size++] = c;
+    }
+    cover = irredundant(Arrays.copyOf(cover, size));
+    for (int pass = 0; pass < MAX_IMPROVE_PASSES; pass++) {
+      checkInterrupted();
+      long[] next = reduce(cover);
+      for (int i = 0; i < next.length; i++) {
+        long c = expand(next[i]);
+        addCount(next[i], -1);
+        addCount(c, 1);
+        next[i] = c;
+      }
+      next = irredundant(next);
+      if (!cheaper(next, cover)) break;
+      cover = next;
+    }
+    return cover;
+  }
+
+  /* Raises the literals of the cube until it is prime, trying first the
+   * directions that cover the most on-rows not yet covered. */
+  private long expand(long c) {
+    int u = unknowns(c);
+    int v = values(c);
+    int[] order = new int[inputs];
+    int[] gains = new int[inputs];
+    int n = 0;
+    for (int bits = full & ~u; bits != 0; bits &= bits - 1) {
+      int j = Integer.lowestOneBit(bits);
+      int gain = gain(u, v ^ j);
+      if (gain < 0) continue;
+      int k = n++;
+      while (k > 0 && gains[k - 1] < gain) {
+        order[k] = order[k - 1];
+        gains[k] = gains[k - 1];
+        k--;
+      }
+      order[k] = j;
+      gains[k] = gain;
+    }
+    for (int i = 0; i < n; i++) {
+      int j = order[i];
+      if (i > 0 && gain(u, v ^ j) < 0) continue;
+      u |= j;
+      v &= ~j;
+    }
+    return cube(u, v);
+  }
+
+  /* Returns -1 when the cube hits the off-set, and otherwise a weight of the
+   * on-rows it contains, uncovered rows counting double. */
+  private int gain(int u, int v) {
+    int gain = 0;
+    for (int s = u; ; s = (s - 1) & u) {
+      int row = v | s;
+      if (contains(off, row)) return -1;
+      if (contains(on, row)) gain += count[row] == 0 ? 2 : 1;
+      if (s == 0) return gain;
+    }
+  }
+
+  private void addCount(long c, int delta) {
+    int u = unknowns(c);
+    int v = values(c);
+    for (int s = u; ; s = (s - 1) & u) {
+      count[v | s] += delta;
+      if (s == 0) return;
+    }
+  }
+
+  /* Drops cubes whose on-rows are all covered by other cubes, smallest
+   * cubes first. */
+  private long[] irredundant(long[] cover) {
+    sortBySize(cover, true);
+    int size = 0;
+    for (long c : cover) {
+      if (isRedundant(c)) addCount(c, -1);
+      else cover[size++] = c;
+    }
+    return Arrays.copyOf(cover, size);
+  }
+
+  private boolean isRedundant(long c) {
+    int u = unknowns(c);
+    int v = values(c);
+    for (int s = u; ; s = (s - 1) & u) {
+      int row = v | s;
+      if (contains(on, row) && count[row] < 2) return false;
+      if (s == 0) return true;
+    }
+  }
+
+  /* Shrinks every cube, largest first, to the smallest cube containing the
+   * on-rows that no other cube covers. */
+  private long[] reduce(long[] cover) {
+    cover = cover.clone();
+    sortBySize(cover, false);
+    int size = 0;
+    for (long c : cover) {
+      int u = unknowns(c);
+      int v = values(c);
+      int first = -1;
+      int diff = 0;
+      for (int s = u; ; s = (s - 1) & u) {
+        int row = v | s;
+        if (contains(on, row) && count[row] == 1) {
+          if (first < 0) first = row;
+          diff |= row ^ first;
+        }
+        if (s == 0) break;
+      }
+      addCount(c, -1);
+      if (first < 0) continue;
+      long r = cube(diff, first & ~diff);
+      addCount(r, 1);
+      cover[size++] = r;
+    }
+    return Arrays.copyOf(cover, size);
+  }
+
+  private static void sortBySize(long[] cover, boolean ascending) {
+    Long[] boxed = new Long[cover.length];
+    for (int i = 0; i < cover.length; i++) boxed[i] = cover[i];
+    Arrays.sort(boxed, (a, b) -> {
+      int diff = Integer.bitCount(unknowns(a)) - Integer.bitCount(unknowns(b));
+      if (diff == 0) diff = Long.compare(a, b);
+      return ascending ? diff : -diff;
+    });
+    for (int i = 0; i < cover.length; i++) cover[i] = boxed[i];
+  }
+
+  private int literals(long[] cover) {
+    int ret = 0;
+    for (long c : cover) ret += inputs - Integer.bitCount(unknowns(c));
+    return ret;
+  }
+
+  private boolean cheaper(long[] a, long[] b) {
+    if (a.length != b.length) return a.length < b.length;
+    return literals(a) < literals(b);
+  }
+
+  //
+  // exact minimization
+  //
+  private long[] primes;
+  private long[][] primeRows;
+  private int[][] rowPrimes;
+  private int[] primeLiterals;
+  private int maxRowsPerPrime;
+  private long[] best;
+  private int bestCubes;
+  private int bestLiterals;
+  private int nodes;
+
+  private long[] exact(long[] upperBound) {
+    primes = generatePrimes();
+    if (primes == null) return upperBound;
+    int[] rowIndex = new int[full + 1];
+    int rows = 0;
+    for (int row = 0; row <= full; row++)
+      if (contains(on, row)) rowIndex[row] = rows++;
+    if (rows == 0) return upperBound;
+    int words = (rows + 63) >>> 6;
+    primeRows = new long[primes.length][words];
+    primeLiterals = new int[primes.length];
+    int[] primesPerRow = new int[rows];
+    for (int p = 0; p < primes.length; p++) {
+      int u = unknowns(primes[p]);
+      int v = values(primes[p]);
+      int covered = 0;
+      for (int s = u; ; s = (s - 1) & u) {
+        int row = v | s;
+        if (contains(on, row)) {
+          add(primeRows[p], rowIndex[row]);
+          primesPerRow[rowIndex[row]]++;
+          covered++;
+        }
+        if (s == 0) break;
+      }
+      primeLiterals[p] = inputs - Integer.bitCount(u);
+      maxRowsPerPrime = Math.max(maxRowsPerPrime, covered);
+    }
+    rowPrimes = new int[rows][];
+    for (int r = 0; r < rows; r++) rowPrimes[r] = new int[primesPerRow[r]];
+    Arrays.fill(primesPerRow, 0);
+    for (int p = 0; p < primes.length; p++)
+      for (int r = 0; r < rows; r++)
+        if (contains(primeRows[p], r)) rowPrimes[r][primesPerRow[r]++] = p;
+
+    best = upperBound;
+    bestCubes = upperBound.length;
+    bestLiterals = literals(upperBound);
+    nodes = 0;
+    long[] uncovered = new long[words];
+    for (int r = 0; r < rows; r++) add(uncovered, r);
+    /* essential primes are part of every minimal cover */
+    int[] chosen = new int[bestCubes];
+    int cubes = 0;
+    int lits = 0;
+    int left = rows;
+    for (int r = 0; r < rows; r++) {
+      if (rowPrimes[r].length != 1 || !contains(uncovered, r)) continue;
+      int p = rowPrimes[r][0];
+      long[] covered = primeRows[p];
+      for (int w = 0; w < words; w++) {
+        left -= Long.bitCount(uncovered[w] & covered[w]);
+        uncovered[w] &= ~covered[w];
+      }
+      chosen[cubes++] = p;
+      lits += primeLiterals[p];
+    }
+    search(uncovered, left, chosen, cubes, lits);
+    return best;
+  }
+
+  /* Quine-McCluskey over sorted arrays of packed cubes; a cube is prime when
+   * it merges with no neighbour and contains at least one on-row. Returns null
+   * when the cubes or primes exceed their budget. */
+  private long[] generatePrimes() {
+    int generated = 0;
+    long[] level = new long[full + 1];
+    int size = 0;
+    for (int row = 0; row <= full; row++)
+      if (!contains(off, row)) level[size++] = cube(0, row);
+    level = Arrays.copyOf(level, size);
+    long[] ret = new long[16];
+    int found = 0;
+    while (level.length > 0) {
+      checkInterrupted();
+      boolean[] merged = new boolean[level.length];
+      long[] next = new long[16];
+      int nextSize = 0;
+      for (int i = 0; i < level.length; i++) {
+        int u = unknowns(level[i]);
+        int v = values(level[i]);
+        for (int bits = v & ~u; bits != 0; bits &= bits - 1) {
+          int j = Integer.lowestOneBit(bits);
+          int k = Arrays.binarySearch(level, cube(u, v ^ j));
+          if (k < 0) continue;
+          merged[i] = true;
+          merged[k] = true;
+          if (++generated > EXACT_CUBE_BUDGET) return null;
+          if (nextSize == next.length) next = Arrays.copyOf(next, 2 * nextSize);
+          next[nextSize++] = cube(u | j, v ^ j);
+        }
+      }
+      for (int i = 0; i < level.length; i++) {
+        if (merged[i] || !containsOnRow(level[i])) continue;
+        if (found == EXACT_PRIME_BUDGET) return null;
+        if (found == ret.length) ret = Arrays.copyOf(ret, 2 * found);
+        ret[found++] = level[i];
+      }
+      Arrays.sort(next, 0, nextSize);
+      int unique = 0;
+      for (int i = 0; i < nextSize; i++)
+        if (unique == 0 || next[unique - 1] != next[i]) next[unique++] = next[i];
+      level = Arrays.copyOf(next, unique);
+    }
+    return Arrays.copyOf(ret, found);
+  }
+
+  private boolean containsOnRow(long c) {
+    int u = unknowns(c);
+    int v = values(c);
+    for (int s = u; ; s = (s - 1) & u) {
+      if (contains(on, v | s)) return true;
+      if (s == 0) return false;
+    }
+  }
+
+  private void search(long[] uncovered, int left, int[] chosen, int cubes, int lits) {
+    if (++nodes > EXACT_NODE_BUDGET) return;
+    if ((nodes & 0xFF) == 0) checkInterrupted();
+    if (left == 0) {
+      if (cubes < bestCubes || (cubes == bestCubes && lits < bestLiterals)) {
+        best = new long[cubes];
+        for (int i = 0; i < cubes; i++) best[i] = primes[chosen[i]];
+        bestCubes = cubes;
+        bestLiterals = lits;
+      }
+      return;
+    }
+    int bound = cubes + (left + maxRowsPerPrime - 1) / maxRowsPerPrime;
+    if (bound > bestCubes || (bound == bestCubes && lits >= bestLiterals)) return;
+    if (cubes >= chosen.length) return;
+    /* branch on the uncovered row with the fewest primes covering it */
+    int row = -1;
+    for (int w = 0; w < uncovered.length; w++) {
+      for (long bits = uncovered[w]; bits != 0; bits &= bits - 1) {
+        int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+        if (row < 0 || rowPrimes[r].length < rowPrimes[row].length) row = r;
+      }
+    }
+    int[] options = rowPrimes[row];
+    int[] gains = new int[options.length];
+    Integer[] order = new Integer[options.length];
+    for (int i = 0; i < options.length; i++) {
+      order[i] = i;
+      long[] rows = primeRows[options[i]];
+      for (int w = 0; w < rows.length; w++) gains[i] += Long.bitCount(rows[w] & uncovered[w]);
+    }
+    Arrays.sort(order, (a, b) -> gains[a] != gains[b] ? gains[b] - gains[a]
+        : primeLiterals[options[a]] - primeLiterals[options[b]]);
+    long[] rest = new long[uncovered.length];
+    for (int i : order) {
+      int p = options[i];
+      long[] rows = primeRows[p];
+      for (int w = 0; w < rows.length; w++) rest[w] = uncovered[w] & ~rows[w];
+      chosen[cubes] = p;
+      search(rest, left - gains[i], chosen, cubes + 1, lits + primeLiterals[p]);
+    }
+  }
+}
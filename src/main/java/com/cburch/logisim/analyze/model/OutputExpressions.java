@@ -33,6 +33,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
 
 public class OutputExpressions {
   private class MyListener implements VariableListListener, TruthTableListener {
@@ -48,7 +54,7 @@ public class OutputExpressions {
       Var v = event.getVariable();
       int type = event.getType();
       if (type == VariableListEvent.ALL_REPLACED && !outputData.isEmpty()) {
-        outputData.clear();
+        clearOutputData();
         fireModelChanged(OutputExpressionsEvent.ALL_VARIABLES_REPLACED);
       } else if (type == VariableListEvent.REMOVE) {
         for (String input : v) {
@@ -71,13 +77,13 @@ public class OutputExpressions {
           }
           if (oldVar.width < newVar.width) {
             OutputData data = getOutputData(output, false);
-            if (data != null) data.invalidate(false, false);
+            if (data != null) data.invalidateLater(false);
           }
         }
       } else if (type == VariableListEvent.MOVE || type == VariableListEvent.ADD) {
         for (String output : outputData.keySet()) {
           OutputData data = getOutputData(output, false);
-          if (data != null) data.invalidate(false, false);
+          if (data != null) data.invalidateLater(false);
         }
       }
     }
@@ -90,10 +96,10 @@ public class OutputExpressions {
     private void outputsChanged(VariableListEvent event) {
       int type = event.getType();
       if (type == VariableListEvent.ALL_REPLACED && !outputData.isEmpty()) {
-        outputData.clear();
+        clearOutputData();
         fireModelChanged(OutputExpressionsEvent.ALL_VARIABLES_REPLACED);
       } else if (type == VariableListEvent.REMOVE) {
-        for (String bit : event.getVariable()) outputData.remove(bit);
+        for (String bit : event.getVariable()) removeOutputData(bit);
       } else if (type == VariableListEvent.REPLACE) {
         Var oldVar = event.getVariable();
         Var newVar = model.getOutputs().vars.get(event.getIndex());
@@ -107,7 +113,7 @@ public class OutputExpressions {
           }
         }
         for (int b = newVar.width; b < oldVar.width; b++) {
-          outputData.remove(oldVar.bitName(b));
+          removeOutputData(oldVar.bitName(b));
         }
       }
     }
@@ -115,6 +121,35 @@ public class OutputExpressions {
     public void structureChanged(TruthTableEvent event) {}
   }
 
+  /*
+   * Computes the minimal implicants of one output column on the background
+   * executor, and hands them back to the event thread once done.
+   */
+  private class Minimization extends FutureTask<List<Implicant>> {
+    private final OutputData data;
+    private final boolean formatChanged;
+    private final boolean checkExpression;
+
+    Minimization(
+        OutputData data,
+        int format,
+        int minimizer,
+        int inputs,
+        PackedColumn column,
+        boolean formatChanged,
+        boolean checkExpression) {
+      super(() -> Implicant.computeMinimal(format, minimizer, inputs, column));
+      this.data = data;
+      this.formatChanged = formatChanged;
+      this.checkExpression = checkExpression;
+    }
+
+    @Override
+    protected void done() {
+      if (!isCancelled()) SwingUtilities.invokeLater(() -> data.publish(this));
+    }
+  }
+
   private class OutputData {
     String output;
     int format;
@@ -124,6 +159,7 @@ public class OutputExpressions {
     Expression minimalExpr = null;
 
     private boolean invalidating = false;
+    private Minimization pending = null;
 
     OutputData(String output) {
       this.output = output;
@@ -155,17 +191,82 @@ public class OutputExpressions {
       return format;
     }
 
+    private void cancelPending() {
+      if (pending != null) {
+        pending.cancel(true);
+        pending = null;
+      }
+    }
+
     private void invalidate(boolean initializing, boolean formatChanged) {
       if (invalidating) return;
+      cancelPending();
+      update(
+          Implicant.computeMinimal(format, minimizer, model, output),
+          initializing,
+          formatChanged,
+          !updatingTable);
+    }
+
+    /*
+     * Like invalidate, but computes the new minimal expression in the
+     * background; until it is published the old one stays in place. A
+     * computation still running for an earlier edit is cancelled.
+     */
+    private void invalidateLater(boolean formatChanged) {
+      if (invalidating) return;
+      int column = model.getOutputs().bits.indexOf(output);
+      if (column < 0) return;
+      if (pending != null) {
+        formatChanged |= pending.formatChanged;
+        cancelPending();
+      }
+      TruthTable table = model.getTruthTable();
+      PackedColumn entries = table.getPackedColumn(column);
+      if (entries != null) entries = entries.copy();
+      pending =
+          new Minimization(
+              this,
+              format,
+              minimizer,
+              table.getInputColumnCount(),
+              entries,
+              formatChanged,
+              !updatingTable);
+      EXECUTOR.execute(pending);
+    }
+
+    private void publish(Minimization task) {
+      if (task != pending || outputData.get(output) != this) return;
+      pending = null;
+      List<Implicant> implicants;
+      try {
+        implicants = task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        // rethrown rather than recomputed here, which would block this thread on the same work
+        throw new IllegalStateException("minimization of " + output + " failed", e.getCause());
+      }
+      update(implicants, false, task.formatChanged, task.checkExpression);
+    }
+
+    private void update(
+        List<Implicant> implicants,
+        boolean initializing,
+        boolean formatChanged,
+        boolean checkExpression) {
+      if (invalidating) return;
       invalidating = true;
       try {
         List<Implicant> oldImplicants = minimalImplicants;
         Expression oldMinExpr = minimalExpr;
-        minimalImplicants = Implicant.computeMinimal(format, model, output);
+        minimalImplicants = implicants;
         minimalExpr = Implicant.toExpression(format, model, minimalImplicants);
         boolean minChanged = !implicantsSame(oldImplicants, minimalImplicants);
 
-        if (!updatingTable) {
+        if (checkExpression) {
           // see whether the expression is still consistent with the
           // truth table
           TruthTable table = model.getTruthTable();
@@ -201,6 +302,7 @@ public class OutputExpressions {
     }
 
     private void removeInput(String input) {
+      cancelPending();
       Expression oldMinExpr = minimalExpr;
       minimalImplicants = null;
       minimalExpr = null;
@@ -226,6 +328,7 @@ public class OutputExpressions {
     }
 
     private void replaceInput(String input, String newName) {
+      cancelPending();
       minimalExpr = null;
 
       if (exprString != null) {
@@ -264,8 +367,26 @@ public class OutputExpressions {
     void setMinimizedFormat(int value) {
       if (format != value) {
         format = value;
-        this.invalidate(false, true);
+        invalidateLater(true);
+      }
+    }
+
+    void waitForUpdate() {
+      Minimization task = pending;
+      if (task == null) return;
+      try {
+        task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        // publish reports it
       }
+      publish(task);
+    }
+
+    Minimization getPending() {
+      return pending;
     }
   }
 
@@ -324,6 +445,17 @@ public class OutputExpressions {
     return true;
   }
 
+  /* minimizations run in parallel, one task per output column */
+  private static final ExecutorService EXECUTOR =
+      Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          r -> {
+            Thread t = new Thread(r, "OutputExpressions minimizer");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+          });
+
   private MyListener myListener = new MyListener();
 
   private AnalyzerModel model;
@@ -335,6 +467,8 @@ public class OutputExpressions {
 
   private boolean updatingTable = false;
 
+  private int minimizer = AnalyzerModel.MINIMIZE_AUTO;
+
   public OutputExpressions(AnalyzerModel model) {
     this.model = model;
     model.getInputs().addVariableListListener(myListener);
@@ -403,6 +537,10 @@ public class OutputExpressions {
     }
   }
 
+  public int getMinimizer() {
+    return minimizer;
+  }
+
   public int getMinimizedFormat(String output) {
     if (output == null) return AnalyzerModel.FORMAT_SUM_OF_PRODUCTS;
     try {
@@ -425,13 +563,23 @@ public class OutputExpressions {
     return ret;
   }
 
+  private void removeOutputData(String output) {
+    OutputData data = outputData.remove(output);
+    if (data != null) data.cancelPending();
+  }
+
+  private void clearOutputData() {
+    for (OutputData data : outputData.values()) data.cancelPending();
+    outputData.clear();
+  }
+
   private void invalidate(String output, boolean formatChanged) {
     OutputData data = getOutputData(output, false);
     if (data != null) {
       if (!allowUpdates) {
-        outputData.remove(output);
+        removeOutputData(output);
       } else {
-        data.invalidate(false, false);
+        data.invalidateLater(formatChanged);
       }
     }
   }
@@ -462,6 +610,44 @@ public class OutputExpressions {
     }
   }
 
+  public void setMinimizer(int value) {
+    if (minimizer != value) {
+      minimizer = value;
+      for (OutputData data : new ArrayList<OutputData>(outputData.values())) {
+        data.invalidateLater(true);
+      }
+    }
+  }
+
+  /**
+   * Blocks until the minimal expressions still being computed in the background are done, and
+   * publishes them. Must be called on the thread that edits the model; to keep that thread
+   * responsive, wait for the tasks of getPendingUpdates elsewhere first.
+   */
+  public void waitForUpdates() {
+    for (OutputData data : new ArrayList<OutputData>(outputData.values())) {
+      data.waitForUpdate();
+    }
+  }
+
+  /** Like waitForUpdates, but only for the minimal expression of the given output. */
+  public void waitForUpdate(String output) {
+    OutputData data = getOutputData(output, false);
+    if (data != null) data.waitForUpdate();
+  }
+
+  /**
+   * Returns the minimizations still running in the background. Waiting for them does not publish
+   * their results, so it may be done on any thread; waitForUpdates then returns at once.
+   */
+  public List<Future<?>> getPendingUpdates() {
+    ArrayList<Future<?>> ret = new ArrayList<Future<?>>();
+    for (OutputData data : outputData.values()) {
+      if (data.getPending() != null) ret.add(data.getPending());
+    }
+    return ret;
+  }
+
   private boolean allowUpdates = false;
 
   public void enableUpdates() {
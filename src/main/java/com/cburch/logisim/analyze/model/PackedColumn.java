@@ -0,0 +1,166 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * One output column of a truth table, packed at two bits per row, 32 rows
+ * to a long. The codes are chosen so that a fresh column is all don't
+ * cares. There is room for a single error code; the few rows holding an
+ * oscillation error rather than a bus error are remembered separately.
+ */
+final class PackedColumn {
+  private static final int DONT_CARE = 0;
+  private static final int ZERO = 1;
+  private static final int ONE = 2;
+  private static final int ERROR = 3;
+
+  private static final long LOW_BITS = 0x5555555555555555L;
+
+  private final int size;
+  private final long[] words;
+  private BitSet oscillating;
+
+  PackedColumn(int size) {
+    this.size = size;
+    this.words = new long[(size + 31) >>> 5];
+  }
+
+  private PackedColumn(PackedColumn other) {
+    this.size = other.size;
+    this.words = other.words.clone();
+    this.oscillating = other.oscillating == null ? null : (BitSet) other.oscillating.clone();
+  }
+
+  static PackedColumn of(Entry[] values) {
+    PackedColumn ret = new PackedColumn(values.length);
+    for (int i = 0; i < values.length; i++) ret.set(i, values[i]);
+    return ret;
+  }
+
+  private static int encode(Entry value) {
+    if (value == Entry.ZERO) return ZERO;
+    if (value == Entry.ONE) return ONE;
+    if (value == Entry.DONT_CARE) return DONT_CARE;
+    return ERROR;
+  }
+
+  int size() {
+    return size;
+  }
+
+  PackedColumn copy() {
+    return new PackedColumn(this);
+  }
+
+  private int code(int idx) {
+    return (int) (words[idx >>> 5] >>> ((idx & 31) << 1)) & 3;
+  }
+
+  Entry get(int idx) {
+    switch (code(idx)) {
+      case ZERO:
+        return Entry.ZERO;
+      case ONE:
+        return Entry.ONE;
+      case DONT_CARE:
+        return Entry.DONT_CARE;
+      default:
+        return oscillating != null && oscillating.get(idx)
+            ? Entry.OSCILLATE_ERROR
+            : Entry.BUS_ERROR;
+    }
+  }
+
+  /** Stores the entry, and returns whether this changed the column. */
+  boolean set(int idx, Entry value) {
+    if (get(idx) == value) return false;
+    int shift = (idx & 31) << 1;
+    long word = words[idx >>> 5] & ~(3L << shift);
+    words[idx >>> 5] = word | ((long) encode(value) << shift);
+    if (value == Entry.OSCILLATE_ERROR) {
+      if (oscillating == null) oscillating = new BitSet();
+      oscillating.set(idx);
+    } else if (oscillating != null) {
+      oscillating.clear(idx);
+    }
+    return true;
+  }
+
+  boolean sameEntry(int idx1, int idx2) {
+    return get(idx1) == get(idx2);
+  }
+
+  Entry[] toArray() {
+    Entry[] ret = new Entry[size];
+    for (int i = 0; i < size; i++) ret[i] = get(i);
+    return ret;
+  }
+
+  /**
+   * Adds the rows holding the given entry, which must be ZERO, ONE or
+   * DONT_CARE, to a bitset over the rows. This works a word at a time.
+   */
+  void collectRows(Entry value, long[] set) {
+    int code = encode(value);
+    // replicate the code into every two-bit field, so matching fields xor to zero
+    long pattern = code * LOW_BITS;
+    for (int w = 0; w < words.length; w++) {
+      long diff = words[w] ^ pattern;
+      long match = ~(diff | (diff >>> 1)) & LOW_BITS;
+      if (match == 0) continue;
+      // compress the 32 even bits into the low half of an int
+      long bits = 0;
+      for (long m = match; m != 0; m &= m - 1) {
+        bits |= 1L << (Long.numberOfTrailingZeros(m) >>> 1);
+      }
+      int row = w << 5;
+      set[row >>> 6] |= bits << (row & 63);
+    }
+    // the padding rows of a small table read as don't cares
+    for (int i = size; i < words.length << 5; i++) set[i >>> 6] &= ~(1L << i);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof PackedColumn)) return false;
+    PackedColumn o = (PackedColumn) other;
+    if (size != o.size || !Arrays.equals(words, o.words)) return false;
+    BitSet a = oscillating == null ? new BitSet() : oscillating;
+    BitSet b = o.oscillating == null ? new BitSet() : o.oscillating;
+    return a.equals(b);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(words);
+  }
+}
@@ -45,53 +45,60 @@ public class TruthTable {
   private List<TruthTableListener> listeners = new ArrayList<TruthTableListener>();
 
   private AnalyzerModel model;
-  private ArrayList<Row> rows = new ArrayList<>(); // visible input rows
-  private ArrayList<Entry[]> columns = new ArrayList<>(); // output columns
+  // visible input rows; null while every row is visible on its own, which
+  // saves a row object per index for the large tables
+  private ArrayList<Row> rows = null;
+  private ArrayList<PackedColumn> columns = new ArrayList<>(); // output columns
   private static final CompareInputs sortByInputs = new CompareInputs();
 
   private class Row implements Iterable<Integer> {
-    // todo: probably more efficient to store this in baseIdx/dcMask format.
-    Entry inputs[];
+    final int base;
+    final int dc;
+    final int width;
 
     Row(int idx, int numInputs, int mask) {
-      inputs = new Entry[numInputs];
-      for (int i = numInputs - 1; i >= 0; i--) {
-        inputs[i] = (mask & 1) == 0 ? (idx & 1) == 0 ? Entry.ZERO : Entry.ONE : Entry.DONT_CARE;
-        idx = idx >> 1;
-        mask = mask >> 1;
-      }
+      int all = (1 << numInputs) - 1;
+      width = numInputs;
+      dc = mask & all;
+      base = idx & ~mask & all;
     }
 
     Row(Entry entries[], int numInputs) {
-      inputs = new Entry[numInputs];
-      for (int i = 0; i < numInputs; i++) inputs[i] = entries[i];
+      int idx = 0;
+      int mask = 0;
+      for (int i = 0; i < numInputs; i++) {
+        idx = (idx << 1) | (entries[i] == Entry.ONE ? 1 : 0);
+        mask = (mask << 1) | (entries[i] == Entry.DONT_CARE ? 1 : 0);
+      }
+      width = numInputs;
+      dc = mask;
+      base = idx;
+    }
+
+    Entry input(int col) {
+      int bit = 1 << (width - 1 - col);
+      if ((dc & bit) != 0) return Entry.DONT_CARE;
+      return (base & bit) != 0 ? Entry.ONE : Entry.ZERO;
     }
 
     public int baseIndex() {
-      int idx = 0;
-      for (int i = 0; i < inputs.length; i++) idx = (idx << 1) | (inputs[i] == Entry.ONE ? 1 : 0);
-      return idx;
+      return base;
     }
 
     public int dcMask() {
-      int mask = 0;
-      for (int i = 0; i < inputs.length; i++)
-        mask = (mask << 1) | (inputs[i] == Entry.DONT_CARE ? 1 : 0);
-      return mask;
+      return dc;
     }
 
     public int duplicity() {
-      int count = 1;
-      for (int i = 0; i < inputs.length; i++) count *= (inputs[i] == Entry.DONT_CARE ? 2 : 1);
-      return count;
+      return 1 << Integer.bitCount(dc);
     }
 
     @Override
     public String toString() {
       String s = "row[";
-      for (int i = 0; i < inputs.length; i++) {
+      for (int i = 0; i < width; i++) {
         if (i != 0) s += " ";
-        s += inputs[i].getDescription();
+        s += input(i).getDescription();
       }
       s += "]";
       s += " dup=" + duplicity();
@@ -105,7 +112,7 @@ public class TruthTable {
       for (Var v : vars) {
         if (s == null) s = "";
         else s += " ";
-        for (int j = 0; j < v.width; j++) s += inputs[i++].toBitString();
+        for (int j = 0; j < v.width; j++) s += input(i++).toBitString();
       }
       return s;
     }
@@ -127,7 +134,7 @@ public class TruthTable {
       return new Iterator<Integer>() {
         int base = baseIndex();
         int mask = dcMask();
-        int nbits = inputs.length;
+        int nbits = width;
         int count = duplicity();
         int iter = 0;
 
@@ -163,11 +170,27 @@ public class TruthTable {
   }
 
   private void initRows() {
-    int inputs = getInputColumnCount();
-    int n = getRowCount();
-    rows.clear();
-    rows.ensureCapacity(n);
-    for (int i = 0; i < n; i++) rows.add(new Row(i, inputs, 0));
+    rows = null;
+  }
+
+  private Row getRow(int row) {
+    return rows == null ? new Row(row, getInputColumnCount(), 0) : rows.get(row);
+  }
+
+  /* Creates the list of visible rows, needed before rows are merged. */
+  private ArrayList<Row> materializeRows() {
+    if (rows == null) {
+      int inputs = getInputColumnCount();
+      int n = getRowCount();
+      rows = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) rows.add(new Row(i, inputs, 0));
+    }
+    return rows;
+  }
+
+  /* Drops the list of visible rows again once every row is on its own. */
+  private void collapseRows() {
+    if (rows != null && rows.size() == getRowCount()) rows = null;
   }
 
   private void initColumns() {
@@ -193,7 +216,7 @@ public class TruthTable {
 
   public void compactVisibleRows() {
     SortedMap<Implicant, String> partition = Implicant.computePartition(model);
-    rows.clear();
+    rows = new ArrayList<>(partition.size());
     initColumns();
     int ni = getInputColumnCount();
     int no = getOutputColumnCount();
@@ -204,14 +227,14 @@ public class TruthTable {
       rows.add(r);
       for (int col = 0; col < no; col++) {
         Entry value = Entry.parse("" + val.charAt(col));
-        Entry[] column = columns.get(col);
-        if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
+        if (columns.get(col) == null && value == DEFAULT_ENTRY) continue;
+        PackedColumn column = column(col);
         for (Integer idx : r) {
-          column[idx] = value;
+          column.set(idx, value);
         }
       }
     }
+    collapseRows();
     fireRowsChanged();
     for (int col = 0; col < no; col++) {
       if (columns.get(col) != null) fireCellsChanged(col);
@@ -220,11 +243,12 @@ public class TruthTable {
 
   public void setOutputColumn(int col, Entry[] values) {
     if (values.length != getRowCount()) throw new IllegalArgumentException("bad column length");
-    Entry[] oldValues = columns.set(col, values);
-    if (oldValues == values) return;
+    PackedColumn packed = PackedColumn.of(values);
+    PackedColumn oldValues = columns.set(col, packed);
+    if (packed.equals(oldValues)) return;
     // Expand rows as dictated by column inconsistencies
     boolean rowsChanged = false;
-    for (int i = rows.size() - 1; i >= 0; i--) {
+    for (int i = rows == null ? -1 : rows.size() - 1; i >= 0; i--) {
       Row r = rows.get(i);
       int base = r.baseIndex();
       Entry v = values[base];
@@ -241,7 +265,10 @@ public class TruthTable {
         }
       }
     }
-    if (rowsChanged) fireRowsChanged();
+    if (rowsChanged) {
+      collapseRows();
+      fireRowsChanged();
+    }
     fireCellsChanged(col);
   }
 
@@ -251,11 +278,11 @@ public class TruthTable {
     int diff = idx ^ base;
     int n = r.duplicity();
     if (n <= 1) throw new IllegalStateException("row duplicity should be at least 2");
-    Row splits = new Row(base, r.inputs.length, diff);
+    Row splits = new Row(base, r.width, diff);
     int m = 0;
     rows.remove(r);
     for (Integer other : splits) {
-      Row s = new Row(other, r.inputs.length, r.dcMask() & ~diff);
+      Row s = new Row(other, r.width, r.dcMask() & ~diff);
       m += s.duplicity();
       int pos = Collections.binarySearch(rows, s, sortByInputs);
       if (pos < 0) rows.add(-pos - 1, s);
@@ -265,44 +292,40 @@ public class TruthTable {
   }
 
   public Entry getVisibleOutputEntry(int row, int col) {
-    Row r = rows.get(row);
-    int idx = r.baseIndex();
-    return getOutputEntry(idx, col);
+    return getOutputEntry(getVisibleRowIndex(row), col);
   }
 
   public Entry getOutputEntry(int idx, int col) {
     if (idx < 0 || col < 0) return DEFAULT_ENTRY;
-    Entry[] column = columns.get(col);
-    return (column == null ? DEFAULT_ENTRY : idx < column.length ? column[idx] : DEFAULT_ENTRY);
+    PackedColumn column = columns.get(col);
+    return (column == null ? DEFAULT_ENTRY : idx < column.size() ? column.get(idx) : DEFAULT_ENTRY);
   }
 
   public String getVisibleOutputs(int row) {
-    Row r = rows.get(row);
-    int idx = r.baseIndex();
+    int idx = getVisibleRowIndex(row);
     String s = "";
-    for (Entry[] column : columns)
-      s += (column == null ? DEFAULT_ENTRY : column[idx]).getDescription();
+    for (PackedColumn column : columns)
+      s += (column == null ? DEFAULT_ENTRY : column.get(idx)).getDescription();
     return s;
   }
 
   public Entry getVisibleInputEntry(int row, int col) {
-    Row r = rows.get(row);
-    return r.inputs[col];
+    if (rows == null) {
+      return isInputSet(row, col, getInputColumnCount()) ? Entry.ONE : Entry.ZERO;
+    }
+    return rows.get(row).input(col);
   }
 
   public int getVisibleRowDcMask(int row) {
-    Row r = rows.get(row);
-    return r.dcMask();
+    return rows == null ? 0 : rows.get(row).dcMask();
   }
 
   public int getVisibleRowIndex(int row) {
-    Row r = rows.get(row);
-    return r.baseIndex();
+    return rows == null ? row : rows.get(row).baseIndex();
   }
 
   public Iterable<Integer> getVisibleRowIndexes(int row) {
-    Row r = rows.get(row);
-    return r;
+    return getRow(row);
   }
 
   public Entry getInputEntry(int idx, int col) {
@@ -316,13 +339,33 @@ public class TruthTable {
     return (idx & (1 << (inputs - col - 1))) != 0;
   }
 
+  /**
+   * Returns the entries of an output column. The array is a copy; changes to
+   * it must be stored back with setOutputColumn.
+   */
   public Entry[] getOutputColumn(int col) {
-    Entry[] column = columns.get(col);
+    PackedColumn column = columns.get(col);
     if (column == null) {
       if (col < 0 || col >= getOutputColumnCount())
         throw new IndexOutOfBoundsException("bad output column index");
-      column = new Entry[getRowCount()];
-      Arrays.fill(column, DEFAULT_ENTRY);
+      Entry[] ret = new Entry[getRowCount()];
+      Arrays.fill(ret, DEFAULT_ENTRY);
+      return ret;
+    }
+    return column.toArray();
+  }
+
+  /* Returns the column as stored, or null when it holds only don't cares. */
+  PackedColumn getPackedColumn(int col) {
+    return columns.get(col);
+  }
+
+  private PackedColumn column(int col) {
+    PackedColumn column = columns.get(col);
+    if (column == null) {
+      if (col < 0 || col >= getOutputColumnCount())
+        throw new IndexOutOfBoundsException("bad output column index");
+      column = new PackedColumn(getRowCount());
       columns.set(col, column);
     }
     return column;
@@ -331,9 +374,9 @@ public class TruthTable {
   private boolean identicalOutputs(int idx1, int idx2) {
     if (idx1 == idx2) return true;
     for (int col = 0; col < columns.size(); col++) {
-      Entry[] column = columns.get(col);
+      PackedColumn column = columns.get(col);
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) return false;
+      if (!column.sameEntry(idx1, idx2)) return false;
     }
     return true;
   }
@@ -341,23 +384,21 @@ public class TruthTable {
   private void mergeOutputs(int idx1, int idx2, boolean changed[]) {
     if (idx1 == idx2) return;
     for (int col = 0; col < columns.size(); col++) {
-      Entry[] column = columns.get(col);
+      PackedColumn column = columns.get(col);
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) {
-        column[idx2] = column[idx1];
-        changed[col] = true;
-      }
+      if (column.set(idx2, column.get(idx1))) changed[col] = true;
     }
   }
 
   private boolean setDontCare(Row r, int dc, boolean force, boolean changed[]) {
-    Row rNew = new Row(r.baseIndex(), r.inputs.length, r.dcMask() | dc);
+    Row rNew = new Row(r.baseIndex(), r.width, r.dcMask() | dc);
     int base = rNew.baseIndex();
     if (!force) {
       for (Integer idx : rNew) {
         if (!identicalOutputs(base, idx)) return false;
       }
     }
+    materializeRows();
     for (int i = 0; i < rows.size(); i++) {
       Row s = rows.get(i);
       if (!rNew.intersects(s)) continue;
@@ -367,11 +408,11 @@ public class TruthTable {
       } else {
         // find a bit we can flip in s so it doesn't conflict
         int pos;
-        for (pos = s.inputs.length - 1; pos >= 0; pos--) {
-          if (s.inputs[pos] == Entry.DONT_CARE && rNew.inputs[pos] != Entry.DONT_CARE) break;
+        for (pos = s.width - 1; pos >= 0; pos--) {
+          if (s.input(pos) == Entry.DONT_CARE && rNew.input(pos) != Entry.DONT_CARE) break;
         }
         if (pos < 0) throw new IllegalStateException("failed row merge");
-        int bit = (1 << (s.inputs.length - 1 - pos));
+        int bit = (1 << (s.width - 1 - pos));
         splitRow(s, s.baseIndex() ^ bit);
       }
       i--; // back up, may need a second split
@@ -383,20 +424,22 @@ public class TruthTable {
   }
 
   public boolean setVisibleInputEntry(int row, int col, Entry value, boolean force) {
-    Row r = rows.get(row);
-    if (r.inputs[col] == value) return false;
-    int dc = (1 << (r.inputs.length - 1 - col));
+    Row r = getRow(row);
+    if (r.input(col) == value) return false;
+    int dc = (1 << (r.width - 1 - col));
     if (value == Entry.DONT_CARE) {
       boolean changed[] = new boolean[columns.size()];
       if (!setDontCare(r, dc, force, changed)) return false;
+      collapseRows();
       fireRowsChanged();
       for (int ocol = 0; ocol < columns.size(); ocol++) {
         if (changed[ocol]) fireCellsChanged(ocol);
       }
       return true;
     } else if (value == Entry.ONE || value == Entry.ZERO) {
-      if (r.inputs[col] != Entry.DONT_CARE) return false;
+      if (r.input(col) != Entry.DONT_CARE) return false;
       splitRow(r, r.baseIndex() | dc);
+      collapseRows();
       fireRowsChanged();
       return true;
     } else {
@@ -405,20 +448,18 @@ public class TruthTable {
   }
 
   public void setVisibleOutputEntry(int row, int col, Entry value) {
-    Row r = rows.get(row);
-    Entry[] column = columns.get(col);
-    if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
+    Row r = getRow(row);
+    if (columns.get(col) == null && value == DEFAULT_ENTRY) return;
+    PackedColumn column = column(col);
     boolean changed = false;
     for (Integer idx : r) {
-      if (column[idx] == value) continue;
-      changed = true;
-      column[idx] = value;
+      if (column.set(idx, value)) changed = true;
     }
     if (changed) fireCellsChanged(col);
   }
 
   Row findRow(int idx) {
+    if (rows == null) return new Row(idx, getInputColumnCount(), 0);
     for (int i = rows.size() - 1; i >= 0; i--) {
       Row r = rows.get(i);
       if (r.contains(idx)) return r;
@@ -427,6 +468,7 @@ public class TruthTable {
   }
 
   public int findVisibleRowContaining(int idx) {
+    if (rows == null) return idx;
     for (int i = rows.size() - 1; i >= 0; i--) {
       Row r = rows.get(i);
       if (r.contains(idx)) return i;
@@ -479,19 +521,18 @@ public class TruthTable {
     }
 
     Collections.sort(newRows, sortByInputs);
-    rows.clear();
     rows = newRows;
+    collapseRows();
     initColumns();
 
     for (Entry values[] : newEntries) {
       Row r = new Row(values, ni);
       for (int col = 0; col < no; col++) {
         Entry value = values[ni + col];
-        Entry[] column = columns.get(col);
-        if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
+        if (columns.get(col) == null && value == DEFAULT_ENTRY) continue;
+        PackedColumn column = column(col);
         for (Integer idx : r) {
-          column[idx] = value;
+          column.set(idx, value);
         }
       }
     }
@@ -502,14 +543,12 @@ public class TruthTable {
   }
 
   public void setOutputEntry(int idx, int col, Entry value) {
-    Entry[] column = columns.get(col);
-    if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
-    if (column[idx] == value) return;
-    column[idx] = value;
+    if (columns.get(col) == null && value == DEFAULT_ENTRY) return;
+    if (!column(col).set(idx, value)) return;
     Row r = findRow(idx);
     if (r.duplicity() > 1) {
       splitRow(r, idx);
+      collapseRows();
       fireRowsChanged();
     }
     fireCellsChanged(col);
@@ -519,11 +558,13 @@ public class TruthTable {
 
     public void listChanged(VariableListEvent event) {
       if (event.getSource() == model.getInputs()) {
+        boolean expanded = rows == null;
         inputsChanged(event);
+        collapseRows();
         for (int col = 0; col < columns.size(); col++) {
-          Entry[] column = columns.get(col);
+          PackedColumn column = columns.get(col);
           if (column == null) continue;
-          column = inputsChangedForOutput(column, event);
+          column = inputsChangedForOutput(column, event, expanded);
           columns.set(col, column);
         }
         fireRowsChanged();
@@ -546,12 +587,12 @@ public class TruthTable {
         int newIndex = getOutputIndex(v.bitName(0));
         if (delta > 0) {
           for (int b = 0; b < v.width; b++) {
-            Entry[] column = columns.remove(newIndex - delta - b);
+            PackedColumn column = columns.remove(newIndex - delta - b);
             columns.add(newIndex - b, column);
           }
         } else if (delta < 0) {
           for (int b = v.width - 1; b >= 0; b--) {
-            Entry[] column = columns.remove(newIndex - delta - b);
+            PackedColumn column = columns.remove(newIndex - delta - b);
             columns.add(newIndex - b, column);
           }
         }
@@ -609,6 +650,7 @@ public class TruthTable {
     }
 
     private void moveInput(int oldIndex, int newIndex) {
+      if (rows == null) return; // a permutation of all rows is all rows
       int inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
@@ -641,6 +683,7 @@ public class TruthTable {
     }
 
     private void addInput(int index, int oldCount) {
+      if (rows == null) return; // each row splits in two
       // add another Entry column to each row.input
       ArrayList<Row> ret = new ArrayList<>(2 * rows.size());
       for (Row r : rows) {
@@ -658,12 +701,16 @@ public class TruthTable {
     }
 
     private void removeInput(int index, int oldCount) {
+      // With all rows visible, forcing the removed input to 'x' merges each
+      // pair of rows into the one with the input clear, which is exactly what
+      // removeInputForOutput keeps; the remaining rows are again all rows.
+      if (rows == null) return;
       // force an Entry column of each row.input to 'x', then remove it
       int b = (1 << (oldCount - 1 - index)); // _0001000
       boolean changed[] = new boolean[columns.size()];
       for (int i = 0; i < rows.size(); i++) {
         Row r = rows.get(i);
-        if (r.inputs[index] == Entry.DONT_CARE) continue;
+        if (r.input(index) == Entry.DONT_CARE) continue;
         setDontCare(r, b, true, changed);
       }
       int mask = b - 1; // _0000111
@@ -679,7 +726,8 @@ public class TruthTable {
       rows = ret;
     }
 
-    private Entry[] inputsChangedForOutput(Entry[] column, VariableListEvent event) {
+    private PackedColumn inputsChangedForOutput(
+        PackedColumn column, VariableListEvent event, boolean expanded) {
       Var v = event.getVariable();
       int action = event.getType();
       if (action == VariableListEvent.ADD) {
@@ -691,7 +739,7 @@ public class TruthTable {
         int bitIndex = event.getBitIndex();
         int oldCount = getInputColumnCount() + v.width;
         for (int b = 0; b < v.width; b++)
-          column = removeInputForOutput(column, bitIndex - b, oldCount--);
+          column = removeInputForOutput(column, bitIndex - b, oldCount--, expanded);
       } else if (action == VariableListEvent.MOVE) {
         int delta = event.getBitIndex();
         int newIndex = getInputIndex(v.bitName(0));
@@ -710,7 +758,8 @@ public class TruthTable {
         int oldCount = getInputColumnCount() + lost;
         int pos = bitIndex + 1 - oldVar.width;
         if (lost > 0) {
-          while (lost-- != 0) column = removeInputForOutput(column, pos, oldCount--);
+          while (lost-- != 0)
+            column = removeInputForOutput(column, pos, oldCount--, expanded);
         } else if (lost < 0) {
           while (lost++ != 0) column = addInputForOutput(column, pos, oldCount++);
         }
@@ -718,52 +767,53 @@ public class TruthTable {
       return column;
     }
 
-    private Entry[] moveInputForOutput(Entry[] old, int oldIndex, int newIndex) {
+    private PackedColumn moveInputForOutput(PackedColumn old, int oldIndex, int newIndex) {
       int inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
-      Entry[] ret = new Entry[old.length];
+      PackedColumn ret = new PackedColumn(old.size());
       int sameMask =
-          (old.length - 1)
+          (old.size() - 1)
               ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
               ^ ((1 << Math.min(oldIndex, newIndex)) - 1); // bits that don't change
       int moveMask = 1 << oldIndex; // bit that moves
       int moveDist = Math.abs(newIndex - oldIndex);
       boolean moveLeft = newIndex > oldIndex;
-      int blockMask = (old.length - 1) ^ sameMask ^ moveMask; // bits that move by one
-      for (int i = 0; i < old.length; i++) {
+      int blockMask = (old.size() - 1) ^ sameMask ^ moveMask; // bits that move by one
+      for (int i = 0; i < old.size(); i++) {
         int j; // new index
         if (moveLeft) {
           j = (i & sameMask) | ((i & moveMask) << moveDist) | ((i & blockMask) >> 1);
         } else {
           j = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
         }
-        ret[j] = old[i];
+        ret.set(j, old.get(i));
       }
       return ret;
     }
 
-    private Entry[] removeInputForOutput(Entry[] old, int index, int oldCount) {
-      Entry[] ret = new Entry[old.length / 2];
+    private PackedColumn removeInputForOutput(
+        PackedColumn old, int index, int oldCount, boolean expanded) {
+      PackedColumn ret = new PackedColumn(old.size() / 2);
       int j = 0;
       int mask = 1 << (oldCount - 1 - index);
-      for (int i = 0; i < old.length; i++) {
+      for (int i = 0; i < old.size(); i++) {
         if ((i & mask) == 0) {
-          Entry e0 = old[i];
-          Entry e1 = old[i | mask];
-          ret[j++] = (e0 == e1 ? e0 : Entry.DONT_CARE);
+          Entry e0 = old.get(i);
+          Entry e1 = old.get(i | mask);
+          ret.set(j++, (e0 == e1 || expanded ? e0 : Entry.DONT_CARE));
         }
       }
       return ret;
     }
 
-    private Entry[] addInputForOutput(Entry[] old, int index, int oldCount) {
-      Entry[] ret = new Entry[2 * old.length];
+    private PackedColumn addInputForOutput(PackedColumn old, int index, int oldCount) {
+      PackedColumn ret = new PackedColumn(2 * old.size());
       int b = 1 << (oldCount - index); // _0001000
       int mask = b - 1; // _0000111
-      for (int i = 0; i < old.length; i++) {
-        ret[((i & ~mask) << 1) | 0 | (i & mask)] = old[i]; // xxxx0yyy
-        ret[((i & ~mask) << 1) | b | (i & mask)] = old[i]; // xxxx1yyy
+      for (int i = 0; i < old.size(); i++) {
+        ret.set(((i & ~mask) << 1) | 0 | (i & mask), old.get(i)); // xxxx0yyy
+        ret.set(((i & ~mask) << 1) | b | (i & mask), old.get(i)); // xxxx1yyy
       }
       return ret;
     }
@@ -843,6 +893,6 @@ public class TruthTable {
   }
 
   public int getVisibleRowCount() {
-    return rows.size();
+    return rows == null ? getRowCount() : rows.size();
   }
 }
@@ -0,0 +1,126 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Simulates a combinational circuit for many input vectors, as needed for truth tables and test
+ * vectors. Instead of resetting and propagating a circuit state for each vector, the circuit is
+ * evaluated as a compiled program; when all its wires are one bit wide, up to 64 vectors are
+ * evaluated at once, one in each bit of the values.
+ */
+public class BatchSimulator {
+  /** The number of input vectors evaluated together in a bit sliceable circuit. */
+  public static final int LANES = 64;
+
+  /**
+   * Returns a simulator for the circuit, or null if it has feedback or stateful components, so
+   * that it has to be simulated event by event.
+   */
+  public static BatchSimulator create(Project proj, Circuit circuit) {
+    CompiledCircuit compiled = CompiledCircuit.get(circuit);
+    return compiled == null ? null : new BatchSimulator(proj, compiled);
+  }
+
+  private final Project proj;
+  private final CompiledCircuit compiled;
+  private final Instance[] pins;
+  private final HashMap<Instance, Integer> pinIndex = new HashMap<Instance, Integer>();
+
+  private BatchSimulator(Project proj, CompiledCircuit compiled) {
+    this.proj = proj;
+    this.compiled = compiled;
+    this.pins = compiled.getPins();
+    for (int i = 0; i < pins.length; i++) pinIndex.put(pins[i], i);
+  }
+
+  /** Returns whether several input vectors are evaluated at once. */
+  public boolean isBitSliced() {
+    return compiled.isBitSliceable();
+  }
+
+  /**
+   * Simulates the circuit for each of the vectors, which hold a value for each of the given pins
+   * of the circuit; the input pins that aren't given keep their initial value. Returns for each
+   * vector the values of the given pins, with the values found at the output pins.
+   */
+  public List<Value[]> simulate(Instance[] given, List<Value[]> vectors) {
+    int[] index = new int[given.length];
+    for (int i = 0; i < given.length; i++) {
+      Integer k = pinIndex.get(given[i]);
+      if (k == null) throw new IllegalArgumentException("pin not in circuit");
+      index[i] = k;
+    }
+    Value[] initial = new Value[pins.length];
+    for (int i = 0; i < pins.length; i++) {
+      if (Pin.FACTORY.isInputPin(pins[i])) initial[i] = Pin.FACTORY.getInitialValue(pins[i]);
+    }
+
+    int batch = isBitSliced() ? LANES : 1;
+    ArrayList<Value[]> ret = new ArrayList<Value[]>(vectors.size());
+    for (int start = 0; start < vectors.size(); start += batch) {
+      int lanes = Math.min(batch, vectors.size() - start);
+      Value[] values = new Value[pins.length];
+      for (int k = 0; k < pins.length; k++) {
+        values[k] = lanes == 1 ? initial[k] : repeat(initial[k], lanes);
+      }
+      for (int i = 0; i < given.length; i++) {
+        if (!Pin.FACTORY.isInputPin(given[i])) continue;
+        if (lanes == 1) {
+          values[index[i]] = vectors.get(start)[i];
+        } else {
+          Value[] bits = new Value[lanes];
+          for (int j = 0; j < lanes; j++) bits[j] = vectors.get(start + j)[i].get(0);
+          values[index[i]] = Value.create(bits);
+        }
+      }
+      Value[] found = compiled.evaluate(proj, values, lanes);
+      for (int j = 0; j < lanes; j++) {
+        Value[] row = vectors.get(start + j).clone();
+        for (int i = 0; i < given.length; i++) {
+          Value v = found[index[i]];
+          if (v != null) row[i] = lanes == 1 ? v : v.get(j);
+        }
+        ret.add(row);
+      }
+    }
+    return ret;
+  }
+
+  private static Value repeat(Value value, int lanes) {
+    return value == null ? null : Value.repeat(value, lanes);
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A bounded ring of copies of a root circuit state, taken every few clock ticks, so that a long
+ * simulation can be rewound to an earlier point and run forward again. The copies are made with
+ * {@link CircuitState#cloneState}; memory contents share their pages with the running state until
+ * either writes to them, so a checkpoint of a design dominated by RAM costs little more than its
+ * component states. The oldest checkpoint is dropped when the ring is full.
+ *
+ * <p>Ticks are counted by the propagator of the root state, so checkpoints are numbered by the
+ * tick count at which they were taken, and a state restored from one continues counting from
+ * there.
+ */
+public class Checkpoints {
+  public static final int DEFAULT_INTERVAL = 1024;
+  public static final int DEFAULT_CAPACITY = 32;
+
+  private static class Checkpoint {
+    final int tick;
+    final CircuitState state;
+
+    Checkpoint(int tick, CircuitState state) {
+      this.tick = tick;
+      this.state = state;
+    }
+  }
+
+  private final int interval;
+  private final int capacity;
+  private final ArrayDeque<Checkpoint> ring = new ArrayDeque<Checkpoint>();
+  // the root state the checkpoints were taken from
+  private CircuitState current = null;
+  // the state replaced by the last rewind; a tick it completes late must not clear the ring
+  private CircuitState retired = null;
+
+  public Checkpoints() {
+    this(DEFAULT_INTERVAL, DEFAULT_CAPACITY);
+  }
+
+  public Checkpoints(int interval, int capacity) {
+    if (interval <= 0 || capacity <= 0) throw new IllegalArgumentException();
+    this.interval = interval;
+    this.capacity = capacity;
+  }
+
+  public int getInterval() {
+    return interval;
+  }
+
+  /** Forgets all checkpoints, as when the simulation is reset. */
+  public synchronized void clear() {
+    ring.clear();
+    current = null;
+    retired = null;
+  }
+
+  /** Returns the ticks at which the checkpoints kept were taken, oldest first. */
+  public synchronized List<Integer> getTicks() {
+    ArrayList<Integer> ret = new ArrayList<Integer>(ring.size());
+    for (Checkpoint cp : ring) ret.add(Integer.valueOf(cp.tick));
+    return ret;
+  }
+
+  /**
+   * Notes that a root state has completed a tick and settled, and takes a checkpoint if the tick
+   * count is a multiple of the interval. A different root state than before starts a new ring.
+   */
+  public synchronized void ticked(CircuitState root) {
+    if (root != current) {
+      if (root == retired) return;
+      ring.clear();
+      current = root;
+    }
+    int tick = root.getPropagator().getTickCount();
+    if (tick % interval != 0) return;
+    if (!ring.isEmpty() && ring.peekLast().tick >= tick) return;
+    if (ring.size() >= capacity) ring.removeFirst();
+    ring.addLast(new Checkpoint(tick, root.cloneState()));
+  }
+
+  /** Returns the tick of the latest checkpoint taken before a tick, or -1 if none is kept. */
+  public synchronized int getPrevious(int tick) {
+    int ret = -1;
+    for (Checkpoint cp : ring) {
+      if (cp.tick < tick) ret = cp.tick;
+    }
+    return ret;
+  }
+
+  /**
+   * Returns a new root state as it was after a tick: a copy of the latest checkpoint taken at or
+   * before it, simulated forward to that tick. Checkpoints after the tick are dropped, since the
+   * run continuing from the returned state may differ from the one they were taken from; new ones
+   * are taken as it goes on. Returns null if no checkpoint is kept that old.
+   */
+  public synchronized CircuitState rewind(int tick) {
+    Checkpoint found = null;
+    for (Checkpoint cp : ring) {
+      if (cp.tick <= tick) found = cp;
+    }
+    if (found == null) return null;
+    Iterator<Checkpoint> it = ring.descendingIterator();
+    while (it.hasNext() && it.next().tick > found.tick) it.remove();
+
+    CircuitState ret = found.state.cloneState();
+    Propagator prop = ret.getPropagator();
+    prop.setTickCount(found.tick);
+    retired = current;
+    current = ret;
+    while (prop.getTickCount() < tick) {
+      prop.tick();
+      prop.propagate();
+      ticked(ret);
+    }
+    return ret;
+  }
+}
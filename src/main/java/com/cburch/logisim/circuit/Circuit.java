@@ -69,6 +69,7 @@ import com.cburch.logisim.util.CollectionUtil;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 import com.cburch.logisim.vhdl.base.VhdlEntity;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -127,6 +128,8 @@ public class Circuit {
   private class MyComponentListener implements ComponentListener {
     @Override
     public void componentInvalidated(ComponentEvent e) {
+      ComponentGrid g = grid;
+      if (g != null) g.update(e.getSource());
       fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
     }
 
@@ -140,6 +143,8 @@ public class Circuit {
       HashMap<Location, EndData> toAdd = toMap(e.getData());
       EndChangedTransaction xn = new EndChangedTransaction(comp, toRemove, toAdd);
       locker.execute(xn);
+      ComponentGrid g = grid;
+      if (g != null) g.update(comp);
       fireEvent(CircuitEvent.ACTION_INVALIDATE, comp);
     }
 
@@ -252,9 +257,12 @@ public class Circuit {
   private LinkedHashSet<Component> comps = new LinkedHashSet<Component>(); // doesn't
   // include
   // wires
-  CircuitWires wires = new CircuitWires();
+  private CircuitLocker locker = new CircuitLocker();
+  CircuitWires wires = new CircuitWires(locker);
+  private volatile ComponentGrid grid = null; // built on first spatial query
+  volatile CompiledCircuit compiled = null; // see CompiledCircuit.get
+  volatile ParallelPropagation.ThreadSafety threadSafety = null; // see ParallelPropagation
   private ArrayList<Component> clocks = new ArrayList<Component>();
-  private CircuitLocker locker;
 
   static final Logger logger = LoggerFactory.getLogger(Circuit.class);
 
@@ -272,7 +280,6 @@ public class Circuit {
     staticAttrs = CircuitAttributes.createBaseAttrs(this, name);
     appearance = new CircuitAppearance(this);
     subcircuitFactory = new SubcircuitFactory(this);
-    locker = new CircuitLocker();
     circuitsUsingThis = new WeakHashMap<Component, Circuit>();
     MyNetList = new Netlist(this);
     MyMappableResources = new HashMap<String,MappableResourcesContainer>();
@@ -502,7 +509,11 @@ public class Circuit {
    * Code taken from Cornell's version of Logisim: http://www.cs.cornell.edu/courses/cs3410/2015sp/
    */
   public void doTestVector(Project project, Instance pin[], Value[] val) throws TestException {
-    CircuitState state = project.getCircuitState();
+    doTestVector(project.getCircuitState(), pin, val);
+  }
+
+  /** Runs one test vector on the given state of this circuit, which is reset first. */
+  public void doTestVector(CircuitState state, Instance pin[], Value[] val) throws TestException {
     state.reset();
 
     for (int i = 0; i < pin.length; ++i) {
@@ -522,18 +533,28 @@ public class Circuit {
 
     if (prop.isOscillating()) throw new TestException("oscilation detected");
 
+    Value[] found = new Value[pin.length];
+    for (int i = 0; i < pin.length; i++) {
+      if (Pin.FACTORY.isInputPin(pin[i])) continue;
+      found[i] = Pin.FACTORY.getValue(state.getInstanceState(pin[i]));
+    }
+    checkTestVector(pin, val, found);
+  }
+
+  /** Compares the values found at the output pins in a test with the expected ones. */
+  public static void checkTestVector(Instance pin[], Value[] val, Value[] found)
+      throws FailException {
     FailException err = null;
 
     for (int i = 0; i < pin.length; i++) {
-      InstanceState pinState = state.getInstanceState(pin[i]);
       if (Pin.FACTORY.isInputPin(pin[i])) continue;
 
-      Value v = Pin.FACTORY.getValue(pinState);
+      Value v = found[i];
       if (!val[i].compatible(v)) {
         if (err == null) {
-          err = new FailException(i, pinState.getAttributeValue(StdAttr.LABEL), val[i], v);
+          err = new FailException(i, pin[i].getAttributeValue(StdAttr.LABEL), val[i], v);
         } else {
-          err.add(new FailException(i, pinState.getAttributeValue(StdAttr.LABEL), val[i], v));
+          err.add(new FailException(i, pin[i].getAttributeValue(StdAttr.LABEL), val[i], v));
         }
       }
     }
@@ -552,8 +573,12 @@ public class Circuit {
     context.setGraphics(g_copy);
     wires.draw(context, hidden);
 
+    Collection<Component> visible = comps;
+    Rectangle clip = g.getClipBounds();
+    if (clip != null) visible = getGrid().query(Bounds.create(clip));
     if (hidden == null || hidden.size() == 0) {
-      for (Component c : comps) {
+      for (Component c : visible) {
+        if (c instanceof Wire) continue;
         Graphics g_new = g.create();
         context.setGraphics(g_new);
         g_copy.dispose();
@@ -562,8 +587,8 @@ public class Circuit {
         c.draw(context);
       }
     } else {
-      for (Component c : comps) {
-        if (!hidden.contains(c)) {
+      for (Component c : visible) {
+        if (!hidden.contains(c) && !(c instanceof Wire)) {
           Graphics g_new = g.create();
           context.setGraphics(g_new);
           g_copy.dispose();
@@ -599,7 +624,7 @@ public class Circuit {
 
   public Collection<Component> getAllContaining(Location pt) {
     LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-    for (Component comp : getComponents()) {
+    for (Component comp : getGrid().query(Bounds.create(pt))) {
       if (comp.contains(pt)) ret.add(comp);
     }
     return ret;
@@ -607,7 +632,7 @@ public class Circuit {
 
   public Collection<Component> getAllContaining(Location pt, Graphics g) {
     LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-    for (Component comp : getComponents()) {
+    for (Component comp : getGrid().query(Bounds.create(pt))) {
       if (comp.contains(pt, g)) ret.add(comp);
     }
     return ret;
@@ -615,7 +640,7 @@ public class Circuit {
 
   public Collection<Component> getAllWithin(Bounds bds) {
     LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-    for (Component comp : getComponents()) {
+    for (Component comp : getGrid().query(bds)) {
       if (bds.contains(comp.getBounds())) ret.add(comp);
     }
     return ret;
@@ -623,12 +648,23 @@ public class Circuit {
 
   public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
     LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-    for (Component comp : getComponents()) {
+    for (Component comp : getGrid().query(bds)) {
       if (bds.contains(comp.getBounds(g))) ret.add(comp);
     }
     return ret;
   }
 
+  private ComponentGrid getGrid() {
+    ComponentGrid ret = grid;
+    if (ret == null) {
+      ret = new ComponentGrid();
+      for (Component comp : comps) ret.add(comp);
+      for (Wire w : wires.getWires()) ret.add(w);
+      grid = ret;
+    }
+    return ret;
+  }
+
   public CircuitAppearance getAppearance() {
     return appearance;
   }
@@ -845,6 +881,8 @@ public class Circuit {
       if (w.getEnd0().equals(w.getEnd1())) return;
       boolean added = wires.add(w);
       if (!added) return;
+      ComponentGrid g = grid;
+      if (g != null) g.add(w);
     } else {
       // add it into the circuit
       boolean added = comps.add(c);
@@ -884,6 +922,8 @@ public class Circuit {
         vhdl.addCircuitUsing(c, this);
       }
       c.addComponentListener(myComponentListener);
+      ComponentGrid g = grid;
+      if (g != null) g.add(c);
     }
     RemoveWrongLabels(c.getFactory().getName());
     fireEvent(CircuitEvent.ACTION_ADD, c);
@@ -894,7 +934,8 @@ public class Circuit {
 
     Set<Component> oldComps = comps;
     comps = new LinkedHashSet<Component>();
-    wires = new CircuitWires();
+    wires = new CircuitWires(locker);
+    grid = null;
     clocks.clear();
     MyNetList.clear();
     Annotated = false;
@@ -913,6 +954,8 @@ public class Circuit {
 
     Annotated = false;
     MyNetList.clear();
+    ComponentGrid g = grid;
+    if (g != null) g.remove(c);
     if (c instanceof Wire) {
       wires.remove(c);
     } else {
@@ -112,6 +112,14 @@ public class CircuitLocker {
     mutatingMutator = null;
   }
 
+  /**
+   * Returns the read lock of the circuit, for code that needs a consistent view of its components
+   * without going through a transaction. The thread holding the write lock may take it as well.
+   */
+  Lock getReadLock() {
+    return circuitLock.readLock();
+  }
+
   public int getSerialNumber() {
     return serialNumber;
   }
@@ -44,13 +44,16 @@ import com.cburch.logisim.std.memory.Ram;
 import com.cburch.logisim.std.memory.RamState;
 import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.Pin;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 public class CircuitState implements InstanceData {
@@ -107,10 +110,9 @@ public class CircuitState implements InstanceData {
           }
         }
         componentData.clear();
-        values.clear();
+        points = new PointData(points.index);
         dirtyComponents.clear();
         dirtyPoints.clear();
-        causes.clear();
       }
 
       /* Component changed */
@@ -161,6 +163,139 @@ public class CircuitState implements InstanceData {
     }
   }
 
+  /**
+   * Values and causes of the points of the circuit, stored in arrays indexed by the IDs of a
+   * {@link NetIndex}. Points the index does not know about (which only happens while the circuit
+   * is being edited) are kept in side maps. When the index is replaced, the simulation thread
+   * moves the data over to a new table on its next write; readers keep using the table they got.
+   * A table for an index derived from the old one shares the arrays with the old table, since the
+   * IDs the old table knows about are never given to other points.
+   */
+  private static class PointData {
+    final NetIndex index;
+    final Value[] values;
+    final SetData[] causes;
+    HashMap<Location, Value> strayValues = null;
+    HashMap<Location, SetData> strayCauses = null;
+
+    PointData(NetIndex index) {
+      this(index, new Value[index.size()], new SetData[index.size()]);
+    }
+
+    private PointData(NetIndex index, Value[] values, SetData[] causes) {
+      this.index = index;
+      this.values = values;
+      this.causes = causes;
+    }
+
+    SetData getCause(Location loc) {
+      int id = index.indexOf(loc);
+      if (id >= 0) return causes[id];
+      HashMap<Location, SetData> stray = strayCauses;
+      return stray == null ? null : stray.get(loc);
+    }
+
+    Value getValue(Location loc) {
+      int id = index.indexOf(loc);
+      if (id >= 0) return values[id];
+      HashMap<Location, Value> stray = strayValues;
+      return stray == null ? null : stray.get(loc);
+    }
+
+    /**
+     * Returns a table for the given index holding the same data as this one. When the index was
+     * derived from this table's, only the data of the points touched since is moved, the data of
+     * points removed since is dropped, and this table must not be written to anymore.
+     */
+    PointData remap(NetIndex newIndex) {
+      if (!newIndex.isDerivedFrom(index)) return copy(newIndex);
+      Value[] vals = values;
+      SetData[] cs = causes;
+      if (newIndex.size() > vals.length) {
+        int cap = Math.max(newIndex.size(), 2 * vals.length);
+        vals = Arrays.copyOf(vals, cap);
+        cs = Arrays.copyOf(cs, cap);
+      }
+      PointData ret = new PointData(newIndex, vals, cs);
+      for (int id = index.size(); id < newIndex.size(); id++) {
+        if (!newIndex.isLive(id)) continue;
+        Location loc = newIndex.getLocation(id);
+        int old = index.indexOf(loc);
+        if (old >= 0) {
+          vals[id] = vals[old];
+          cs[id] = cs[old];
+        } else {
+          vals[id] = strayValues == null ? null : strayValues.get(loc);
+          cs[id] = strayCauses == null ? null : strayCauses.get(loc);
+        }
+      }
+      ret.strayValues = remapStray(strayValues, newIndex);
+      ret.strayCauses = remapStray(strayCauses, newIndex);
+      return ret;
+    }
+
+    // the entries for points the new index still does not know about
+    private static <T> HashMap<Location, T> remapStray(HashMap<Location, T> stray, NetIndex index) {
+      if (stray == null) return null;
+      HashMap<Location, T> ret = null;
+      for (Map.Entry<Location, T> e : stray.entrySet()) {
+        if (index.indexOf(e.getKey()) >= 0) continue;
+        if (ret == null) ret = new HashMap<Location, T>();
+        ret.put(e.getKey(), e.getValue());
+      }
+      return ret;
+    }
+
+    /** Returns a table for the given index holding the same data as this one, in new arrays. */
+    PointData copy(NetIndex newIndex) {
+      PointData ret = new PointData(newIndex);
+      for (int i = 0; i < index.size(); i++) {
+        if (!index.isLive(i)) continue;
+        Location loc = index.getLocation(i);
+        if (values[i] != null) ret.setValue(loc, values[i]);
+        if (causes[i] != null) ret.setCause(loc, causes[i]);
+      }
+      if (strayValues != null) {
+        for (Map.Entry<Location, Value> e : strayValues.entrySet()) {
+          ret.setValue(e.getKey(), e.getValue());
+        }
+      }
+      if (strayCauses != null) {
+        for (Map.Entry<Location, SetData> e : strayCauses.entrySet()) {
+          ret.setCause(e.getKey(), e.getValue());
+        }
+      }
+      return ret;
+    }
+
+    void setCause(Location loc, SetData head) {
+      int id = index.indexOf(loc);
+      if (id >= 0) {
+        causes[id] = head;
+      } else if (head != null) {
+        if (strayCauses == null) strayCauses = new HashMap<Location, SetData>();
+        strayCauses.put(loc, head);
+      } else if (strayCauses != null) {
+        strayCauses.remove(loc);
+      }
+    }
+
+    /** Sets the value at a point, returning the previous one. A null value removes it. */
+    Value setValue(Location loc, Value val) {
+      int id = index.indexOf(loc);
+      if (id >= 0) {
+        Value old = values[id];
+        values[id] = val;
+        return old;
+      } else if (val != null) {
+        if (strayValues == null) strayValues = new HashMap<Location, Value>();
+        return strayValues.put(loc, val);
+      } else {
+        return strayValues == null ? null : strayValues.remove(loc);
+      }
+    }
+  }
+
   private MyCircuitListener myCircuitListener = new MyCircuitListener();
   private Propagator base = null; // base of tree of CircuitStates
   private Project proj; // project where circuit liespr
@@ -173,14 +308,31 @@ public class CircuitState implements InstanceData {
 
   private CircuitWires.State wireData = null;
   private HashMap<Component, Object> componentData = new HashMap<Component, Object>();
-  private Map<Location, Value> values = new HashMap<Location, Value>();
+  private volatile PointData points = new PointData(NetIndex.EMPTY);
   private CopyOnWriteArraySet<Component> dirtyComponents = new CopyOnWriteArraySet<Component>();
   private CopyOnWriteArraySet<Location> dirtyPoints = new CopyOnWriteArraySet<Location>();
-  HashMap<Location, SetData> causes = new HashMap<Location, SetData>();
+  // points and components whose appearance may have changed since the canvas last asked; see
+  // drainDisplayChanges
+  private final Set<Location> displayPoints = ConcurrentHashMap.newKeySet();
+  private final Set<Component> displayComponents = ConcurrentHashMap.newKeySet();
+  private volatile boolean displayTracked = false; // set on the root once any state is drained
+  private volatile boolean displayOverflow = true;
+  // the inputs that compiled subcircuits were last evaluated for
+  private HashMap<Component, Value[]> compiledInputs = null;
+  private HashMap<Component, CompiledCircuit> compiledPrograms = null;
+  // on the root: how often each path of subcircuit components leading to a state that is shown or
+  // logged was registered, and all non-empty prefixes of those paths; the set is replaced on change
+  private final HashMap<List<Component>, Integer> observers = new HashMap<List<Component>, Integer>();
+  private volatile Set<List<Component>> observedPaths = Collections.emptySet();
+  // the subcircuit components of this state whose substates are observed, as of observedFor
+  private Set<List<Component>> observedFor = Collections.emptySet();
+  private HashSet<Component> observedSubcircuits = new HashSet<Component>();
 
   private static int lastId = 0;
   private int id = lastId++;
 
+  private static final int MAX_DISPLAY_CHANGES = 4096;
+
   public CircuitState(Project proj, Circuit circuit) {
     this.proj = proj;
     this.circuit = circuit;
@@ -201,7 +353,7 @@ public class CircuitState implements InstanceData {
   }
 
   public boolean containsKey(Location pt) {
-    return values.containsKey(pt);
+    return points.getValue(pt) != null;
   }
 
   private void copyFrom(CircuitState src, Propagator base) {
@@ -233,15 +385,20 @@ public class CircuitState implements InstanceData {
         this.componentData.put(key, newValue);
       }
     }
-    for (Location key : src.causes.keySet()) {
-      Propagator.SetData oldValue = src.causes.get(key);
-      Propagator.SetData newValue = oldValue.cloneFor(this);
-      this.causes.put(key, newValue);
+    PointData srcPoints = src.points;
+    PointData newPoints = srcPoints.copy(srcPoints.index);
+    for (int i = 0; i < newPoints.causes.length; i++) {
+      if (newPoints.causes[i] != null) newPoints.causes[i] = newPoints.causes[i].cloneFor(this);
     }
+    if (newPoints.strayCauses != null) {
+      for (Map.Entry<Location, SetData> e : newPoints.strayCauses.entrySet()) {
+        e.setValue(e.getValue().cloneFor(this));
+      }
+    }
+    this.points = newPoints;
     if (src.wireData != null) {
       this.wireData = (CircuitWires.State) src.wireData.clone();
     }
-    this.values.putAll(src.values);
     this.dirtyComponents.addAll(src.dirtyComponents);
     this.dirtyPoints.addAll(src.dirtyPoints);
   }
@@ -259,10 +416,14 @@ public class CircuitState implements InstanceData {
 
   Value getComponentOutputAt(Location p) {
     // for CircuitWires - to get values, ignoring wires' contributions
-    Propagator.SetData cause_list = causes.get(p);
+    Propagator.SetData cause_list = points.getCause(p);
     return Propagator.computeValue(cause_list);
   }
 
+  SetData getCause(Location p) {
+    return points.getCause(p);
+  }
+
   public Object getData(Component comp) {
     return componentData.get(comp);
   }
@@ -285,10 +446,93 @@ public class CircuitState implements InstanceData {
     }
   }
 
+  /**
+   * Registers that the state reached from this root state through the given subcircuit components
+   * is looked at, by the canvas or by a log. In compiled mode the inside of a subcircuit is only
+   * simulated while it or a state nested in it is looked at, so the next propagation brings the
+   * states on the path up to date. Each call is to be matched by a call to removeObserver.
+   */
+  public void addObserver(Component[] path) {
+    if (path.length == 0) return;
+    synchronized (observers) {
+      List<Component> key = Arrays.asList(path.clone());
+      Integer count = observers.get(key);
+      observers.put(key, count == null ? 1 : count + 1);
+      if (count == null) updateObservedPaths();
+    }
+    markComponentAsDirty(path[0]);
+  }
+
+  public void removeObserver(Component[] path) {
+    if (path.length == 0) return;
+    synchronized (observers) {
+      List<Component> key = Arrays.asList(path);
+      Integer count = observers.get(key);
+      if (count == null) return;
+      if (count > 1) {
+        observers.put(key, count - 1);
+      } else {
+        observers.remove(key);
+        updateObservedPaths();
+      }
+    }
+  }
+
+  private void updateObservedPaths() {
+    HashSet<List<Component>> paths = new HashSet<List<Component>>();
+    for (List<Component> path : observers.keySet()) {
+      for (int i = 1; i <= path.size(); i++) paths.add(path.subList(0, i));
+    }
+    observedPaths = paths;
+  }
+
+  /**
+   * Returns whether the substate held by the given subcircuit component is looked at, or holds a
+   * state that is. A substate that was not looked at the last time this was asked has all its
+   * components marked dirty, since it was left alone in the meantime.
+   */
+  boolean isObserved(Component comp) {
+    Set<List<Component>> paths = getRootState().observedPaths;
+    if (paths != observedFor) {
+      HashSet<Component> subs = new HashSet<Component>();
+      List<Component> path = Arrays.asList(getPath());
+      for (List<Component> p : paths) {
+        if (p.size() == path.size() + 1 && p.subList(0, path.size()).equals(path)) {
+          Component sub = p.get(path.size());
+          if (!observedSubcircuits.contains(sub) && componentData.get(sub) instanceof CircuitState) {
+            ((CircuitState) componentData.get(sub)).markAllComponentsDirty();
+          }
+          subs.add(sub);
+        }
+      }
+      observedFor = paths;
+      observedSubcircuits = subs;
+    }
+    return observedSubcircuits.contains(comp);
+  }
+
+  /** Returns the subcircuit components leading from the root state to this state. */
+  public Component[] getPath() {
+    int depth = 0;
+    for (CircuitState state = this; state.parentState != null; state = state.parentState) depth++;
+    Component[] ret = new Component[depth];
+    for (CircuitState state = this; state.parentState != null; state = state.parentState) {
+      ret[--depth] = state.parentComp;
+    }
+    return ret;
+  }
+
   public CircuitState getParentState() {
     return parentState;
   }
 
+  /** Returns the state at the top of the tree of states this state belongs to. */
+  public CircuitState getRootState() {
+    CircuitState ret = this;
+    while (ret.parentState != null) ret = ret.parentState;
+    return ret;
+  }
+
   public Project getProject() {
     return proj;
   }
@@ -310,7 +554,7 @@ public class CircuitState implements InstanceData {
   }
 
   public Value getValue(Location pt) {
-    Value ret = values.get(pt);
+    Value ret = points.getValue(pt);
     if (ret != null) return ret;
 
     BitWidth wid = circuit.getWidth(pt);
@@ -318,7 +562,7 @@ public class CircuitState implements InstanceData {
   }
 
   Value getValueByWire(Location p) {
-    return values.get(p);
+    return points.getValue(p);
   }
 
   CircuitWires.State getWireData() {
@@ -337,9 +581,11 @@ public class CircuitState implements InstanceData {
   //
   private void markAllComponentsDirty() {
     dirtyComponents.addAll(circuit.getNonWires());
+    displayOverflow = true;
   }
 
   public void markComponentAsDirty(Component comp) {
+    noteDisplayChange(null, comp);
     try {
       dirtyComponents.add(comp);
     } catch (RuntimeException e) {
@@ -351,6 +597,50 @@ public class CircuitState implements InstanceData {
 
   public void markComponentsDirty(Collection<Component> comps) {
     dirtyComponents.addAll(comps);
+    displayOverflow = true;
+  }
+
+  /**
+   * Moves the points whose values changed and the components that were told to propagate since
+   * the last call into the given collections, so that a view of this state can redraw only those.
+   * A change in a substate counts as a change of the subcircuit component holding it. Returns
+   * false if the changes since the last call are not known, as on the first call, after a reset,
+   * or when too much changed; the whole circuit should then be redrawn.
+   */
+  public boolean drainDisplayChanges(Collection<Location> pts, Collection<Component> comps) {
+    CircuitState root = this;
+    while (root.parentState != null) root = root.parentState;
+    root.displayTracked = true;
+    boolean known = !displayOverflow;
+    displayOverflow = false;
+    for (Iterator<Location> it = displayPoints.iterator(); it.hasNext(); ) {
+      pts.add(it.next());
+      it.remove();
+    }
+    for (Iterator<Component> it = displayComponents.iterator(); it.hasNext(); ) {
+      comps.add(it.next());
+      it.remove();
+    }
+    return known;
+  }
+
+  private void noteDisplayChange(Location pt, Component comp) {
+    Propagator prop = base;
+    if (prop == null || !prop.getRootState().displayTracked) return;
+    if (!displayOverflow) {
+      if (displayPoints.size() + displayComponents.size() >= MAX_DISPLAY_CHANGES) {
+        displayOverflow = true;
+        displayPoints.clear();
+        displayComponents.clear();
+      } else if (pt != null) {
+        displayPoints.add(pt);
+      } else {
+        displayComponents.add(comp);
+      }
+    }
+    CircuitState parent = parentState;
+    Component holder = parentComp;
+    if (parent != null && holder != null) parent.noteDisplayChange(null, holder);
   }
 
   public void markPointAsDirty(Location pt) {
@@ -358,6 +648,14 @@ public class CircuitState implements InstanceData {
   }
 
   void processDirtyComponents() {
+    processOwnDirtyComponents();
+    for (CircuitState substate : getSubstateArray()) {
+      substate.processDirtyComponents();
+    }
+  }
+
+  // propagates the dirty components of this state only, not of its substates
+  void processOwnDirtyComponents() {
     if (!dirtyComponents.isEmpty()) {
       // This seeming wasted copy is to avoid ConcurrentModifications
       // if we used an iterator instead.
@@ -383,45 +681,55 @@ public class CircuitState implements InstanceData {
           comp.propagate(this);
           if (comp.getFactory() instanceof Pin && parentState != null) {
             // should be propagated in superstate
-            parentComp.propagate(parentState);
+            if (!ParallelPropagation.recordParent(this)) propagateParent();
           }
         }
       }
     }
+  }
 
-    CircuitState[] subs = new CircuitState[substates.size()];
-    for (CircuitState substate : substates.toArray(subs)) {
-      substate.processDirtyComponents();
-    }
+  void propagateParent() {
+    parentComp.propagate(parentState);
   }
 
   void processDirtyPoints() {
+    processOwnDirtyPoints();
+    for (CircuitState substate : getSubstateArray()) {
+      /* TODO: Analyze why this bug happens, e.g. a substate that is null! */
+      if (substate != null) substate.processDirtyPoints();
+    }
+  }
+
+  // updates the dirty points of this state only, not of its substates
+  void processOwnDirtyPoints() {
     HashSet<Location> dirty = new HashSet<Location>(dirtyPoints);
     dirtyPoints.clear();
-    if (circuit.wires.isMapVoided()) {
-      for (int i = 3; i >= 0; i--) {
-        try {
-          dirty.addAll(circuit.wires.points.getSplitLocations());
-          break;
-        } catch (ConcurrentModificationException e) {
-          // try again...
-          try {
-            Thread.sleep(1);
-          } catch (InterruptedException e2) {
-          }
-          if (i == 0) e.printStackTrace();
-        }
-      }
-    }
-    if (!dirty.isEmpty()) {
+    // when the wiring changed, CircuitWires finds the points to update
+    if (!dirty.isEmpty() || circuit.wires.isOutdated(this)) {
       circuit.wires.propagate(this, dirty);
     }
+  }
 
-    CircuitState[] subs = new CircuitState[substates.size()];
-    for (CircuitState substate : substates.toArray(subs)) {
-      /* TODO: Analyze why this bug happens, e.g. a substate that is null! */
-      if (substate != null) substate.processDirtyPoints();
+  /**
+   * Records the inputs for which a compiled subcircuit is evaluated, and returns false if it was
+   * already evaluated for the same inputs by the same program.
+   */
+  boolean setCompiledInputs(Component comp, CompiledCircuit program, Value[] inputs) {
+    if (compiledInputs == null) {
+      compiledInputs = new HashMap<Component, Value[]>();
+      compiledPrograms = new HashMap<Component, CompiledCircuit>();
     }
+    Value[] old = compiledInputs.put(comp, inputs);
+    return compiledPrograms.put(comp, program) != program || !Arrays.equals(old, inputs);
+  }
+
+  boolean hasSubstates() {
+    return !substates.isEmpty();
+  }
+
+  // the substates in the order the propagation visits them
+  CircuitState[] getSubstateArray() {
+    return substates.toArray(new CircuitState[substates.size()]);
   }
 
   void reset() {
@@ -440,10 +748,11 @@ public class CircuitState implements InstanceData {
         componentData.put(comp, null); 
       }
     }
-    values.clear();
+    points = new PointData(points.index);
+    compiledInputs = null;
+    compiledPrograms = null;
     dirtyComponents.clear();
     dirtyPoints.clear();
-    causes.clear();
     markAllComponentsDirty();
 
     for (CircuitState sub : substates) {
@@ -482,27 +791,52 @@ public class CircuitState implements InstanceData {
     componentData.put(comp, data);
   }
 
+  /** Returns the point table, first moving it over to the current point numbering if needed. */
+  private PointData pointsForUpdate() {
+    NetIndex index = circuit.wires.getNetIndex();
+    PointData ret = points;
+    if (ret.index != index) {
+      ret = ret.remap(index);
+      points = ret;
+    }
+    return ret;
+  }
+
+  void setCause(Location p, SetData head) {
+    pointsForUpdate().setCause(p, head);
+  }
+
   public void setValue(Location pt, Value val, Component cause, int delay) {
     if (base != null) base.setValue(this, pt, val, cause, delay);
   }
 
   void setValueByWire(Location p, Value v) {
     // for CircuitWires - to set value at point
+    PointData data = pointsForUpdate();
     boolean changed;
     if (v == Value.NIL) {
-      Object old = values.remove(p);
+      Value old = data.setValue(p, null);
       changed = (old != null && old != Value.NIL);
     } else {
-      Object old = values.put(p, v);
+      Value old = data.setValue(p, v);
       changed = !v.equals(old);
     }
     if (changed) {
+      noteDisplayChange(p, null);
       boolean found = false;
-      for (Component comp : circuit.getComponents(p)) {
-        if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
+      int id = data.index.indexOf(p);
+      if (id >= 0) {
+        for (Component comp : data.index.getComponents(id)) {
           found = true;
           markComponentAsDirty(comp);
         }
+      } else {
+        for (Component comp : circuit.getComponents(p)) {
+          if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
+            found = true;
+            markComponentAsDirty(comp);
+          }
+        }
       }
       // NOTE: this will cause a double-propagation on components
       // whose outputs have just changed.
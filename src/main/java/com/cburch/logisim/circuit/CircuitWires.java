@@ -46,27 +46,48 @@ import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.IteratorUtil;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Stroke;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 class CircuitWires {
 
   static class BundleMap {
+    // Built with the connect methods, a map only fills in these two. A map derived from another
+    // one shares them with it, and records the bundles of the points that changed since on the
+    // side; see derive.
     HashMap<Location, WireBundle> pointBundles = new HashMap<Location, WireBundle>();
     HashSet<WireBundle> bundles = new HashSet<WireBundle>();
+    private PersistentMap<Location, Object> changedBundles = PersistentMap.empty();
+    private PersistentMap<WireBundle, Boolean> addedBundles = PersistentMap.empty();
+    private PersistentMap<WireBundle, Boolean> removedBundles = PersistentMap.empty();
+    private int pointCount = -1; // that of pointBundles unless derived
     boolean isValid = true;
-    // NOTE: It would make things more efficient if we also had
-    // a set of just the first bundle in each tree.
+    NetIndex netIndex = NetIndex.EMPTY;
+    final int serial = nextBundleMapSerial.getAndIncrement();
+    // for a map derived from another one: the serial number of the base
+    // map, the points whose bundles may differ from those in it, and the
+    // bundles of the base replaced by other ones
+    int baseSerial = -1;
+    Set<Location> changedPoints = null;
+    Collection<WireBundle> replacedBundles = null;
+    Collection<WireBundle> newBundles = null;
+    // the bundles whose widths do not fit, and the conflicts found at component ends
+    private PersistentMap<WireBundle, WidthIncompatibilityData> bundleIncompatibilities =
+        PersistentMap.empty();
     HashSet<WidthIncompatibilityData> incompatibilityData = null;
 
     void addWidthIncompatibilityData(WidthIncompatibilityData e) {
@@ -88,15 +109,30 @@ class CircuitWires {
     }
 
     WireBundle getBundleAt(Location p) {
+      if (!changedBundles.isEmpty()) {
+        Object ret = changedBundles.get(p);
+        if (ret != null) return ret instanceof WireBundle ? (WireBundle) ret : null;
+      }
       return pointBundles.get(p);
     }
 
+    // only for a map being built
     Set<Location> getBundlePoints() {
       return pointBundles.keySet();
     }
 
-    Set<WireBundle> getBundles() {
-      return bundles;
+    int getBundlePointCount() {
+      return pointCount < 0 ? pointBundles.size() : pointCount;
+    }
+
+    Iterable<WireBundle> getBundles() {
+      if (addedBundles.isEmpty() && removedBundles.isEmpty()) return bundles;
+      ArrayList<WireBundle> ret = new ArrayList<WireBundle>(bundles.size() + addedBundles.size());
+      for (WireBundle b : bundles) {
+        if (!removedBundles.containsKey(b)) ret.add(b);
+      }
+      for (Map.Entry<WireBundle, Boolean> e : addedBundles) ret.add(e.getKey());
+      return ret;
     }
 
     HashSet<WidthIncompatibilityData> getWidthIncompatibilityData() {
@@ -114,6 +150,90 @@ class CircuitWires {
     void setBundleAt(Location p, WireBundle b) {
       pointBundles.put(p, b);
     }
+
+    /**
+     * Returns a map in which the bundles at the given points are replaced by those of the given
+     * map, which was built for these points only, and all others are shared with this map. The
+     * bundles at the points must not reach past them, in this map and in the given one. The cost
+     * depends on the number of points, not on the size of the circuit, apart from an occasional
+     * merge of the changes into new tables.
+     */
+    BundleMap derive(Set<Location> region, BundleMap part) {
+      BundleMap ret = new BundleMap();
+      PersistentMap<Location, Object> changed = changedBundles;
+      PersistentMap<WireBundle, Boolean> added = addedBundles;
+      PersistentMap<WireBundle, Boolean> removed = removedBundles;
+      PersistentMap<WireBundle, WidthIncompatibilityData> incompatible = bundleIncompatibilities;
+      int count = getBundlePointCount();
+      HashSet<WireBundle> replaced = new HashSet<WireBundle>();
+      for (Location loc : region) {
+        WireBundle old = getBundleAt(loc);
+        WireBundle now = part.pointBundles.get(loc);
+        if (old != null) {
+          replaced.add(old);
+          count--;
+        }
+        if (now != null) count++;
+        if (now == pointBundles.get(loc)) changed = changed.minus(loc);
+        else changed = changed.plus(loc, now == null ? Boolean.FALSE : now);
+      }
+      for (WireBundle b : replaced) {
+        if (added.containsKey(b)) added = added.minus(b);
+        else removed = removed.plus(b, Boolean.TRUE);
+        incompatible = incompatible.minus(b);
+      }
+      for (WireBundle b : part.bundles) {
+        added = added.plus(b, Boolean.TRUE);
+        WidthIncompatibilityData e = b.getWidthIncompatibilityData();
+        if (e != null) incompatible = incompatible.plus(b, e);
+      }
+      if (changed.size() > pointBundles.size() / 4 + 64) {
+        // too many changes to look up on the side: merge them into new tables
+        ret.pointBundles = new HashMap<Location, WireBundle>(pointBundles);
+        for (Map.Entry<Location, Object> e : changed) {
+          if (e.getValue() instanceof WireBundle) {
+            ret.pointBundles.put(e.getKey(), (WireBundle) e.getValue());
+          } else {
+            ret.pointBundles.remove(e.getKey());
+          }
+        }
+        ret.bundles = new HashSet<WireBundle>(bundles);
+        for (Map.Entry<WireBundle, Boolean> e : removed) ret.bundles.remove(e.getKey());
+        for (Map.Entry<WireBundle, Boolean> e : added) ret.bundles.add(e.getKey());
+      } else {
+        ret.pointBundles = pointBundles;
+        ret.bundles = bundles;
+        ret.changedBundles = changed;
+        ret.addedBundles = added;
+        ret.removedBundles = removed;
+        ret.pointCount = count;
+      }
+      ret.bundleIncompatibilities = incompatible;
+      ret.baseSerial = serial;
+      ret.changedPoints = Collections.unmodifiableSet(region);
+      ret.replacedBundles = replaced;
+      ret.newBundles = part.bundles;
+      return ret;
+    }
+
+    // notes the bundles whose widths do not fit, once a map is built
+    void findIncompatibleBundles() {
+      for (WireBundle b : bundles) {
+        WidthIncompatibilityData e = b.getWidthIncompatibilityData();
+        if (e != null) bundleIncompatibilities = bundleIncompatibilities.plus(b, e);
+      }
+    }
+
+    // collects the conflicts of the bundles and those at component ends
+    void setWidthIncompatibilityData(Collection<WidthIncompatibilityData> atEnds) {
+      incompatibilityData = null;
+      if (atEnds != null) {
+        for (WidthIncompatibilityData wid : atEnds) addWidthIncompatibilityData(wid);
+      }
+      for (Map.Entry<WireBundle, WidthIncompatibilityData> e : bundleIncompatibilities) {
+        addWidthIncompatibilityData(e.getValue());
+      }
+    }
   }
 
   static class SplitterData {
@@ -132,6 +252,11 @@ class CircuitWires {
       this.bundleMap = bundleMap;
     }
 
+    State(BundleMap bundleMap, HashMap<WireThread, Value> thr_values) {
+      this.bundleMap = bundleMap;
+      this.thr_values = thr_values;
+    }
+
     @Override
     public Object clone() {
       State ret = new State(this.bundleMap);
@@ -156,12 +281,14 @@ class CircuitWires {
     public void attributeValueChanged(AttributeEvent e) {
       Attribute<?> attr = e.getAttribute();
       if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
-        voidBundleMap();
+        Component comp = findComponent(e.getSource());
+        if (comp == null) voidBundleMap();
+        else voidBundleMap(comp);
       }
     }
   }
 
-  private static Value pullValue(Value base, Value pullTo) {
+  static Value pullValue(Value base, Value pullTo) {
     if (base.isFullyDefined()) {
       return base;
     } else if (base.getWidth() == 1) {
@@ -178,6 +305,8 @@ class CircuitWires {
 
   static final Logger logger = LoggerFactory.getLogger(CircuitWires.class);
 
+  private static final AtomicInteger nextBundleMapSerial = new AtomicInteger(0);
+
   // user-given data
   private HashSet<Wire> wires = new HashSet<Wire>();
   private HashSet<Splitter> splitters = new HashSet<Splitter>();
@@ -197,15 +326,22 @@ class CircuitWires {
   // derived data
   private Bounds bounds = Bounds.EMPTY_BOUNDS;
 
-  private BundleMap masterBundleMap = null;
+  private volatile BundleMap masterBundleMap = null;
+  private volatile int bundleMapVersion = 0;
+  // last map computed, and the points touched by edits made since then
+  private BundleMap lastBundleMap = null;
+  private HashSet<Location> dirtyLocations = new HashSet<Location>();
+  private final CircuitLocker locker;
+
+  private static final int MAX_BUNDLE_MAP_TRIES = 3;
 
-  CircuitWires() {}
+  CircuitWires(CircuitLocker locker) {
+    this.locker = locker;
+  }
 
   //
   // action methods
   //
-  // NOTE: this could be made much more efficient in most cases to
-  // avoid voiding the bundle map.
   /*synchronized*/ boolean add(Component comp) {
     boolean added = true;
     if (comp instanceof Wire) {
@@ -224,14 +360,14 @@ class CircuitWires {
     }
     if (added) {
       points.add(comp);
-      voidBundleMap();
+      voidBundleMap(comp);
     }
     return added;
   }
 
   /*synchronized*/ void add(Component comp, EndData end) {
     points.add(comp, end);
-    voidBundleMap();
+    voidBundleMap(comp, end.getLocation());
   }
 
   private boolean addWire(Wire w) {
@@ -246,13 +382,89 @@ class CircuitWires {
 
   // To be called by getBundleMap only
   private void computeBundleMap(BundleMap ret) {
+    // number the points first, so that even an invalid map has them
+    ret.netIndex = new NetIndex(points.getSplitLocations(), points);
+    connectBundles(ret, wires, splitters, tunnels, pulls);
+    ret.findIncompatibleBundles();
+    ret.setWidthIncompatibilityData(points.getWidthIncompatibilityData());
+  }
+
+  // To be called by getBundleMap only. Derives a map from the previous one
+  // by rebuilding the bundles reachable from the points touched since, and
+  // sharing all other bundles and threads with it; the point numbering is
+  // derived the same way. Returns null if too much of the circuit is
+  // affected for this to pay off.
+  private BundleMap updateBundleMap(BundleMap base, Set<Location> dirty) {
+    // Collect every point whose bundle or threads might change: points
+    // connected to a dirty point before the edits (through the old bundles)
+    // or after them (through wires, tunnels and splitters). Since splitters
+    // are followed, no thread crosses the border of the region.
+    int limit = base.getBundlePointCount() / 2;
+    HashSet<Location> region = new HashSet<Location>();
+    ArrayList<Location> todo = new ArrayList<Location>(dirty);
+    HashSet<Wire> regionWires = new HashSet<Wire>();
+    HashSet<Splitter> regionSplitters = new HashSet<Splitter>();
+    HashSet<Component> regionTunnels = new HashSet<Component>();
+    HashSet<Component> regionPulls = new HashSet<Component>();
+    HashMap<String, ArrayList<Component>> tunnelSets = null;
+    while (!todo.isEmpty()) {
+      Location loc = todo.remove(todo.size() - 1);
+      if (!region.add(loc)) continue;
+      if (region.size() > limit) return null;
+      WireBundle old = base.getBundleAt(loc);
+      if (old != null) todo.addAll(old.points);
+      for (Component comp : points.getComponents(loc)) {
+        if (comp instanceof Wire) {
+          Wire w = (Wire) comp;
+          if (wires.contains(w) && regionWires.add(w)) {
+            todo.add(w.e0);
+            todo.add(w.e1);
+          }
+        } else if (comp instanceof Splitter) {
+          if (splitters.contains(comp) && regionSplitters.add((Splitter) comp)) {
+            for (EndData end : comp.getEnds()) todo.add(end.getLocation());
+          }
+        } else if (tunnels.contains(comp)) {
+          if (tunnelSets == null) tunnelSets = getTunnelSets(tunnels);
+          String label = comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
+          ArrayList<Component> tunnelSet = tunnelSets.get(label);
+          if (tunnelSet == null) {
+            regionTunnels.add(comp);
+          } else {
+            for (Component tunnel : tunnelSet) {
+              if (regionTunnels.add(tunnel)) todo.add(tunnel.getLocation());
+            }
+          }
+        } else if (pulls.contains(comp)) {
+          regionPulls.add(comp);
+        }
+      }
+    }
+
+    // build the bundles of the region on their own
+    BundleMap part = new BundleMap();
+    connectBundles(part, regionWires, regionSplitters, regionTunnels, regionPulls);
+
+    // and put them in place of the old ones
+    BundleMap ret = base.derive(region, part);
+    ret.netIndex = base.netIndex.derive(region, points);
+    ret.setWidthIncompatibilityData(points.getWidthIncompatibilityData());
+    return ret;
+  }
+
+  private void connectBundles(
+      BundleMap ret,
+      Collection<Wire> wires,
+      Collection<Splitter> splitters,
+      Collection<Component> tunnels,
+      Collection<Component> pulls) {
     // create bundles corresponding to wires and tunnels
-    connectWires(ret);
-    connectTunnels(ret);
-    connectPullResistors(ret);
+    connectWires(ret, wires);
+    connectTunnels(ret, tunnels);
+    connectPullResistors(ret, pulls);
 
     // merge any WireBundle objects united by previous steps
-    for (Iterator<WireBundle> it = ret.getBundles().iterator(); it.hasNext(); ) {
+    for (Iterator<WireBundle> it = ret.bundles.iterator(); it.hasNext(); ) {
       WireBundle b = it.next();
       WireBundle bpar = b.find();
       if (bpar != b) { // b isn't group's representative
@@ -286,8 +498,11 @@ class CircuitWires {
     }
 
     // determine the bundles at the end of each splitter
+    HashMap<Splitter, SplitterData> splitterData = new HashMap<Splitter, SplitterData>();
     for (Splitter spl : splitters) {
       List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
+      SplitterData spl_data = new SplitterData(ends.size() - 1);
+      splitterData.put(spl, spl_data);
       int index = -1;
       for (EndData end : ends) {
         index++;
@@ -295,7 +510,7 @@ class CircuitWires {
         WireBundle pb = ret.getBundleAt(p);
         if (pb != null) {
           pb.setWidth(end.getWidth(), p);
-          spl.wire_data.end_bundle[index] = pb;
+          spl_data.end_bundle[index] = pb;
         }
       }
     }
@@ -305,7 +520,7 @@ class CircuitWires {
       synchronized (spl) {
         SplitterAttributes spl_attrs = (SplitterAttributes) spl.getAttributeSet();
         byte[] bit_end = spl_attrs.bit_end;
-        SplitterData spl_data = spl.wire_data;
+        SplitterData spl_data = splitterData.get(spl);
         WireBundle from_bundle = spl_data.end_bundle[0];
         if (from_bundle == null || !from_bundle.isValid()) continue;
 
@@ -341,22 +556,9 @@ class CircuitWires {
         }
       }
     }
-
-    // All threads are sewn together! Compute the exception set before
-    // leaving
-    Collection<WidthIncompatibilityData> exceptions = points.getWidthIncompatibilityData();
-    if (exceptions != null && exceptions.size() > 0) {
-      for (WidthIncompatibilityData wid : exceptions) {
-        ret.addWidthIncompatibilityData(wid);
-      }
-    }
-    for (WireBundle b : ret.getBundles()) {
-      WidthIncompatibilityData e = b.getWidthIncompatibilityData();
-      if (e != null) ret.addWidthIncompatibilityData(e);
-    }
   }
 
-  private void connectPullResistors(BundleMap ret) {
+  private void connectPullResistors(BundleMap ret, Collection<Component> pulls) {
     for (Component comp : pulls) {
       Location loc = comp.getEnd(0).getLocation();
       WireBundle b = ret.getBundleAt(loc);
@@ -370,27 +572,32 @@ class CircuitWires {
     }
   }
 
-  private void connectTunnels(BundleMap ret) {
-    // determine the sets of tunnels
-    HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<String, ArrayList<Location>>();
+  // groups the given tunnels by label, leaving out unlabeled ones
+  private static HashMap<String, ArrayList<Component>> getTunnelSets(
+      Collection<Component> tunnels) {
+    HashMap<String, ArrayList<Component>> tunnelSets = new HashMap<String, ArrayList<Component>>();
     for (Component comp : tunnels) {
       String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
       label = label.trim();
       if (!label.equals("")) {
-        ArrayList<Location> tunnelSet = tunnelSets.get(label);
+        ArrayList<Component> tunnelSet = tunnelSets.get(label);
         if (tunnelSet == null) {
-          tunnelSet = new ArrayList<Location>(3);
+          tunnelSet = new ArrayList<Component>(3);
           tunnelSets.put(label, tunnelSet);
         }
-        tunnelSet.add(comp.getLocation());
+        tunnelSet.add(comp);
       }
     }
+    return tunnelSets;
+  }
 
-    // now connect the bundles that are tunnelled together
-    for (ArrayList<Location> tunnelSet : tunnelSets.values()) {
+  private void connectTunnels(BundleMap ret, Collection<Component> tunnels) {
+    // connect the bundles that are tunnelled together
+    for (ArrayList<Component> tunnelSet : getTunnelSets(tunnels).values()) {
       WireBundle foundBundle = null;
       Location foundLocation = null;
-      for (Location loc : tunnelSet) {
+      for (Component tunnel : tunnelSet) {
+        Location loc = tunnel.getLocation();
         WireBundle b = ret.getBundleAt(loc);
         if (b != null) {
           foundBundle = b;
@@ -399,10 +606,11 @@ class CircuitWires {
         }
       }
       if (foundBundle == null) {
-        foundLocation = tunnelSet.get(0);
+        foundLocation = tunnelSet.get(0).getLocation();
         foundBundle = ret.createBundleAt(foundLocation);
       }
-      for (Location loc : tunnelSet) {
+      for (Component tunnel : tunnelSet) {
+        Location loc = tunnel.getLocation();
         if (loc != foundLocation) {
           WireBundle b = ret.getBundleAt(loc);
           if (b == null) {
@@ -416,7 +624,7 @@ class CircuitWires {
     }
   }
 
-  private void connectWires(BundleMap ret) {
+  private void connectWires(BundleMap ret, Collection<Wire> wires) {
     // make a WireBundle object for each tree of connected wires
     for (Wire w : wires) {
       WireBundle b0 = ret.getBundleAt(w.e0);
@@ -436,6 +644,17 @@ class CircuitWires {
     }
   }
 
+  // the margin covers the widest highlight drawn around a wire or a junction
+  private static final int DRAW_MARGIN = 12;
+
+  private static boolean isVisible(Rectangle clip, Location s, Location t) {
+    if (clip == null) return true;
+    return s.getX() - DRAW_MARGIN <= clip.x + clip.width
+        && s.getY() - DRAW_MARGIN <= clip.y + clip.height
+        && t.getX() + DRAW_MARGIN >= clip.x
+        && t.getY() + DRAW_MARGIN >= clip.y;
+  }
+
   void draw(ComponentDrawContext context, Collection<Component> hidden) {
     boolean showState = context.getShowState();
     CircuitState state = context.getCircuitState();
@@ -443,6 +662,7 @@ class CircuitWires {
     g.setColor(Color.BLACK);
     GraphicsUtil.switchToWidth(g, Wire.WIDTH);
     WireSet highlighted = context.getHighlightedWires();
+    Rectangle clip = g.getClipBounds();
 
     BundleMap bmap = getBundleMap();
     boolean isValid = bmap.isValid();
@@ -450,6 +670,7 @@ class CircuitWires {
       for (Wire w : wires) {
         Location s = w.e0;
         Location t = w.e1;
+        if (!isVisible(clip, s, t)) continue;
         WireBundle wb = bmap.getBundleAt(s);
         int width = 5;
         if (!wb.isValid()) {
@@ -495,7 +716,7 @@ class CircuitWires {
       }
 
       for (Location loc : points.getSplitLocations()) {
-        if (points.getComponentCount(loc) > 2) {
+        if (points.getComponentCount(loc) > 2 && isVisible(clip, loc, loc)) {
           WireBundle wb = bmap.getBundleAt(loc);
           if (wb != null) {
             if (!wb.isValid()) {
@@ -525,7 +746,7 @@ class CircuitWires {
       }
     } else {
       for (Wire w : wires) {
-        if (!hidden.contains(w)) {
+        if (!hidden.contains(w) && isVisible(clip, w.e0, w.e1)) {
           Location s = w.e0;
           Location t = w.e1;
           WireBundle wb = bmap.getBundleAt(s);
@@ -553,7 +774,7 @@ class CircuitWires {
       // the problem is minor, and hidden only exists for a short
       // while at a time anway.
       for (Location loc : points.getSplitLocations()) {
-        if (points.getComponentCount(loc) > 2) {
+        if (points.getComponentCount(loc) > 2 && isVisible(clip, loc, loc)) {
           int icount = 0;
           for (Component comp : points.getComponents(loc)) {
             if (!hidden.contains(comp)) ++icount;
@@ -584,52 +805,73 @@ class CircuitWires {
     }
   }
 
-  // void ensureComputed() {
-  //	getBundleMap();
-  // }
-
-  // There are only two threads that need to use the bundle map, I think:
-  // the AWT event thread, and the simulation worker thread.
-  // AWT does modifications to the components and wires, then voids the
-  // masterBundleMap, and eventually recomputes a new map (if needed) during
-  // painting. AWT sometimes locks a splitter, then changes components and
-  // wires.
-  // Computing a new bundle map requires both locking splitters and touching
-  // the components and wires, so to avoid deadlock, only the AWT should
-  // create the new bundle map.
-
-  /*synchronized*/ private BundleMap getBundleMap() {
-    if (SwingUtilities.isEventDispatchThread()) {
-      // AWT event thread.
-      if (masterBundleMap != null) return masterBundleMap;
-      BundleMap ret = new BundleMap();
-      try {
-        computeBundleMap(ret);
-        masterBundleMap = ret;
-      } catch (Exception t) {
-        ret.invalidate();
-        logger.error("{}", t.getLocalizedMessage());
-      }
-      return ret;
-    } else {
-      // Simulation thread.
-      try {
-        final BundleMap ret[] = new BundleMap[1];
-        SwingUtilities.invokeAndWait(
-            new Runnable() {
-              public void run() {
-                ret[0] = getBundleMap();
-              }
-            });
-        return ret[0];
-      } catch (Exception e) {
-        BundleMap ret = new BundleMap();
-        ret.invalidate();
-        return ret;
+  // The bundle map is built from a consistent view of the wiring: the builder holds the read
+  // lock of the circuit, so no transaction can change components while it runs, and it is only
+  // published if voidBundleMap() was not called in the meantime. A published map is never
+  // modified, so any thread - the AWT event thread, the simulation thread, or a headless batch
+  // run - can compute it and use it without going through the event queue.
+  //
+  // Most edits touch a few points only, so rather than building the new map from scratch, it is
+  // derived from the last one: the bundles around the touched points are rebuilt and the others,
+  // along with their threads, are shared with the previous map.
+
+  /*synchronized*/ BundleMap getBundleMap() {
+    BundleMap ret = masterBundleMap;
+    if (ret != null) return ret;
+    Lock lock = locker.getReadLock();
+    lock.lock();
+    try {
+      synchronized (this) {
+        for (int tries = 0; ; tries++) {
+          ret = masterBundleMap;
+          if (ret != null) return ret;
+          int version = bundleMapVersion;
+          ret = null;
+          if (lastBundleMap != null) {
+            try {
+              ret = updateBundleMap(lastBundleMap, dirtyLocations);
+            } catch (Exception t) {
+              ret = null; // fall back on computing it from scratch
+            }
+          }
+          boolean computed = ret != null;
+          if (ret == null) {
+            ret = new BundleMap();
+            try {
+              computeBundleMap(ret);
+              computed = true;
+            } catch (Exception t) {
+              ret.invalidate();
+              if (version == bundleMapVersion) logger.error("{}", t.getLocalizedMessage());
+            }
+          }
+          if (version == bundleMapVersion) {
+            if (computed) {
+              masterBundleMap = ret;
+              lastBundleMap = ret;
+              dirtyLocations = new HashSet<Location>();
+            }
+            return ret;
+          }
+          // the wiring was changed outside of a transaction while we were at it
+          if (tries >= MAX_BUNDLE_MAP_TRIES) return ret;
+        }
       }
+    } finally {
+      lock.unlock();
     }
   }
 
+  /**
+   * Returns the point numbering of the current bundle map. This is called for every value written
+   * by the simulator, so the map is only recomputed when it has been voided.
+   */
+  NetIndex getNetIndex() {
+    BundleMap map = masterBundleMap;
+    if (map == null) map = getBundleMap();
+    return map.netIndex;
+  }
+
   Iterator<? extends Component> getComponents() {
     return IteratorUtil.createJoinedIterator(splitters.iterator(), wires.iterator());
   }
@@ -709,8 +951,11 @@ class CircuitWires {
   //
   // query methods
   //
-  boolean isMapVoided() {
-    return masterBundleMap == null;
+  // whether the wire values of the state are not based on the current map
+  boolean isOutdated(CircuitState state) {
+    BundleMap map = masterBundleMap;
+    State s = state.getWireData();
+    return map == null || (s != null && s.bundleMap != map);
   }
 
   //
@@ -718,24 +963,48 @@ class CircuitWires {
   //
   void propagate(CircuitState circState, Set<Location> points) {
     BundleMap map = getBundleMap();
-    CopyOnWriteArraySet<WireThread> dirtyThreads =
-        new CopyOnWriteArraySet<WireThread>(); // affected
-    // threads
+    LinkedHashSet<WireThread> dirtyThreads = new LinkedHashSet<WireThread>(); // affected threads
 
     // get state, or create a new one if current state is outdated
     State s = circState.getWireData();
     if (s == null || s.bundleMap != map) {
-      // if it is outdated, we need to compute for all threads
-      s = new State(map);
-      for (WireBundle b : map.getBundles()) {
+      // if it is outdated, we need to compute for all threads - except
+      // when the map was derived from the state's one, as threads shared
+      // between them keep their values
+      State old = s;
+      boolean derived =
+          old != null && map.changedPoints != null && map.baseSerial == old.bundleMap.serial;
+      if (derived) {
+        // the old state is dropped, so its values are taken over rather than copied
+        s = new State(map, old.thr_values);
+        for (WireBundle b : map.replacedBundles) {
+          if (b.threads != null) {
+            for (WireThread t : b.threads) s.thr_values.remove(t);
+          }
+        }
+      } else {
+        s = new State(map);
+      }
+      for (WireBundle b : derived ? map.newBundles : map.getBundles()) {
         WireThread[] th = b.threads;
         if (b.isValid() && th != null) {
-          for (WireThread t : th) {
-            dirtyThreads.add(t);
-          }
+          for (WireThread t : th) dirtyThreads.add(t);
         }
       }
       circState.setWireData(s);
+
+      // the points whose bundles changed must be looked at as well
+      if (old != null) {
+        HashSet<Location> all = new HashSet<Location>(points);
+        if (derived) {
+          all.addAll(map.changedPoints);
+        } else {
+          for (int i = 0; i < map.netIndex.size(); i++) {
+            if (map.netIndex.isLive(i)) all.add(map.netIndex.getLocation(i));
+          }
+        }
+        points = all;
+      }
     }
 
     // determine affected threads, and set values for unwired points
@@ -747,7 +1016,7 @@ class CircuitWires {
         WireThread[] th = pb.threads;
         if (!pb.isValid() || th == null) {
           // immediately propagate NILs across invalid bundles
-          CopyOnWriteArraySet<Location> pbPoints = pb.points;
+          Set<Location> pbPoints = pb.points;
           if (pbPoints == null) {
             circState.setValueByWire(p, Value.NIL);
           } else {
@@ -847,12 +1116,12 @@ class CircuitWires {
       }
     }
     points.remove(comp);
-    voidBundleMap();
+    voidBundleMap(comp);
   }
 
   /*synchronized*/ void remove(Component comp, EndData end) {
     points.remove(comp, end);
-    voidBundleMap();
+    voidBundleMap(comp, end.getLocation());
   }
 
   private void removeWire(Wire w) {
@@ -871,16 +1140,44 @@ class CircuitWires {
   /*synchronized*/ void replace(Component comp, EndData oldEnd, EndData newEnd) {
     points.remove(comp, oldEnd);
     points.add(comp, newEnd);
-    voidBundleMap();
+    voidBundleMap(comp, oldEnd.getLocation());
   }
 
   //
   // helper methods
   //
-  private void voidBundleMap() {
+  private Component findComponent(Object attrs) {
+    for (Component comp : tunnels) {
+      if (comp.getAttributeSet() == attrs) return comp;
+    }
+    for (Component comp : pulls) {
+      if (comp.getAttributeSet() == attrs) return comp;
+    }
+    return null;
+  }
+
+  void voidBundleMap() {
     // This should really only be called by AWT thread, but main() also
     // calls it during startup. It should not be called by the simulation
     // thread.
+    synchronized (this) {
+      lastBundleMap = null;
+      dirtyLocations.clear();
+    }
+    bundleMapVersion++;
+    masterBundleMap = null;
+  }
+
+  // voids the bundle map, noting that only the bundles at the ends of comp
+  // (and at the given extra location) can have changed
+  private void voidBundleMap(Component comp, Location... extra) {
+    synchronized (this) {
+      if (lastBundleMap != null) {
+        for (EndData end : comp.getEnds()) dirtyLocations.add(end.getLocation());
+        for (Location loc : extra) dirtyLocations.add(loc);
+      }
+    }
+    bundleMapVersion++;
     masterBundleMap = null;
   }
 }
@@ -0,0 +1,560 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.CircuitWires.BundleMap;
+import com.cburch.logisim.circuit.CircuitWires.ThreadBundle;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.PullResistor;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.util.Dag;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A circuit without feedback and without stateful components, translated into a straight-line
+ * program: the components are evaluated once each, in topological order, with the values of the
+ * wires assembled from the thread structure of the bundle map. Such a circuit can be used as a
+ * subcircuit without simulating its inside event by event.
+ *
+ * <p>Each output also gets a settle time, the longest sum of component delays leading to it, so
+ * that the enclosing circuit sees the final values at the same time as in the event driven mode
+ * (glitches along the way are not reproduced).
+ */
+class CompiledCircuit {
+  // a point that is read: the value of a wired point is assembled from the threads of its
+  // bundle, the one of an unwired point combines the outputs at the point itself
+  private static class ReadPoint {
+    int[] threads; // null for an unwired point
+    int[] drivers; // output slots at an unwired point
+    BitWidth width; // of an unwired point
+  }
+
+  private static class Node {
+    Component comp;
+    InstanceFactory factory;
+    Instance instance;
+    boolean isPin;
+    CompiledCircuit sub; // for a subcircuit
+    Instance[] subPins; // the pins of the subcircuit for each of its ports
+    int[] subIndex; // their indices in the compiled subcircuit
+    int[] reads; // read point of each end
+    int[] slots; // output slot of each end, -1 for ends that don't drive
+    boolean[] inputs; // whether each end is an input
+  }
+
+  private class Evaluation implements InstanceState {
+    private final Project project;
+    private final long tickCount;
+    private final int lanes; // the number of input vectors packed into each value
+    private final BitWidth laneWidth;
+    private final Value[] slotValues = new Value[slotCount];
+    private final int[] slotTimes = new int[slotCount];
+    private final Value[] threadValues = new Value[threadSlots.length];
+    private final int[] threadTimes = new int[threadSlots.length];
+    private final Value[] readValues = new Value[readPoints.length];
+    private final int[] readTimes = new int[readPoints.length];
+    private Node node;
+    private int time; // latest arrival among the values read by the current node
+
+    private Evaluation(Project project, long tickCount, int lanes) {
+      this.project = project;
+      this.tickCount = tickCount;
+      this.lanes = lanes;
+      this.laneWidth = BitWidth.create(lanes);
+    }
+
+    private void run() {
+      for (Node n : nodes) {
+        node = n;
+        time = 0;
+        if (n.sub != null) n.sub.evaluate(this, n.subPins, n.subIndex);
+        else n.factory.propagate(this);
+      }
+      node = null;
+    }
+
+    private Value read(int index, boolean cache) {
+      Value ret = readValues[index];
+      if (ret != null) {
+        time = Math.max(time, readTimes[index]);
+        return ret;
+      }
+      ReadPoint r = readPoints[index];
+      int t = 0;
+      if (r.threads == null) {
+        for (int slot : r.drivers) {
+          Value v = slotValues[slot];
+          if (v != null && v != Value.NIL) {
+            ret = ret == null ? v : ret.combine(v);
+            t = Math.max(t, slotTimes[slot]);
+          }
+        }
+        if (ret == null) ret = Value.createUnknown(lanes > 1 ? laneWidth : r.width);
+      } else if (r.threads.length == 1) {
+        ret = getThreadValue(r.threads[0]);
+        t = threadTimes[r.threads[0]];
+      } else {
+        Value[] vs = new Value[r.threads.length];
+        for (int i = 0; i < vs.length; i++) {
+          vs[i] = getThreadValue(r.threads[i]);
+          t = Math.max(t, threadTimes[r.threads[i]]);
+        }
+        ret = Value.create(vs);
+      }
+      if (cache) {
+        readValues[index] = ret;
+        readTimes[index] = t;
+      }
+      time = Math.max(time, t);
+      return ret;
+    }
+
+    private Value getThreadValue(int thread) {
+      Value ret = threadValues[thread];
+      if (ret != null) return ret;
+      ret = Value.createUnknown(laneWidth);
+      int t = 0;
+      int[] slots = threadSlots[thread];
+      int[] bits = threadBits[thread];
+      for (int i = 0; i < slots.length; i++) {
+        Value v = slotValues[slots[i]];
+        if (v != null && v != Value.NIL) {
+          // with several lanes all wires are one bit wide
+          ret = ret.combine(lanes > 1 ? v : v.get(bits[i]));
+          t = Math.max(t, slotTimes[slots[i]]);
+        }
+      }
+      if (threadPulls[thread] != Value.UNKNOWN) {
+        ret = CircuitWires.pullValue(ret, threadPulls[thread]);
+      }
+      threadValues[thread] = ret;
+      threadTimes[thread] = t;
+      return ret;
+    }
+
+    public void fireInvalidated() {}
+
+    public AttributeSet getAttributeSet() {
+      return node.comp.getAttributeSet();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <E> E getAttributeValue(Attribute<E> attr) {
+      if (lanes > 1 && attr == StdAttr.WIDTH && node.factory.isBitSliceable()) {
+        return (E) laneWidth;
+      }
+      return node.comp.getAttributeSet().getValue(attr);
+    }
+
+    public InstanceData getData() {
+      return null; // combinational components keep no data
+    }
+
+    public InstanceFactory getFactory() {
+      return node.factory;
+    }
+
+    public Instance getInstance() {
+      return node.instance;
+    }
+
+    public int getPortIndex(Port port) {
+      return node.instance.getPorts().indexOf(port);
+    }
+
+    public Value getPortValue(int portIndex) {
+      // ends that aren't inputs may be read before all their drivers ran
+      return read(node.reads[portIndex], node.inputs[portIndex]);
+    }
+
+    public Project getProject() {
+      return project;
+    }
+
+    public long getTickCount() {
+      return tickCount;
+    }
+
+    public boolean isCircuitRoot() {
+      return false;
+    }
+
+    public boolean isPortConnected(int portIndex) {
+      return circuit.isConnected(node.comp.getEnd(portIndex).getLocation(), node.comp);
+    }
+
+    public void setData(InstanceData value) {}
+
+    public void setPort(int portIndex, Value value, int delay) {
+      int slot = node.slots[portIndex];
+      if (slot < 0) return;
+      // outputs that don't depend on the inputs are the same in all lanes
+      if (lanes > 1 && value.getWidth() == 1) value = Value.repeat(value, lanes);
+      slotValues[slot] = value;
+      slotTimes[slot] = time + Math.max(delay, 1);
+    }
+  }
+
+  /**
+   * Returns the compiled form of the circuit, or null if it has feedback, stateful components or
+   * invalid wiring. The result is cached until the wiring of the circuit, or of a subcircuit in
+   * it, changes.
+   */
+  static CompiledCircuit get(Circuit circuit) {
+    CompiledCircuit ret = circuit.compiled;
+    if (ret == null || !ret.isCurrent()) {
+      ret = new CompiledCircuit(circuit);
+      circuit.compiled = ret;
+    }
+    return ret.nodes == null ? null : ret;
+  }
+
+  private final Circuit circuit;
+  private final BundleMap map;
+  private final ArrayList<CompiledCircuit> subcircuits = new ArrayList<CompiledCircuit>();
+  private Node[] nodes; // in evaluation order, null if the circuit can't be compiled
+  private boolean bitSliceable;
+  private ReadPoint[] readPoints;
+  private int[][] threadSlots;
+  private int[][] threadBits;
+  private Value[] threadPulls;
+  private int slotCount;
+  private final HashMap<Instance, Integer> pinIndex = new HashMap<Instance, Integer>();
+  private Instance[] pinInstances;
+  private int[] pinSlots; // for input pins, -1 for output pins
+  private int[] pinReads; // for output pins, -1 for input pins
+
+  private CompiledCircuit(Circuit circuit) {
+    this.circuit = circuit;
+    ArrayList<Component> comps;
+    Lock lock = circuit.getLocker().getReadLock();
+    lock.lock();
+    try {
+      map = circuit.wires.getBundleMap();
+      comps = new ArrayList<Component>(circuit.getNonWires());
+    } finally {
+      lock.unlock();
+    }
+    // build leaves nodes at null when it fails
+    if (map.isValid()) build(comps);
+  }
+
+  private boolean isCurrent() {
+    if (circuit.wires.getBundleMap() != map) return false;
+    for (CompiledCircuit sub : subcircuits) {
+      if (sub.circuit.compiled != sub || !sub.isCurrent()) return false;
+    }
+    return true;
+  }
+
+  private boolean build(List<Component> comps) {
+    // classify the components; splitters, tunnels and pull resistors are
+    // part of the bundle map already
+    ArrayList<Node> all = new ArrayList<Node>();
+    ArrayList<Instance> pins = new ArrayList<Instance>();
+    for (Component comp : comps) {
+      ComponentFactory factory = comp.getFactory();
+      Node n = new Node();
+      n.comp = comp;
+      if (factory instanceof Pin) {
+        n.isPin = true;
+        pins.add(Instance.getInstanceFor(comp));
+      } else if (factory instanceof SubcircuitFactory) {
+        Circuit subcirc = ((SubcircuitFactory) factory).getSubcircuit();
+        n.sub = get(subcirc);
+        subcircuits.add(subcirc.compiled);
+        if (n.sub == null) return false;
+        n.subPins = ((CircuitAttributes) comp.getAttributeSet()).getPinInstances();
+        n.subIndex = n.sub.getPinIndices(n.subPins);
+        if (n.subIndex == null) return false;
+      } else if (factory.isCombinational()) {
+        // evaluated through its propagate method
+      } else if (factory instanceof SplitterFactory
+          || factory instanceof Tunnel
+          || factory instanceof PullResistor
+          || comp.getEnds().isEmpty()) {
+        continue;
+      } else {
+        return false;
+      }
+      n.factory = (InstanceFactory) factory;
+      n.instance = Instance.getInstanceFor(comp);
+      all.add(n);
+    }
+
+    // output slots, and the slots at each point
+    HashMap<Location, ArrayList<Integer>> drivers = new HashMap<Location, ArrayList<Integer>>();
+    ArrayList<Node> owners = new ArrayList<Node>();
+    for (Node n : all) {
+      List<EndData> ends = n.comp.getEnds();
+      n.slots = new int[ends.size()];
+      for (int i = 0; i < n.slots.length; i++) {
+        EndData end = ends.get(i);
+        boolean drives = n.isPin ? Pin.FACTORY.isInputPin(n.instance) : end.isOutput();
+        if (drives) {
+          n.slots[i] = owners.size();
+          owners.add(n);
+          ArrayList<Integer> here = drivers.get(end.getLocation());
+          if (here == null) {
+            here = new ArrayList<Integer>();
+            drivers.put(end.getLocation(), here);
+          }
+          here.add(n.slots[i]);
+        } else {
+          n.slots[i] = -1;
+        }
+      }
+    }
+    slotCount = owners.size();
+
+    // read points, and the edges from the components driving them
+    HashMap<Location, Integer> readIndex = new HashMap<Location, Integer>();
+    ArrayList<ReadPoint> reads = new ArrayList<ReadPoint>();
+    HashMap<WireThread, Integer> threadIndex = new HashMap<WireThread, Integer>();
+    ArrayList<int[]> tSlots = new ArrayList<int[]>();
+    ArrayList<int[]> tBits = new ArrayList<int[]>();
+    ArrayList<Value> tPulls = new ArrayList<Value>();
+    Dag dag = new Dag();
+    for (Node n : all) {
+      dag.addNode(n);
+      List<EndData> ends = n.comp.getEnds();
+      n.reads = new int[ends.size()];
+      n.inputs = new boolean[ends.size()];
+      for (int i = 0; i < n.reads.length; i++) {
+        EndData end = ends.get(i);
+        Location loc = end.getLocation();
+        Integer index = readIndex.get(loc);
+        if (index == null) {
+          ReadPoint r = new ReadPoint();
+          WireBundle b = map.getBundleAt(loc);
+          if (b == null) {
+            r.drivers = toArray(drivers.get(loc));
+            r.width = circuit.getWidth(loc);
+          } else if (!b.isValid() || b.threads == null) {
+            return false;
+          } else {
+            r.threads = new int[b.threads.length];
+            for (int j = 0; j < r.threads.length; j++) {
+              WireThread t = b.threads[j];
+              Integer ti = threadIndex.get(t);
+              if (ti == null) {
+                ti = tSlots.size();
+                threadIndex.put(t, ti);
+                ArrayList<Integer> slots = new ArrayList<Integer>();
+                ArrayList<Integer> bits = new ArrayList<Integer>();
+                Value pull = Value.UNKNOWN;
+                for (ThreadBundle tb : t.getBundles()) {
+                  for (Location p : tb.b.points) {
+                    ArrayList<Integer> here = drivers.get(p);
+                    if (here == null) continue;
+                    for (Integer slot : here) {
+                      slots.add(slot);
+                      bits.add(tb.loc);
+                    }
+                  }
+                  Value pullHere = tb.b.getPullValue();
+                  if (pullHere != Value.UNKNOWN) pull = pull.combine(pullHere);
+                }
+                tSlots.add(toArray(slots));
+                tBits.add(toArray(bits));
+                tPulls.add(pull);
+              }
+              r.threads[j] = ti;
+            }
+          }
+          index = reads.size();
+          reads.add(r);
+          readIndex.put(loc, index);
+        }
+        n.reads[i] = index;
+        n.inputs[i] = n.isPin ? !Pin.FACTORY.isInputPin(n.instance) : end.isInput();
+        if (n.inputs[i]) {
+          ReadPoint r = reads.get(index);
+          if (r.threads == null) {
+            for (int slot : r.drivers) dag.addEdgeUnchecked(owners.get(slot), n);
+          } else {
+            for (int t : r.threads) {
+              for (int slot : tSlots.get(t)) dag.addEdgeUnchecked(owners.get(slot), n);
+            }
+          }
+        }
+      }
+    }
+    List<Object> order = dag.getTopologicalOrder();
+    if (order == null) return false; // there is feedback
+
+    ArrayList<Node> program = new ArrayList<Node>();
+    for (Object o : order) {
+      Node n = (Node) o;
+      if (!n.isPin) program.add(n);
+    }
+    nodes = program.toArray(new Node[program.size()]);
+    readPoints = reads.toArray(new ReadPoint[reads.size()]);
+    threadSlots = tSlots.toArray(new int[tSlots.size()][]);
+    threadBits = tBits.toArray(new int[tBits.size()][]);
+    threadPulls = tPulls.toArray(new Value[tPulls.size()]);
+
+    pinInstances = new Instance[pins.size()];
+    pinSlots = new int[pins.size()];
+    pinReads = new int[pins.size()];
+    for (Node n : all) {
+      if (!n.isPin) continue;
+      int i = pinIndex.size();
+      pinIndex.put(n.instance, i);
+      pinInstances[i] = n.instance;
+      pinSlots[i] = n.slots[0];
+      pinReads[i] = n.inputs[0] ? n.reads[0] : -1;
+    }
+
+    // several input vectors can be packed into the bits of the values if all wires are one bit
+    // wide, and the components either treat their bits independently or have no inputs
+    bitSliceable = true;
+    for (ReadPoint r : readPoints) {
+      if (r.threads == null ? r.width.getWidth() != 1 : r.threads.length != 1) {
+        bitSliceable = false;
+      }
+    }
+    for (Node n : nodes) {
+      if (n.sub != null ? !n.sub.bitSliceable : !n.factory.isBitSliceable() && hasInputs(n)) {
+        bitSliceable = false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasInputs(Node n) {
+    for (boolean input : n.inputs) {
+      if (input) return true;
+    }
+    return false;
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    if (values == null) return new int[0];
+    int[] ret = new int[values.size()];
+    for (int i = 0; i < ret.length; i++) ret[i] = values.get(i);
+    return ret;
+  }
+
+  /**
+   * Returns for each of the given pins its index in this circuit, or null if some pin doesn't
+   * belong to it.
+   */
+  int[] getPinIndices(Instance[] pins) {
+    int[] index = new int[pins.length];
+    for (int i = 0; i < pins.length; i++) {
+      Integer k = pinIndex.get(pins[i]);
+      if (k == null) return null;
+      index[i] = k;
+    }
+    return index;
+  }
+
+  /** Returns the pins of the circuit. */
+  Instance[] getPins() {
+    return pinInstances;
+  }
+
+  /**
+   * Returns whether the circuit can be evaluated for several input vectors at once, each one
+   * packed into one bit of the values.
+   */
+  boolean isBitSliceable() {
+    return bitSliceable;
+  }
+
+  /**
+   * Evaluates the circuit as the root of a simulation, for the given values of the pins returned by
+   * getPins, and returns the values of its output pins (null for the input pins). With more than
+   * one lane, bit i of each value belongs to input vector i.
+   */
+  Value[] evaluate(Project proj, Value[] values, int lanes) {
+    Evaluation eval = new Evaluation(proj, 0, lanes);
+    for (int i = 0; i < pinInstances.length; i++) {
+      int slot = pinSlots[i];
+      if (slot >= 0) eval.slotValues[slot] = drive(pinInstances[i], values[i], true, lanes);
+    }
+    eval.run();
+    Value[] ret = new Value[pinInstances.length];
+    for (int i = 0; i < pinInstances.length; i++) {
+      if (pinReads[i] >= 0) ret[i] = eval.read(pinReads[i], true);
+    }
+    return ret;
+  }
+
+  private static Value drive(Instance pin, Value value, boolean isRoot, int lanes) {
+    if (lanes == 1) return Pin.FACTORY.getDrivenValue(pin, value, isRoot);
+    Value[] vs = value.getAll();
+    for (int i = 0; i < vs.length; i++) vs[i] = Pin.FACTORY.getDrivenValue(pin, vs[i], isRoot);
+    return Value.create(vs);
+  }
+
+  /**
+   * Evaluates the circuit for the values found at the ports of an instance, whose ports correspond
+   * to the given pins, and sets the instance's outputs.
+   */
+  void evaluate(InstanceState ports, Instance[] pins, int[] index) {
+    int lanes = ports instanceof Evaluation ? ((Evaluation) ports).lanes : 1;
+    Evaluation eval = new Evaluation(ports.getProject(), ports.getTickCount(), lanes);
+    for (int i = 0; i < pins.length; i++) {
+      int slot = pinSlots[index[i]];
+      if (slot >= 0) {
+        eval.slotValues[slot] = drive(pins[i], ports.getPortValue(i), false, lanes);
+        eval.slotTimes[slot] = 1;
+      }
+    }
+    eval.run();
+    for (int i = 0; i < pins.length; i++) {
+      int read = pinReads[index[i]];
+      if (read >= 0) {
+        eval.time = 0;
+        Value val = eval.read(read, true);
+        ports.setPort(i, val, eval.time + 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * A uniform grid over the components and wires of a circuit, so that hit tests, rubber-band
+ * selection and painting only look at what lies near the area of interest. Each component is
+ * filed under every cell touched by its bounds, label included; the label is measured on an
+ * unscaled offscreen graphics context. The circuit keeps the grid current as it is mutated and
+ * as its components report changes.
+ */
+class ComponentGrid {
+  private static final int CELL_SHIFT = 7;
+
+  // allows for the tolerance of the contains tests and for font metrics
+  // that differ slightly at other zoom levels
+  private static final int SLACK = 8;
+
+  // components come before wires, as in Circuit.getComponents()
+  private static final long WIRE_ORDER = 1L << 62;
+
+  private static class Entry {
+    final Component comp;
+    final long order;
+    Bounds area;
+    int stamp;
+
+    Entry(Component comp, long order) {
+      this.comp = comp;
+      this.order = order;
+    }
+  }
+
+  private static final Comparator<Entry> BY_ORDER =
+      new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+          return Long.compare(a.order, b.order);
+        }
+      };
+
+  private final HashMap<Long, ArrayList<Entry>> cells = new HashMap<Long, ArrayList<Entry>>();
+  private final HashMap<Component, Entry> entries = new HashMap<Component, Entry>();
+  private final Graphics measure;
+  private long nextOrder = 0;
+  private int stamp = 0;
+
+  ComponentGrid() {
+    measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+  }
+
+  synchronized void add(Component comp) {
+    if (entries.containsKey(comp)) return;
+    long order = nextOrder++;
+    if (comp instanceof Wire) order += WIRE_ORDER;
+    Entry e = new Entry(comp, order);
+    entries.put(comp, e);
+    file(e, area(comp));
+  }
+
+  synchronized void remove(Component comp) {
+    Entry e = entries.remove(comp);
+    if (e != null) unfile(e);
+  }
+
+  /** Refiles the component if its bounds or its label have moved since it was filed. */
+  synchronized void update(Component comp) {
+    Entry e = entries.get(comp);
+    if (e == null) return;
+    Bounds area = area(comp);
+    if (area.equals(e.area)) return;
+    unfile(e);
+    file(e, area);
+  }
+
+  /**
+   * Returns the components whose bounds, label included, may overlap the given area, in the order
+   * in which they were added. Callers still apply their exact test to each of them.
+   */
+  synchronized ArrayList<Component> query(Bounds area) {
+    int x0 = area.getX();
+    int y0 = area.getY();
+    int x1 = x0 + area.getWidth();
+    int y1 = y0 + area.getHeight();
+    ArrayList<Entry> found = new ArrayList<Entry>();
+    int mark = ++stamp;
+    for (int cx = x0 >> CELL_SHIFT; cx <= x1 >> CELL_SHIFT; cx++) {
+      for (int cy = y0 >> CELL_SHIFT; cy <= y1 >> CELL_SHIFT; cy++) {
+        ArrayList<Entry> cell = cells.get(key(cx, cy));
+        if (cell == null) continue;
+        for (Entry e : cell) {
+          if (e.stamp == mark) continue;
+          e.stamp = mark;
+          Bounds b = e.area;
+          if (b.getX() <= x1
+              && b.getY() <= y1
+              && b.getX() + b.getWidth() >= x0
+              && b.getY() + b.getHeight() >= y0) {
+            found.add(e);
+          }
+        }
+      }
+    }
+    Collections.sort(found, BY_ORDER);
+    ArrayList<Component> ret = new ArrayList<Component>(found.size());
+    for (Entry e : found) ret.add(e.comp);
+    return ret;
+  }
+
+  private Bounds area(Component comp) {
+    return comp.getBounds(measure).expand(SLACK);
+  }
+
+  private void file(Entry e, Bounds area) {
+    e.area = area;
+    int x1 = area.getX() + area.getWidth();
+    int y1 = area.getY() + area.getHeight();
+    for (int cx = area.getX() >> CELL_SHIFT; cx <= x1 >> CELL_SHIFT; cx++) {
+      for (int cy = area.getY() >> CELL_SHIFT; cy <= y1 >> CELL_SHIFT; cy++) {
+        Long k = key(cx, cy);
+        ArrayList<Entry> cell = cells.get(k);
+        if (cell == null) {
+          cell = new ArrayList<Entry>(4);
+          cells.put(k, cell);
+        }
+        cell.add(e);
+      }
+    }
+  }
+
+  private void unfile(Entry e) {
+    Bounds area = e.area;
+    int x1 = area.getX() + area.getWidth();
+    int y1 = area.getY() + area.getHeight();
+    for (int cx = area.getX() >> CELL_SHIFT; cx <= x1 >> CELL_SHIFT; cx++) {
+      for (int cy = area.getY() >> CELL_SHIFT; cy <= y1 >> CELL_SHIFT; cy++) {
+        Long k = key(cx, cy);
+        ArrayList<Entry> cell = cells.get(k);
+        if (cell == null) continue;
+        cell.remove(e);
+        if (cell.isEmpty()) cells.remove(k);
+      }
+    }
+  }
+
+  private static Long key(int cx, int cy) {
+    return Long.valueOf(((long) cx << 32) | (cy & 0xffffffffL));
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+import java.util.PriorityQueue;
+
+/**
+ * Bucket queue holding the pending {@link SetData} events of a {@link Propagator}. Propagation
+ * delays are small integers, so events due within the next {@link #SIZE} time units are kept in
+ * FIFO lists indexed by their time modulo the wheel size; anything further away waits in an
+ * overflow heap and is moved into the wheel once the clock gets close enough. Within a bucket the
+ * events stay in the order they were scheduled, which is the same order the classic priority
+ * queue (time first, then serial number) would deliver them in.
+ */
+class EventWheel {
+  private static final int BITS = 10;
+  static final int SIZE = 1 << BITS;
+  private static final int MASK = SIZE - 1;
+
+  private final SetData[] heads = new SetData[SIZE];
+  private final SetData[] tails = new SetData[SIZE];
+  private final long[] occupied = new long[SIZE >> 6];
+  private final PriorityQueue<SetData> overflow = new PriorityQueue<SetData>();
+  private int base; // all events in the wheel have base <= time < base + SIZE
+  private int count;
+
+  EventWheel(int now) {
+    base = now;
+  }
+
+  void add(SetData data) {
+    int dt = data.time - base;
+    if (dt < 0 || dt >= SIZE) {
+      overflow.add(data);
+    } else {
+      append(data);
+    }
+  }
+
+  private void append(SetData data) {
+    int idx = data.time & MASK;
+    data.queueNext = null;
+    if (heads[idx] == null) {
+      heads[idx] = data;
+      occupied[idx >> 6] |= 1L << idx;
+    } else {
+      tails[idx].queueNext = data;
+    }
+    tails[idx] = data;
+    count++;
+  }
+
+  /**
+   * Moves the wheel forward to the given time and detaches every event scheduled for it. The
+   * returned events are linked through {@link SetData#queueNext}.
+   */
+  SetData advanceTo(int now) {
+    base = now;
+    while (!overflow.isEmpty() && overflow.peek().time - now < SIZE) {
+      SetData data = overflow.poll();
+      if (data.time - now < 0) data.time = now;
+      append(data);
+    }
+    int idx = now & MASK;
+    SetData ret = heads[idx];
+    if (ret != null) {
+      heads[idx] = null;
+      tails[idx] = null;
+      occupied[idx >> 6] &= ~(1L << idx);
+      for (SetData n = ret; n != null; n = n.queueNext) count--;
+    }
+    return ret;
+  }
+
+  /**
+   * Removes all pending events, returning them as a list linked through {@link
+   * SetData#queueNext} so that the caller can recycle them.
+   */
+  SetData clear() {
+    SetData ret = null;
+    for (int i = 0; i < SIZE; i++) {
+      if (heads[i] != null) {
+        tails[i].queueNext = ret;
+        ret = heads[i];
+        heads[i] = null;
+        tails[i] = null;
+      }
+    }
+    for (SetData data : overflow) {
+      data.queueNext = ret;
+      ret = data;
+    }
+    overflow.clear();
+    for (int i = 0; i < occupied.length; i++) occupied[i] = 0L;
+    count = 0;
+    return ret;
+  }
+
+  boolean isEmpty() {
+    return count == 0 && overflow.isEmpty();
+  }
+
+  /** Returns the time of the earliest pending event; the wheel must not be empty. */
+  int nextTime() {
+    if (count == 0) return overflow.peek().time;
+    int start = base & MASK;
+    int word = start >> 6;
+    long bits = occupied[word] & (-1L << start);
+    for (int i = 0; i <= occupied.length; i++) {
+      if (bits != 0) {
+        int idx = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return base + ((idx - start) & MASK);
+      }
+      word = (word + 1) % occupied.length;
+      bits = occupied[word];
+    }
+    throw new IllegalStateException("event wheel count out of sync");
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Dense numbering of the points of a circuit. Every location at which a wire or a component end
+ * lies gets an int ID in <code>[0, size())</code>, so that a {@link CircuitState} can keep the
+ * value and the causes of each point in flat arrays instead of hash maps. An index is immutable;
+ * {@link CircuitWires} replaces it together with its bundle map whenever the wiring changes, and
+ * states holding data laid out for an older index move it over on their next update.
+ *
+ * <p>After an edit the new index is derived from the old one: the touched points get fresh IDs
+ * past the old ones and all other points keep theirs, so states only have to move the data of
+ * the touched points (see {@link #isDerivedFrom}). IDs are never reused within such a family of
+ * indexes; once more than half of them are dead, the points are numbered anew.
+ */
+class NetIndex {
+  static final NetIndex EMPTY = new NetIndex(new ArrayList<Location>(), null);
+
+  private static final Component[] NO_COMPONENTS = new Component[0];
+  private static final Integer REMOVED = Integer.valueOf(-1);
+
+  private static int hash(int x, int y) {
+    int h = x * 0x9E3779B1 + y;
+    return h ^ (h >>> 15);
+  }
+
+  // by ID; shared by the indexes derived from one another, which only ever append to them
+  private final Location[] locations;
+  private final Component[][] components;
+  private final int size;
+  private final int live; // number of IDs still in use
+  // the IDs at the time the table was built, as id + 1 for each occupied slot, 0 for empty ones
+  private final int[] table;
+  private final int mask;
+  // the IDs given to points since the table was built, REMOVED for points gone since
+  private final PersistentMap<Location, Integer> changes;
+  // the number of IDs handed out in the family, to tell whether an index may be derived in place
+  private final int[] claimed;
+
+  NetIndex(Collection<Location> points, CircuitPoints source) {
+    int n = points.size();
+    locations = points.toArray(new Location[n]);
+    components = new Component[n][];
+    for (int id = 0; id < n; id++) {
+      components[id] = source == null ? NO_COMPONENTS : propagatedComponents(source, locations[id]);
+    }
+    size = n;
+    live = n;
+    changes = PersistentMap.empty();
+    claimed = new int[] {n};
+    int cap = 4;
+    while (cap < 2 * n) cap <<= 1;
+    table = new int[cap];
+    mask = cap - 1;
+    for (int id = 0; id < n; id++) insert(table, mask, locations[id], id);
+  }
+
+  private NetIndex(
+      NetIndex base,
+      Location[] locations,
+      Component[][] components,
+      int size,
+      int live,
+      PersistentMap<Location, Integer> changes) {
+    this.locations = locations;
+    this.components = components;
+    this.size = size;
+    this.live = live;
+    this.claimed = base.claimed;
+    if (changes.size() <= live / 4 + 64) {
+      this.table = base.table;
+      this.mask = base.mask;
+      this.changes = changes;
+    } else {
+      // too many changes to look up on the side: fold them into a new table, keeping the IDs
+      int cap = 4;
+      while (cap < 2 * live) cap <<= 1;
+      this.table = new int[cap];
+      this.mask = cap - 1;
+      this.changes = PersistentMap.empty();
+      for (int id = 0; id < size; id++) {
+        Location loc = locations[id];
+        Integer changed = changes.get(loc);
+        int cur = changed != null ? changed : find(base.table, base.mask, locations, loc);
+        if (cur == id) insert(table, mask, loc, id);
+      }
+    }
+  }
+
+  private static void insert(int[] table, int mask, Location loc, int id) {
+    int h = hash(loc.getX(), loc.getY()) & mask;
+    while (table[h] != 0) h = (h + 1) & mask;
+    table[h] = id + 1;
+  }
+
+  private static int find(int[] table, int mask, Location[] locations, Location loc) {
+    int x = loc.getX();
+    int y = loc.getY();
+    int h = hash(x, y) & mask;
+    while (true) {
+      int entry = table[h];
+      if (entry == 0) return -1;
+      Location found = locations[entry - 1];
+      if (found.getX() == x && found.getY() == y) return entry - 1;
+      h = (h + 1) & mask;
+    }
+  }
+
+  private static Component[] propagatedComponents(CircuitPoints source, Location loc) {
+    ArrayList<Component> ret = new ArrayList<Component>();
+    for (Component comp : source.getComponents(loc)) {
+      if (!(comp instanceof Wire) && !(comp instanceof Splitter)) ret.add(comp);
+    }
+    return ret.isEmpty() ? NO_COMPONENTS : ret.toArray(new Component[ret.size()]);
+  }
+
+  /**
+   * Returns the index for the wiring in the given source, where only the given points may have
+   * been added, removed, or had components added or removed at them since this index was made.
+   * The cost depends on the number of those points, not on the size of the circuit, apart from
+   * an occasional renumbering.
+   */
+  NetIndex derive(Collection<Location> touched, CircuitPoints source) {
+    Set<Location> present = source.getSplitLocations();
+    // another index was derived from this one already, or too many IDs are dead
+    if (claimed[0] != size || size > 2 * live + 64) return new NetIndex(present, source);
+    Location[] locs = locations;
+    Component[][] comps = components;
+    int n = size;
+    int count = live;
+    PersistentMap<Location, Integer> changed = changes;
+    for (Location loc : touched) {
+      boolean had = indexOf(loc) >= 0;
+      if (present.contains(loc)) {
+        if (n == locs.length) {
+          int cap = Math.max(16, 2 * n);
+          locs = Arrays.copyOf(locs, cap);
+          comps = Arrays.copyOf(comps, cap);
+        }
+        locs[n] = loc;
+        comps[n] = propagatedComponents(source, loc);
+        changed = changed.plus(loc, n);
+        n++;
+        if (!had) count++;
+      } else if (had) {
+        changed = changed.plus(loc, REMOVED);
+        count--;
+      }
+    }
+    claimed[0] = n;
+    return new NetIndex(this, locs, comps, n, count, changed);
+  }
+
+  /**
+   * Returns whether this index was derived from the given one, so that each ID of the given
+   * index still stands for the same point here unless the point was touched, in which case it
+   * got an ID at or past <code>older.size()</code>.
+   */
+  boolean isDerivedFrom(NetIndex older) {
+    return claimed == older.claimed && size >= older.size;
+  }
+
+  /**
+   * Returns the components, other than wires and splitters, having an end at the given point.
+   * These are the components to mark dirty when the value at the point changes.
+   */
+  Component[] getComponents(int id) {
+    return components[id];
+  }
+
+  Location getLocation(int id) {
+    return locations[id];
+  }
+
+  /** Returns whether the ID still stands for its point, rather than one that was touched since. */
+  boolean isLive(int id) {
+    return indexOf(locations[id]) == id;
+  }
+
+  /** Returns the ID of the given location, or -1 if no wire or component end lies there. */
+  int indexOf(Location loc) {
+    if (!changes.isEmpty()) {
+      Integer id = changes.get(loc);
+      if (id != null) return id;
+    }
+    return find(table, mask, locations, loc);
+  }
+
+  /** Returns the number of IDs, including those of points that were touched since. */
+  int size() {
+    return size;
+  }
+}
@@ -0,0 +1,287 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.CircuitWires.BundleMap;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.PullResistor;
+import com.cburch.logisim.std.wiring.Tunnel;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Processes the dirty points and dirty components of a state tree on a fork-join pool. A
+ * subcircuit state only modifies its own data while it is processed (the values of its parent are
+ * merely read), so sibling subtrees can be handled concurrently. Two things are shared: the event
+ * queue of the propagator, and the parent state, which a subcircuit updates through its component
+ * in the parent when one of its pins changes. Both the events created while processing a subtree
+ * and these updates of the parent are recorded instead, and are carried out afterwards on the
+ * joining thread in exactly the order the sequential traversal would have done them, so the
+ * simulation results do not depend on the thread scheduling.
+ *
+ * <p>Components are only propagated on the pool when nothing else can see them doing it: a subtree
+ * goes to the pool only if its circuit and all circuits below it hold nothing but pins,
+ * subcircuits, wiring and components that declare themselves combinational (see {@link
+ * #isThreadSafe}). Other components may share state with the rest of the simulation, such as the
+ * SoC components do through their bus, so the subtrees holding them are processed on the
+ * simulator thread, as are the components of the root.
+ */
+class ParallelPropagation {
+  private abstract static class Pending {
+    abstract void replay(Propagator prop);
+  }
+
+  private static class PendingValue extends Pending {
+    private final CircuitState state;
+    private final Location loc;
+    private final Value val;
+    private final Component cause;
+    private final int delay;
+
+    private PendingValue(CircuitState state, Location loc, Value val, Component cause, int delay) {
+      this.state = state;
+      this.loc = loc;
+      this.val = val;
+      this.cause = cause;
+      this.delay = delay;
+    }
+
+    @Override
+    void replay(Propagator prop) {
+      prop.setValue(state, loc, val, cause, delay);
+    }
+  }
+
+  private static class PendingParent extends Pending {
+    private final CircuitState state;
+
+    private PendingParent(CircuitState state) {
+      this.state = state;
+    }
+
+    @Override
+    void replay(Propagator prop) {
+      state.propagateParent();
+    }
+  }
+
+  private static class PointsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final CircuitState state;
+
+    private PointsTask(CircuitState state) {
+      this.state = state;
+    }
+
+    @Override
+    protected void compute() {
+      state.processOwnDirtyPoints();
+      ArrayList<PointsTask> subtasks = new ArrayList<PointsTask>();
+      for (CircuitState sub : state.getSubstateArray()) {
+        if (sub != null) subtasks.add(new PointsTask(sub));
+      }
+      if (subtasks.size() == 1) subtasks.get(0).compute();
+      else if (!subtasks.isEmpty()) invokeAll(subtasks);
+    }
+  }
+
+  private static class ComponentsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final CircuitState state;
+    private final ArrayList<Pending> pending = new ArrayList<Pending>();
+    private final ArrayList<ComponentsTask> subtasks = new ArrayList<ComponentsTask>();
+
+    private ComponentsTask(CircuitState state) {
+      this.state = state;
+    }
+
+    @Override
+    protected void compute() {
+      // a worker may run other tasks while it waits for its subtasks,
+      // so the recording list is restored rather than cleared
+      ArrayList<Pending> outer = recording.get();
+      recording.set(pending);
+      try {
+        state.processOwnDirtyComponents();
+      } finally {
+        recording.set(outer);
+      }
+      for (CircuitState sub : state.getSubstateArray()) {
+        if (sub != null) subtasks.add(new ComponentsTask(sub));
+      }
+      if (inForkJoinPool()) {
+        // only thread-safe subtrees are handed to the pool, so all below are thread-safe too
+        if (subtasks.size() == 1) subtasks.get(0).compute();
+        else if (!subtasks.isEmpty()) invokeAll(subtasks);
+        return;
+      }
+      final ArrayList<ComponentsTask> forked = new ArrayList<ComponentsTask>();
+      for (ComponentsTask sub : subtasks) {
+        if (isThreadSafe(sub.state.getCircuit())) forked.add(sub);
+      }
+      if (forked.size() > 1) {
+        ForkJoinPool.commonPool()
+            .invoke(
+                new RecursiveAction() {
+                  private static final long serialVersionUID = 1L;
+
+                  @Override
+                  protected void compute() {
+                    invokeAll(forked);
+                  }
+                });
+      } else {
+        forked.clear();
+      }
+      for (ComponentsTask sub : subtasks) {
+        if (!forked.contains(sub)) sub.compute();
+      }
+    }
+
+    private void replay(Propagator prop) {
+      for (Pending p : pending) {
+        p.replay(prop);
+      }
+      for (ComponentsTask sub : subtasks) {
+        sub.replay(prop);
+      }
+    }
+  }
+
+  private static final ThreadLocal<ArrayList<Pending>> recording =
+      new ThreadLocal<ArrayList<Pending>>();
+
+  static boolean isUseful() {
+    return ForkJoinPool.getCommonPoolParallelism() > 1;
+  }
+
+  static void processDirtyPoints(CircuitState root) {
+    ForkJoinPool.commonPool().invoke(new PointsTask(root));
+  }
+
+  static void processDirtyComponents(CircuitState root, Propagator prop) {
+    // the root task runs on the calling thread and hands thread-safe subtrees to the pool
+    ComponentsTask task = new ComponentsTask(root);
+    task.compute();
+    task.replay(prop);
+  }
+
+  /**
+   * Returns whether the components of the circuit and of all circuits below it may be propagated
+   * on a pool thread: they are pins, subcircuits, splitters, tunnels, pull resistors, components
+   * without ends, or components whose factory is combinational. The answer is cached until the
+   * wiring of the circuit, or of a subcircuit in it, changes.
+   */
+  static boolean isThreadSafe(Circuit circuit) {
+    ThreadSafety ret = circuit.threadSafety;
+    if (ret == null || !ret.isCurrent()) {
+      ret = new ThreadSafety(circuit);
+      circuit.threadSafety = ret;
+    }
+    return ret.safe;
+  }
+
+  static class ThreadSafety {
+    private final Circuit circuit;
+    private final BundleMap map;
+    private final ArrayList<ThreadSafety> subcircuits = new ArrayList<ThreadSafety>();
+    private final boolean safe;
+
+    private ThreadSafety(Circuit circuit) {
+      this.circuit = circuit;
+      ArrayList<Component> comps;
+      Lock lock = circuit.getLocker().getReadLock();
+      lock.lock();
+      try {
+        map = circuit.wires.getBundleMap();
+        comps = new ArrayList<Component>(circuit.getNonWires());
+      } finally {
+        lock.unlock();
+      }
+      boolean ok = true;
+      for (Component comp : comps) {
+        ComponentFactory factory = comp.getFactory();
+        if (factory instanceof SubcircuitFactory) {
+          Circuit sub = ((SubcircuitFactory) factory).getSubcircuit();
+          isThreadSafe(sub);
+          subcircuits.add(sub.threadSafety);
+          ok &= sub.threadSafety.safe;
+        } else if (!(factory instanceof Pin
+            || factory.isCombinational()
+            || factory instanceof SplitterFactory
+            || factory instanceof Tunnel
+            || factory instanceof PullResistor
+            || comp.getEnds().isEmpty())) {
+          ok = false;
+        }
+      }
+      safe = ok;
+    }
+
+    private boolean isCurrent() {
+      if (circuit.wires.getBundleMap() != map) return false;
+      for (ThreadSafety sub : subcircuits) {
+        if (sub.circuit.threadSafety != sub || !sub.isCurrent()) return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Records a value change requested while a subtree is processed by a pool task. Returns false if
+   * the calling thread is not processing a subtree, in which case the caller must schedule the
+   * change itself.
+   */
+  static boolean record(CircuitState state, Location loc, Value val, Component cause, int delay) {
+    ArrayList<Pending> pending = recording.get();
+    if (pending == null) return false;
+    pending.add(new PendingValue(state, loc, val, cause, delay));
+    return true;
+  }
+
+  /**
+   * Records that the component holding a substate has to be propagated in the parent state, which
+   * sibling subtrees share. Returns false if the calling thread is not processing a subtree, in
+   * which case the caller must propagate it right away.
+   */
+  static boolean recordParent(CircuitState state) {
+    ArrayList<Pending> pending = recording.get();
+    if (pending == null) return false;
+    pending.add(new PendingParent(state));
+    return true;
+  }
+
+  private ParallelPropagation() {}
+}
@@ -0,0 +1,320 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.circuit;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash map whose updates return a new map sharing all but O(log n) of its structure
+ * with the old one. {@link CircuitWires} uses it to derive the bundle map of an edited circuit
+ * from the previous one without copying the parts the edit did not touch. It is a hash array
+ * mapped trie: each level takes five bits of the hash, and keys whose hashes are equal end up in
+ * a collision node. Null keys and values are not supported.
+ */
+final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>> {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  @SuppressWarnings("rawtypes")
+  private static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentMap<K, V> empty() {
+    return EMPTY;
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  // The array of a node holds key and value pairs; a null key marks a pair whose value is the
+  // child node for the keys sharing the bits so far. Collision nodes have no children.
+  private abstract static class Node {
+    final Object[] array;
+
+    Node(Object[] array) {
+      this.array = array;
+    }
+
+    abstract Object find(int shift, int hash, Object key);
+
+    abstract Node plus(int shift, int hash, Object key, Object val, boolean[] added);
+
+    abstract Node minus(int shift, int hash, Object key);
+  }
+
+  private static final class BitmapNode extends Node {
+    final int bitmap;
+
+    BitmapNode(int bitmap, Object[] array) {
+      super(array);
+      this.bitmap = bitmap;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) return null;
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+      Object k = array[i];
+      if (k == null) return ((Node) array[i + 1]).find(shift + BITS, hash, key);
+      return key.equals(k) ? array[i + 1] : null;
+    }
+
+    @Override
+    Node plus(int shift, int hash, Object key, Object val, boolean[] added) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+      if ((bitmap & bit) == 0) {
+        Object[] a = new Object[array.length + 2];
+        System.arraycopy(array, 0, a, 0, i);
+        a[i] = key;
+        a[i + 1] = val;
+        System.arraycopy(array, i, a, i + 2, array.length - i);
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, a);
+      }
+      Object k = array[i];
+      Object v = array[i + 1];
+      Object replacement;
+      if (k == null) {
+        replacement = ((Node) v).plus(shift + BITS, hash, key, val, added);
+      } else if (key.equals(k)) {
+        replacement = val;
+      } else {
+        added[0] = true;
+        replacement = pair(shift + BITS, hash(k), k, v, hash, key, val);
+        Object[] a = array.clone();
+        a[i] = null;
+        a[i + 1] = replacement;
+        return new BitmapNode(bitmap, a);
+      }
+      if (replacement == v) return this;
+      Object[] a = array.clone();
+      a[i + 1] = replacement;
+      return new BitmapNode(bitmap, a);
+    }
+
+    @Override
+    Node minus(int shift, int hash, Object key) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) return this;
+      int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+      Object k = array[i];
+      if (k == null) {
+        Node child = (Node) array[i + 1];
+        Node rest = child.minus(shift + BITS, hash, key);
+        if (rest == child) return this;
+        if (rest != null) {
+          Object[] a = array.clone();
+          a[i + 1] = rest;
+          return new BitmapNode(bitmap, a);
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+      if (bitmap == bit) return null;
+      Object[] a = new Object[array.length - 2];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 2, a, i, a.length - i);
+      return new BitmapNode(bitmap & ~bit, a);
+    }
+  }
+
+  private static final class CollisionNode extends Node {
+    final int hash;
+
+    CollisionNode(int hash, Object[] array) {
+      super(array);
+      this.hash = hash;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) return i;
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      return i < 0 ? null : array[i + 1];
+    }
+
+    @Override
+    Node plus(int shift, int hash, Object key, Object val, boolean[] added) {
+      if (hash != this.hash) {
+        // move this node one level down, next to the new key
+        Node parent = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] {null, this});
+        return parent.plus(shift, hash, key, val, added);
+      }
+      int i = indexOf(key);
+      if (i >= 0) {
+        if (array[i + 1] == val) return this;
+        Object[] a = array.clone();
+        a[i + 1] = val;
+        return new CollisionNode(hash, a);
+      }
+      Object[] a = new Object[array.length + 2];
+      System.arraycopy(array, 0, a, 0, array.length);
+      a[array.length] = key;
+      a[array.length + 1] = val;
+      added[0] = true;
+      return new CollisionNode(hash, a);
+    }
+
+    @Override
+    Node minus(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      if (i < 0) return this;
+      if (array.length == 2) return null;
+      Object[] a = new Object[array.length - 2];
+      System.arraycopy(array, 0, a, 0, i);
+      System.arraycopy(array, i + 2, a, i, a.length - i);
+      return new CollisionNode(hash, a);
+    }
+  }
+
+  // a node holding the two given keys, whose hashes agree below the given shift
+  private static Node pair(int shift, int h1, Object k1, Object v1, int h2, Object k2, Object v2) {
+    if (h1 == h2) return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+    int b1 = (h1 >>> shift) & MASK;
+    int b2 = (h2 >>> shift) & MASK;
+    if (b1 == b2) {
+      return new BitmapNode(1 << b1, new Object[] {null, pair(shift + BITS, h1, k1, v1, h2, k2, v2)});
+    }
+    Object[] a = b1 < b2 ? new Object[] {k1, v1, k2, v2} : new Object[] {k2, v2, k1, v1};
+    return new BitmapNode((1 << b1) | (1 << b2), a);
+  }
+
+  private final Node root;
+  private final int size;
+
+  private PersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(Object key) {
+    return root == null ? null : (V) root.find(0, hash(key), key);
+  }
+
+  boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  /** Returns a map holding the given value for the key and the entries of this one otherwise. */
+  PersistentMap<K, V> plus(K key, V value) {
+    int h = hash(key);
+    boolean[] added = new boolean[1];
+    Node r;
+    if (root == null) {
+      r = new BitmapNode(1 << (h & MASK), new Object[] {key, value});
+      added[0] = true;
+    } else {
+      r = root.plus(0, h, key, value, added);
+    }
+    return r == root ? this : new PersistentMap<K, V>(r, added[0] ? size + 1 : size);
+  }
+
+  /** Returns a map holding the entries of this one but the one for the given key. */
+  PersistentMap<K, V> minus(Object key) {
+    if (root == null) return this;
+    Node r = root.minus(0, hash(key), key);
+    if (r == root) return this;
+    return r == null ? PersistentMap.<K, V>empty() : new PersistentMap<K, V>(r, size - 1);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    return new Iterator<Map.Entry<K, V>>() {
+      // the arrays being walked, and the position in each of them
+      private final ArrayList<Object[]> arrays = new ArrayList<Object[]>();
+      private final ArrayList<Integer> positions = new ArrayList<Integer>();
+      private Map.Entry<K, V> next;
+
+      {
+        if (root != null) {
+          arrays.add(root.array);
+          positions.add(0);
+        }
+        advance();
+      }
+
+      @SuppressWarnings("unchecked")
+      private void advance() {
+        next = null;
+        while (!arrays.isEmpty()) {
+          int top = arrays.size() - 1;
+          Object[] a = arrays.get(top);
+          int i = positions.get(top);
+          if (i >= a.length) {
+            arrays.remove(top);
+            positions.remove(top);
+            continue;
+          }
+          positions.set(top, i + 2);
+          if (a[i] == null) {
+            arrays.add(((Node) a[i + 1]).array);
+            positions.add(0);
+          } else {
+            next = new AbstractMap.SimpleImmutableEntry<K, V>((K) a[i], (V) a[i + 1]);
+            return;
+          }
+        }
+      }
+
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      public Map.Entry<K, V> next() {
+        if (next == null) throw new NoSuchElementException();
+        Map.Entry<K, V> ret = next;
+        advance();
+        return ret;
+      }
+    };
+  }
+}
@@ -36,6 +36,7 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
+import com.cburch.logisim.prefs.AppPreferences;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -84,6 +85,14 @@ public class Propagator {
     }
   }
 
+  /**
+   * Notified on the simulation thread after every step of propagation, once the values on all
+   * points are settled for the given time. Listeners should sample what they need and return.
+   */
+  public interface StepListener {
+    public void stepCompleted(int time);
+  }
+
   static class SetData implements Comparable<SetData> {
     int time;
     int serialNumber;
@@ -92,6 +101,8 @@ public class Propagator {
     Location loc; // the location at which value is emitted
     Value val; // value being emitted
     SetData next = null;
+    SetData queueNext = null; // link inside an EventWheel bucket or the free pool
+    int handled; // last wheel step in which this cause was processed
 
     private SetData(
         int time, int serialNumber, CircuitState state, Location loc, Component cause, Value val) {
@@ -152,16 +163,29 @@ public class Propagator {
   private volatile int simRandomShift;
 
   private PriorityQueue<SetData> toProcess = new PriorityQueue<SetData>();
+  private EventWheel wheel = null; // replaces toProcess when the wheel engine is selected
+  private SetData pool = null; // recycled event records, linked through queueNext
+  private int poolSize = 0;
+  private int handledStep = 0;
+  // component points whose cause was removed in the current wheel step; a removal leaves no
+  // record to stamp, so these are remembered here to skip later events for them in the step
+  private final HashMap<CircuitState, HashSet<ComponentPoint>> removedInStep =
+      new HashMap<CircuitState, HashSet<ComponentPoint>>();
+  private boolean parallel = false; // substates are processed on a fork-join pool
+  private boolean recording = false; // pool tasks record the values they set
+  private boolean useCompiled = false; // combinational subcircuits are evaluated as a whole
   private int clock = 0;
   private boolean isOscillating = false;
   private boolean oscAdding = false;
   private PropagationPoints oscPoints = new PropagationPoints();
   private int ticks = 0;
+  private volatile StepListener stepListener = null;
   private Random noiseSource = new Random();
   private int noiseCount = 0;
 
   private int setDataSerialNumber = 0;
   static int lastId = 0;
+  private static final int MAX_POOL_SIZE = 4096;
 
   int id = lastId++;
 
@@ -170,6 +194,7 @@ public class Propagator {
     Listener l = new Listener(this);
     root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
     updateRandomness();
+    updateEngine();
   }
 
   private SetData addCause(CircuitState state, SetData head, SetData data) {
@@ -177,8 +202,6 @@ public class Propagator {
       return removeCause(state, head, data.loc, data.cause);
     }
 
-    HashMap<Location, SetData> causes = state.causes;
-
     // first check whether this is change of previous info.
     boolean replaced = false;
     for (SetData n = head; n != null; n = n.next) {
@@ -192,7 +215,7 @@ public class Propagator {
     // otherwise, insert to list of causes
     if (!replaced) {
       if (head == null) {
-        causes.put(data.loc, data);
+        state.setCause(data.loc, data);
         head = data;
       } else {
         data.next = head.next;
@@ -209,7 +232,7 @@ public class Propagator {
   void checkComponentEnds(CircuitState state, Component comp) {
     for (EndData end : comp.getEnds()) {
       Location loc = end.getLocation();
-      SetData oldHead = state.causes.get(loc);
+      SetData oldHead = state.getCause(loc);
       Value oldVal = computeValue(oldHead);
       SetData newHead = removeCause(state, oldHead, loc, comp);
       Value newVal = computeValue(newHead);
@@ -223,11 +246,24 @@ public class Propagator {
   }
 
   private void clearDirtyComponents() {
-    root.processDirtyComponents();
+    if (parallel && root.hasSubstates()) {
+      recording = true;
+      try {
+        ParallelPropagation.processDirtyComponents(root, this);
+      } finally {
+        recording = false;
+      }
+    } else {
+      root.processDirtyComponents();
+    }
   }
 
   private void clearDirtyPoints() {
-    root.processDirtyPoints();
+    if (parallel && root.hasSubstates()) {
+      ParallelPropagation.processDirtyPoints(root);
+    } else {
+      root.processDirtyPoints();
+    }
   }
 
   public void drawOscillatingPoints(ComponentDrawContext context) {
@@ -241,16 +277,37 @@ public class Propagator {
     return root;
   }
 
+  boolean isCompiledMode() {
+    return useCompiled;
+  }
+
+  /** Switches compiled evaluation of subcircuits on or off, whatever the preference says. */
+  void setCompiledMode(boolean value) {
+    useCompiled = value;
+  }
+
+  public StepListener getStepListener() {
+    return stepListener;
+  }
+
   public int getTickCount() {
     return ticks;
   }
 
+  void setTickCount(int value) {
+    ticks = value;
+  }
+
   public boolean isOscillating() {
     return isOscillating;
   }
 
   boolean isPending() {
-    return !toProcess.isEmpty();
+    return wheel == null ? !toProcess.isEmpty() : !wheel.isEmpty();
+  }
+
+  private boolean isQueueEmpty() {
+    return wheel == null ? toProcess.isEmpty() : wheel.isEmpty();
   }
 
   /*
@@ -271,7 +328,7 @@ public class Propagator {
    * if (oscAdding) oscPoints.add(state, data.loc);
    *
    * // change the information about value SetData oldHead = (SetData)
-   * state.causes.get(data.loc); Value oldVal = computeValue(oldHead); SetData
+   * state.getCause(data.loc); Value oldVal = computeValue(oldHead); SetData
    * newHead = addCause(state, oldHead, data); Value newVal =
    * computeValue(newHead);
    *
@@ -282,7 +339,12 @@ public class Propagator {
    */
 
   void locationTouched(CircuitState state, Location loc) {
-    if (oscAdding) oscPoints.add(state, loc);
+    if (oscAdding) {
+      // substates may report their points concurrently in parallel mode
+      synchronized (oscPoints) {
+        oscPoints.add(state, loc);
+      }
+    }
   }
 
   public void propagate() {
@@ -293,7 +355,7 @@ public class Propagator {
     int oscThreshold = simLimit;
     int logThreshold = 3 * oscThreshold / 4;
     int iters = 0;
-    while (!toProcess.isEmpty()) {
+    while (!isQueueEmpty()) {
       iters++;
 
       if (iters < logThreshold) {
@@ -310,15 +372,19 @@ public class Propagator {
     isOscillating = false;
     oscAdding = false;
     oscPoints.clear();
+    notifyStep();
+  }
+
+  private void notifyStep() {
+    StepListener l = stepListener;
+    if (l != null) l.stepCompleted(clock);
   }
 
   private SetData removeCause(CircuitState state, SetData head, Location loc, Component cause) {
-    HashMap<Location, SetData> causes = state.causes;
     if (head == null) {;
     } else if (head.cause == cause) {
       head = head.next;
-      if (head == null) causes.remove(loc);
-      else causes.put(loc, head);
+      state.setCause(loc, head);
     } else {
       SetData prev = head;
       SetData cur = head.next;
@@ -336,6 +402,8 @@ public class Propagator {
 
   void reset() {
     toProcess.clear();
+    if (wheel != null) recycle(wheel.clear());
+    updateEngine();
     root.reset();
     isOscillating = false;
   }
@@ -345,6 +413,7 @@ public class Propagator {
   //
   void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
     if (cause instanceof Wire || cause instanceof Splitter) return;
+    if (recording && ParallelPropagation.record(state, pt, val, cause, delay)) return;
     if (delay <= 0) {
       delay = 1;
     }
@@ -362,7 +431,11 @@ public class Propagator {
         }
       }
     }
-    toProcess.add(new SetData(clock + delay, setDataSerialNumber, state, pt, cause, val));
+    if (wheel == null) {
+      toProcess.add(new SetData(clock + delay, setDataSerialNumber, state, pt, cause, val));
+    } else {
+      wheel.add(obtain(clock + delay, state, pt, cause, val));
+    }
     /*
      * DEBUGGING - comment out Simulator.log(clock + ": set " + pt + " in "
      * + state + " to " + val + " by " + cause + " after " + delay); //
@@ -371,6 +444,11 @@ public class Propagator {
     setDataSerialNumber++;
   }
 
+  /** Sets the listener told about every step, or removes it when given null. */
+  public void setStepListener(StepListener l) {
+    stepListener = l;
+  }
+
   void step(PropagationPoints changedPoints) {
     oscPoints.clear();
     clearDirtyPoints();
@@ -385,6 +463,10 @@ public class Propagator {
   }
 
   private void stepInternal(PropagationPoints changedPoints) {
+    if (wheel != null) {
+      stepWheel(changedPoints);
+      return;
+    }
     if (toProcess.isEmpty()) return;
 
     // update clock
@@ -418,7 +500,7 @@ public class Propagator {
       if (changedPoints != null) changedPoints.add(state, data.loc);
 
       // change the information about value
-      SetData oldHead = state.causes.get(data.loc);
+      SetData oldHead = state.getCause(data.loc);
       Value oldVal = computeValue(oldHead);
       SetData newHead = addCause(state, oldHead, data);
       Value newVal = computeValue(newHead);
@@ -431,6 +513,142 @@ public class Propagator {
 
     clearDirtyPoints();
     clearDirtyComponents();
+    notifyStep();
+  }
+
+  /**
+   * Wheel counterpart of stepInternal. Instead of collecting the handled component points in
+   * fresh hash sets, the cause record kept in CircuitState is stamped with the current step
+   * number, and event records that do not end up in the cause lists go back to the pool.
+   */
+  private void stepWheel(PropagationPoints changedPoints) {
+    if (wheel.isEmpty()) return;
+
+    // update clock
+    clock = wheel.nextTime();
+    int step = ++handledStep;
+    if (!removedInStep.isEmpty()) removedInStep.clear();
+
+    // propagate all values for this clock tick
+    SetData data = wheel.advanceTo(clock);
+    while (data != null) {
+      SetData following = data.queueNext;
+      data.queueNext = null;
+      CircuitState state = data.state;
+      Location loc = data.loc;
+
+      // if it's already handled for this clock tick, continue
+      SetData oldHead = state.getCause(loc);
+      SetData existing = oldHead;
+      while (existing != null && existing.cause != data.cause) existing = existing.next;
+      if (existing != null
+          ? existing.handled == step
+          : !removedInStep.isEmpty() && wasRemoved(state, data.cause, loc)) {
+        recycle(data);
+        data = following;
+        continue;
+      }
+
+      if (changedPoints != null) changedPoints.add(state, loc);
+
+      // change the information about value
+      Value oldVal = computeValue(oldHead);
+      Value newVal;
+      if (data.val == null) {
+        newVal = computeValue(removeCause(state, oldHead, loc, data.cause));
+        HashSet<ComponentPoint> removed = removedInStep.get(state);
+        if (removed == null) {
+          removed = new HashSet<ComponentPoint>();
+          removedInStep.put(state, removed);
+        }
+        removed.add(new ComponentPoint(data.cause, loc));
+        recycle(data);
+      } else if (existing != null) {
+        existing.val = data.val;
+        existing.handled = step;
+        newVal = computeValue(oldHead);
+        recycle(data);
+      } else {
+        data.handled = step;
+        newVal = computeValue(addCause(state, oldHead, data));
+      }
+
+      // if the value at point has changed, propagate it
+      if (!newVal.equals(oldVal)) {
+        state.markPointAsDirty(loc);
+      }
+      data = following;
+    }
+
+    clearDirtyPoints();
+    clearDirtyComponents();
+    notifyStep();
+  }
+
+  private boolean wasRemoved(CircuitState state, Component cause, Location loc) {
+    HashSet<ComponentPoint> removed = removedInStep.get(state);
+    return removed != null && removed.contains(new ComponentPoint(cause, loc));
+  }
+
+  private SetData obtain(int time, CircuitState state, Location loc, Component cause, Value val) {
+    SetData ret = pool;
+    if (ret == null) {
+      ret = new SetData(time, setDataSerialNumber, state, loc, cause, val);
+    } else {
+      pool = ret.queueNext;
+      poolSize--;
+      ret.queueNext = null;
+      ret.time = time;
+      ret.serialNumber = setDataSerialNumber;
+      ret.state = state;
+      ret.loc = loc;
+      ret.cause = cause;
+      ret.val = val;
+      ret.handled = 0;
+    }
+    return ret;
+  }
+
+  private void recycle(SetData data) {
+    while (data != null) {
+      SetData following = data.queueNext;
+      if (poolSize >= MAX_POOL_SIZE) return;
+      data.state = null;
+      data.cause = null;
+      data.loc = null;
+      data.val = null;
+      data.next = null;
+      data.queueNext = pool;
+      pool = data;
+      poolSize++;
+      data = following;
+    }
+  }
+
+  /** Switches parallel processing of the substates on or off, whatever the preference says. */
+  void setParallel(boolean value) {
+    parallel = value;
+  }
+
+  private void updateEngine() {
+    parallel = AppPreferences.SIM_PARALLEL.getBoolean() && ParallelPropagation.isUseful();
+    useCompiled = AppPreferences.SIM_COMPILED.getBoolean();
+    boolean useWheel = AppPreferences.SIM_ENGINE.get().equals(AppPreferences.SIM_ENGINE_WHEEL);
+    if (useWheel && wheel == null) {
+      wheel = new EventWheel(clock);
+      while (!toProcess.isEmpty()) wheel.add(toProcess.poll());
+    } else if (!useWheel && wheel != null) {
+      SetData data = wheel.clear();
+      while (data != null) {
+        SetData following = data.queueNext;
+        data.queueNext = null;
+        toProcess.add(data);
+        data = following;
+      }
+      wheel = null;
+      pool = null;
+      poolSize = 0;
+    }
   }
 
   public boolean tick() {
@@ -104,6 +104,8 @@ public class Simulator {
             if (propagator != null) {
               propagator.reset();
             }
+            checkpoints.clear();
+            fireSimulatorReset();
             firePropagationCompleted();
             propagateRequested |= isRunning;
           }
@@ -162,6 +164,10 @@ public class Simulator {
               }
             }
             if (ticked) {
+              Propagator prop = propagator;
+              if (prop != null && !exceptionEncountered && !prop.isOscillating()) {
+                checkpoints.ticked(prop.getRootState());
+              }
               fireTickCompleted();
             }
             firePropagationCompleted();
@@ -198,6 +204,7 @@ public class Simulator {
   private PropagationManager manager;
   private SimulatorTicker ticker;
   private ArrayList<SimulatorListener> listeners = new ArrayList<SimulatorListener>();
+  private Checkpoints checkpoints = new Checkpoints();
 
   public Simulator() {
     manager = new PropagationManager();
@@ -232,6 +239,13 @@ public class Simulator {
     }
   }
 
+  void fireSimulatorReset() {
+    SimulatorEvent e = new SimulatorEvent(this);
+    for (SimulatorListener l : new ArrayList<SimulatorListener>(listeners)) {
+      l.simulatorReset(e);
+    }
+  }
+
   void fireSimulatorStateChanged() {
     SimulatorEvent e = new SimulatorEvent(this);
     for (SimulatorListener l : new ArrayList<SimulatorListener>(listeners)) {
@@ -246,6 +260,11 @@ public class Simulator {
     }
   }
 
+  /** Returns the checkpoints taken of the root state while the clock ticks. */
+  public Checkpoints getCheckpoints() {
+    return checkpoints;
+  }
+
   public CircuitState getCircuitState() {
     Propagator prop = manager.getPropagator();
     return prop == null ? null : prop.getRootState();
@@ -31,6 +31,9 @@ package com.cburch.logisim.circuit;
 public interface SimulatorListener {
   public void propagationCompleted(SimulatorEvent e);
 
+  /** Called after the simulation has been reset, before the propagation that follows. */
+  public void simulatorReset(SimulatorEvent e);
+
   public void simulatorStateChanged(SimulatorEvent e);
 
   public void tickCompleted(SimulatorEvent e);
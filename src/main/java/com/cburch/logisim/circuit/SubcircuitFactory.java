@@ -44,6 +44,7 @@ import com.cburch.logisim.instance.InstanceComponent;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.InstanceStateImpl;
 import com.cburch.logisim.instance.Port;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.prefs.AppPreferences;
@@ -417,10 +418,19 @@ public class SubcircuitFactory extends InstanceFactory {
 
   @Override
   public void propagate(InstanceState superState) {
-    CircuitState subState = getSubstate(superState);
-
     CircuitAttributes attrs = (CircuitAttributes) superState.getAttributeSet();
     Instance[] pins = attrs.getPinInstances();
+    if (isCompiledMode(superState) && propagateCompiled(superState, pins)) {
+      // the inside only needs to be simulated while the canvas or a log looks at it; other states
+      // are left as they are until they are registered (see CircuitState.addObserver)
+      CircuitState state = ((InstanceStateImpl) superState).getCircuitState();
+      if (state.isObserved(superState.getInstance().getComponent())) {
+        propagateInputs(getSubstate(superState), superState, pins);
+      }
+      return;
+    }
+
+    CircuitState subState = getSubstate(superState);
     for (int i = 0; i < pins.length; i++) {
       Instance pin = pins[i];
       InstanceState pinState = subState.getInstanceState(pin);
@@ -438,6 +448,44 @@ public class SubcircuitFactory extends InstanceFactory {
     }
   }
 
+  private static boolean isCompiledMode(InstanceState superState) {
+    if (!(superState instanceof InstanceStateImpl)) return false;
+    return ((InstanceStateImpl) superState).getCircuitState().getPropagator().isCompiledMode();
+  }
+
+  // evaluates the subcircuit as a whole, returns false if it can't be compiled
+  private boolean propagateCompiled(InstanceState superState, Instance[] pins) {
+    CompiledCircuit compiled = CompiledCircuit.get(source);
+    if (compiled == null) return false;
+    int[] index = compiled.getPinIndices(pins);
+    if (index == null) return false;
+    Value[] inputs = new Value[pins.length];
+    for (int i = 0; i < pins.length; i++) {
+      if (Pin.FACTORY.isInputPin(pins[i])) inputs[i] = superState.getPortValue(i);
+    }
+    // the outputs settle one after the other, each time calling this
+    // again, but they only need to be computed when the inputs change
+    CircuitState state = ((InstanceStateImpl) superState).getCircuitState();
+    Component comp = superState.getInstance().getComponent();
+    if (state.setCompiledInputs(comp, compiled, inputs)) {
+      compiled.evaluate(superState, pins, index);
+    }
+    return true;
+  }
+
+  private static void propagateInputs(
+      CircuitState subState, InstanceState superState, Instance[] pins) {
+    for (int i = 0; i < pins.length; i++) {
+      if (!Pin.FACTORY.isInputPin(pins[i])) continue;
+      InstanceState pinState = subState.getInstanceState(pins[i]);
+      Value newVal = superState.getPortValue(i);
+      if (!newVal.equals(Pin.FACTORY.getValue(pinState))) {
+        Pin.FACTORY.setValue(pinState, newVal);
+        Pin.FACTORY.propagate(pinState);
+      }
+    }
+  }
+
   @Override
   public boolean RequiresNonZeroLabel() {
     return true;
@@ -31,7 +31,7 @@ package com.cburch.logisim.circuit;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.LinkedHashSet;
 
 class WireBundle {
   private BitWidth width = BitWidth.UNKNOWN;
@@ -40,7 +40,7 @@ class WireBundle {
   private Location widthDeterminant = null;
   private boolean isBuss = false;
   WireThread[] threads = null;
-  CopyOnWriteArraySet<Location> points = new CopyOnWriteArraySet<Location>(); // points
+  LinkedHashSet<Location> points = new LinkedHashSet<Location>(); // points
   // bundle
   // hits
   private WidthIncompatibilityData incompatibilityData = null;
@@ -28,12 +28,12 @@
 
 package com.cburch.logisim.circuit;
 
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.LinkedHashSet;
 
 class WireThread {
   private WireThread parent;
-  private CopyOnWriteArraySet<CircuitWires.ThreadBundle> bundles =
-      new CopyOnWriteArraySet<CircuitWires.ThreadBundle>();
+  private LinkedHashSet<CircuitWires.ThreadBundle> bundles =
+      new LinkedHashSet<CircuitWires.ThreadBundle>();
 
   WireThread() {
     parent = this;
@@ -49,7 +49,7 @@ class WireThread {
     return ret;
   }
 
-  CopyOnWriteArraySet<CircuitWires.ThreadBundle> getBundles() {
+  LinkedHashSet<CircuitWires.ThreadBundle> getBundles() {
     return bundles;
   }
 
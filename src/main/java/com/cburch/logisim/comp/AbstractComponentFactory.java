@@ -133,6 +133,14 @@ public abstract class AbstractComponentFactory implements ComponentFactory {
     return false;
   }
 
+  public boolean isCombinational() {
+    return false;
+  }
+
+  public boolean isBitSliceable() {
+    return false;
+  }
+
   public boolean HDLSupportedComponent(String HDLIdentifier, AttributeSet attrs) {
     return false;
   }
@@ -98,6 +98,19 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 
   public boolean HasThreeStateDrivers(AttributeSet attrs);
 
+  /**
+   * Returns true if the outputs only depend on the current inputs and attributes, so that the
+   * component can be evaluated without keeping any state.
+   */
+  public boolean isCombinational();
+
+  /**
+   * Returns true if each bit of the outputs is computed from the same bit of the inputs, the same
+   * way for every bit, also when the values at the ports and the WIDTH attribute are wider than the
+   * component. A batch simulation then evaluates one input vector in each bit of a one-bit circuit.
+   */
+  public boolean isBitSliceable();
+
   public boolean HDLSupportedComponent(String HDLIdentifier, AttributeSet attrs);
 
   public boolean isAllDefaultValues(AttributeSet attrs, LogisimVersion ver);
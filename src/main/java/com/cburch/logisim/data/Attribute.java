@@ -84,6 +84,15 @@ public abstract class Attribute<V> {
     return hidden;
   }
 
+  /**
+   * Returns true if {@link #parse(String)} does nothing but build a new value from the string, so
+   * that a file reader may call it on another thread. Attributes whose saved values can be large,
+   * such as memory contents, override this.
+   */
+  public boolean isParseThreadSafe() {
+    return false;
+  }
+
   @Override
   public String toString() {
     return name;
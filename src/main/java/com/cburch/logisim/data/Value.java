@@ -35,7 +35,12 @@ import java.util.Arrays;
 
 public class Value {
 
-  private static Value create(int width, long error, long unknown, long value) {
+  /**
+   * Builds a value from its bit masks, as returned by {@link #getErrorMask()}, {@link
+   * #getUnknownMask()} and {@link #getValueMask()}. Bits beyond the width are ignored, and an error
+   * bit takes precedence over an unknown bit, which takes precedence over a value bit.
+   */
+  public static Value create(int width, long error, long unknown, long value) {
     if (width == 0) {
       return Value.NIL;
     } else if (width == 1) {
@@ -370,6 +375,18 @@ public class Value {
     return width;
   }
 
+  public long getErrorMask() {
+    return error;
+  }
+
+  public long getUnknownMask() {
+    return unknown;
+  }
+
+  public long getValueMask() {
+    return value;
+  }
+
   @Override
   public int hashCode() {
     int ret = width;
@@ -92,7 +92,9 @@ public class Loader implements LibraryLoader {
   private static class LogisimFileFilter extends FileFilter {
     @Override
     public boolean accept(File f) {
-      return f.isDirectory() || f.getName().endsWith(LOGISIM_EXTENSION);
+      return f.isDirectory()
+          || f.getName().endsWith(LOGISIM_EXTENSION)
+          || f.getName().endsWith(LOGISIM_SNAPSHOT_EXTENSION);
     }
 
     @Override
@@ -135,6 +137,8 @@ public class Loader implements LibraryLoader {
   }
 
   public static final String LOGISIM_EXTENSION = ".circ";
+  /** Files saved with this extension are written as binary snapshots rather than XML. */
+  public static final String LOGISIM_SNAPSHOT_EXTENSION = ".circb";
 
   public static final FileFilter LOGISIM_FILTER = new LogisimFileFilter();
 
@@ -466,6 +470,8 @@ public class Loader implements LibraryLoader {
     String ret = file.getName();
     if (ret.endsWith(LOGISIM_EXTENSION)) {
       return ret.substring(0, ret.length() - LOGISIM_EXTENSION.length());
+    } else if (ret.endsWith(LOGISIM_SNAPSHOT_EXTENSION)) {
+      return ret.substring(0, ret.length() - LOGISIM_SNAPSHOT_EXTENSION.length());
     } else {
       return ret;
     }
@@ -211,8 +211,14 @@ public class LogisimFile extends Library implements LibraryEventSource, CircuitL
 
   public static LogisimFile loadSub(InputStream in, Loader loader, File file)
       throws IOException, SAXException {
-    // fetch first line and then reset
     BufferedInputStream inBuffered = new BufferedInputStream(in);
+    if (ProjectSnapshot.isSnapshot(inBuffered)) {
+      LogisimFile ret = new XmlReader(loader, file).readSnapshot(inBuffered, null);
+      ret.loader = loader;
+      return ret;
+    }
+
+    // fetch first line and then reset
     String firstLine = getFirstLine(inBuffered);
 
     if (firstLine == null) {
@@ -642,7 +648,11 @@ public class LogisimFile extends Library implements LibraryEventSource, CircuitL
 
   void write(OutputStream out, LibraryLoader loader, File dest) throws IOException {
     try {
-      XmlWriter.write(this, out, loader, dest);
+      if (dest != null && dest.getName().endsWith(Loader.LOGISIM_SNAPSHOT_EXTENSION)) {
+        XmlWriter.writeSnapshot(this, out, loader, dest);
+      } else {
+        XmlWriter.write(this, out, loader, dest);
+      }
     } catch (TransformerConfigurationException e) {
       loader.showError("internal error configuring transformer");
     } catch (ParserConfigurationException e) {
@@ -0,0 +1,265 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.std.memory.MemContents;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The binary snapshot format: the same document as a .circ file, stored as a tree of
+ * length-prefixed records. Element and attribute names and attribute values are interned: each
+ * string is written once, the first time it is used, and later referred to by its index. Memory
+ * contents are not turned into text but written as their raw pages, which is what makes the
+ * format fast to write and read for designs with large memory images.
+ *
+ * <p>A file starts with the four bytes "LSNP" and a format version. Then comes the document
+ * element, as a node record: a tag byte, followed for an element by its name, its attribute
+ * count, the attribute names and values, its children and an END tag; for text by the
+ * length-prefixed UTF-8 text; and for memory contents by the output of {@link
+ * MemContents#writeRaw}, which stands for the text content of the enclosing element.
+ */
+final class ProjectSnapshot {
+  private static final byte[] MAGIC = {'L', 'S', 'N', 'P'};
+  private static final int VERSION = 1;
+
+  private static final int END = 0;
+  private static final int ELEMENT = 1;
+  private static final int TEXT = 2;
+  private static final int CONTENTS = 3;
+
+  /** Returns whether a stream, which must support marks, starts with a snapshot. */
+  static boolean isSnapshot(BufferedInputStream in) throws IOException {
+    in.mark(MAGIC.length);
+    try {
+      for (int i = 0; i < MAGIC.length; i++) {
+        if (in.read() != MAGIC[i]) return false;
+      }
+      return true;
+    } finally {
+      in.reset();
+    }
+  }
+
+  /**
+   * Writes a document as a snapshot. Elements found in <code>contents</code> are written with the
+   * memory contents mapped to them instead of their text. When the stream is a file, the
+   * contents pages go straight to its channel.
+   */
+  static void write(Document doc, Map<Element, MemContents> contents, OutputStream out)
+      throws IOException {
+    new Writer(contents, out).write(doc);
+  }
+
+  /**
+   * Reads a snapshot back into a document. The memory contents are not turned back into text;
+   * they are put in <code>contents</code>, mapped to the elements they belong to.
+   */
+  static Document read(InputStream in, Map<Element, MemContents> contents) throws IOException {
+    return new Reader(contents, in).read();
+  }
+
+  private static class Writer {
+    private final Map<Element, MemContents> contents;
+    private final WritableByteChannel channel;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream data = new DataOutputStream(buffer);
+    private final HashMap<String, Integer> strings = new HashMap<String, Integer>();
+
+    Writer(Map<Element, MemContents> contents, OutputStream out) {
+      this.contents = contents;
+      this.channel =
+          out instanceof FileOutputStream
+              ? ((FileOutputStream) out).getChannel()
+              : Channels.newChannel(out);
+    }
+
+    void write(Document doc) throws IOException {
+      data.write(MAGIC);
+      data.writeInt(VERSION);
+      writeElement(doc.getDocumentElement());
+      flush();
+    }
+
+    private void writeElement(Element elt) throws IOException {
+      data.writeByte(ELEMENT);
+      writeString(elt.getTagName());
+      NamedNodeMap attrs = elt.getAttributes();
+      data.writeInt(attrs.getLength());
+      for (int i = 0; i < attrs.getLength(); i++) {
+        Attr attr = (Attr) attrs.item(i);
+        writeString(attr.getName());
+        writeString(attr.getValue());
+      }
+      MemContents raw = contents.get(elt);
+      if (raw != null) {
+        data.writeByte(CONTENTS);
+        flush();
+        raw.writeRaw(channel);
+      } else {
+        NodeList children = elt.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+          Node child = children.item(i);
+          if (child.getNodeType() == Node.ELEMENT_NODE) {
+            writeElement((Element) child);
+          } else if (child.getNodeType() == Node.TEXT_NODE
+              || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+            data.writeByte(TEXT);
+            writeText(child.getNodeValue());
+          }
+        }
+      }
+      data.writeByte(END);
+    }
+
+    private void writeString(String s) throws IOException {
+      Integer index = strings.get(s);
+      if (index != null) {
+        data.writeInt(index.intValue());
+      } else {
+        data.writeInt(-1);
+        writeText(s);
+        strings.put(s, Integer.valueOf(strings.size()));
+      }
+    }
+
+    private void writeText(String s) throws IOException {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+
+    private void flush() throws IOException {
+      data.flush();
+      ByteBuffer buf = ByteBuffer.wrap(buffer.toByteArray());
+      while (buf.hasRemaining()) channel.write(buf);
+      buffer.reset();
+    }
+  }
+
+  private static class Reader {
+    private final Map<Element, MemContents> contents;
+    private final DataInputStream data;
+    private final ReadableByteChannel channel;
+    private final ArrayList<String> strings = new ArrayList<String>();
+    private Document doc;
+
+    Reader(Map<Element, MemContents> contents, InputStream in) {
+      this.contents = contents;
+      this.data = new DataInputStream(in);
+      this.channel = Channels.newChannel(data);
+    }
+
+    Document read() throws IOException {
+      for (int i = 0; i < MAGIC.length; i++) {
+        if (data.readByte() != MAGIC[i]) throw new IOException("not a Logisim snapshot");
+      }
+      int version = data.readInt();
+      if (version != VERSION) throw new IOException("unsupported snapshot version " + version);
+      try {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+      } catch (ParserConfigurationException e) {
+        throw new IOException(e);
+      }
+      if (data.readByte() != ELEMENT) throw new IOException("snapshot has no document element");
+      doc.appendChild(readElement());
+      return doc;
+    }
+
+    private Element readElement() throws IOException {
+      Element elt = doc.createElement(readString());
+      int attrCount = data.readInt();
+      for (int i = 0; i < attrCount; i++) {
+        String name = readString();
+        elt.setAttribute(name, readString());
+      }
+      while (true) {
+        int tag = data.readByte();
+        switch (tag) {
+          case END:
+            return elt;
+          case ELEMENT:
+            elt.appendChild(readElement());
+            break;
+          case TEXT:
+            elt.appendChild(doc.createTextNode(readText()));
+            break;
+          case CONTENTS:
+            contents.put(elt, MemContents.readRaw(channel));
+            break;
+          default:
+            throw new IOException("bad snapshot record " + tag);
+        }
+      }
+    }
+
+    private String readString() throws IOException {
+      int index = data.readInt();
+      if (index >= 0) {
+        if (index >= strings.size()) throw new IOException("bad snapshot string " + index);
+        return strings.get(index);
+      }
+      String ret = readText();
+      strings.add(ret);
+      return ret;
+    }
+
+    private String readText() throws IOException {
+      int length = data.readInt();
+      if (length < 0) throw new IOException("bad snapshot text length " + length);
+      byte[] bytes = new byte[length];
+      data.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  private ProjectSnapshot() {}
+}
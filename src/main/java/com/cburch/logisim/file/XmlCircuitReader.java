@@ -71,28 +71,7 @@ public class XmlCircuitReader extends CircuitTransaction {
   static Component getComponent(
       Element elt, XmlReader.ReadContext reader, boolean IsHolyCross, boolean IsEvolution)
       throws XmlReaderException {
-
-    // Determine the factory that creates this element
-    String name = elt.getAttribute("name");
-    if (name == null || name.equals("")) {
-      throw new XmlReaderException(S.get("compNameMissingError"));
-    }
-
-    String libName = elt.getAttribute("lib");
-    Library lib = reader.findLibrary(libName);
-    if (lib == null) {
-      throw new XmlReaderException(S.fmt("compUnknownError", "no-lib"));
-    }
-
-    Tool tool = lib.getTool(name);
-    if (tool == null || !(tool instanceof AddTool)) {
-      if (libName == null || libName.equals("")) {
-        throw new XmlReaderException(S.fmt("compUnknownError", name));
-      } else {
-        throw new XmlReaderException(S.fmt("compAbsentError", name, libName));
-      }
-    }
-    ComponentFactory source = ((AddTool) tool).getFactory();
+    ComponentFactory source = getFactory(elt, reader);
 
     // Determine attributes
     String loc_str = elt.getAttribute("loc");
@@ -117,6 +96,31 @@ public class XmlCircuitReader extends CircuitTransaction {
     }
   }
 
+  /** Determines the factory that creates the component described by an XML element. */
+  static ComponentFactory getFactory(Element elt, XmlReader.ReadContext reader)
+      throws XmlReaderException {
+    String name = elt.getAttribute("name");
+    if (name == null || name.equals("")) {
+      throw new XmlReaderException(S.get("compNameMissingError"));
+    }
+
+    String libName = elt.getAttribute("lib");
+    Library lib = reader.findLibrary(libName);
+    if (lib == null) {
+      throw new XmlReaderException(S.fmt("compUnknownError", "no-lib"));
+    }
+
+    Tool tool = lib.getTool(name);
+    if (tool == null || !(tool instanceof AddTool)) {
+      if (libName == null || libName.equals("")) {
+        throw new XmlReaderException(S.fmt("compUnknownError", name));
+      } else {
+        throw new XmlReaderException(S.fmt("compAbsentError", name, libName));
+      }
+    }
+    return ((AddTool) tool).getFactory();
+  }
+
   private XmlReader.ReadContext reader;
 
   private List<XmlReader.CircuitData> circuitsData;
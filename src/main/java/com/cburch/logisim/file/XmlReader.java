@@ -48,6 +48,7 @@ import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.MemContents;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.std.wiring.ProbeAttributes;
 import com.cburch.logisim.tools.Library;
@@ -62,10 +63,17 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -78,6 +86,19 @@ import org.xml.sax.SAXException;
 
 class XmlReader {
 
+  // text values at least this long are decoded in the background, if their attribute allows it;
+  // not final so that the load benchmark can turn this off
+  static int backgroundDecodeLength = 4096;
+
+  private static final ExecutorService DECODER =
+      Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          r -> {
+            Thread t = new Thread(r, "XmlReader decoder");
+            t.setDaemon(true);
+            return t;
+          });
+
   static class CircuitData {
     Element circuitElement;
     Circuit circuit;
@@ -95,6 +116,9 @@ class XmlReader {
     LogisimVersion sourceVersion;
     HashMap<String, Library> libs = new HashMap<String, Library>();
     private ArrayList<String> messages;
+    // large attribute values being decoded in the background, by the element holding them
+    private IdentityHashMap<Element, Future<Object>> decoding =
+        new IdentityHashMap<Element, Future<Object>>();
 
     ReadContext(LogisimFile file) {
       this.file = file;
@@ -134,6 +158,7 @@ class XmlReader {
       ArrayList<String> messages = null;
 
       HashMap<String, String> attrsDefined = new HashMap<String, String>();
+      HashMap<String, Future<Object>> attrsDecoding = null;
       for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
         if (!attrElt.hasAttribute("name")) {
           if (messages == null) messages = new ArrayList<String>();
@@ -153,6 +178,11 @@ class XmlReader {
             }
           } else {
             attrVal = attrElt.getTextContent();
+            Future<Object> pending = decoding.remove(attrElt);
+            if (pending != null) {
+              if (attrsDecoding == null) attrsDecoding = new HashMap<String, Future<Object>>();
+              attrsDecoding.put(attrName, pending);
+            }
           }
           attrsDefined.put(attrName, attrVal);
         }
@@ -192,7 +222,8 @@ class XmlReader {
           }
         } else {
           try {
-            Object val = attr.parse(attrVal);
+            Future<Object> pending = attrsDecoding == null ? null : attrsDecoding.get(attrName);
+            Object val = pending != null ? getDecoded(pending, attr, attrVal) : attr.parse(attrVal);
             attrs.setValue(attr, val);
           } catch (NumberFormatException e) {
             if (messages == null) messages = new ArrayList<String>();
@@ -205,6 +236,54 @@ class XmlReader {
       }
     }
 
+    /**
+     * Starts decoding the large values of the components of a circuit, such as memory contents, on
+     * other threads. They are stored as text content rather than in a val attribute. Only values
+     * of attributes that allow it are decoded this way; initAttributeSet waits for them when it
+     * gets to them.
+     */
+    private void startDecoding(Element circElt) {
+      for (Element compElt : XmlIterator.forChildElements(circElt, "comp")) {
+        AttributeSet attrs = null;
+        for (Element attrElt : XmlIterator.forChildElements(compElt, "a")) {
+          if (attrElt.hasAttribute("val") || !attrElt.hasAttribute("name")) continue;
+          final String text = attrElt.getTextContent();
+          if (text.length() < backgroundDecodeLength) continue;
+          if (attrs == null) {
+            try {
+              attrs = XmlCircuitReader.getFactory(compElt, this).createAttributeSet();
+            } catch (XmlReaderException e) {
+              break; // reported when the component is built
+            }
+          }
+          @SuppressWarnings("unchecked")
+          final Attribute<Object> attr =
+              (Attribute<Object>) attrs.getAttribute(attrElt.getAttribute("name"));
+          if (attr == null || !attr.isParseThreadSafe()) continue;
+          decoding.put(
+              attrElt,
+              DECODER.submit(
+                  new Callable<Object>() {
+                    public Object call() {
+                      return attr.parse(text);
+                    }
+                  }));
+        }
+      }
+    }
+
+    /** Waits for a value decoded in the background, or decodes it here if that failed. */
+    private Object getDecoded(Future<Object> pending, Attribute<Object> attr, String text) {
+      try {
+        return pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        // decode again, so that the failure is reported the usual way
+      }
+      return attr.parse(text);
+    }
+
     private void initMouseMappings(Element elt, boolean IsHolyCross, boolean IsEvolution) {
       MouseMappings map = file.getOptions().getMouseMappings();
       for (Element sub_elt : XmlIterator.forChildElements(elt, "tool")) {
@@ -457,21 +536,31 @@ class XmlReader {
             }
             CircuitData circData = new CircuitData(circElt, new Circuit(name, file, proj));
             file.addCircuit(circData.circuit);
-            circData.knownComponents = loadKnownComponents(circElt, HolyCrossFile, IsEvolutionFile);
-            for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
-              loadAppearance(appearElt, circData, name + ".appear");
-            }
-            for (Element boardMap :  XmlIterator.forChildElements(circElt, "boardmap")) {
-              String BoardName = boardMap.getAttribute("boardname");
-              if (BoardName == null || BoardName.isEmpty()) continue;
-              loadMap(boardMap,BoardName,circData.circuit);
-            }
             circuitsData.add(circData);
           default:
             // do nothing
         }
       }
 
+      // then create their components; the large attribute values of all circuits are decoded
+      // in parallel meanwhile, and subcircuits defined further down the file are found too
+      for (CircuitData circData : circuitsData) {
+        startDecoding(circData.circuitElement);
+      }
+      for (CircuitData circData : circuitsData) {
+        Element circElt = circData.circuitElement;
+        String name = circData.circuit.getName();
+        circData.knownComponents = loadKnownComponents(circElt, HolyCrossFile, IsEvolutionFile);
+        for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
+          loadAppearance(appearElt, circData, name + ".appear");
+        }
+        for (Element boardMap :  XmlIterator.forChildElements(circElt, "boardmap")) {
+          String BoardName = boardMap.getAttribute("boardname");
+          if (BoardName == null || BoardName.isEmpty()) continue;
+          loadMap(boardMap,BoardName,circData.circuit);
+        }
+      }
+
       // third, process the other child elements
       for (Element sub_elt : XmlIterator.forChildElements(elt)) {
         String name = sub_elt.getTagName();
@@ -1054,13 +1143,32 @@ class XmlReader {
   }
 
   LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
-    Document doc = loadXmlFrom(is);
+    return readLibrary(loadXmlFrom(is), null, proj);
+  }
+
+  /**
+   * Reads a binary snapshot (see {@link ProjectSnapshot}). Its memory contents come already
+   * decoded, so they are handed to the attributes as they are.
+   */
+  LogisimFile readSnapshot(InputStream is, Project proj) throws IOException {
+    IdentityHashMap<Element, MemContents> contents = new IdentityHashMap<Element, MemContents>();
+    Document doc = ProjectSnapshot.read(is, contents);
+    return readLibrary(doc, contents, proj);
+  }
+
+  private LogisimFile readLibrary(Document doc, Map<Element, MemContents> contents, Project proj) {
     Element elt = doc.getDocumentElement();
     elt = ensureLogisimCompatibility(elt);
 
     considerRepairs(doc, elt);
     LogisimFile file = new LogisimFile((Loader) loader);
     ReadContext context = new ReadContext(file);
+    if (contents != null) {
+      for (Map.Entry<Element, MemContents> entry : contents.entrySet()) {
+        context.decoding.put(
+            entry.getKey(), CompletableFuture.<Object>completedFuture(entry.getValue()));
+      }
+    }
 
     context.toLogisimFile(elt, proj);
 
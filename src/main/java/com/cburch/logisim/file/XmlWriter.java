@@ -43,12 +43,14 @@ import com.cburch.logisim.fpga.data.BoardRectangle;
 import com.cburch.logisim.fpga.data.MapComponent;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.std.base.Text;
+import com.cburch.logisim.std.memory.MemContents;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.util.InputEventUtil;
 import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.vhdl.base.VhdlContent;
 import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -57,6 +59,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -170,20 +173,24 @@ class XmlWriter {
     }
   }
 
-  static void write(LogisimFile file, OutputStream out, LibraryLoader loader, File destFile)
-      throws ParserConfigurationException, TransformerConfigurationException, TransformerException {
-
+  private static XmlWriter createContext(LogisimFile file, LibraryLoader loader, File destFile)
+      throws ParserConfigurationException {
     DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
     DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
 
     Document doc = docBuilder.newDocument();
-    XmlWriter context;
     if (destFile != null) {
       String dstFilePath = destFile.getAbsolutePath();
       dstFilePath = dstFilePath.substring(0, dstFilePath.lastIndexOf(File.separator));
-      context = new XmlWriter(file, doc, loader, dstFilePath);
-    } else context = new XmlWriter(file, doc, loader);
+      return new XmlWriter(file, doc, loader, dstFilePath);
+    } else return new XmlWriter(file, doc, loader);
+  }
+
+  static void write(LogisimFile file, OutputStream out, LibraryLoader loader, File destFile)
+      throws ParserConfigurationException, TransformerConfigurationException, TransformerException {
 
+    XmlWriter context = createContext(file, loader, destFile);
+    Document doc = context.doc;
     context.fromLogisimFile();
 
     TransformerFactory tfFactory = TransformerFactory.newInstance();
@@ -206,8 +213,25 @@ class XmlWriter {
     tf.transform(src, dest);
   }
 
+  /**
+   * Writes the file as a binary snapshot (see {@link ProjectSnapshot}). The document is the same
+   * as for a .circ file, except that memory contents are kept aside and written as raw pages.
+   */
+  static void writeSnapshot(LogisimFile file, OutputStream out, LibraryLoader loader, File destFile)
+      throws ParserConfigurationException, IOException {
+    XmlWriter context = createContext(file, loader, destFile);
+    context.rawContents = new IdentityHashMap<Element, MemContents>();
+    context.fromLogisimFile();
+
+    context.doc.normalize();
+    sort(context.doc);
+    ProjectSnapshot.write(context.doc, context.rawContents, out);
+  }
+
   private LogisimFile file;
   private Document doc;
+  /** Memory contents to be written raw rather than as text, or null when writing XML */
+  private Map<Element, MemContents> rawContents = null;
   /**
    * Path of the file which is being written on disk -- used to relativize components stored in it
    */
@@ -240,6 +264,11 @@ class XmlWriter {
         if (dflt == null || !dflt.equals(val) || attr.equals(StdAttr.APPEARANCE)) {
           Element a = doc.createElement("a");
           a.setAttribute("name", attr.getName());
+          if (rawContents != null && val instanceof MemContents) {
+            rawContents.put(a, (MemContents) val);
+            elt.appendChild(a);
+            continue;
+          }
           String value = attr.toStandardString(val);
           if (attr.getName().equals("filePath") && outFilepath != null) {
             Path outFP = Paths.get(outFilepath);
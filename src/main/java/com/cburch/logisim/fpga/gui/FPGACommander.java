@@ -148,6 +148,9 @@ public class FPGACommander
   FrequencyPanel.setSelectedFrequency();
   }
 
+  @Override
+  public void simulatorReset(SimulatorEvent e) {}
+
   @Override
   public void tickCompleted(SimulatorEvent e) {}
 
@@ -33,6 +33,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.TreeMap;
 
 /** Contains all data to be plotted */
@@ -53,7 +54,8 @@ public class ChronoData extends TreeMap<String, SignalData> {
     LineNumberReader lineReader = null;
     lineReader = new LineNumberReader(new FileReader(logisimLogFile));
 
-    ArrayList<ArrayList<String>> rawData = new ArrayList<ArrayList<String>>();
+    ArrayList<String> names = new ArrayList<String>();
+    ArrayList<SignalHistory> rawData = new ArrayList<SignalHistory>();
     boolean sysclkFound = false;
 
     // read the first line with the signal name
@@ -61,10 +63,9 @@ public class ChronoData extends TreeMap<String, SignalData> {
     String line = lineReader.readLine();
     String[] splittedLine = line.split("\\t");
     for (int i = 0; i < splittedLine.length; ++i) {
-      ArrayList<String> v = new ArrayList<String>();
-      v.add(splittedLine[i]);
+      names.add(splittedLine[i]);
       if (splittedLine[i].equals("sysclk")) sysclkFound = true;
-      rawData.add(v);
+      rawData.add(new SignalHistory());
     }
 
     if (!sysclkFound) {
@@ -87,7 +88,7 @@ public class ChronoData extends TreeMap<String, SignalData> {
         // if the signal added is a bus wider than 4bit, we have to
         // remove spaces
         // (there is a space every 4 bits in a bus in the log file)
-        rawData.get(i).add(splittedLine[i].replaceAll("\\s", ""));
+        rawData.get(i).add(removeSpaces(splittedLine[i]));
       }
     }
     lineReader.close();
@@ -95,22 +96,26 @@ public class ChronoData extends TreeMap<String, SignalData> {
     // creates the SignalData et SignalDataBus
     // and store the signal name order
     mSignalOrder = new ArrayList<String>();
-    for (ArrayList<String> vs : rawData) {
-      String name = vs.get(0);
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i);
+      SignalHistory vs = rawData.get(i);
       mSignalOrder.add(name);
-      if (vs.get(1).length() > 1) {
+      if (vs.size() > 0 && vs.get(0).length() > 1) {
         this.put(name, new SignalDataBus(name, vs));
       } else {
         this.put(name, new SignalData(name, vs));
       }
-      vs.remove(0);
     }
 
     normalize();
   }
 
   public void appendValueToSignal(String signalName, String signalValue) {
-    this.get(signalName).getSignalValues().add(signalValue.replaceAll("\\s", ""));
+    this.get(signalName).getSignalValues().add(removeSpaces(signalValue));
+  }
+
+  private static String removeSpaces(String value) {
+    return value.indexOf(' ') < 0 ? value : value.replaceAll("\\s", "");
   }
 
   /** Hide all signals that compose busName */
@@ -137,10 +142,12 @@ public class ChronoData extends TreeMap<String, SignalData> {
 
       for (int signalI = 0; signalI < signalNbr; ++signalI) {
         int bitPos = signalNbr - signalI - 1;
-        ArrayList<String> sig = new ArrayList<String>();
+        SignalHistory sig = new SignalHistory();
         String name = sd.getName() + "__s__" + signalI;
-        for (String s : sd.getSignalValues()) {
-          sig.add(s.substring(bitPos, bitPos + 1));
+        SignalHistory bus = sd.getSignalValues();
+        for (int r = 0; r < bus.getRunCount(); r++) {
+          String s = bus.getRunValue(r);
+          sig.add(s.substring(bitPos, bitPos + 1), bus.getRunEnd(r) - bus.getRunStart(r));
         }
         // add signalData
         this.put(name, new SignalData(name, sig));
@@ -158,16 +165,13 @@ public class ChronoData extends TreeMap<String, SignalData> {
   /** Remove if the sysclk has 2 or more identical states */
   private void normalize() {
     try {
-      ArrayList<String> vClk = this.get("sysclk").getSignalValues();
-      int i = 0;
-      while (i < vClk.size() - 1) {
-        if (vClk.get(i).equals(vClk.get(i + 1))) {
-          for (SignalData sd : this.values()) {
-            sd.getSignalValues().remove(i);
-          }
-        } else {
-          i++;
-        }
+      // keep the last sample of each run of the clock
+      SignalHistory vClk = this.get("sysclk").getSignalValues();
+      BitSet keep = new BitSet(vClk.size());
+      for (int r = 0; r < vClk.getRunCount(); r++) keep.set(vClk.getRunEnd(r) - 1);
+      if (keep.cardinality() == vClk.size()) return;
+      for (SignalData sd : this.values()) {
+        sd.setSignalValues(sd.getSignalValues().select(keep));
       }
     } catch (Exception e) {
       e.printStackTrace();
@@ -39,6 +39,8 @@ import com.cburch.logisim.gui.log.Selection;
 import com.cburch.logisim.proj.Project;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
 
 public class ChronoModelEventHandler implements ModelListener {
 
@@ -49,6 +51,17 @@ public class ChronoModelEventHandler implements ModelListener {
 
   private String lastSysclk = "0";
   private int sysclkPos = -1;
+  // the display is refreshed at most once per pass of the event thread,
+  // however many samples the simulator adds in between
+  private AtomicBoolean refreshPending = new AtomicBoolean(false);
+  private Runnable refresh =
+      new Runnable() {
+        @Override
+        public void run() {
+          refreshPending.set(false);
+          chronoFrame.repaintAll(false);
+        }
+      };
 
   public ChronoModelEventHandler(ChronoFrame chronoFrame, Model model, Project prj)
       throws NoSysclkException {
@@ -100,7 +113,7 @@ public class ChronoModelEventHandler implements ModelListener {
             chronoData.appendValueToSignal(signalNamesKeepOrder[pos++], v.toString());
           }
           chronoFrame.getChronoData().updateRealTimeExpandedBus();
-          chronoFrame.repaintAll(false);
+          if (refreshPending.compareAndSet(false, true)) SwingUtilities.invokeLater(refresh);
         }
       } catch (Exception ex) {
         ex.printStackTrace();
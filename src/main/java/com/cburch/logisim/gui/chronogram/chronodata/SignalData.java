@@ -29,7 +29,7 @@
 package com.cburch.logisim.gui.chronogram.chronodata;
 
 import com.cburch.logisim.util.Icons;
-import java.util.ArrayList;
+import java.util.List;
 import javax.swing.ImageIcon;
 
 /** Contains all data about one signal: signal values, the selected value, the choosed format... */
@@ -37,11 +37,11 @@ public class SignalData {
 
   private String name;
   protected int selectedValuePos = 0;
-  protected ArrayList<String> data;
+  protected SignalHistory data;
 
-  public SignalData(String name, ArrayList<String> data) {
+  public SignalData(String name, List<String> data) {
     this.name = name;
-    this.data = data;
+    this.data = data instanceof SignalHistory ? (SignalHistory) data : new SignalHistory(data);
   }
 
   public ImageIcon getIcon() {
@@ -56,10 +56,15 @@ public class SignalData {
     return data.size() > 0 ? data.get(selectedValuePos) : "";
   }
 
-  public ArrayList<String> getSignalValues() {
+  public SignalHistory getSignalValues() {
     return data;
   }
 
+  void setSignalValues(SignalHistory data) {
+    this.data = data;
+    selectedValuePos = 0;
+  }
+
   public void setSelectedValuePos(int pos) {
     if (pos < data.size() - 1) selectedValuePos = pos;
   }
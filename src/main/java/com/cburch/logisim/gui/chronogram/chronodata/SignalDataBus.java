@@ -29,7 +29,7 @@
 package com.cburch.logisim.gui.chronogram.chronodata;
 
 import com.cburch.logisim.util.Icons;
-import java.util.ArrayList;
+import java.util.List;
 import javax.swing.ImageIcon;
 
 /*
@@ -41,7 +41,7 @@ public class SignalDataBus extends SignalData {
   private String format = "hexadecimal";
   private boolean expanded = false;
 
-  public SignalDataBus(String name, ArrayList<String> data) {
+  public SignalDataBus(String name, List<String> data) {
     super(name, data);
   }
 
@@ -0,0 +1,148 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.chronogram.chronodata;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The samples of one signal, stored as the changes of value: a run of equal samples takes a
+ * single entry however long it is. The runs are indexed by their first sample, so looking up a
+ * sample is a binary search, and drawing code can walk the runs of the visible range rather than
+ * every sample. Samples may be appended by the simulator while the display reads them.
+ */
+public class SignalHistory extends AbstractList<String> {
+  private int[] starts = new int[16];
+  private String[] values = new String[16];
+  // number of rising edges (a "0" run followed by a "1" run) up to each run
+  private int[] edges = new int[16];
+  private int runs = 0;
+  private int size = 0;
+
+  public SignalHistory() {}
+
+  public SignalHistory(List<String> samples) {
+    for (String s : samples) add(s);
+  }
+
+  @Override
+  public synchronized boolean add(String value) {
+    add(value, 1);
+    return true;
+  }
+
+  /** Appends <code>count</code> samples of the same value. */
+  public synchronized void add(String value, int count) {
+    if (count <= 0) return;
+    if (runs > 0 && values[runs - 1].equals(value)) {
+      size += count;
+      modCount++;
+      return;
+    }
+    if (runs == starts.length) {
+      int n = 2 * runs;
+      int[] newStarts = new int[n];
+      String[] newValues = new String[n];
+      int[] newEdges = new int[n];
+      System.arraycopy(starts, 0, newStarts, 0, runs);
+      System.arraycopy(values, 0, newValues, 0, runs);
+      System.arraycopy(edges, 0, newEdges, 0, runs);
+      starts = newStarts;
+      values = newValues;
+      edges = newEdges;
+    }
+    int prevEdges = runs == 0 ? 0 : edges[runs - 1];
+    boolean rising = runs > 0 && values[runs - 1].equals("0") && value.equals("1");
+    starts[runs] = size;
+    values[runs] = value;
+    edges[runs] = rising ? prevEdges + 1 : prevEdges;
+    runs++;
+    size += count;
+    modCount++;
+  }
+
+  /** Returns the number of rising edges at or before the given sample. */
+  public synchronized int countRisingEdges(int index) {
+    if (runs == 0 || index < 0) return 0;
+    return edges[findRun(Math.min(index, size - 1))];
+  }
+
+  /** Returns the index of the run holding the given sample. */
+  public synchronized int findRun(int index) {
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException("sample " + index);
+    int lo = 0;
+    int hi = runs - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (starts[mid] <= index) lo = mid;
+      else hi = mid - 1;
+    }
+    return lo;
+  }
+
+  @Override
+  public synchronized String get(int index) {
+    return values[findRun(index)];
+  }
+
+  public synchronized int getRunCount() {
+    return runs;
+  }
+
+  /** Returns the first sample after the given run. */
+  public synchronized int getRunEnd(int run) {
+    return run + 1 < runs ? starts[run + 1] : size;
+  }
+
+  public synchronized int getRunStart(int run) {
+    return starts[run];
+  }
+
+  public synchronized String getRunValue(int run) {
+    return values[run];
+  }
+
+  /** Returns a history holding only the samples whose indices are set in <code>keep</code>. */
+  public synchronized SignalHistory select(BitSet keep) {
+    SignalHistory ret = new SignalHistory();
+    for (int r = 0; r < runs; r++) {
+      int end = getRunEnd(r);
+      int from = keep.nextSetBit(starts[r]);
+      int count = from < 0 || from >= end ? 0 : keep.get(from, end).cardinality();
+      ret.add(values[r], count);
+    }
+    return ret;
+  }
+
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+}
@@ -30,9 +30,11 @@ package com.cburch.logisim.gui.chronogram.chronogui;
 
 import com.cburch.logisim.gui.chronogram.chronodata.SignalData;
 import com.cburch.logisim.gui.chronogram.chronodata.SignalDataBus;
+import com.cburch.logisim.gui.chronogram.chronodata.SignalHistory;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
@@ -92,6 +94,8 @@ public class SignalDraw extends JPanel {
   private int tickWidth;
   private int busCrossingPosition;
   private Color lightGray = new Color(180, 180, 180, 100);
+  private Color busyGray = new Color(120, 120, 120, 140);
+  private static final int MIN_RUN_WIDTH = 3;
 
   private int lineTickness = 1;
   private int lowPos;
@@ -143,77 +147,112 @@ public class SignalDraw extends JPanel {
     return tickWidth - 5 < 1 ? 0 : 5;
   }
 
-  /** Draw the signals and buses */
-  private void drawSignal(Graphics g) {
-    Graphics2D g2 = (Graphics2D) g;
-    g2.setStroke(new BasicStroke(lineTickness));
+  /** Draw the crosses of an error or unknown value over the given ticks */
+  private void drawUndefined(Graphics g, Color color, int x0, int x1) {
     int middleHeight = getHeight() / 2;
-
-    int posX = 0;
-    String prec, suiv;
-
-    // get the index of data in SignalData that correspond to the display
-    float posPercent =
-        (float) mRightPanel.getDisplayOffsetX() / (float) mRightPanel.getSignalWidth();
-    int i = Math.round(mSignalData.getSignalValues().size() * posPercent);
-
-    // drawing
-    prec = mSignalData.getSignalValues().get(i++);
-    while (posX < mRightPanel.getDisplayOffsetX() + getVisibleRect().width + (10 * tickWidth)
-        && i < mSignalData.getSignalValues().size()) {
-      suiv = mSignalData.getSignalValues().get(i++);
-
-      String transi = prec + suiv;
-      if (suiv.contains("E")) {
-        g.setColor(Color.red);
+    g.setColor(color);
+    if (tickWidth < 3) {
+      g.fillRect(x0, highPos, x1 - x0, lowPos - highPos);
+    } else {
+      for (int posX = x0; posX < x1; posX += tickWidth) {
         g.drawLine(posX, highPos, posX + tickWidth, middleHeight);
         g.drawLine(posX, middleHeight, posX + tickWidth, highPos);
         g.drawLine(posX, middleHeight, posX + tickWidth, lowPos);
         g.drawLine(posX, lowPos, posX + tickWidth, middleHeight);
-        g.setColor(Color.black);
+      }
+    }
+    g.setColor(Color.black);
+  }
+
+  /**
+   * Draw the signals and buses. This walks the runs of equal values in the visible range, so the
+   * cost depends on the width of the display and not on the length of the trace. When zoomed out
+   * so far that runs are narrower than MIN_RUN_WIDTH pixels, consecutive narrow runs are drawn as a
+   * single shaded block rather than as a smear of transitions.
+   */
+  private void drawSignal(Graphics g) {
+    Graphics2D g2 = (Graphics2D) g;
+    g2.setStroke(new BasicStroke(lineTickness));
+    FontMetrics fm = g.getFontMetrics();
+    SignalHistory values = mSignalData.getSignalValues();
+
+    // the sample drawn at the left edge of the buffer; the one before it
+    // only serves to find the first transition
+    int first = mRightPanel.getDisplayOffsetX() / tickWidth;
+    int size = values.size();
+    if (first >= size - 1) return;
+    int end = Math.min(size, first + 2 + (2 * mRightPanel.getVisibleWidth()) / tickWidth);
+
+    int busyFrom = -1;
+    int busyTo = -1;
+    for (int run = values.findRun(first + 1); run < values.getRunCount(); run++) {
+      int runStart = values.getRunStart(run);
+      if (runStart >= end) break;
+      int from = Math.max(runStart, first + 1);
+      int to = Math.min(values.getRunEnd(run), end);
+      int x0 = (from - first - 1) * tickWidth;
+      int x1 = (to - first - 1) * tickWidth;
+
+      if ((values.getRunEnd(run) - runStart) * tickWidth < MIN_RUN_WIDTH) {
+        if (busyFrom < 0) busyFrom = x0;
+        busyTo = x1;
+        continue;
+      }
+      if (busyFrom >= 0) {
+        drawBusy(g, busyFrom, busyTo);
+        busyFrom = -1;
+      }
+
+      String suiv = values.getRunValue(run);
+      String prec = from == runStart ? values.get(from - 1) : suiv;
+      if (suiv.contains("E")) {
+        drawUndefined(g, Color.red, x0, x1);
       } else if (suiv.contains("x")) {
-        g.setColor(Color.blue);
-        g.drawLine(posX, highPos, posX + tickWidth, middleHeight);
-        g.drawLine(posX, middleHeight, posX + tickWidth, highPos);
-        g.drawLine(posX, middleHeight, posX + tickWidth, lowPos);
-        g.drawLine(posX, lowPos, posX + tickWidth, middleHeight);
-        g.setColor(Color.black);
+        drawUndefined(g, Color.blue, x0, x1);
       } else if (suiv.equals("0")) {
-        g.drawLine(posX, lowPos, posX + tickWidth, lowPos);
+        g.drawLine(x0, lowPos, x1, lowPos);
       } else if (suiv.equals("1")) {
         g.setColor(lightGray);
-        g.fillRect(posX + 1, highPos, tickWidth, lowPos - highPos);
+        g.fillRect(x0 + 1, highPos, x1 - x0, lowPos - highPos);
         g.setColor(Color.black);
-        g.drawLine(posX, highPos, posX + tickWidth, highPos);
-      } else {
-        if (mSignalData instanceof SignalDataBus) {
-          SignalDataBus sdb = (SignalDataBus) mSignalData;
-          // first value
-          if (i == 2) g.drawString(sdb.getValueInFormat(suiv), posX + 2, getHeight() / 2);
-          // bus transition
-          if (!suiv.contains("x") && !suiv.contains("E") && !suiv.equals(prec)) {
-            g.drawLine(posX, lowPos, posX + busCrossingPosition, highPos);
-            g.drawLine(posX, highPos, posX + busCrossingPosition, lowPos);
-            g.drawLine(posX + busCrossingPosition, highPos, posX + tickWidth, highPos);
-            g.drawLine(posX + busCrossingPosition, lowPos, posX + tickWidth, lowPos);
-            g.drawString(sdb.getValueInFormat(suiv), posX + tickWidth, getHeight() / 2);
-          } else {
-            g.drawLine(posX, lowPos, posX + tickWidth, lowPos);
-            g.drawLine(posX, highPos, posX + tickWidth, highPos);
-          }
+        g.drawLine(x0, highPos, x1, highPos);
+      } else if (mSignalData instanceof SignalDataBus) {
+        SignalDataBus sdb = (SignalDataBus) mSignalData;
+        String label = sdb.getValueInFormat(suiv);
+        boolean fits = fm.stringWidth(label) <= x1 - x0;
+        // first value
+        if (from == first + 1 && fits) g.drawString(label, x0 + 2, getHeight() / 2);
+        // bus transition
+        if (!suiv.equals(prec)) {
+          g.drawLine(x0, lowPos, x0 + busCrossingPosition, highPos);
+          g.drawLine(x0, highPos, x0 + busCrossingPosition, lowPos);
+          g.drawLine(x0 + busCrossingPosition, highPos, x1, highPos);
+          g.drawLine(x0 + busCrossingPosition, lowPos, x1, lowPos);
+          if (fits) g.drawString(label, x0 + tickWidth, getHeight() / 2);
+        } else {
+          g.drawLine(x0, lowPos, x1, lowPos);
+          g.drawLine(x0, highPos, x1, highPos);
         }
       }
 
       // transition
+      String transi = prec + suiv;
       if (transi.equals("10")) {
-        g.drawLine(posX, highPos, posX, lowPos);
+        g.drawLine(x0, highPos, x0, lowPos);
       } else if (transi.equals("01")) {
-        g.drawLine(posX, lowPos, posX, highPos);
+        g.drawLine(x0, lowPos, x0, highPos);
       }
-
-      prec = suiv;
-      posX += tickWidth;
     }
+    if (busyFrom >= 0) drawBusy(g, busyFrom, busyTo);
+  }
+
+  /** Draw a block of changes too close together to be told apart */
+  private void drawBusy(Graphics g, int x0, int x1) {
+    g.setColor(busyGray);
+    g.fillRect(x0, highPos, Math.max(1, x1 - x0), lowPos - highPos);
+    g.setColor(Color.black);
+    g.drawLine(x0, highPos, x1, highPos);
+    g.drawLine(x0, lowPos, x1, lowPos);
   }
 
   public SignalData getSignalData() {
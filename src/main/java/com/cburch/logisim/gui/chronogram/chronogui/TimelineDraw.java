@@ -29,11 +29,13 @@
 package com.cburch.logisim.gui.chronogram.chronogui;
 
 import com.cburch.logisim.gui.chronogram.chronodata.SignalData;
+import com.cburch.logisim.gui.chronogram.chronodata.SignalHistory;
 import com.cburch.logisim.gui.chronogram.chronodata.TimelineParam;
 import java.awt.BasicStroke;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.text.DecimalFormat;
 import javax.swing.JPanel;
 
@@ -63,24 +65,40 @@ public class TimelineDraw extends JPanel {
     Graphics2D g2 = (Graphics2D) g;
     g.drawLine(0, 5, width, 5);
     int minimalWidthToDisp = 60;
-    int nbrTick = 0;
-    int lastDispPos = -minimalWidthToDisp;
 
     if (clk != null) {
-      for (int i = 1; i < clk.getSignalValues().size(); ++i) {
-        // is it a clk rising edge ?
-        if (clk.getSignalValues().get(i - 1).equals("0")
-            && clk.getSignalValues().get(i).equals("1")) {
+      SignalHistory values = clk.getSignalValues();
+      int size = values.size();
+      int edges = values.countRisingEdges(size - 1);
+      if (edges == 0) return;
+      // label every step-th edge, so the labels do not depend on what part
+      // of the timeline is being repainted
+      double spacing = (double) size * tickWidth / edges;
+      int step = Math.max(1, (int) Math.ceil(minimalWidthToDisp / spacing));
 
-          // is there enough place to display the text?
-          if ((i - 1) * tickWidth - lastDispPos > minimalWidthToDisp) {
-            lastDispPos = (i - 1) * tickWidth;
-            g2.setStroke(new BasicStroke(2));
-            g2.drawLine(lastDispPos, 6, lastDispPos, 12);
-            g2.setStroke(new BasicStroke(1));
-            g.drawString(getTimeString(nbrTick), lastDispPos + 3, 20);
-          }
-          nbrTick++;
+      Rectangle clip = g.getClipBounds();
+      int from = 1;
+      int to = size;
+      if (clip != null) {
+        from = Math.max(1, (clip.x - minimalWidthToDisp) / tickWidth);
+        to = Math.min(size, (clip.x + clip.width) / tickWidth + 2);
+      }
+      if (from >= to) return;
+      for (int run = values.findRun(from); run < values.getRunCount(); run++) {
+        int i = values.getRunStart(run);
+        if (i >= to) break;
+        // is it a clk rising edge ?
+        if (i < from || run == 0) continue;
+        if (!values.getRunValue(run - 1).equals("0") || !values.getRunValue(run).equals("1")) {
+          continue;
+        }
+        int nbrTick = values.countRisingEdges(i) - 1;
+        if (nbrTick % step == 0) {
+          int dispPos = (i - 1) * tickWidth;
+          g2.setStroke(new BasicStroke(2));
+          g2.drawLine(dispPos, 6, dispPos, 12);
+          g2.setStroke(new BasicStroke(1));
+          g.drawString(getTimeString(nbrTick), dispPos + 3, 20);
         }
       }
     }
@@ -247,6 +247,9 @@ public class RegTabContent extends JScrollPane implements LocaleListener, Simula
     // throw new UnsupportedOperationException("Not supported yet.");
   }
 
+  @Override
+  public void simulatorReset(SimulatorEvent e) {}
+
   @Override
   public void tickCompleted(SimulatorEvent e) {
     // throw new UnsupportedOperationException("Not supported yet.");
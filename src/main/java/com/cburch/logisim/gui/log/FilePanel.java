@@ -97,6 +97,40 @@ class FilePanel extends LogPanel {
         getModel().setFile(file);
       } else if (src == headerCheckBox) {
         getModel().setFileHeader(headerCheckBox.isSelected());
+      } else if (src == vcdButton) {
+        File file = null;
+        try {
+          if (getModel().isVcdActive()) {
+            getModel().stopVcd();
+          } else {
+            int result = exportChooser.showSaveDialog(getLogFrame());
+            if (result != JFileChooser.APPROVE_OPTION) return;
+            file = exportChooser.getSelectedFile();
+            getModel().startVcd(file);
+          }
+        } catch (IOException e) {
+          OptionPane.showMessageDialog(
+              getLogFrame(),
+              StringUtil.format(
+                  S.get("fileExportErrorMessage"),
+                  file == null ? "" : file.getName(),
+                  e.getMessage()),
+              S.get("fileExportErrorTitle"),
+              OptionPane.ERROR_MESSAGE);
+        }
+      } else if (src == exportButton) {
+        int result = exportChooser.showSaveDialog(getLogFrame());
+        if (result != JFileChooser.APPROVE_OPTION) return;
+        File file = exportChooser.getSelectedFile();
+        try {
+          LogExporter.export(getModel(), file);
+        } catch (IOException e) {
+          OptionPane.showMessageDialog(
+              getLogFrame(),
+              StringUtil.format(S.get("fileExportErrorMessage"), file.getName(), e.getMessage()),
+              S.get("fileExportErrorTitle"),
+              OptionPane.ERROR_MESSAGE);
+        }
       }
     }
 
@@ -108,6 +142,7 @@ class FilePanel extends LogPanel {
         enableLabel.setText(S.get("fileDisabled"));
         enableButton.setText(S.get("fileEnableButton"));
       }
+      vcdButton.setText(S.get(model.isVcdActive() ? "fileVcdStopButton" : "fileVcdStartButton"));
     }
 
     public void entryAdded(ModelEvent event, Value[] values) {}
@@ -135,7 +170,10 @@ class FilePanel extends LogPanel {
   private JTextField fileField = new JTextField();
   private JButton selectButton = new JButton();
   private JCheckBox headerCheckBox = new JCheckBox();
+  private JButton exportButton = new JButton();
+  private JButton vcdButton = new JButton();
   private JFileChooser chooser = JFileChoosers.create();
+  private JFileChooser exportChooser = JFileChoosers.create();
 
   public FilePanel(LogFrame frame) {
     super(frame);
@@ -196,10 +234,21 @@ class FilePanel extends LogPanel {
     gb.setConstraints(glue, gc);
     add(glue);
     gc.weighty = 0.0;
+    gb.setConstraints(exportButton, gc);
+    add(exportButton);
+    gb.setConstraints(vcdButton, gc);
+    add(vcdButton);
+    glue = new JPanel();
+    gc.weighty = 1.0;
+    gb.setConstraints(glue, gc);
+    add(glue);
+    gc.weighty = 0.0;
 
     enableButton.addActionListener(listener);
     selectButton.addActionListener(listener);
     headerCheckBox.addActionListener(listener);
+    exportButton.addActionListener(listener);
+    vcdButton.addActionListener(listener);
     modelChanged(null, getModel());
     localeChanged();
   }
@@ -220,6 +269,7 @@ class FilePanel extends LogPanel {
     fileLabel.setText(S.get("fileLabel") + " ");
     selectButton.setText(S.get("fileSelectButton"));
     headerCheckBox.setText(S.get("fileHeaderCheck"));
+    exportButton.setText(S.get("fileExportButton"));
   }
 
   @Override
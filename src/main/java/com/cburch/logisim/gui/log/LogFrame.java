@@ -51,6 +51,8 @@ import java.awt.event.KeyEvent;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import javax.swing.JFrame;
 import javax.swing.JTabbedPane;
@@ -93,6 +95,10 @@ public class LogFrame extends LFrame implements KeyListener{
       curModel.propagationCompleted();
     }
 
+    public void simulatorReset(SimulatorEvent e) {
+      if (curModel != null) curModel.reset();
+    }
+
     public void simulatorStateChanged(SimulatorEvent e) {}
 
     public void tickCompleted(SimulatorEvent e) {}
@@ -206,6 +212,15 @@ public class LogFrame extends LFrame implements KeyListener{
     Model oldModel = curModel;
     Model data = null;
     if (value != null) {
+      // drop the models of states the project no longer simulates
+      List<CircuitState> roots = project.getRootCircuitStates();
+      for (Iterator<Model> it = modelMap.values().iterator(); it.hasNext(); ) {
+        Model model = it.next();
+        if (model != curModel && !roots.contains(model.getCircuitState())) {
+          model.close();
+          it.remove();
+        }
+      }
       data = modelMap.get(value.getCircuitState());
       if (data == null) {
         data = new Model(value.getCircuitState());
@@ -225,6 +240,17 @@ public class LogFrame extends LFrame implements KeyListener{
     }
   }
 
+  @Override
+  public void dispose() {
+    if (curSimulator != null) curSimulator.removeSimulatorListener(myListener);
+    project.removeProjectListener(myListener);
+    project.removeLibraryListener(myListener);
+    LocaleManager.removeLocaleListener(myListener);
+    for (Model model : modelMap.values()) model.close();
+    modelMap.clear();
+    super.dispose();
+  }
+
   @Override
   public void setVisible(boolean value) {
     if (value) {
@@ -0,0 +1,162 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Backing store for the parts of the value logs of one model that have been written out of
+ * memory. Encoded chunks are appended to a temporary file that is mapped into memory a segment at
+ * a time, so reading an old chunk back costs no more than touching its pages. If the file cannot
+ * be created, chunks stay on the heap instead; they are compact either way.
+ *
+ * <p>The store counts the bytes of the file still held by a log. Once no log holds any, the file
+ * is dropped and the next chunk starts a new one. When most of a large file is no longer held, the
+ * model asks the store to {@link #compact} it: the logs copy their chunks into a fresh file and the
+ * old one is deleted.
+ */
+class LogStore {
+  private static final int SEGMENT_SIZE = 16 << 20;
+
+  private FileChannel channel = null;
+  private boolean failed = false;
+  private ArrayList<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+  private MappedByteBuffer current = null;
+  private long used = 0; // bytes written to the file
+  private long live = 0; // bytes of the file still held by a log
+
+  /** Closes the temporary file. Chunks written before stay readable until they are released. */
+  public synchronized void close() {
+    close(channel);
+    channel = null;
+    current = null;
+    segments.clear();
+    used = 0;
+    live = 0;
+  }
+
+  private static void close(FileChannel channel) {
+    if (channel == null) return;
+    try {
+      channel.close();
+    } catch (IOException e) {
+    }
+  }
+
+  /**
+   * Tells the store that a log no longer holds <code>bytes</code> bytes of the file, as counted by
+   * {@link #isInFile}. Returns whether so little of the file is still held that it is worth
+   * compacting.
+   */
+  public synchronized boolean release(long bytes) {
+    live -= bytes;
+    if (live <= 0 && channel != null) close();
+    return used >= SEGMENT_SIZE && live < used / 4;
+  }
+
+  /**
+   * Moves the chunks of the given logs, which must be all the logs still using this store, into a
+   * new file and deletes the old one.
+   */
+  public void compact(Collection<ValueLog> logs) {
+    FileChannel old;
+    synchronized (this) {
+      old = channel;
+      channel = null;
+      current = null;
+      segments = new ArrayList<MappedByteBuffer>();
+      used = 0;
+      live = 0;
+    }
+    for (ValueLog log : logs) log.moveChunks();
+    close(old);
+  }
+
+  /** Returns whether a buffer returned by {@link #write} lives in the file. */
+  static boolean isInFile(ByteBuffer data) {
+    return data.isDirect();
+  }
+
+  private boolean open() {
+    if (channel != null) return true;
+    if (failed) return false;
+    try {
+      File file = File.createTempFile("logisim-log-", ".dat");
+      file.deleteOnExit();
+      channel =
+          FileChannel.open(
+              file.toPath(),
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
+      return true;
+    } catch (IOException e) {
+      failed = true;
+      return false;
+    }
+  }
+
+  /**
+   * Stores the first <code>len</code> bytes of <code>data</code>, and returns a read-only buffer
+   * holding them.
+   */
+  public synchronized ByteBuffer write(byte[] data, int len) {
+    if (len <= SEGMENT_SIZE && open()) {
+      try {
+        if (current == null || current.remaining() < len) {
+          long pos = (long) segments.size() * SEGMENT_SIZE;
+          current = channel.map(FileChannel.MapMode.READ_WRITE, pos, SEGMENT_SIZE);
+          segments.add(current);
+        }
+        ByteBuffer ret = current.slice();
+        ret.limit(len);
+        ret.put(data, 0, len);
+        ret.flip();
+        current.position(current.position() + len);
+        used += len;
+        live += len;
+        return ret.asReadOnlyBuffer();
+      } catch (IOException e) {
+        close();
+        failed = true;
+      }
+    }
+    ByteBuffer ret = ByteBuffer.allocate(len);
+    ret.put(data, 0, len);
+    ret.flip();
+    return ret.asReadOnlyBuffer();
+  }
+}
@@ -33,6 +33,7 @@ import com.cburch.logisim.util.UniquelyNamedThread;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 
 class LogThread extends UniquelyNamedThread implements ModelListener {
   // file will be flushed with at least this frequency
@@ -46,6 +47,10 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
   private Object lock = new Object();
   private PrintWriter writer = null;
   private boolean headerDirty = true;
+  // entries are formatted on this thread rather than the simulator's, so
+  // remember the selection they were taken from
+  private ArrayList<Value[]> pending = new ArrayList<Value[]>();
+  private SelectionItem[] items = null;
   private long lastWrite = 0;
 
   public LogThread(Model model) {
@@ -65,13 +70,13 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
         return;
       }
     }
-    Selection sel = model.getSelection();
+    if (items == null) items = getItems();
     if (headerDirty) {
       if (model.getFileHeader()) {
         StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < sel.size(); i++) {
+        for (int i = 0; i < items.length; i++) {
           if (i > 0) buf.append("\t");
-          buf.append(sel.get(i).toString());
+          buf.append(items[i].toString());
         }
         writer.println(buf.toString());
       }
@@ -81,7 +86,7 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
     for (int i = 0; i < values.length; i++) {
       if (i > 0) buf.append("\t");
       if (values[i] != null) {
-        int radix = sel.get(i).getRadix();
+        int radix = items[i].getRadix();
         buf.append(values[i].toDisplayString(radix));
       }
     }
@@ -91,6 +96,7 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
 
   public void cancel() {
     synchronized (lock) {
+      drain();
       canceled = true;
       if (writer != null) {
         writer.close();
@@ -101,10 +107,20 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
 
   public void entryAdded(ModelEvent event, Value[] values) {
     synchronized (lock) {
-      if (isFileEnabled()) addEntry(values);
+      if (isFileEnabled()) {
+        if (items == null) items = getItems();
+        pending.add(values);
+      }
     }
   }
 
+  // Should hold lock before entering this method.
+  private void drain() {
+    // a failure to open the file disables it and clears the queue
+    for (int i = 0; i < pending.size() && isFileEnabled(); i++) addEntry(pending.get(i));
+    pending.clear();
+  }
+
   public void filePropertyChanged(ModelEvent event) {
     synchronized (lock) {
       if (isFileEnabled()) {
@@ -119,6 +135,7 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
           if (found) addEntry(values);
         }
       } else {
+        pending.clear();
         if (writer != null) {
           writer.close();
           writer = null;
@@ -127,6 +144,13 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
     }
   }
 
+  private SelectionItem[] getItems() {
+    Selection sel = model.getSelection();
+    SelectionItem[] ret = new SelectionItem[sel.size()];
+    for (int i = 0; i < ret.length; i++) ret[i] = sel.get(i);
+    return ret;
+  }
+
   private boolean isFileEnabled() {
     return !canceled && model.isSelected() && model.isFileEnabled() && model.getFile() != null;
   }
@@ -135,6 +159,7 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
   public void run() {
     while (!canceled) {
       synchronized (lock) {
+        drain();
         if (writer != null) {
           if (System.currentTimeMillis() - lastWrite > IDLE_UNTIL_CLOSE) {
             writer.close();
@@ -158,6 +183,10 @@ class LogThread extends UniquelyNamedThread implements ModelListener {
   }
 
   public void selectionChanged(ModelEvent event) {
-    headerDirty = true;
+    synchronized (lock) {
+      drain();
+      items = null;
+      headerDirty = true;
+    }
   }
 }
@@ -29,9 +29,13 @@
 package com.cburch.logisim.gui.log;
 
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import javax.swing.JFrame;
@@ -40,11 +44,16 @@ public class Model {
   private EventSourceWeakSupport<ModelListener> listeners;
   private Selection selection;
   private HashMap<SelectionItem, ValueLog> log;
+  private LogStore store = new LogStore();
   private boolean fileEnabled = false;
   private File file = null;
   private boolean fileHeader = true;
   private boolean selected = false;
   private LogThread logger = null;
+  private VcdWriter vcd = null;
+  // the subcircuit paths registered with the root state for the selection and the VCD recording
+  private ArrayList<Component[]> observed = new ArrayList<Component[]>();
+  private ArrayList<Component[]> vcdObserved = new ArrayList<Component[]>();
 
   public Model(CircuitState circuitState) {
     listeners = new EventSourceWeakSupport<ModelListener>();
@@ -72,15 +81,58 @@ public class Model {
     for (Iterator<SelectionItem> it = log.keySet().iterator(); it.hasNext(); ) {
       SelectionItem i = it.next();
       if (selection.indexOf(i) < 0) {
+        boolean compact = store.release(log.get(i).release());
         it.remove();
+        if (compact) store.compact(log.values());
       }
     }
+    ArrayList<Component[]> paths = new ArrayList<Component[]>();
+    for (int i = 0; i < selection.size(); i++) paths.add(selection.get(i).getPath());
+    observed = observe(paths, observed);
 
     for (ModelListener l : listeners) {
       l.selectionChanged(e);
     }
   }
 
+  /** Drops the history of every signal, as when the simulation is reset. */
+  public void reset() {
+    if (vcd != null) vcd.simulatorReset();
+    releaseAll();
+    for (ModelListener l : listeners) {
+      l.selectionChanged(new ModelEvent());
+    }
+  }
+
+  /** Stops logging and deletes the model's temporary file; the model is not used afterwards. */
+  public void close() {
+    setSelected(null, false);
+    try {
+      stopVcd();
+    } catch (IOException e) {
+    }
+    releaseAll();
+    store.close();
+    observed = observe(new ArrayList<Component[]>(), observed);
+  }
+
+  // registers the new paths with the root state before dropping the old ones, so that signals
+  // still selected are not left alone in between
+  private ArrayList<Component[]> observe(ArrayList<Component[]> paths, ArrayList<Component[]> old) {
+    CircuitState root = getCircuitState();
+    for (Component[] path : paths) root.addObserver(path);
+    for (Component[] path : old) root.removeObserver(path);
+    if (!paths.isEmpty() && root.getProject() != null) {
+      root.getProject().getSimulator().requestPropagate();
+    }
+    return paths;
+  }
+
+  private void releaseAll() {
+    for (ValueLog l : log.values()) store.release(l.release());
+    log.clear();
+  }
+
   public CircuitState getCircuitState() {
     return selection.getCircuitState();
   }
@@ -100,7 +152,7 @@ public class Model {
   public ValueLog getValueLog(SelectionItem item) {
     ValueLog ret = log.get(item);
     if (ret == null && selection.indexOf(item) >= 0) {
-      ret = new ValueLog();
+      ret = new ValueLog(store);
       log.put(item, ret);
     }
     return ret;
@@ -114,6 +166,10 @@ public class Model {
     return selected;
   }
 
+  public boolean isVcdActive() {
+    return vcd != null;
+  }
+
   public void propagationCompleted() {
     CircuitState circuitState = getCircuitState();
     Value[] vals = new Value[selection.size()];
@@ -135,6 +191,35 @@ public class Model {
     }
   }
 
+  /** Starts recording the selected signals to a VCD file, replacing any recording in progress. */
+  public void startVcd(File value) throws IOException {
+    stopVcd();
+    ArrayList<VcdWriter.Signal> signals = new ArrayList<VcdWriter.Signal>();
+    ArrayList<Component[]> paths = new ArrayList<Component[]>();
+    for (int i = 0; i < selection.size(); i++) {
+      SelectionItem item = selection.get(i);
+      signals.add(new VcdWriter.Signal(item.getPath(), item.getComponent(), item.getOption()));
+      paths.add(item.getPath());
+    }
+    vcdObserved = observe(paths, vcdObserved);
+    CircuitState circuitState = getCircuitState();
+    vcd = new VcdWriter(value, circuitState, signals);
+    vcd.start();
+    circuitState.getPropagator().setStepListener(vcd);
+    fireFilePropertyChanged(new ModelEvent());
+  }
+
+  public void stopVcd() throws IOException {
+    if (vcd == null) return;
+    VcdWriter writer = vcd;
+    vcd = null;
+    Propagator prop = getCircuitState().getPropagator();
+    if (prop.getStepListener() == writer) prop.setStepListener(null);
+    vcdObserved = observe(new ArrayList<Component[]>(), vcdObserved);
+    fireFilePropertyChanged(new ModelEvent());
+    writer.close();
+  }
+
   public void removeModelListener(ModelListener l) {
     listeners.remove(l);
   }
@@ -29,44 +29,285 @@
 package com.cburch.logisim.gui.log;
 
 import com.cburch.logisim.data.Value;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 
+/**
+ * The history of one logged signal. Consecutive equal values are kept as a single run, so a
+ * signal that rarely changes costs almost nothing however long the simulation goes. Recent runs
+ * are kept as plain objects; once there are enough of them they are encoded into a chunk and
+ * handed to the model's {@link LogStore}. The history is kept until the model releases the log,
+ * when the signal is no longer selected or the simulation is reset.
+ *
+ * <p>A chunk is a sequence of runs, each encoded as its length, a header byte holding the width,
+ * the difference from the value of the previous run in the chunk, and the error and unknown masks
+ * if the value has any such bits. Chunks can be decoded independently, and the binary log format
+ * written by {@link LogExporter} uses them unchanged.
+ */
 class ValueLog {
-  private static final int LOG_SIZE = 400;
-
-  private Value[] log;
-  private short curSize;
-  private short firstIndex;
-
-  public ValueLog() {
-    log = new Value[LOG_SIZE];
-    curSize = 0;
-    firstIndex = 0;
-  }
-
-  public void append(Value val) {
-    if (curSize < LOG_SIZE) {
-      log[curSize] = val;
-      curSize++;
-    } else {
-      log[firstIndex] = val;
-      firstIndex++;
-      if (firstIndex >= LOG_SIZE) firstIndex = 0;
+  private static class Chunk {
+    final int firstRow;
+    final int runs;
+    final ByteBuffer data;
+
+    Chunk(int firstRow, int runs, ByteBuffer data) {
+      this.firstRow = firstRow;
+      this.runs = runs;
+      this.data = data;
+    }
+  }
+
+  private static class Encoder {
+    byte[] buf = new byte[4096];
+    int len = 0;
+    long prev = 0;
+
+    void put(int length, Value val) {
+      if (len + 40 > buf.length) {
+        byte[] grown = new byte[2 * buf.length];
+        System.arraycopy(buf, 0, grown, 0, len);
+        buf = grown;
+      }
+      putVarLong(length);
+      if (val == null) {
+        buf[len++] = (byte) NULL_WIDTH;
+        return;
+      }
+      long error = val.getErrorMask();
+      long unknown = val.getUnknownMask();
+      long value = val.getValueMask();
+      boolean undefined = (error | unknown) != 0;
+      buf[len++] = (byte) (val.getWidth() | (undefined ? UNDEFINED_FLAG : 0));
+      long delta = value - prev;
+      putVarLong((delta << 1) ^ (delta >> 63));
+      prev = value;
+      if (undefined) {
+        putVarLong(unknown);
+        putVarLong(error);
+      }
+    }
+
+    private void putVarLong(long v) {
+      while ((v & ~0x7fL) != 0) {
+        buf[len++] = (byte) (v | 0x80);
+        v >>>= 7;
+      }
+      buf[len++] = (byte) v;
+    }
+  }
+
+  private static final int CHUNK_RUNS = 4096;
+
+  // header byte: the width, or NULL_WIDTH for a missing value, plus a flag
+  // for values with error or unknown bits
+  private static final int NULL_WIDTH = 0x7f;
+  private static final int UNDEFINED_FLAG = 0x80;
+
+  private static long getVarLong(ByteBuffer in) {
+    long ret = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      ret |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+    return ret;
+  }
+
+  private final LogStore store;
+  private final ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+  private long fileBytes = 0; // bytes of chunks held in the store's file
+
+  // the runs not yet written to a chunk
+  private int[] tailStarts = new int[16];
+  private Value[] tailValues = new Value[16];
+  private int tailRuns = 0;
+  private int tailFirstRow = 0;
+
+  private int size = 0;
+  private Value last = null;
+
+  // the chunk most recently decoded, since readers tend to stay in one place
+  private Chunk cachedChunk = null;
+  private int[] cachedStarts = null;
+  private Value[] cachedValues = null;
+
+  public ValueLog(LogStore store) {
+    this.store = store;
+  }
+
+  public synchronized void append(Value val) {
+    if (tailRuns > 0 && (last == null ? val == null : last.equals(val))) {
+      size++;
+      return;
+    }
+    if (tailRuns == CHUNK_RUNS) flushTail();
+    if (tailRuns == tailStarts.length) {
+      int n = Math.min(2 * tailRuns, CHUNK_RUNS);
+      int[] starts = new int[n];
+      Value[] values = new Value[n];
+      System.arraycopy(tailStarts, 0, starts, 0, tailRuns);
+      System.arraycopy(tailValues, 0, values, 0, tailRuns);
+      tailStarts = starts;
+      tailValues = values;
     }
+    tailStarts[tailRuns] = size;
+    tailValues[tailRuns] = val;
+    tailRuns++;
+    size++;
+    last = val;
   }
 
-  public Value get(int index) {
-    int i = firstIndex + index;
-    if (i >= LOG_SIZE) i -= LOG_SIZE;
-    return log[i];
+  private void decode(Chunk chunk) {
+    if (cachedStarts == null) {
+      cachedStarts = new int[CHUNK_RUNS];
+      cachedValues = new Value[CHUNK_RUNS];
+    }
+    ByteBuffer in = chunk.data.duplicate();
+    int row = chunk.firstRow;
+    long prev = 0;
+    for (int i = 0; i < chunk.runs; i++) {
+      cachedStarts[i] = row;
+      row += (int) getVarLong(in);
+      int header = in.get() & 0xff;
+      int width = header & ~UNDEFINED_FLAG;
+      if (width == NULL_WIDTH) {
+        cachedValues[i] = null;
+        continue;
+      }
+      long delta = getVarLong(in);
+      long value = prev + ((delta >>> 1) ^ -(delta & 1));
+      prev = value;
+      long unknown = 0;
+      long error = 0;
+      if ((header & UNDEFINED_FLAG) != 0) {
+        unknown = getVarLong(in);
+        error = getVarLong(in);
+      }
+      cachedValues[i] = Value.create(width, error, unknown, value);
+    }
+    cachedChunk = chunk;
+  }
+
+  private Encoder encodeTail() {
+    Encoder enc = new Encoder();
+    for (int i = 0; i < tailRuns; i++) {
+      int end = i + 1 < tailRuns ? tailStarts[i + 1] : size;
+      enc.put(end - tailStarts[i], tailValues[i]);
+    }
+    return enc;
+  }
+
+  private void flushTail() {
+    Encoder enc = encodeTail();
+    chunks.add(new Chunk(tailFirstRow, tailRuns, store(enc.buf, enc.len)));
+    tailFirstRow = size;
+    tailRuns = 0;
+  }
+
+  private ByteBuffer store(byte[] data, int len) {
+    ByteBuffer ret = store.write(data, len);
+    if (LogStore.isInFile(ret)) fileBytes += len;
+    return ret;
+  }
+
+  /**
+   * Drops the whole history, and returns the number of bytes of the store's file it held, to be
+   * passed on to {@link LogStore#release}.
+   */
+  synchronized long release() {
+    long ret = fileBytes;
+    chunks.clear();
+    fileBytes = 0;
+    tailValues = new Value[16];
+    tailStarts = new int[16];
+    tailRuns = 0;
+    tailFirstRow = 0;
+    size = 0;
+    last = null;
+    cachedChunk = null;
+    return ret;
+  }
+
+  /** Writes the chunks again into the store; used by {@link LogStore#compact}. */
+  synchronized void moveChunks() {
+    byte[] buf = new byte[0];
+    fileBytes = 0;
+    for (int i = 0; i < chunks.size(); i++) {
+      Chunk chunk = chunks.get(i);
+      ByteBuffer data = chunk.data.duplicate();
+      int len = data.remaining();
+      if (buf.length < len) buf = new byte[len];
+      data.get(buf, 0, len);
+      chunks.set(i, new Chunk(chunk.firstRow, chunk.runs, store(buf, len)));
+    }
+    cachedChunk = null;
+  }
+
+  public synchronized Value get(int index) {
+    if (index < 0 || index >= size) return null;
+    if (index >= tailFirstRow) return tailValues[findRun(tailStarts, tailRuns, index)];
+    int lo = 0;
+    int hi = chunks.size() - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (chunks.get(mid).firstRow <= index) lo = mid;
+      else hi = mid - 1;
+    }
+    Chunk chunk = chunks.get(lo);
+    if (chunk != cachedChunk) decode(chunk);
+    return cachedValues[findRun(cachedStarts, chunk.runs, index)];
+  }
+
+  private static int findRun(int[] starts, int runs, int index) {
+    int lo = 0;
+    int hi = runs - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (starts[mid] <= index) lo = mid;
+      else hi = mid - 1;
+    }
+    return lo;
+  }
+
+  public synchronized Value getLast() {
+    return last;
   }
 
-  public Value getLast() {
-    return curSize < LOG_SIZE
-        ? (curSize == 0 ? null : log[curSize - 1])
-        : (firstIndex == 0 ? log[curSize - 1] : log[firstIndex - 1]);
+  public synchronized int size() {
+    return size;
   }
 
-  public int size() {
-    return curSize;
+  /**
+   * Writes the history as the number of rows and the number of chunks, followed by each chunk as
+   * its number of runs, its number of rows, its length in bytes and its data. The runs that are
+   * still in memory are written as a final chunk.
+   */
+  synchronized void write(DataOutputStream out) throws IOException {
+    out.writeInt(size);
+    out.writeInt(chunks.size() + (tailRuns > 0 ? 1 : 0));
+    byte[] buf = new byte[0];
+    for (int i = 0; i < chunks.size(); i++) {
+      Chunk chunk = chunks.get(i);
+      int end = i + 1 < chunks.size() ? chunks.get(i + 1).firstRow : tailFirstRow;
+      ByteBuffer data = chunk.data.duplicate();
+      int len = data.remaining();
+      if (buf.length < len) buf = new byte[len];
+      data.get(buf, 0, len);
+      out.writeInt(chunk.runs);
+      out.writeInt(end - chunk.firstRow);
+      out.writeInt(len);
+      out.write(buf, 0, len);
+    }
+    if (tailRuns > 0) {
+      Encoder enc = encodeTail();
+      out.writeInt(tailRuns);
+      out.writeInt(size - tailFirstRow);
+      out.writeInt(enc.len);
+      out.write(enc.buf, 0, enc.len);
+    }
   }
 }
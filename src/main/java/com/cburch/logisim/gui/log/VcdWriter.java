@@ -0,0 +1,398 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static com.cburch.logisim.gui.Strings.S;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.util.UniquelyNamedThread;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the values of a set of signals to a Value Change Dump file, the format read by standard
+ * waveform viewers. The writer listens to the propagator, so it sees every step of propagation
+ * rather than only the settled state after each tick. Each step is written at the time that
+ * passed on the propagator's clock since the first step recorded, counted in gate delays, and one
+ * gate delay is written as one nanosecond. Since the time in the file must not go backwards, a
+ * reset of the simulation starts a new time base one gate delay after the last step recorded.
+ *
+ * <p>After each step the simulation thread compares the signals with their previous values and
+ * puts the changes in a ring buffer. A separate thread formats them and writes them to the file,
+ * so the simulation waits only if the disk falls a whole ring behind.
+ */
+public class VcdWriter extends UniquelyNamedThread implements Propagator.StepListener {
+  /** A loggable value somewhere in the hierarchy below the root state. */
+  public static class Signal {
+    private final Component[] path;
+    private final Component comp;
+    private final Object option;
+    private CircuitState state;
+    private Loggable log;
+    private String[] scope;
+    private String name;
+    private int width;
+
+    public Signal(Component[] path, Component comp, Object option) {
+      this.path = path;
+      this.comp = comp;
+      this.option = option;
+    }
+
+    private void resolve(CircuitState root) {
+      CircuitState cur = root;
+      scope = new String[path.length + 1];
+      scope[0] = sanitize(root.getCircuit().getName());
+      for (int i = 0; i < path.length; i++) {
+        SubcircuitFactory circFact = (SubcircuitFactory) path[i].getFactory();
+        cur = circFact.getSubstate(cur, path[i]);
+        scope[i + 1] = sanitize(componentName(path[i], circFact.getSubcircuit().getName()));
+      }
+      state = cur;
+      log = (Loggable) comp.getFeature(Loggable.class);
+      String logName = log == null ? null : log.getLogName(option);
+      if (logName == null || logName.equals("")) {
+        logName = componentName(comp, comp.getFactory().getDisplayName());
+        if (option != null) logName += "." + option.toString();
+      }
+      name = sanitize(logName);
+      Value val = fetch();
+      width = val == null ? 1 : Math.max(1, val.getWidth());
+    }
+
+    private Value fetch() {
+      return log == null ? Value.NIL : log.getLogValue(state, option);
+    }
+  }
+
+  static final Logger logger = LoggerFactory.getLogger(VcdWriter.class);
+
+  private static final int RING_SIZE = 1 << 16;
+  private static final int BUFFER_SIZE = 1 << 16;
+  // in place of a signal index in the ring: the simulation was reset at that time
+  private static final int RESET = -1;
+
+  private static String componentName(Component comp, String base) {
+    if (comp.getAttributeSet().containsAttribute(StdAttr.LABEL)) {
+      String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
+      if (label != null && !label.equals("")) return label;
+    }
+    return base + comp.getLocation();
+  }
+
+  private static String sanitize(String name) {
+    StringBuilder ret = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      ret.append(c > ' ' && c < 127 ? c : '_');
+    }
+    return ret.toString();
+  }
+
+  private final FileChannel channel;
+  private final Signal[] signals;
+  private final byte[][] ids;
+  private final Value[] last;
+  private boolean started = false; // whether the initial values have been recorded
+  // the propagator's clock at the last step, and the time written for it
+  private int lastClock;
+  private long time = 0;
+  private volatile boolean resetPending = false;
+  // the time of the step whose changes could not all be recorded, or -1
+  private volatile long truncatedAt = -1;
+
+  // single producer (the simulation thread), single consumer (this thread)
+  private final long[] ringTime = new long[RING_SIZE];
+  private final int[] ringSignal = new int[RING_SIZE];
+  private final Value[] ringValue = new Value[RING_SIZE];
+  private final AtomicLong head = new AtomicLong(); // next record to write out
+  private final AtomicLong tail = new AtomicLong(); // next slot not yet handed to this thread
+  private long next = 0; // next free slot
+
+  private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long lastTime = -1;
+  private volatile boolean closing = false;
+  private volatile IOException failure = null;
+
+  /**
+   * Creates the file and writes its header. The signals are resolved against the given state, so
+   * this should be called while the simulation is not running.
+   */
+  public VcdWriter(File file, CircuitState root, List<Signal> signals) throws IOException {
+    super("VcdWriter");
+    this.signals = signals.toArray(new Signal[signals.size()]);
+    this.ids = new byte[this.signals.length][];
+    this.last = new Value[this.signals.length];
+    for (int i = 0; i < this.signals.length; i++) {
+      this.signals[i].resolve(root);
+      ids[i] = identifier(i);
+    }
+    channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      writeHeader();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    setDaemon(true);
+  }
+
+  private static byte[] identifier(int index) {
+    // printable characters from '!' to '~', least significant first
+    StringBuilder ret = new StringBuilder();
+    do {
+      ret.append((char) ('!' + index % 94));
+      index = index / 94;
+    } while (index > 0);
+    return ret.toString().getBytes();
+  }
+
+  private void writeHeader() throws IOException {
+    StringBuilder buf = new StringBuilder();
+    buf.append("$date ").append(new Date()).append(" $end\n");
+    buf.append("$version Logisim-evolution ").append(Main.VERSION_NAME).append(" $end\n");
+    buf.append("$timescale 1ns $end\n");
+
+    // a scope must be declared in one piece, so group the signals by scope
+    Integer[] order = new Integer[signals.length];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(
+        order,
+        new Comparator<Integer>() {
+          public int compare(Integer a, Integer b) {
+            String[] sa = signals[a].scope;
+            String[] sb = signals[b].scope;
+            for (int i = 0; i < sa.length && i < sb.length; i++) {
+              int c = sa[i].compareTo(sb[i]);
+              if (c != 0) return c;
+            }
+            return sa.length - sb.length;
+          }
+        });
+    String[] open = new String[0];
+    for (int i : order) {
+      String[] scope = signals[i].scope;
+      int common = 0;
+      while (common < open.length && common < scope.length && open[common].equals(scope[common])) {
+        common++;
+      }
+      for (int k = open.length; k > common; k--) buf.append("$upscope $end\n");
+      for (int k = common; k < scope.length; k++) {
+        buf.append("$scope module ").append(scope[k]).append(" $end\n");
+      }
+      open = scope;
+      buf.append("$var wire ").append(signals[i].width).append(' ');
+      buf.append(new String(ids[i])).append(' ').append(signals[i].name).append(" $end\n");
+    }
+    for (int k = open.length; k > 0; k--) buf.append("$upscope $end\n");
+    buf.append("$enddefinitions $end\n");
+    ByteBuffer header = ByteBuffer.wrap(buf.toString().getBytes("UTF-8"));
+    while (header.hasRemaining()) channel.write(header);
+  }
+
+  /**
+   * Stops recording: waits for the buffered changes to reach the file and closes it. Reports the
+   * first error met while writing, if any, or else that a step could not be recorded in full.
+   */
+  public void close() throws IOException {
+    closing = true;
+    LockSupport.unpark(this);
+    try {
+      join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) throw failure;
+    if (truncatedAt >= 0) throw new IOException(S.fmt("fileVcdTruncated", "" + truncatedAt));
+  }
+
+  /**
+   * Notes that the simulation was reset, so that the steps following it are written from a new
+   * time base rather than at the propagator's clock, which may be reset as well. To be called on
+   * the simulation thread, as the reset event is.
+   */
+  public void simulatorReset() {
+    resetPending = true;
+  }
+
+  private void drain() throws IOException {
+    long h = head.get();
+    long t = tail.get();
+    for (; h < t; h++) {
+      int slot = (int) h & (RING_SIZE - 1);
+      long time = ringTime[slot];
+      int index = ringSignal[slot];
+      Value val = ringValue[slot];
+      ringValue[slot] = null;
+      if (out.remaining() < 96) flush();
+      if (time != lastTime) {
+        out.put((byte) '#');
+        putDecimal(time);
+        out.put((byte) '\n');
+        lastTime = time;
+      }
+      if (index == RESET) putComment("simulation reset");
+      else putValue(index, val);
+    }
+    head.lazySet(t);
+  }
+
+  private void putComment(String text) {
+    out.put("$comment ".getBytes());
+    out.put(text.getBytes());
+    out.put(" $end\n".getBytes());
+  }
+
+  private void flush() throws IOException {
+    out.flip();
+    while (out.hasRemaining()) channel.write(out);
+    out.clear();
+  }
+
+  private void putBit(Value val, int bit) {
+    if (val == null || bit >= val.getWidth()) {
+      out.put((byte) 'x');
+    } else if ((val.getErrorMask() >>> bit & 1) != 0) {
+      out.put((byte) 'x');
+    } else if ((val.getUnknownMask() >>> bit & 1) != 0) {
+      out.put((byte) 'z');
+    } else {
+      out.put((byte) ((val.getValueMask() >>> bit & 1) != 0 ? '1' : '0'));
+    }
+  }
+
+  private void putDecimal(long v) {
+    if (v >= 10) putDecimal(v / 10);
+    out.put((byte) ('0' + v % 10));
+  }
+
+  private void putValue(int index, Value val) {
+    int width = signals[index].width;
+    if (width == 1) {
+      putBit(val, 0);
+    } else {
+      out.put((byte) 'b');
+      for (int bit = width - 1; bit >= 0; bit--) putBit(val, bit);
+      out.put((byte) ' ');
+    }
+    out.put(ids[index]);
+    out.put((byte) '\n');
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        boolean done = closing;
+        drain();
+        if (done) break;
+        if (head.get() == tail.get()) LockSupport.parkNanos(1000000L);
+      }
+      if (truncatedAt >= 0) {
+        if (out.remaining() < 96) flush();
+        putComment("recording truncated, changes at #" + truncatedAt + " and later are missing");
+      }
+      flush();
+    } catch (IOException e) {
+      failure = e;
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        if (failure == null) failure = e;
+      }
+    }
+  }
+
+  /** Records the signals that changed in the step that just completed. */
+  public void stepCompleted(int clock) {
+    if (closing || failure != null || truncatedAt >= 0) return;
+    // a reset, or a clock that went backwards, starts a new time base
+    boolean reset = resetPending || (started && clock - lastClock < 0);
+    resetPending = false;
+    if (started) time += reset ? 1 : clock - lastClock;
+    lastClock = clock;
+    if (reset && started && !enqueue(RESET, null)) return;
+    for (int i = 0; i < signals.length; i++) {
+      Value val = signals[i].fetch();
+      Value old = last[i];
+      if (started && (old == null ? val == null : old.equals(val))) continue;
+      if (!enqueue(i, val)) return;
+      last[i] = val;
+    }
+    // hand the step over as a whole, so that stopping never leaves half of it in the file
+    tail.lazySet(next);
+    started = true;
+  }
+
+  // puts a change in the ring, waiting for room; if the writer is stopping or has stopped,
+  // notes that the step is truncated and returns false
+  private boolean enqueue(int index, Value val) {
+    if (next - head.get() >= RING_SIZE) {
+      tail.lazySet(next);
+      while (next - head.get() >= RING_SIZE) {
+        if (closing || failure != null || !isAlive()) {
+          truncatedAt = time;
+          logger.warn("VCD recording truncated at time {}", time);
+          return false;
+        }
+        LockSupport.unpark(this);
+        LockSupport.parkNanos(10000L);
+      }
+    }
+    int slot = (int) next & (RING_SIZE - 1);
+    ringTime[slot] = time;
+    ringSignal[slot] = index;
+    ringValue[slot] = val;
+    next++;
+    return true;
+  }
+}
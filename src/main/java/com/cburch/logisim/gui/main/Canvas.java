@@ -39,6 +39,7 @@ import com.cburch.logisim.circuit.SimulatorEvent;
 import com.cburch.logisim.circuit.SimulatorListener;
 import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.circuit.WidthIncompatibilityData;
+import com.cburch.logisim.circuit.Wire;
 import com.cburch.logisim.circuit.WireSet;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentUserEvent;
@@ -93,12 +94,15 @@ import java.awt.event.MouseWheelListener;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollBar;
 import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
 import javax.swing.event.MouseInputListener;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
@@ -330,7 +334,10 @@ public class Canvas extends JPanel
     public void propertyChange(PropertyChangeEvent event) {
       if (AppPreferences.GATE_SHAPE.isSource(event)
           || AppPreferences.SHOW_TICK_RATE.isSource(event)
+          || AppPreferences.SHOW_FRAME_TIME.isSource(event)
+          || AppPreferences.INCREMENTAL_PAINT.isSource(event)
           || AppPreferences.AntiAliassing.isSource(event)) {
+        damageAll();
         paintThread.requestRepaint();
       } else if (AppPreferences.COMPONENT_TIPS.isSource(event)) {
         boolean showTips = AppPreferences.COMPONENT_TIPS.getBoolean();
@@ -365,6 +372,7 @@ public class Canvas extends JPanel
 
     @Override
     public void attributeValueChanged(AttributeEvent e) {
+      damageAll();
       Attribute<?> attr = e.getAttribute();
       if (attr == Options.ATTR_GATE_UNDEFINED) {
         CircuitState circState = getCircuitState();
@@ -377,6 +385,13 @@ public class Canvas extends JPanel
     @Override
     public void circuitChanged(CircuitEvent event) {
       int act = event.getAction();
+      if (act == CircuitEvent.ACTION_INVALIDATE && event.getData() instanceof Component) {
+        synchronized (damageLock) {
+          invalidated.add((Component) event.getData());
+        }
+      } else {
+        damageAll();
+      }
       if (act == CircuitEvent.ACTION_REMOVE) {
         Component c = (Component) event.getData();
         if (c == painter.getHaloedComponent()) {
@@ -448,6 +463,7 @@ public class Canvas extends JPanel
 
     @Override
     public void projectChanged(ProjectEvent event) {
+      damageAll();
       int act = event.getAction();
       if (act == ProjectEvent.ACTION_SET_CURRENT) {
         viewport.setErrorMessage(null, null);
@@ -517,6 +533,9 @@ public class Canvas extends JPanel
     @Override
     public void simulatorStateChanged(SimulatorEvent e) {}
 
+    @Override
+    public void simulatorReset(SimulatorEvent e) {}
+
     @Override
     public void tickCompleted(SimulatorEvent e) {
       waitForRepaintDone();
@@ -669,6 +688,16 @@ public class Canvas extends JPanel
           g.drawString(hz, x, y);
         }
       }
+      long frame = frameNanos;
+      if (AppPreferences.SHOW_FRAME_TIME.getBoolean() && frame > 0) {
+        String ms = S.fmt("frameTimeMs", String.format("%.1f", frame / 1000000.0));
+        g.setColor(TICK_RATE_COLOR);
+        g.setFont(TICK_RATE_FONT);
+        FontMetrics fm = g.getFontMetrics();
+        int x = getWidth() - fm.stringWidth(ms) - 5;
+        int y = fm.getHeight() + fm.getAscent() + 5;
+        g.drawString(ms, x, y);
+      }
 
       g.setColor(Color.BLACK);
     }
@@ -693,6 +722,7 @@ public class Canvas extends JPanel
       if (errorMessage != msg) {
         errorMessage = msg;
         errorColor = color == null ? DEFAULT_ERROR_COLOR : color;
+        damageAll();
         paintThread.requestRepaint();
       }
     }
@@ -816,6 +846,11 @@ public class Canvas extends JPanel
   private static final Color DEFAULT_ERROR_COLOR = new Color(192, 0, 0);
   private static final Color TICK_RATE_COLOR = new Color(0, 0, 92, 92);
   private static final Font TICK_RATE_FONT = new Font("serif", Font.BOLD, 12);
+  // the corner of the viewport holding the tick rate and the frame time
+  private static final int OVERLAY_WIDTH = 160;
+  private static final int OVERLAY_HEIGHT = 48;
+  // allows for strokes and highlights drawn just outside a component's bounds
+  private static final int DAMAGE_MARGIN = 6;
   // public static BufferedImage image;
   private Project proj;
   private Tool drag_tool, temp_tool;
@@ -839,6 +874,23 @@ public class Canvas extends JPanel
 
   private Object repaintLock = new Object(); // for waitForRepaintDone
 
+  // What changed other than simulation values since the last incremental frame: either
+  // anything at all, or a few components that asked to be redrawn.
+  private final Object damageLock = new Object();
+  private boolean fullDamage = true;
+  private ArrayList<Component> invalidated = new ArrayList<Component>();
+  private final AtomicBoolean framePending = new AtomicBoolean(false);
+  private boolean inFrame = false; // only for within paintChanges
+  private volatile long frameNanos = 0; // running average of the time to paint a frame
+
+  private final Runnable frameRunner =
+      new Runnable() {
+        public void run() {
+          framePending.set(false);
+          paintChanges();
+        }
+      };
+
   public Canvas(Project proj) {
     this.proj = proj;
     this.selection = new Selection(proj, this);
@@ -867,6 +919,8 @@ public class Canvas extends JPanel
     AppPreferences.COMPONENT_TIPS.addPropertyChangeListener(myListener);
     AppPreferences.GATE_SHAPE.addPropertyChangeListener(myListener);
     AppPreferences.SHOW_TICK_RATE.addPropertyChangeListener(myListener);
+    AppPreferences.SHOW_FRAME_TIME.addPropertyChangeListener(myListener);
+    AppPreferences.INCREMENTAL_PAINT.addPropertyChangeListener(myListener);
     loadOptions(options);
     paintThread.start();
   }
@@ -1109,9 +1163,105 @@ public class Canvas extends JPanel
 
   @Override
   public void localeChanged() {
+    damageAll();
     paintThread.requestRepaint();
   }
 
+  private void damageAll() {
+    synchronized (damageLock) {
+      fullDamage = true;
+      invalidated.clear();
+    }
+  }
+
+  /** Called by the paint thread when it is time for a new frame. */
+  void paintFrame() {
+    if (!AppPreferences.INCREMENTAL_PAINT.getBoolean()) {
+      repaint();
+    } else if (framePending.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(frameRunner);
+    }
+  }
+
+  /**
+   * Paints a frame of a running simulation. The rest of the canvas is kept from earlier frames,
+   * so only the tiles holding the points and components that the circuit state reports as
+   * changed are redrawn. Anything else, such as an edit or a change of view, calls for a full
+   * repaint.
+   */
+  private void paintChanges() {
+    ArrayList<Component> comps;
+    boolean full;
+    synchronized (damageLock) {
+      full = fullDamage;
+      fullDamage = false;
+      comps = invalidated;
+      invalidated = new ArrayList<Component>();
+    }
+    ArrayList<Location> points = new ArrayList<Location>();
+    CircuitState state = getCircuitState();
+    Circuit circ = getCircuit();
+    if (state == null || circ == null || !state.drainDisplayChanges(points, comps)) full = true;
+    if (full
+        || inPaint
+        || canvasPane == null
+        || drag_tool != null
+        || state.getCircuit() != circ
+        || !proj.getSimulator().isTicking()
+        || proj.getSimulator().isOscillating()
+        || proj.getSimulator().isExceptionEncountered()) {
+      repaint();
+      return;
+    }
+
+    Rectangle view = viewport.getViewRect();
+    double zoom = getZoomFactor();
+    Graphics g = getGraphics();
+    DamageTiles damage = new DamageTiles(view.width, view.height);
+    for (Location p : points) {
+      addDamage(damage, view, zoom, Bounds.create(p).expand(Wire.WIDTH_BUS));
+      for (Component c : circ.getComponents(p)) {
+        addDamage(damage, view, zoom, g == null ? c.getBounds() : c.getBounds(g));
+      }
+    }
+    for (Component c : comps) {
+      addDamage(damage, view, zoom, g == null ? c.getBounds() : c.getBounds(g));
+    }
+    if (g != null) g.dispose();
+    if (damage.isEmpty()) return;
+    if (AppPreferences.SHOW_TICK_RATE.getBoolean() || AppPreferences.SHOW_FRAME_TIME.getBoolean()) {
+      damage.add(view.width - OVERLAY_WIDTH, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+    }
+    if (damage.getCoverage() > 0.5) {
+      repaint();
+      return;
+    }
+
+    long start = System.nanoTime();
+    inFrame = true;
+    try {
+      for (Rectangle r : damage.getRectangles()) {
+        viewport.paintImmediately(r);
+      }
+    } finally {
+      inFrame = false;
+    }
+    recordFrameTime(System.nanoTime() - start);
+  }
+
+  private static void addDamage(DamageTiles damage, Rectangle view, double zoom, Bounds b) {
+    int x0 = (int) Math.floor(b.getX() * zoom) - view.x - DAMAGE_MARGIN;
+    int y0 = (int) Math.floor(b.getY() * zoom) - view.y - DAMAGE_MARGIN;
+    int x1 = (int) Math.ceil((b.getX() + b.getWidth()) * zoom) - view.x + DAMAGE_MARGIN;
+    int y1 = (int) Math.ceil((b.getY() + b.getHeight()) * zoom) - view.y + DAMAGE_MARGIN;
+    damage.add(x0, y0, x1 - x0, y1 - y0);
+  }
+
+  private void recordFrameTime(long nanos) {
+    long old = frameNanos;
+    frameNanos = old == 0 ? nanos : (7 * old + nanos) / 8;
+  }
+
   @Override
   public void paintComponent(Graphics g) {
     if (AppPreferences.AntiAliassing.getBoolean()) {
@@ -1121,6 +1271,7 @@ public class Canvas extends JPanel
       g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
     }
 
+    long start = System.nanoTime();
     inPaint = true;
     try {
       super.paintComponent(g);
@@ -1145,6 +1296,7 @@ public class Canvas extends JPanel
       }
     } finally {
       inPaint = false;
+      if (!inFrame) recordFrameTime(System.nanoTime() - start);
       synchronized (repaintLock) {
         repaintLock.notifyAll();
       }
@@ -103,7 +103,7 @@ class CanvasPaintThread extends UniquelyNamedThread {
         repaintRequested = false;
         nextRepaint = now + REPAINT_TIMESPAN;
       }
-      canvas.repaint();
+      canvas.paintFrame();
     }
   }
 }
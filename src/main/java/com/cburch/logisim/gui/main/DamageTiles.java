@@ -0,0 +1,117 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.main;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The parts of the visible canvas to redraw for one frame, kept as a set of square tiles so that
+ * changes far apart do not merge into one rectangle spanning everything between them, as they
+ * would in the repaint manager.
+ */
+class DamageTiles {
+  static final int TILE_SIZE = 64;
+
+  private final int columns;
+  private final int rows;
+  private final BitSet tiles;
+  private int count = 0;
+
+  DamageTiles(int width, int height) {
+    columns = Math.max(1, (width + TILE_SIZE - 1) / TILE_SIZE);
+    rows = Math.max(1, (height + TILE_SIZE - 1) / TILE_SIZE);
+    tiles = new BitSet(columns * rows);
+  }
+
+  void add(int x, int y, int width, int height) {
+    int c0 = Math.max(0, Math.floorDiv(x, TILE_SIZE));
+    int r0 = Math.max(0, Math.floorDiv(y, TILE_SIZE));
+    int c1 = Math.min(columns - 1, Math.floorDiv(x + width, TILE_SIZE));
+    int r1 = Math.min(rows - 1, Math.floorDiv(y + height, TILE_SIZE));
+    for (int r = r0; r <= r1; r++) {
+      for (int c = c0; c <= c1; c++) {
+        int i = r * columns + c;
+        if (!tiles.get(i)) {
+          tiles.set(i);
+          count++;
+        }
+      }
+    }
+  }
+
+  /** Returns the fraction of the canvas that is to be redrawn. */
+  double getCoverage() {
+    return count / (double) (columns * rows);
+  }
+
+  boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Returns rectangles covering the damaged tiles: runs of tiles along a row, merged with the
+   * same run in the rows below.
+   */
+  List<Rectangle> getRectangles() {
+    ArrayList<Rectangle> ret = new ArrayList<Rectangle>();
+    ArrayList<Rectangle> open = new ArrayList<Rectangle>();
+    for (int r = 0; r < rows; r++) {
+      ArrayList<Rectangle> next = new ArrayList<Rectangle>();
+      int base = r * columns;
+      int c = tiles.nextSetBit(base);
+      while (c >= 0 && c < base + columns) {
+        int end = Math.min(tiles.nextClearBit(c), base + columns);
+        int x = (c - base) * TILE_SIZE;
+        int width = (end - c) * TILE_SIZE;
+        Rectangle run = null;
+        for (Rectangle o : open) {
+          if (o.x == x && o.width == width) {
+            run = o;
+            break;
+          }
+        }
+        if (run != null) {
+          open.remove(run);
+          run.height += TILE_SIZE;
+        } else {
+          run = new Rectangle(x, r * TILE_SIZE, width, TILE_SIZE);
+        }
+        next.add(run);
+        c = tiles.nextSetBit(end);
+      }
+      ret.addAll(open);
+      open = next;
+    }
+    ret.addAll(open);
+    return ret;
+  }
+}
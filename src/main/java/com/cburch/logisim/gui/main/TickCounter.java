@@ -148,6 +148,8 @@ class TickCounter implements SimulatorListener {
     propagationCompleted(e);
   }
 
+  public void simulatorReset(SimulatorEvent e) {}
+
   public void tickCompleted(SimulatorEvent e) {
     Simulator sim = e.getSource();
     if (!sim.isTicking()) {
@@ -310,6 +310,9 @@ public class AssemblyWindow
    * current caret position.
    */
 
+  @Override
+  public void simulatorReset(SimulatorEvent e) {}
+
   @Override
   public void tickCompleted(SimulatorEvent e) {}
 
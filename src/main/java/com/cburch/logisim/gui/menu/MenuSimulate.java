@@ -30,6 +30,7 @@ package com.cburch.logisim.gui.menu;
 
 import static com.cburch.logisim.gui.Strings.S;
 
+import com.cburch.logisim.circuit.Checkpoints;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
@@ -132,6 +133,15 @@ public class MenuSimulate extends Menu {
           }
           sim.requestReset();
         }
+      } else if (src == rewind) {
+        if (sim != null) {
+          sim.setIsTicking(false);
+          Checkpoints checkpoints = sim.getCheckpoints();
+          CircuitState root = sim.getCircuitState();
+          int tick = root == null ? -1 : checkpoints.getPrevious(root.getPropagator().getTickCount());
+          CircuitState state = tick < 0 ? null : checkpoints.rewind(tick);
+          if (state != null) proj.replaceRootState(root, state);
+        }
       } else if (src == step || src == LogisimMenuBar.SIMULATE_STEP) {
         if (sim != null) {
           sim.setIsRunning(false);
@@ -196,6 +206,9 @@ public class MenuSimulate extends Menu {
     public void stateChanged(ChangeEvent e) {
     }
 
+    @Override
+    public void simulatorReset(SimulatorEvent e) {}
+
     @Override
     public void tickCompleted(SimulatorEvent e) {}
   }
@@ -277,6 +290,7 @@ public class MenuSimulate extends Menu {
   private Simulator currentSim = null;
   private MenuItemCheckImpl runToggle;
   private JMenuItem reset = new JMenuItem();
+  private JMenuItem rewind = new JMenuItem();
   private MenuItemImpl step;
   private MenuItemImpl vhdl_sim_files;
   private MenuItemCheckImpl simulate_vhdl_enable;
@@ -331,6 +345,7 @@ public class MenuSimulate extends Menu {
     add(runToggle);
     add(step);
     add(reset);
+    add(rewind);
     add(simulate_vhdl_enable);
     add(vhdl_sim_files);
     addSeparator();
@@ -350,6 +365,7 @@ public class MenuSimulate extends Menu {
     setEnabled(false);
     runToggle.setEnabled(false);
     reset.setEnabled(false);
+    rewind.setEnabled(false);
     step.setEnabled(false);
     simulate_vhdl_enable.setEnabled(false);
     vhdl_sim_files.setEnabled(false);
@@ -370,6 +386,7 @@ public class MenuSimulate extends Menu {
     menubar.addActionListener(LogisimMenuBar.TICK_FULL, myListener);
     // runToggle.addActionListener(myListener);
     reset.addActionListener(myListener);
+    rewind.addActionListener(myListener);
     // step.addActionListener(myListener);
     // tickHalf.addActionListener(myListener);
     // tickFull.addActionListener(myListener);
@@ -396,6 +413,7 @@ public class MenuSimulate extends Menu {
     setEnabled(present);
     runToggle.setEnabled(present);
     reset.setEnabled(present);
+    rewind.setEnabled(present);
     step.setEnabled(present);
     simulate_vhdl_enable.setEnabled(present);
     vhdl_sim_files.setEnabled(present);
@@ -412,6 +430,7 @@ public class MenuSimulate extends Menu {
     this.setText(S.get("simulateMenu"));
     runToggle.setText(S.get("simulateRunItem"));
     reset.setText(S.get("simulateResetItem"));
+    rewind.setText(S.get("simulateRewindItem"));
     step.setText(S.get("simulateStepItem"));
     simulate_vhdl_enable.setText(S.get("simulateVhdlEnableItem"));
     vhdl_sim_files.setText(S.get("simulateGenVhdlFilesItem"));
@@ -42,6 +42,10 @@ class ExperimentalOptions extends OptionsPanel {
   private static final long serialVersionUID = 1L;
   private JLabel accelRestart = new JLabel();
   private PrefOptionList accel;
+  private JLabel engineRestart = new JLabel();
+  private PrefOptionList engine;
+  private PrefBoolean parallel;
+  private PrefBoolean compiled;
 
   public ExperimentalOptions(PreferencesFrame window) {
     super(window);
@@ -65,9 +69,34 @@ class ExperimentalOptions extends OptionsPanel {
     JPanel accelPanel2 = new JPanel();
     accelPanel2.add(accelPanel);
 
+    engine =
+        new PrefOptionList(
+            AppPreferences.SIM_ENGINE,
+            S.getter("simEngineLabel"),
+            new PrefOption[] {
+              new PrefOption(AppPreferences.SIM_ENGINE_CLASSIC, S.getter("simEngineClassic")),
+              new PrefOption(AppPreferences.SIM_ENGINE_WHEEL, S.getter("simEngineWheel")),
+            });
+
+    parallel = new PrefBoolean(AppPreferences.SIM_PARALLEL, S.getter("simParallel"));
+    compiled = new PrefBoolean(AppPreferences.SIM_COMPILED, S.getter("simCompiled"));
+
+    JPanel enginePanel = new JPanel(new BorderLayout());
+    enginePanel.add(engine.getJLabel(), BorderLayout.LINE_START);
+    enginePanel.add(engine.getJComboBox(), BorderLayout.CENTER);
+    JPanel engineNotes = new JPanel(new BorderLayout());
+    engineNotes.add(parallel, BorderLayout.PAGE_START);
+    engineNotes.add(compiled, BorderLayout.CENTER);
+    engineNotes.add(engineRestart, BorderLayout.PAGE_END);
+    enginePanel.add(engineNotes, BorderLayout.PAGE_END);
+    engineRestart.setFont(engineRestart.getFont().deriveFont(Font.ITALIC));
+    JPanel enginePanel2 = new JPanel();
+    enginePanel2.add(enginePanel);
+
     setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
     add(Box.createGlue());
     add(accelPanel2);
+    add(enginePanel2);
     add(Box.createGlue());
   }
 
@@ -85,5 +114,9 @@ class ExperimentalOptions extends OptionsPanel {
   public void localeChanged() {
     accel.localeChanged();
     accelRestart.setText(S.get("accelRestartLabel"));
+    engine.localeChanged();
+    parallel.localeChanged();
+    compiled.localeChanged();
+    engineRestart.setText(S.get("simEngineResetLabel"));
   }
 }
@@ -107,6 +107,8 @@ class WindowOptions extends OptionsPanel {
     checks =
         new PrefBoolean[] {
           new PrefBoolean(AppPreferences.SHOW_TICK_RATE, S.getter("windowTickRate")),
+          new PrefBoolean(AppPreferences.SHOW_FRAME_TIME, S.getter("windowFrameTime")),
+          new PrefBoolean(AppPreferences.INCREMENTAL_PAINT, S.getter("windowIncrementalPaint")),
         };
 
     toolbarPlacement =
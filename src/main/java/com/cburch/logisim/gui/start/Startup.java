@@ -125,7 +125,9 @@ public class Startup implements AWTEventListener {
     boolean isTty = false;
     boolean isClearPreferences = false;
     for (int i = 0; i < args.length; i++) {
-      if (args[i].equals("-tty")||args[i].equals("-test-fpga-implementation")) {
+      if (args[i].equals("-tty")||args[i].equals("-test-fpga-implementation")
+          || args[i].equals("-save") || args[i].equals("-junit")
+          || args[i].equals("-server")) {
         isTty = true;
         Main.headless = true;
       } else if (args[i].equals("-clearprefs") || args[i].equals("-clearprops")) {
@@ -228,6 +230,75 @@ public class Startup implements AWTEventListener {
           logger.error("{}", S.get("loadNeedsFileError"));
           return null;
         }
+      } else if (arg.equals("-vcd")) {
+        if (i + 1 < args.length) {
+          i++;
+          ret.vcdFile = new File(args[i]);
+        } else {
+          logger.error("{}", S.get("vcdNeedsFileError"));
+          return null;
+        }
+      } else if (arg.equals("-rewind")) {
+        if (i + 1 < args.length) {
+          i++;
+          try {
+            ret.rewindTick = Integer.parseInt(args[i]);
+          } catch (NumberFormatException e) {
+            ret.rewindTick = -1;
+          }
+        }
+        if (ret.rewindTick < 0) {
+          logger.error("{}", S.get("rewindNeedsTickError"));
+          return null;
+        }
+      } else if (arg.equals("-save")) {
+        if (i + 1 < args.length) {
+          i++;
+          ret.saveFile = new File(args[i]);
+        } else {
+          logger.error("{}", S.get("saveNeedsFileError"));
+          return null;
+        }
+      } else if (arg.equals("-junit")) {
+        if (i + 1 < args.length) {
+          i++;
+          ret.junitFile = new File(args[i]);
+        } else {
+          logger.error("{}", S.get("junitNeedsFileError"));
+          return null;
+        }
+      } else if (arg.equals("-server")) {
+        if (i + 1 < args.length) {
+          i++;
+          if (args[i].equals("stdin")) {
+            ret.serverPort = 0;
+          } else {
+            try {
+              ret.serverPort = Integer.parseInt(args[i]);
+            } catch (NumberFormatException e) {
+              ret.serverPort = -1;
+            }
+          }
+        }
+        if (ret.serverPort < 0 || ret.serverPort > 65535) {
+          logger.error("{}", S.get("serverNeedsPortError"));
+          return null;
+        }
+      } else if (arg.equals("-threads")) {
+        if (i + 1 < args.length) {
+          i++;
+          try {
+            ret.testThreads = Integer.parseInt(args[i]);
+          } catch (NumberFormatException e) {
+            ret.testThreads = 0;
+          }
+        } else {
+          ret.testThreads = 0;
+        }
+        if (ret.testThreads <= 0) {
+          logger.error("{}", S.get("threadsNeedsCountError"));
+          return null;
+        }
       } else if (arg.equals("-empty")) {
         if (ret.templFile != null || ret.templEmpty || ret.templPlain) {
           logger.error("{}", S.get("argOneTemplateError"));
@@ -457,7 +528,11 @@ public class Startup implements AWTEventListener {
     if (ret.exitAfterStartup && ret.filesToOpen.isEmpty()) {
       printUsage();
     }
-    if (ret.isTty && ret.filesToOpen.isEmpty()) {
+    if (ret.junitFile != null && ret.testVector == null) {
+      logger.error("{}", S.get("junitNeedsTestVectorError"));
+      return null;
+    }
+    if (ret.isTty && ret.filesToOpen.isEmpty() && ret.serverPort < 0) {
       logger.error("{}", S.get("ttyNeedsFileError"));
       return null;
     }
@@ -465,6 +540,14 @@ public class Startup implements AWTEventListener {
       logger.error("{}", S.get("loadNeedsTtyError"));
       return null;
     }
+    if (ret.rewindTick >= 0 && !ret.isTty) {
+      logger.error("{}", S.get("rewindNeedsTtyError"));
+      return null;
+    }
+    if (ret.vcdFile != null && !ret.isTty) {
+      logger.error("{}", S.get("vcdNeedsTtyError"));
+      return null;
+    }
 
     return ret;
   }
@@ -486,9 +569,15 @@ public class Startup implements AWTEventListener {
     System.err.println("   " + S.get("argLocaleOption")); // OK
     System.err.println("   " + S.get("argNoSplashOption")); // OK
     System.err.println("   " + S.get("argPlainOption")); // OK
+    System.err.println("   " + S.get("argRewindOption")); // OK
+    System.err.println("   " + S.get("argSaveOption")); // OK
+    System.err.println("   " + S.get("argJUnitOption")); // OK
+    System.err.println("   " + S.get("argServerOption")); // OK
+    System.err.println("   " + S.get("argThreadsOption")); // OK
     System.err.println("   " + S.get("argSubOption")); // OK
     System.err.println("   " + S.get("argTemplateOption")); // OK
     System.err.println("   " + S.get("argTtyOption")); // OK
+    System.err.println("   " + S.get("argVcdOption")); // OK
     System.err.println("   " + S.get("argQuestaOption")); // OK
     System.err.println("   " + S.get("argVersionOption")); // OK
     System.err.println("   " + S.get("argTestCircGen")); // OK
@@ -534,6 +623,12 @@ public class Startup implements AWTEventListener {
   private boolean exitAfterStartup = false;
   private boolean showSplash;
   private File loadFile;
+  private File vcdFile;
+  private File saveFile;
+  private int rewindTick = -1;
+  private File junitFile;
+  private int serverPort = -1; // 0 to read the jobs from standard input
+  private int testThreads = Runtime.getRuntime().availableProcessors();
   private HashMap<File, File> substitutions = new HashMap<File, File>();
   private int ttyFormat = 0;
   // from other sources
@@ -827,6 +922,34 @@ public class Startup implements AWTEventListener {
     return loadFile;
   }
 
+  File getVcdFile() {
+    return vcdFile;
+  }
+
+  File getSaveFile() {
+    return saveFile;
+  }
+
+  int getRewindTick() {
+    return rewindTick;
+  }
+
+  File getJUnitFile() {
+    return junitFile;
+  }
+
+  int getServerPort() {
+    return serverPort;
+  }
+
+  int getTestThreads() {
+    return testThreads;
+  }
+
+  String getTestVector() {
+    return testVector;
+  }
+
   String getCircuitToTest() {
     return circuitToTest;
   }
@@ -33,9 +33,12 @@ import static com.cburch.logisim.gui.Strings.S;
 import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.BatchSimulator;
+import com.cburch.logisim.circuit.Checkpoints;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
@@ -44,6 +47,9 @@ import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
 import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.gui.log.VcdWriter;
+import com.cburch.logisim.gui.test.TestRunner;
+import com.cburch.logisim.gui.test.TestServer;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
@@ -60,6 +66,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
@@ -238,11 +245,13 @@ public class TtyInterface {
         }
         System.out.println(); // OK
       }
+      // one write per row, tables can have millions of them
+      StringBuilder line = new StringBuilder();
       for (int i = 0; i < curOutputs.size(); i++) {
-        if (i != 0) System.out.print(sep); // OK
-        System.out.printf(formats.get(i), valueFormat(curOutputs.get(i), format)); // OK
+        if (i != 0) line.append(sep);
+        line.append(String.format(formats.get(i), valueFormat(curOutputs.get(i), format)));
       }
-      System.out.println(); // OK
+      System.out.println(line); // OK
     }
     return shouldPrint;
   }
@@ -311,7 +320,43 @@ public class TtyInterface {
     return found;
   }
 
+  /** Adds every pin in the circuit and its subcircuits to the signals to be dumped. */
+  private static void collectPins(
+      CircuitState circState, Component[] path, ArrayList<VcdWriter.Signal> signals) {
+    for (Component comp : circState.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Pin) {
+        signals.add(new VcdWriter.Signal(path, comp, null));
+      } else if (comp.getFactory() instanceof SubcircuitFactory) {
+        SubcircuitFactory factory = (SubcircuitFactory) comp.getFactory();
+        Component[] subPath = Arrays.copyOf(path, path.length + 1);
+        subPath[path.length] = comp;
+        collectPins(factory.getSubstate(circState, comp), subPath, signals);
+      }
+    }
+  }
+
   public static void run(Startup args) {
+    if (args.getServerPort() >= 0) {
+      TestServer server = new TestServer(args.getTestThreads(), args.getSubstitutions());
+      try {
+        if (args.getServerPort() == 0) server.serveStdin();
+        else server.serveSocket(args.getServerPort());
+      } catch (IOException e) {
+        logger.error("{}: {}", S.get("serverIoError"), e.toString());
+        System.exit(-1);
+      }
+      System.exit(0);
+    }
+    if (args.getJUnitFile() != null) {
+      System.exit(
+          TestRunner.run(
+              args.getFilesToOpen(),
+              args.getCircuitToTest(),
+              args.getTestVector(),
+              args.getSubstitutions(),
+              args.getJUnitFile(),
+              args.getTestThreads()));
+    }
     File fileToOpen = args.getFilesToOpen().get(0);
     Loader loader = new Loader(null);
     LogisimFile file;
@@ -333,6 +378,13 @@ public class TtyInterface {
       format &= ~FORMAT_STATISTICS;
       displayStatistics(file);
     }
+    if (args.getSaveFile() != null) {
+      // the format follows the extension, so this converts between .circ and snapshots
+      if (!loader.save(file, args.getSaveFile())) {
+        logger.error("{}", S.fmt("ttySaveError", args.getSaveFile().getName()));
+        System.exit(-1);
+      }
+    }
     if (format == 0) { // no simulation remaining to perform, so just exit
       System.exit(0);
     }
@@ -381,8 +433,36 @@ public class TtyInterface {
         System.exit(-1);
       }
     }
+    VcdWriter vcd = null;
+    if (args.getVcdFile() != null) {
+      ArrayList<VcdWriter.Signal> signals = new ArrayList<VcdWriter.Signal>();
+      collectPins(circState, new Component[0], signals);
+      try {
+        vcd = new VcdWriter(args.getVcdFile(), circState, signals);
+      } catch (IOException e) {
+        logger.error("{}: {}", S.get("vcdIoError"), e.toString());
+        System.exit(-1);
+      }
+      vcd.start();
+      circState.getPropagator().setStepListener(vcd);
+    }
     int ttyFormat = args.getTtyFormat();
-    int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+    int rewindTick = args.getRewindTick();
+    Checkpoints checkpoints = rewindTick < 0 ? null : new Checkpoints();
+    int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat, checkpoints, rewindTick);
+    if (checkpoints != null) {
+      int rewindCode = displayRewound(checkpoints, rewindTick, outputPins, haltPin);
+      if (simCode == 0) simCode = rewindCode;
+    }
+    if (vcd != null) {
+      circState.getPropagator().setStepListener(null);
+      try {
+        vcd.close();
+      } catch (IOException e) {
+        logger.error("{}: {}", S.get("vcdIoError"), e.toString());
+        if (simCode == 0) simCode = -1;
+      }
+    }
     System.exit(simCode);
   }
 
@@ -436,22 +516,37 @@ public class TtyInterface {
     int rowCount = 1 << inputCount;
 
     boolean needTableHeader = true;
+    BatchSimulator batch = BatchSimulator.create(proj, circuit);
+    if (batch != null) {
+      // a combinational circuit is evaluated without a circuit state, many rows at a time
+      Instance[] pins = pinList.toArray(new Instance[pinList.size()]);
+      for (int start = 0; start < rowCount; start += TABLE_BATCH_ROWS) {
+        ArrayList<Value[]> rows = new ArrayList<>();
+        for (int i = start; i < Math.min(rowCount, start + TABLE_BATCH_ROWS); i++) {
+          Value[] row = new Value[pins.length];
+          Value[] in = getTableInputs(inputPins, i, inputCount);
+          System.arraycopy(in, 0, row, 0, in.length);
+          rows.add(row);
+        }
+        for (Value[] row : batch.simulate(pins, rows)) {
+          ArrayList<Value> currValues = new ArrayList<>(Arrays.asList(row));
+          displayTableRow(needTableHeader, null, currValues, headers, formats, format);
+          needTableHeader = false;
+        }
+      }
+      return 0;
+    }
+
     HashMap<Instance, Value> valueMap = new HashMap<>();
     for (int i = 0; i < rowCount; i++) {
       valueMap.clear();
       CircuitState circuitState = new CircuitState(proj, circuit);
-      int incol = 0;
+      Value[] in = getTableInputs(inputPins, i, inputCount);
       for (int j = 0; j < inputPins.size(); j++) {
         Instance pin = inputPins.get(j);
-        int width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
-        Value v[] = new Value[width];
-        for (int b = width - 1; b >= 0; b--) {
-          boolean value = TruthTable.isInputSet(i, incol++, inputCount);
-          v[b] = value ? Value.TRUE : Value.FALSE;
-        }
         InstanceState pinState = circuitState.getInstanceState(pin);
-        Pin.FACTORY.setValue(pinState, Value.create(v));
-        valueMap.put(pin, Value.create(v));
+        Pin.FACTORY.setValue(pinState, in[j]);
+        valueMap.put(pin, in[j]);
       }
 
       Propagator prop = circuitState.getPropagator();
@@ -484,8 +579,47 @@ public class TtyInterface {
     return 0;
   }
 
+  private static Value[] getTableInputs(ArrayList<Instance> inputPins, int row, int inputCount) {
+    Value[] ret = new Value[inputPins.size()];
+    int incol = 0;
+    for (int j = 0; j < ret.length; j++) {
+      int width = inputPins.get(j).getAttributeValue(StdAttr.WIDTH).getWidth();
+      Value v[] = new Value[width];
+      for (int b = width - 1; b >= 0; b--) {
+        boolean value = TruthTable.isInputSet(row, incol++, inputCount);
+        v[b] = value ? Value.TRUE : Value.FALSE;
+      }
+      ret[j] = Value.create(v);
+    }
+    return ret;
+  }
+
+  /**
+   * Rewinds to a tick of the run just completed and prints the output pins as they were after it,
+   * as a table row.
+   */
+  private static int displayRewound(
+      Checkpoints checkpoints, int tick, ArrayList<Instance> outputPins, Instance haltPin) {
+    CircuitState past = checkpoints.rewind(tick);
+    if (past == null) {
+      logger.error("{}", S.fmt("rewindNoCheckpointError", Integer.toString(tick)));
+      return -1;
+    }
+    ArrayList<Value> outputs = new ArrayList<Value>();
+    for (Instance pin : outputPins) {
+      if (pin != haltPin) outputs.add(Pin.FACTORY.getValue(past.getInstanceState(pin)));
+    }
+    displayTableRow(null, outputs);
+    return 0;
+  }
+
   private static int runSimulation(
-      CircuitState circState, ArrayList<Instance> outputPins, Instance haltPin, int format) {
+      CircuitState circState,
+      ArrayList<Instance> outputPins,
+      Instance haltPin,
+      int format,
+      Checkpoints checkpoints,
+      int rewindTick) {
     boolean showTable = (format & FORMAT_TABLE) != 0;
     boolean showSpeed = (format & FORMAT_SPEED) != 0;
     boolean showTty = (format & FORMAT_TTY) != 0;
@@ -514,6 +648,8 @@ public class TtyInterface {
     boolean halted = false;
     ArrayList<Value> prevOutputs = null;
     Propagator prop = circState.getPropagator();
+    // checkpoints are only needed up to the tick to rewind to
+    if (checkpoints != null) checkpoints.ticked(circState);
     while (true) {
       ArrayList<Value> curOutputs = new ArrayList<Value>();
       for (Instance pin : outputPins) {
@@ -549,6 +685,7 @@ public class TtyInterface {
       tickCount++;
       prop.tick();
       prop.propagate();
+      if (checkpoints != null && prop.getTickCount() <= rewindTick) checkpoints.ticked(circState);
     }
     long elapse = System.currentTimeMillis() - start;
     if (showTty) ensureLineTerminated();
@@ -590,5 +727,8 @@ public class TtyInterface {
 
   public static final int FORMAT_TABLE_HEX = 256;
 
+  // rows of a truth table simulated before they are printed
+  private static final int TABLE_BATCH_ROWS = 64 * BatchSimulator.LANES;
+
   private static boolean lastIsNewline = true;
 }
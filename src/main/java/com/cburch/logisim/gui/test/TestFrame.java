@@ -168,6 +168,8 @@ public class TestFrame extends LFrame {
       finished = numPass + numFail;
     }
 
+    public void simulatorReset(SimulatorEvent e) {}
+
     public void tickCompleted(SimulatorEvent e) {}
 
     public void vectorChanged() {}
@@ -0,0 +1,325 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.test;
+
+import static com.cburch.logisim.gui.Strings.S;
+
+import com.cburch.logisim.circuit.BatchSimulator;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.FailException;
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.util.StringUtil;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Runs a test vector against many circuit files without a graphical interface, as needed for
+ * grading. The rows of the vector are shared out among worker threads, each of which simulates a
+ * state of its own of the loaded circuit, and the results are written in the JUnit XML format, with
+ * a test suite for each file and a test case for each row.
+ */
+public class TestRunner {
+  /** Result of running the vector against one file. */
+  public static class Suite {
+    private final String name;
+    private final int rows;
+    private final TestException[] failures;
+    private Exception error;
+    private long nanos;
+
+    Suite(String name, int rows) {
+      this.name = name;
+      this.rows = rows;
+      this.failures = new TestException[rows];
+    }
+
+    /** Returns the error that kept the vector from running, or null if it ran. */
+    public Exception getError() {
+      return error;
+    }
+
+    /** Returns why the row failed, or null if it passed. */
+    public TestException getFailure(int row) {
+      return failures[row];
+    }
+
+    public int getFailureCount() {
+      int ret = 0;
+      for (TestException e : failures) if (e != null) ret++;
+      return ret;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getRowCount() {
+      return rows;
+    }
+
+    /** Returns the time taken to load the file and run the vector, in nanoseconds. */
+    public long getTime() {
+      return nanos;
+    }
+  }
+
+  // rows are handed out to the workers in chunks that fill whole batches of the batch simulator
+  private static final int CHUNK = 4 * BatchSimulator.LANES;
+
+  // Loading goes through LibraryManager.instance, which is not thread-safe, and files that use
+  // the same library get the same loaded copy of it, whose circuits the first propagation of each
+  // state registers with. Runners on several threads therefore load and set up one file at a
+  // time; only the rows run concurrently.
+  private static final Object setupLock = new Object();
+
+  /**
+   * Runs the vector against the named circuit (or the main circuit) of each of the files, writes
+   * the report and returns 0 if every row of every file passed, 1 otherwise.
+   */
+  public static int run(
+      List<File> files,
+      String circuitName,
+      String vectorName,
+      Map<File, File> substitutions,
+      File report,
+      int threads) {
+    TestVector vec;
+    try {
+      vec = new TestVector(vectorName);
+    } catch (Exception e) {
+      System.err.println(StringUtil.format(S.get("testLoadingFailed"), e.getMessage()));
+      return -1;
+    }
+    TestRunner runner = new TestRunner(threads);
+    ArrayList<Suite> suites = new ArrayList<Suite>();
+    int ret = 0;
+    try {
+      for (File file : files) {
+        Suite suite = runner.test(file, substitutions, circuitName, vec);
+        suites.add(suite);
+        if (suite.getError() != null) {
+          System.err.println(file.getName() + ": " + suite.getError().getMessage());
+          ret = 1;
+        } else {
+          int failed = suite.getFailureCount();
+          System.out.println(
+              file.getName()
+                  + ": "
+                  + StringUtil.format(
+                      S.get("testResults"),
+                      Integer.toString(suite.getRowCount() - failed),
+                      Integer.toString(failed)));
+          if (failed > 0) ret = 1;
+        }
+      }
+    } finally {
+      runner.shutdown();
+    }
+    try {
+      writeReport(suites, report);
+    } catch (Exception e) {
+      System.err.println(StringUtil.format(S.get("testReportFailed"), e.getMessage()));
+      return -1;
+    }
+    return ret;
+  }
+
+  private final int threads;
+  private final ExecutorService pool; // null if the rows are run on the calling thread
+
+  public TestRunner(int threads) {
+    this.threads = threads;
+    this.pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+  }
+
+  public void shutdown() {
+    if (pool != null) pool.shutdown();
+  }
+
+  /** Loads the file and runs all rows of the vector against the named circuit. */
+  public Suite test(File file, Map<File, File> substitutions, String circuitName, TestVector vec) {
+    final Suite suite = new Suite(file.getName(), vec.data.size());
+    long start = System.nanoTime();
+    try {
+      int workers = Math.max(1, Math.min(threads, (suite.rows + CHUNK - 1) / CHUNK));
+      if (pool == null) workers = 1;
+      ArrayList<TestThread> testers = new ArrayList<TestThread>();
+      synchronized (setupLock) {
+        LogisimFile logisimFile = new Loader(null).openLogisimFile(file, substitutions);
+        Project proj = new Project(logisimFile);
+        Circuit circuit =
+            circuitName == null
+                ? logisimFile.getMainCircuit()
+                : logisimFile.getCircuit(circuitName);
+        if (circuit == null) throw new TestException("circuit '" + circuitName + "' not found");
+        for (int i = 0; i < workers; i++) {
+          CircuitState state = new CircuitState(proj, circuit);
+          // the first propagation creates the states of subcircuits, which register with their
+          // circuits
+          state.getPropagator().propagate();
+          testers.add(new TestThread(proj, circuit, vec, state));
+        }
+      }
+
+      ArrayList<Future<?>> running = new ArrayList<Future<?>>();
+      final AtomicInteger next = new AtomicInteger();
+      for (final TestThread tester : testers) {
+        Runnable worker =
+            () -> {
+              int first;
+              while ((first = next.getAndAdd(CHUNK)) < suite.rows) {
+                int last = Math.min(suite.rows, first + CHUNK);
+                for (int row = first; row < last; row++) {
+                  try {
+                    tester.test(row);
+                  } catch (TestException e) {
+                    suite.failures[row] = e;
+                  }
+                }
+              }
+            };
+        if (pool == null) worker.run();
+        else running.add(pool.submit(worker));
+      }
+      for (Future<?> worker : running) {
+        try {
+          worker.get();
+        } catch (ExecutionException e) {
+          if (suite.error == null) suite.error = e;
+        }
+      }
+    } catch (LoadFailedException e) {
+      suite.error = e;
+    } catch (TestException e) {
+      suite.error = e;
+    } catch (InterruptedException e) {
+      suite.error = e;
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      suite.error = e;
+    }
+    suite.nanos = System.nanoTime() - start;
+    return suite;
+  }
+
+  public static void writeReport(List<Suite> suites, File report)
+      throws ParserConfigurationException, TransformerException {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    Element root = doc.createElement("testsuites");
+    doc.appendChild(root);
+    int tests = 0, failures = 0, errors = 0;
+    long nanos = 0;
+    for (Suite suite : suites) {
+      Element elt = doc.createElement("testsuite");
+      elt.setAttribute("name", suite.name);
+      elt.setAttribute("time", formatTime(suite.nanos));
+      root.appendChild(elt);
+      nanos += suite.nanos;
+      if (suite.error != null) {
+        Element test = doc.createElement("testcase");
+        test.setAttribute("classname", suite.name);
+        test.setAttribute("name", "load");
+        Element error = doc.createElement("error");
+        error.setAttribute("message", String.valueOf(suite.error.getMessage()));
+        error.setAttribute("type", suite.error.getClass().getName());
+        test.appendChild(error);
+        elt.appendChild(test);
+        elt.setAttribute("tests", "1");
+        elt.setAttribute("failures", "0");
+        elt.setAttribute("errors", "1");
+        tests++;
+        errors++;
+        continue;
+      }
+      int failed = 0;
+      for (int row = 0; row < suite.rows; row++) {
+        Element test = doc.createElement("testcase");
+        test.setAttribute("classname", suite.name);
+        test.setAttribute("name", "vector " + (row + 1));
+        TestException e = suite.failures[row];
+        if (e != null) {
+          Element failure = doc.createElement("failure");
+          failure.setAttribute("message", String.valueOf(e.getMessage()));
+          if (e instanceof FailException) {
+            StringBuilder text = new StringBuilder();
+            for (FailException e1 : ((FailException) e).getAll()) {
+              text.append(e1.getMessage()).append('\n');
+            }
+            failure.setTextContent(text.toString());
+          }
+          test.appendChild(failure);
+          failed++;
+        }
+        elt.appendChild(test);
+      }
+      elt.setAttribute("tests", Integer.toString(suite.rows));
+      elt.setAttribute("failures", Integer.toString(failed));
+      elt.setAttribute("errors", "0");
+      tests += suite.rows;
+      failures += failed;
+    }
+    root.setAttribute("tests", Integer.toString(tests));
+    root.setAttribute("failures", Integer.toString(failures));
+    root.setAttribute("errors", Integer.toString(errors));
+    root.setAttribute("time", formatTime(nanos));
+
+    Transformer tf = TransformerFactory.newInstance().newTransformer();
+    tf.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+    tf.setOutputProperty(OutputKeys.INDENT, "yes");
+    tf.transform(new DOMSource(doc), new StreamResult(report));
+  }
+
+  private static String formatTime(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1e9);
+  }
+}
@@ -0,0 +1,238 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.gui.test;
+
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.util.UniquelyNamedThread;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs test vectors for an autograder from a single long-running process, so that starting the
+ * JVM and setting up the application is paid for once rather than for every circuit checked.
+ * Jobs arrive one per line, on standard input or over connections to a port of the loopback
+ * interface, with their fields separated by tabs:
+ *
+ * <pre>
+ * id  test  circuit-file  vector-file  [circuit-name]
+ * </pre>
+ *
+ * <p>Jobs run concurrently on a fixed number of threads, though their circuit files are loaded one
+ * at a time (see {@link TestRunner}). As each job finishes, a line holding a JSON object with its
+ * id and results is written back, so that replies may come out of order. A line reading
+ * <code>quit</code> ends the connection, or the server when read from standard input. Parsed test
+ * vectors are kept until their file changes, as they are usually shared by many jobs.
+ */
+public class TestServer {
+  private static class CachedVector {
+    private final long modified;
+    private final TestVector vector;
+
+    CachedVector(long modified, TestVector vector) {
+      this.modified = modified;
+      this.vector = vector;
+    }
+  }
+
+  static final Logger logger = LoggerFactory.getLogger(TestServer.class);
+
+  private final ExecutorService pool;
+  private final TestRunner runner = new TestRunner(1); // each job runs on a single pool thread
+  private final Map<File, File> substitutions;
+  private final HashMap<String, CachedVector> vectors = new HashMap<String, CachedVector>();
+
+  public TestServer(int threads, Map<File, File> substitutions) {
+    this.pool = Executors.newFixedThreadPool(threads);
+    this.substitutions = substitutions;
+  }
+
+  /** Serves the jobs read from standard input, and returns once they have all finished. */
+  public void serveStdin() throws IOException {
+    serve(
+        new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+        new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+    pool.shutdown();
+  }
+
+  /** Accepts connections on the given port of the loopback interface; never returns. */
+  public void serveSocket(int port) throws IOException {
+    ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    logger.info("Listening for test jobs on {}", server.getLocalSocketAddress());
+    while (true) {
+      final Socket socket = server.accept();
+      new UniquelyNamedThread(
+              () -> {
+                try {
+                  serve(
+                      new BufferedReader(
+                          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)),
+                      new PrintWriter(
+                          new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                  logger.warn("Test job connection failed: {}", e.getMessage());
+                } finally {
+                  try {
+                    socket.close();
+                  } catch (IOException e) {
+                  }
+                }
+              },
+              "TestServer-Connection")
+          .start();
+    }
+  }
+
+  private void serve(BufferedReader in, final PrintWriter out) throws IOException {
+    ArrayList<Future<?>> jobs = new ArrayList<Future<?>>();
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.trim().isEmpty()) continue;
+      if (line.trim().equals("quit")) break;
+      final String[] fields = line.split("\t");
+      jobs.removeIf(job -> job.isDone());
+      jobs.add(
+          pool.submit(
+              () -> {
+                String reply = run(fields);
+                synchronized (out) {
+                  out.println(reply);
+                  out.flush();
+                }
+              }));
+    }
+    // the replies of the jobs still running have to go out before the connection is closed
+    for (Future<?> job : jobs) {
+      try {
+        job.get();
+      } catch (ExecutionException e) {
+        logger.error("Test job failed: {}", e.getCause().toString());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /** Runs a job and returns its reply; whatever goes wrong, the reply is an error for the job. */
+  private String run(String[] fields) {
+    try {
+      return runJob(fields);
+    } catch (Exception e) {
+      logger.error("Test job {} failed: {}", fields[0], e.toString());
+      return error(fields[0], e.toString());
+    }
+  }
+
+  private String runJob(String[] fields) {
+    String id = fields[0];
+    if (fields.length < 4 || fields.length > 5 || !fields[1].equals("test")) {
+      return error(id, "expected: id, test, circuit file, vector file [, circuit name]");
+    }
+    TestVector vec;
+    try {
+      vec = getVector(fields[3]);
+    } catch (Exception e) {
+      return error(id, "cannot load test vector: " + e.getMessage());
+    }
+    String circuitName = fields.length > 4 ? fields[4] : null;
+    TestRunner.Suite suite = runner.test(new File(fields[2]), substitutions, circuitName, vec);
+    if (suite.getError() != null) return error(id, suite.getError().getMessage());
+
+    int failed = suite.getFailureCount();
+    StringBuilder ret = new StringBuilder();
+    ret.append("{\"id\":").append(quote(id));
+    ret.append(",\"status\":").append(quote(failed == 0 ? "passed" : "failed"));
+    ret.append(",\"tests\":").append(suite.getRowCount());
+    ret.append(",\"failures\":").append(failed);
+    ret.append(",\"time\":").append(String.format(Locale.ROOT, "%.3f", suite.getTime() / 1e9));
+    ret.append(",\"failed\":[");
+    String sep = "";
+    for (int row = 0; row < suite.getRowCount(); row++) {
+      TestException e = suite.getFailure(row);
+      if (e == null) continue;
+      ret.append(sep).append("{\"vector\":").append(row + 1);
+      ret.append(",\"message\":").append(quote(String.valueOf(e.getMessage()))).append('}');
+      sep = ",";
+    }
+    ret.append("]}");
+    return ret.toString();
+  }
+
+  private TestVector getVector(String name) throws IOException {
+    File file = new File(name).getCanonicalFile();
+    long modified = file.lastModified();
+    synchronized (vectors) {
+      CachedVector cached = vectors.get(file.getPath());
+      if (cached != null && cached.modified == modified) return cached.vector;
+    }
+    TestVector vec = new TestVector(file.getPath());
+    synchronized (vectors) {
+      vectors.put(file.getPath(), new CachedVector(modified, vec));
+    }
+    return vec;
+  }
+
+  private static String error(String id, String message) {
+    return "{\"id\":"
+        + quote(id)
+        + ",\"status\":\"error\",\"message\":"
+        + quote(String.valueOf(message))
+        + "}";
+  }
+
+  private static String quote(String s) {
+    StringBuilder ret = new StringBuilder("\"");
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') ret.append('\\').append(c);
+      else if (c < 0x20) ret.append(String.format("\\u%04x", (int) c));
+      else ret.append(c);
+    }
+    return ret.append('"').toString();
+  }
+}
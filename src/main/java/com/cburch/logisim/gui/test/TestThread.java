@@ -30,6 +30,7 @@ package com.cburch.logisim.gui.test;
 
 import static com.cburch.logisim.gui.Strings.S;
 
+import com.cburch.logisim.circuit.BatchSimulator;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
@@ -38,6 +39,7 @@ import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.FailException;
 import com.cburch.logisim.data.TestException;
 import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
@@ -45,6 +47,7 @@ import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.UniquelyNamedThread;
+import java.util.List;
 
 public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
@@ -99,6 +102,10 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
   private Instance[] pin;
   private Project project;
   private Circuit circuit;
+  private CircuitState state; // null if the state of the project is used
+  private BatchSimulator batch; // null if the circuit has to be simulated event by event
+  private List<Value[]> batchResults;
+  private int batchStart;
 
   private TestVector vector;
   private Model model;
@@ -120,10 +127,17 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
   // used only for automated testing via command line arguments
   private TestThread(Project proj, Circuit circuit, TestVector vec) throws TestException {
+    this(proj, circuit, vec, null);
+  }
+
+  // used by TestRunner, which gives each of its workers a state of its own
+  TestThread(Project proj, Circuit circuit, TestVector vec, CircuitState state)
+      throws TestException {
     super("TestThread-Project");
     this.project = proj;
     this.circuit = circuit;
     this.vector = vec;
+    this.state = state;
 
     matchPins();
   }
@@ -141,7 +155,8 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
   void matchPins() throws TestException {
     int n = vector.columnName.length;
     pin = new Instance[n];
-    CircuitState state = new CircuitState(this.project, this.circuit);
+    CircuitState state =
+        this.state != null ? this.state : new CircuitState(this.project, this.circuit);
 
     for (int i = 0; i < n; i++) {
       String columnName = vector.columnName[i];
@@ -165,6 +180,7 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
       if (pin[i] == null)
         throw new TestException("test vector column '" + columnName + "' has no matching pin");
     }
+    batch = BatchSimulator.create(project, circuit);
   }
 
   public void run() {
@@ -194,7 +210,18 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     this.paused = paused;
   }
 
-  private void test(int idx) throws TestException {
-    circuit.doTestVector(project, pin, vector.data.get(idx));
+  void test(int idx) throws TestException {
+    if (batch == null) {
+      if (state == null) circuit.doTestVector(project, pin, vector.data.get(idx));
+      else circuit.doTestVector(state, pin, vector.data.get(idx));
+      return;
+    }
+    // combinational circuits are simulated for a batch of vectors at a time
+    if (batchResults == null || idx < batchStart || idx >= batchStart + batchResults.size()) {
+      int end = Math.min(vector.data.size(), idx + BatchSimulator.LANES);
+      batchStart = idx;
+      batchResults = batch.simulate(pin, vector.data.subList(idx, end));
+    }
+    Circuit.checkTestVector(pin, vector.data.get(idx), batchResults.get(idx - batchStart));
   }
 }
@@ -427,7 +427,10 @@ public class InstanceComponent implements Component, AttributeListener, ToolTipM
 
   void recomputeBounds() {
     Location p = loc;
+    Bounds old = bounds;
     bounds = factory.getOffsetBounds(attrs).translate(p.getX(), p.getY());
+    // the circuit files its components by their bounds
+    if (old != null && !old.equals(bounds)) fireInvalidated();
   }
 
   public void removeComponentListener(ComponentListener l) {
@@ -456,6 +459,7 @@ public class InstanceComponent implements Component, AttributeListener, ToolTipM
       textField = field;
     } else {
       field.update(labelAttr, fontAttr, x, y, halign, valign);
+      fireInvalidated();
     }
   }
 
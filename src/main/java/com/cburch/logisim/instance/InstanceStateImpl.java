@@ -37,6 +37,7 @@ import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.proj.Project;
+import java.util.concurrent.ForkJoinTask;
 
 public class InstanceStateImpl implements InstanceState {
   private CircuitState circuitState;
@@ -46,7 +47,9 @@ public class InstanceStateImpl implements InstanceState {
     this.circuitState = circuitState;
     this.component = component;
 
-    if (component instanceof InstanceComponent) {
+    // states made by parallel propagation are not published, since the component is
+    // shared by all its circuit states and is read back on the simulator thread
+    if (component instanceof InstanceComponent && !ForkJoinTask.inForkJoinPool()) {
       ((InstanceComponent) component).setInstanceStateImpl(this);
     }
   }
@@ -523,6 +523,10 @@ public class AppPreferences {
   public static final String TOOLBAR_HIDDEN = "hidden";
   public static final PrefMonitor<Boolean> SHOW_TICK_RATE =
       create(new PrefMonitorBoolean("showTickRate", false));
+  public static final PrefMonitor<Boolean> SHOW_FRAME_TIME =
+      create(new PrefMonitorBoolean("showFrameTime", false));
+  public static final PrefMonitor<Boolean> INCREMENTAL_PAINT =
+      create(new PrefMonitorBoolean("incrementalPaint", false));
   public static final PrefMonitor<String> TOOLBAR_PLACEMENT =
       create(
           new PrefMonitorStringOpts(
@@ -730,6 +734,23 @@ public class AppPreferences {
   public static final PrefMonitor<Boolean> AntiAliassing =
       create(new PrefMonitorBoolean("AntiAliassing", true));
 
+  public static final String SIM_ENGINE_CLASSIC = "classic";
+
+  public static final String SIM_ENGINE_WHEEL = "wheel";
+
+  public static final PrefMonitor<String> SIM_ENGINE =
+      create(
+          new PrefMonitorStringOpts(
+              "simEngine",
+              new String[] {SIM_ENGINE_CLASSIC, SIM_ENGINE_WHEEL},
+              SIM_ENGINE_CLASSIC));
+
+  public static final PrefMonitor<Boolean> SIM_PARALLEL =
+      create(new PrefMonitorBoolean("simParallel", false));
+
+  public static final PrefMonitor<Boolean> SIM_COMPILED =
+      create(new PrefMonitorBoolean("simCompiled", false));
+
   // Third party softwares preferences
   public static final PrefMonitor<String> QUESTA_PATH =
       create(new PrefMonitorString("questaPath", ""));
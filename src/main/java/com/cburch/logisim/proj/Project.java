@@ -321,6 +321,7 @@ public class Project {
     circuitState = null;
     hdlModel = hdl;
     if (old != null) {
+      old.getRootState().removeObserver(old.getPath());
       simulator.setCircuitState(null);
     }
     Object oldActive = old;
@@ -365,6 +366,13 @@ public class Project {
     return logFrame;
   }
 
+  /** Disposes of the log window, if one was opened, along with the logs it keeps. */
+  public void disposeLogFrame() {
+    if (logFrame == null) return;
+    logFrame.dispose();
+    logFrame = null;
+  }
+
   public LogisimFile getLogisimFile() {
     return file;
   }
@@ -505,11 +513,16 @@ public class Project {
       }
     }
     hdlModel = null;
+    if (old != null) old.getRootState().removeObserver(old.getPath());
     circuitState = value;
     if (circuitState.getParentState() == null) {
       recentRootState.put(newCircuit, circuitState);
     }
     simulator.setCircuitState(circuitState);
+    if (circuitState.getParentState() != null) {
+      circuitState.getRootState().addObserver(circuitState.getPath());
+      simulator.requestPropagate();
+    }
     if (circuitChanged) {
       fireEvent(ProjectEvent.ACTION_SET_CURRENT, oldActive, newCircuit);
       if (newCircuit != null) {
@@ -524,6 +537,18 @@ public class Project {
     fireEvent(ProjectEvent.ACTION_SET_STATE, old, circuitState);
   }
 
+  /**
+   * Makes <code>state</code>, a root state such as one restored from a checkpoint, current in
+   * place of the root state <code>old</code> of the same circuit.
+   */
+  public void replaceRootState(CircuitState old, CircuitState state) {
+    int index = allRootStates.indexOf(old);
+    if (index >= 0) allRootStates.set(index, state);
+    else allRootStates.add(state);
+    recentRootState.put(state.getCircuit(), state);
+    setCircuitState(state);
+  }
+
   public void setCurrentCircuit(Circuit circuit) {
     CircuitState circState = recentRootState.get(circuit);
     if (circState == null) {
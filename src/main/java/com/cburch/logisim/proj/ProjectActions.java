@@ -464,7 +464,8 @@ public class ProjectActions {
 
     File f = chooser.getSelectedFile();
     String circExt = Loader.LOGISIM_EXTENSION;
-    if (!f.getName().endsWith(circExt)) {
+    if (!f.getName().endsWith(circExt)
+        && !f.getName().endsWith(Loader.LOGISIM_SNAPSHOT_EXTENSION)) {
       String old = f.getName();
       int ext0 = old.lastIndexOf('.');
       if (ext0 < 0 || !Pattern.matches("\\.\\p{L}{2,}[0-9]?", old.substring(ext0))) {
@@ -163,6 +163,7 @@ public class Projects {
     frame.removeWindowListener(listener);
     openProjects.remove(proj);
     proj.getSimulator().shutDown();
+    proj.disposeLogFrame();
     propertySupport.firePropertyChange(projectListProperty, null, null);
   }
 
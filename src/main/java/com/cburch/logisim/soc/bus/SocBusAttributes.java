@@ -37,6 +37,7 @@ import java.util.List;
 
 import com.cburch.logisim.data.AbstractAttributeSet;
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.instance.StdAttr;
@@ -69,18 +70,25 @@ public class SocBusAttributes extends AbstractAttributeSet {
   public static final Attribute<BitWidth> NrOfTracesAttr = Attributes.forBitWidth("TraceSize", S.getter("SocBusTraceSize"));
   public static final Attribute<SocBusInfo> SOC_BUS_ID = new SocBusIdAttribute();
   public static final Attribute<Boolean> SOC_TRACE_VISABLE = Attributes.forBoolean("TraceVisible", S.getter("SocBusTraceVisable"));
+  public static final AttributeOption TRACE_ALL = new AttributeOption("all",S.getter("SocBusTraceAll"));
+  public static final AttributeOption TRACE_SAMPLED = new AttributeOption("sampled",S.getter("SocBusTraceSampled"));
+  public static final AttributeOption TRACE_OFF = new AttributeOption("off",S.getter("SocBusTraceOff"));
+  public static final Attribute<AttributeOption> SOC_TRACE_MODE = Attributes.forOption("TraceMode",
+      S.getter("SocBusTraceMode"), new AttributeOption[] {TRACE_ALL,TRACE_SAMPLED,TRACE_OFF});
   private Font LabelFont = StdAttr.DEFAULT_LABEL_FONT;
   private Boolean LabelVisable = true;
   private BitWidth TraceSize = BitWidth.create(5);
   private String Label = "";
   private SocBusInfo ID = new SocBusInfo(null);
   private Boolean traceVisable = true;
+  private AttributeOption traceMode = TRACE_ALL;
 
   private static List<Attribute<?>> ATTRIBUTES =
         Arrays.asList(
             new Attribute<?>[] {
               NrOfTracesAttr,
               SOC_TRACE_VISABLE,
+              SOC_TRACE_MODE,
               StdAttr.LABEL,
               StdAttr.LABEL_FONT,
               StdAttr.LABEL_VISIBILITY,
@@ -95,6 +103,7 @@ public class SocBusAttributes extends AbstractAttributeSet {
     d.TraceSize = TraceSize;
     d.Label = Label;
     d.traceVisable = traceVisable;
+    d.traceMode = traceMode;
     d.ID = new SocBusInfo(null);
   }
 
@@ -123,6 +132,7 @@ public class SocBusAttributes extends AbstractAttributeSet {
       return (V) ID;
     }
     if (attr == SOC_TRACE_VISABLE) return (V) traceVisable;
+    if (attr == SOC_TRACE_MODE) return (V) traceMode;
     return null;
   }
 
@@ -178,5 +188,13 @@ public class SocBusAttributes extends AbstractAttributeSet {
       }
       return;
     }
+    if (attr == SOC_TRACE_MODE) {
+      AttributeOption v = (AttributeOption) value;
+      if (!traceMode.equals(v)) {
+        traceMode = v;
+        fireAttributeValueChanged(attr, value, oldValue);
+      }
+      return;
+    }
   }
 }
@@ -0,0 +1,113 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.soc.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Address decoder for the slaves of one bus. The address space is cut into
+ * segments at every slave boundary, so a transaction only has to ask the
+ * slaves whose range contains its address. The index is rebuilt lazily
+ * whenever a slave is added, removed or changes its memory map.
+ */
+public class SocBusSlaveIndex implements SocBusSlaveListener {
+
+  private static final SocBusSlaveInterface[] NO_SLAVES = new SocBusSlaveInterface[0];
+
+  private final List<SocBusSlaveInterface> slaves;
+  /* the index is current while built equals the number of invalidations seen so far */
+  private final AtomicInteger invalidations = new AtomicInteger();
+  private volatile int built = -1;
+  private volatile Segments segments = new Segments(new long[0], new SocBusSlaveInterface[0][]);
+
+  private static class Segments {
+    private final long[] starts;
+    private final SocBusSlaveInterface[][] candidates;
+
+    private Segments(long[] starts, SocBusSlaveInterface[][] candidates) {
+      this.starts = starts;
+      this.candidates = candidates;
+    }
+  }
+
+  public SocBusSlaveIndex(List<SocBusSlaveInterface> slaves) {
+    this.slaves = slaves;
+  }
+
+  public void invalidate() {
+    invalidations.incrementAndGet();
+  }
+
+  /**
+   * Returns the slaves whose address range contains the given address; the
+   * returned array is shared and must not be modified.
+   */
+  public SocBusSlaveInterface[] getCandidates(int address) {
+    if (built != invalidations.get()) rebuild();
+    Segments seg = segments;
+    int idx = Arrays.binarySearch(seg.starts, SocSupport.convUnsignedInt(address));
+    if (idx < 0) idx = -idx-2;
+    return idx < 0 ? NO_SLAVES : seg.candidates[idx];
+  }
+
+  private synchronized void rebuild() {
+    int target = invalidations.get();
+    if (built == target) return;
+    ArrayList<Long> bounds = new ArrayList<Long>();
+    for (SocBusSlaveInterface s : slaves) {
+      long start = SocSupport.convUnsignedInt(s.getStartAddress());
+      bounds.add(start);
+      bounds.add(start+SocSupport.convUnsignedInt(s.getMemorySize()));
+    }
+    long[] newStarts = bounds.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    SocBusSlaveInterface[][] newCandidates = new SocBusSlaveInterface[newStarts.length][];
+    ArrayList<SocBusSlaveInterface> hits = new ArrayList<SocBusSlaveInterface>();
+    for (int i = 0 ; i < newStarts.length ; i++) {
+      hits.clear();
+      for (SocBusSlaveInterface s : slaves) {
+        long start = SocSupport.convUnsignedInt(s.getStartAddress());
+        long end = start+SocSupport.convUnsignedInt(s.getMemorySize());
+        if (newStarts[i] >= start && newStarts[i] < end)
+          hits.add(s);
+      }
+      newCandidates[i] = hits.isEmpty() ? NO_SLAVES : hits.toArray(NO_SLAVES);
+    }
+    segments = new Segments(newStarts, newCandidates);
+    built = target;
+  }
+
+  @Override
+  public void labelChanged() {}
+
+  @Override
+  public void memoryMapChanged() { invalidate(); }
+}
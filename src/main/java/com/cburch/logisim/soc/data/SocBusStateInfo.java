@@ -33,6 +33,7 @@ import static com.cburch.logisim.soc.Strings.S;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
@@ -40,7 +41,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -52,6 +53,8 @@ import javax.swing.table.TableCellRenderer;
 
 import com.cburch.logisim.circuit.ComponentDataGuiProvider;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.instance.Instance;
@@ -110,14 +113,19 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
     }
     
 	private static final int NR_OF_TRACES_TO_KEEP = 10000;
-    private LinkedList<SocBusTransaction> trace;
+    /* ring buffer of the last traces, the oldest one is at traceHead-traceSize */
+    private SocBusTransaction[] trace;
+    private int traceHead;
+    private int traceSize;
     private long startTraceIndex;
     private SocBusStateInfo parrent;
     private Instance instance;
     private ArrayList<SocBusStateListener> listeners;
     
     public SocBusState(SocBusStateInfo parrent, Instance instance) {
-      trace = new LinkedList<SocBusTransaction>();
+      trace = new SocBusTransaction[NR_OF_TRACES_TO_KEEP];
+      traceHead = 0;
+      traceSize = 0;
       startTraceIndex = 0;
       this.parrent = parrent;
       this.instance = instance;
@@ -134,49 +142,57 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
     }
 
     public void addTransaction(SocBusTransaction t) {
-      while (trace.size() >= NR_OF_TRACES_TO_KEEP) {
+      if (traceSize == NR_OF_TRACES_TO_KEEP)
         startTraceIndex++;
-        trace.removeFirst();
-      }
-      trace.addLast(t);
-      for (SocBusStateListener l : listeners) l.fireCanged(this);
+      else
+        traceSize++;
+      trace[traceHead] = t;
+      traceHead = (traceHead+1)%NR_OF_TRACES_TO_KEEP;
+      for (int i = 0 ; i < listeners.size() ; i++) listeners.get(i).fireCanged(this);
     }
     
     public void clear() {
-      if (trace.size() == 0)
+      if (traceSize == 0)
         return;
-      trace.clear();
+      Arrays.fill(trace, null);
+      traceHead = 0;
+      traceSize = 0;
       startTraceIndex = 0;
       for (SocBusStateListener l : listeners) l.fireCanged(this);
     }
     
+    /* index 0 is the oldest trace kept */
+    private SocBusTransaction getTrace(int index) {
+      return trace[(traceHead-traceSize+index+NR_OF_TRACES_TO_KEEP)%NR_OF_TRACES_TO_KEEP];
+    }
+    
     public void paint(Graphics2D g , Bounds b) {
-      if (trace.isEmpty()) {
+      if (traceSize == 0) {
         GraphicsUtil.drawCenteredText(g, S.get("SocBusNoTrace"), b.getCenterX(), b.getCenterY());
         return;
       }
       long nrOfTraces = b.getHeight()/TraceHeight;
-      if (nrOfTraces > trace.size())
-        nrOfTraces = trace.size();
-      int startIndex = trace.size()-1;
+      if (nrOfTraces > traceSize)
+        nrOfTraces = traceSize;
+      int startIndex = traceSize-1;
       for (int i = 0 ; i < nrOfTraces; i++) {
-        SocBusTransaction t = trace.get(startIndex-i);
+        SocBusTransaction t = getTrace(startIndex-i);
         t.paint(b.getX()+1, b.getY()+1+i*TraceHeight, g, startTraceIndex+startIndex-i);
       }
     }
     
-    public int getNrOfEntires() { return trace.size(); }
+    public int getNrOfEntires() { return traceSize; }
     public void registerListener(SocBusStateListener l) { if (!listeners.contains(l)) listeners.add(l); }
     public void deregisterListener(SocBusStateListener l) { if (listeners.contains(l)) listeners.remove(l); }
 
     public SocBusStateTrace getEntry(int index, TraceWindowTableModel model) {
-      if (index < 0 || index >= trace.size()) {
+      if (index < 0 || index >= traceSize) {
     	if (index == 0)
     	  return new SocBusStateTrace(null,0,model);
         return null;
       }
-      long indx = startTraceIndex+trace.size()-index-1;
-      return new SocBusStateTrace(trace.get(trace.size()-index-1),indx,model);
+      long indx = startTraceIndex+traceSize-index-1;
+      return new SocBusStateTrace(getTrace(traceSize-index-1),indx,model);
     }
 
     @Override
@@ -187,6 +203,9 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
     }
   }
   
+  private static final int TRACE_SAMPLE_RATE = 64;
+  private static final long RATE_INTERVAL = 1000000000L;
+  
   private SocSimulationManager socManager;
   private Component myComp;
   private ArrayList<SocBusSnifferInterface> sniffers;
@@ -194,6 +213,11 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
   private JLabel title;
   private JScrollPane scroll;
   private SocMemMapModel memMap;
+  private SocBusSlaveIndex slaveIndex;
+  private long sampleCount;
+  private long rateCount;
+  private long rateStart;
+  private volatile long transactionsPerSecond;
   
   public SocBusStateInfo(SocSimulationManager man , Component comp ) {
     super();
@@ -202,6 +226,7 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
     myComp = comp;
     sniffers = new ArrayList<SocBusSnifferInterface>();
     memMap = new SocMemMapModel();
+    slaveIndex = new SocBusSlaveIndex(memMap.getSlaves());
     setTitle(S.get("SocMemMapWindowTitle")+getName());
     setLayout(new BorderLayout());
     title = new JLabel(S.get("SocMemoryMapTitle"),JLabel.CENTER);
@@ -225,10 +250,14 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
   
   public void registerSocBusSlave(SocBusSlaveInterface slave) {
     memMap.registerSocBusSlave(slave);
+    slave.registerListener(slaveIndex);
+    slaveIndex.invalidate();
   }
   
   public void removeSocBusSlave(SocBusSlaveInterface slave) {
     memMap.removeSocBusSlave(slave);
+    slave.removeListener(slaveIndex);
+    slaveIndex.invalidate();
   }
   
   public void registerSocBusSniffer(SocBusSnifferInterface sniffer) {
@@ -266,19 +295,34 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
     myComp = comp;
   }
   
+  public long getTransactionsPerSecond() {
+    return transactionsPerSecond;
+  }
+  
+  private boolean countTransaction() {
+    long now = System.nanoTime();
+    rateCount++;
+    if (now-rateStart < RATE_INTERVAL)
+      return false;
+    transactionsPerSecond = rateStart == 0 ? 0 : rateCount*RATE_INTERVAL/(now-rateStart);
+    rateCount = 0;
+    rateStart = now;
+    return true;
+  }
+  
   public void initializeTransaction(SocBusTransaction trans, String busId) {
-    int nrOfReponders = 0;
-    int reponder = -1;
-    ArrayList<SocBusSlaveInterface> slaves = memMap.getSlaves();
-    if (slaves.isEmpty())
+    boolean rateChanged = countTransaction();
+    if (memMap.getSlaves().isEmpty())
       trans.setError(SocBusTransaction.NoSlavesError);
     else if (trans.isReadTransaction()&&trans.isWriteTransaction()&&!trans.isAtomicTransaction())
       trans.setError(SocBusTransaction.NoneAtomicReadWriteError);
     else {
-      for (int i = 0 ; i < slaves.size() ; i++) {
-        if (slaves.get(i).canHandleTransaction(trans)) {
+      int nrOfReponders = 0;
+      SocBusSlaveInterface reponder = null;
+      for (SocBusSlaveInterface slave : slaveIndex.getCandidates(trans.getAddress())) {
+        if (slave.canHandleTransaction(trans)) {
           nrOfReponders++;
-          reponder = i;
+          reponder = slave;
         }
       }
       if (nrOfReponders == 0)
@@ -286,25 +330,38 @@ public class SocBusStateInfo extends JDialog implements ActionListener,LocaleLis
       else if (nrOfReponders != 1)
         trans.setError(SocBusTransaction.MultipleSlavesError);
       else
-        slaves.get(reponder).handleTransaction(trans);
+        reponder.handleTransaction(trans);
     }
     if (!trans.hasError()&&!trans.isHidden()) {
-      for (SocBusSnifferInterface sniffer : sniffers)
-        sniffer.sniffTransaction(trans);
+      for (int i = 0 ; i < sniffers.size() ; i++)
+        sniffers.get(i).sniffTransaction(trans);
     }
+    AttributeSet attrs = myComp.getAttributeSet();
+    boolean traced = false;
     if (!trans.isHidden()) {
-      SocBusState data = getRegPropagateState();
-      if (data != null) {
-        data.addTransaction(trans);
-        if (myComp.getAttributeSet().getValue(SocBusAttributes.SOC_TRACE_VISABLE))
-          ((InstanceComponent) myComp).getInstance().fireInvalidated();
+      AttributeOption mode = attrs.getValue(SocBusAttributes.SOC_TRACE_MODE);
+      if (mode == SocBusAttributes.TRACE_ALL ||
+          (mode == SocBusAttributes.TRACE_SAMPLED && (sampleCount++ % TRACE_SAMPLE_RATE) == 0)) {
+        SocBusState data = getRegPropagateState();
+        if (data != null) {
+          data.addTransaction(trans);
+          traced = attrs.getValue(SocBusAttributes.SOC_TRACE_VISABLE);
+        }
       }
     }
+    if (traced || rateChanged)
+      ((InstanceComponent) myComp).getInstance().fireInvalidated();
   }
   
   public void paint(int x , int y , Graphics2D g2, Instance inst, boolean visible,InstanceData info) {
+    /* the rate is right aligned with the trace area below it */
+    int left = x+5;
+    String rate = S.fmt("SocBusTransPerSecond", transactionsPerSecond);
+    FontMetrics fm = g2.getFontMetrics();
+    GraphicsUtil.drawText(g2, rate, left+TraceWidth-fm.stringWidth(rate), y+10,
+        GraphicsUtil.H_LEFT, GraphicsUtil.V_CENTER);
     Graphics2D g = (Graphics2D) g2.create();
-    g.translate(x+5, y+25);
+    g.translate(left, y+25);
     int nrOfTraces = inst.getAttributeValue(SocBusAttributes.NrOfTracesAttr).getWidth();
     int height = nrOfTraces*TraceHeight;
     g.setColor(Color.YELLOW);
@@ -294,6 +294,12 @@ public class SocSimulationManager implements SocBusMasterInterface {
       trans.setError(SocBusTransaction.NoSocBusConnectedError);
       return;
     }
+    if (!toBeChecked.isEmpty())
+      checkPendingComponents();
+	info.initializeTransaction(trans, busId);
+  }
+  
+  private void checkPendingComponents() {
     Iterator<Component> iter = toBeChecked.iterator();
     while (iter.hasNext()) {
       Component comp = iter.next();
@@ -314,7 +320,6 @@ public class SocSimulationManager implements SocBusMasterInterface {
       }
       iter.remove();
     }
-	info.initializeTransaction(trans, busId);
   }
   
 }
@@ -35,12 +35,15 @@ import java.awt.Graphics2D;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
+import com.cburch.logisim.soc.util.AssemblerInterface;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class TraceInfo {
     private int pc;
     private int instruction;
     private String asm;
+    private AssemblerInterface disassembler; /* produces asm once the trace gets painted */
     private boolean error;
     
     public TraceInfo(int pc , int instruction, String asm, boolean error) {
@@ -50,6 +53,24 @@ public class TraceInfo {
       this.error = error;
     }
     
+    public TraceInfo(int pc , int instruction, AssemblerInterface disassembler) {
+      this.pc = pc;
+      this.instruction = instruction;
+      this.disassembler = disassembler;
+      this.error = false;
+    }
+    
+    public String getAsm() {
+      if (asm == null) {
+        synchronized (disassembler) {
+          disassembler.decode(instruction);
+          AssemblerExecutionInterface exe = disassembler.getExeUnit();
+          asm = exe == null ? "?" : exe.getAsmInstruction();
+        }
+      }
+      return asm;
+    }
+    
     public void setError() {
       error = true;
     }
@@ -69,7 +90,7 @@ public class TraceInfo {
                             new Font( "Monospaced", Font.PLAIN, 12 ).deriveFont(Font.BOLD);
       g.setFont(myFont);
       Bounds bds = CpuDrawSupport.getBounds(xOff,yOffset+15,0,0,scale);
-      g.drawString(asm, bds.getX(), bds.getY());
+      g.drawString(getAsm(), bds.getX(), bds.getY());
       g.setFont(f);
     }
     
@@ -29,7 +29,6 @@
 package com.cburch.logisim.soc.memory;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Random;
 
 import com.cburch.logisim.data.BitWidth;
@@ -44,127 +43,105 @@ import com.cburch.logisim.soc.data.SocSupport;
 
 public class SocMemoryState implements SocBusSlaveInterface {
 
-  public class SocMemoryInfo implements InstanceData,Cloneable {
-    private class SocMemoryInfoBlock {
-      private LinkedList<Integer> contents = new LinkedList<Integer>();
-      private int startAddress;
-      private Random rand = new Random();
-    
-      public SocMemoryInfoBlock(int address, int data) {
-        startAddress = (address>>2)<<2;
-        contents.add(data);
-      }
-    
-      public boolean canAddBefore( int address ) {
-        int previousAddress = getStartAddress()-4;
-        return (address >= previousAddress) && (address < getStartAddress());
-      }
-    
-      public boolean canAddAfter( int address ) {
-        return (address >= getEndAddress())&&(address < getEndAddress()+4);
-      }
-    
-      public boolean contains( int address ) {
-        return (address >= getStartAddress()) && (address < getEndAddress());
-      }
-    
-      public boolean canAdd(int address) {
-        return canAddBefore(address) || canAddAfter(address);
-      }
-    
-      public boolean addInfo(int address, int data) {
-        if (canAddBefore(address)) {
-          contents.addFirst(data);
-          startAddress -= 4;
-          return true;
-        }
-        if (canAddAfter(address)) {
-          contents.add(data);
-          return true;
-        }
-        if (contains(address)) {
-          int index = (address-startAddress)>>2;
-          contents.set(index, data);
-          return true;
-        }
-        return false;
-      }
-    
-      public int getValue(int address) {
-        int index = (address-startAddress)>>2;
-        if (index >= contents.size()) {
-          return rand.nextInt();
-        }
-        return contents.get(index);
-      }
-    
-      public int getStartAddress() {
-        return startAddress;
-      }
-    
-      public int getEndAddress() {
-        return startAddress+contents.size()*4;
-      }
+  /* The words are kept in pages, found through a table of page tables indexed by the upper bits
+   * of the word address, so that a word is reached in constant time and only the parts of the
+   * address space that are used take memory. */
+  private static final int PAGE_BITS = 10;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  private static final int TABLE_BITS = 10;
+  private static final int TABLE_SIZE = 1 << TABLE_BITS;
+  private static final int TABLE_MASK = TABLE_SIZE - 1;
+  private static final int TABLE_COUNT = 1 << (30 - PAGE_BITS - TABLE_BITS);
+
+  private static class MemoryPage {
+    private final int[] words;
+    private final long[] written; /* words never written read as random values */
+    private final Object owner;
+
+    private MemoryPage(Object owner) {
+      this.words = new int[PAGE_SIZE];
+      this.written = new long[PAGE_SIZE >> 6];
+      this.owner = owner;
+    }
+
+    private MemoryPage(MemoryPage other, Object owner) {
+      this.words = other.words.clone();
+      this.written = other.written.clone();
+      this.owner = owner;
+    }
+
+    private boolean isWritten(int index) {
+      return (written[index >> 6] & (1L << index)) != 0;
     }
+  }
+
+  private static class PageTable {
+    private final MemoryPage[] pages;
+    private final Object owner;
+
+    private PageTable(Object owner) {
+      this.pages = new MemoryPage[TABLE_SIZE];
+      this.owner = owner;
+    }
+
+    private PageTable(PageTable other, Object owner) {
+      this.pages = other.pages.clone();
+      this.owner = owner;
+    }
+  }
+
+  public class SocMemoryInfo implements InstanceData,Cloneable {
+    private PageTable[] tables;
+    /* pages and page tables are shared between clones; only those created by this state since
+     * it was last cloned carry its owner token and may be modified in place */
+    private Object owner;
 
-    private ArrayList<SocMemoryInfoBlock> memInfo;
-    
     public SocMemoryInfo() {
-      memInfo = new ArrayList<SocMemoryInfoBlock>();
+      tables = new PageTable[TABLE_COUNT];
+      owner = new Object();
     }
 
     public SocMemoryInfo clone() {
       try {
-        return (SocMemoryInfo) super.clone();
+        SocMemoryInfo ret = (SocMemoryInfo) super.clone();
+        ret.tables = tables.clone();
+        ret.owner = new Object();
+        owner = new Object();
+        return ret;
       } catch (CloneNotSupportedException e) {
         return null;
       }
     }
-      
+
     public int getWord(int address) {
-      for (SocMemoryInfoBlock info : memInfo)
-        if (info.contains(address))
-          return info.getValue(address);
+      int word = address >>> 2;
+      PageTable table = tables[word >>> (PAGE_BITS + TABLE_BITS)];
+      if (table != null) {
+        MemoryPage page = table.pages[(word >>> PAGE_BITS) & TABLE_MASK];
+        if (page != null && page.isWritten(word & PAGE_MASK))
+          return page.words[word & PAGE_MASK];
+      }
       return rand.nextInt();
     }
 
     public void writeWord(int address, int wdata) {
-      ArrayList<SocMemoryInfoBlock> adders = new ArrayList<SocMemoryInfoBlock>();
-      for (SocMemoryInfoBlock info : memInfo) {
-        if (info.contains(address)) {
-          info.addInfo(address, wdata);
-          return;
-        }
-        if (info.canAdd(address))
-          adders.add(info);
-      }
-      if (adders.isEmpty()) {
-        /* we have to create a new set */
-        memInfo.add(new SocMemoryInfoBlock(address,wdata));
-        return;
-      }
-      if (adders.size() == 1) {
-        /* easy case we can add in front or at the end of an existing one */
-        adders.get(0).addInfo(address, wdata);
-        return;
-      }
-      if (adders.size() > 2) {
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
-      }
-      SocMemoryInfoBlock addbefore = adders.get(0).canAddBefore(address) ? adders.get(0) :
-          adders.get(1).canAddBefore(address) ? adders.get(1) : null;
-      SocMemoryInfoBlock addAfter = adders.get(0).canAddAfter(address) ? adders.get(0) :
-          adders.get(1).canAddAfter(address) ? adders.get(1) : null;
-      if (addbefore == null || addAfter == null) {
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
-      }
-      addAfter.addInfo(address, wdata);
-      for (int i = addbefore.getStartAddress() ; i < addbefore.getEndAddress() ; i += 4) {
-        addAfter.addInfo(i, addbefore.getValue(i));
-      }
-      memInfo.remove(addbefore);
+      int word = address >>> 2;
+      int tableIndex = word >>> (PAGE_BITS + TABLE_BITS);
+      PageTable table = tables[tableIndex];
+      if (table == null)
+        table = tables[tableIndex] = new PageTable(owner);
+      else if (table.owner != owner)
+        table = tables[tableIndex] = new PageTable(table, owner);
+      int pageIndex = (word >>> PAGE_BITS) & TABLE_MASK;
+      MemoryPage page = table.pages[pageIndex];
+      if (page == null)
+        page = table.pages[pageIndex] = new MemoryPage(owner);
+      else if (page.owner != owner)
+        page = table.pages[pageIndex] = new MemoryPage(page, owner);
+      int index = word & PAGE_MASK;
+      page.words[index] = wdata;
+      page.written[index >> 6] |= 1L << index;
     }
   }
   
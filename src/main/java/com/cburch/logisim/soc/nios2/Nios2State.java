@@ -71,6 +71,7 @@ import com.cburch.logisim.soc.gui.BreakpointPanel;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
 import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
 import com.cburch.logisim.soc.util.AssemblerInterface;
+import com.cburch.logisim.soc.util.InstructionDecoder;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class Nios2State implements SocUpSimulationStateListener,SocProcessorInterface {
@@ -97,6 +98,7 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
     private Integer entryPoint;
     private boolean programLoaded;
     private BreakpointPanel bPanel;
+    private InstructionDecoder decoder;
 
     public ProcessorState(Instance inst) {
       registers = new int[32];
@@ -111,6 +113,7 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
       visible = false;
       entryPoint = null;
       programLoaded = false;
+      decoder = new InstructionDecoder(new Nios2Assembler());
       AbstractTokenMakerFactory atmf = (AbstractTokenMakerFactory) TokenMakerFactory.getDefaultInstance();
       atmf.putMapping(ASSEMBLER.getHighlightStringIdentifier(), "com.cburch.logisim.soc.nios2.Nios2SyntaxHighlighter");
       bPanel = new BreakpointPanel(ASSEMBLER.getHighlightStringIdentifier());
@@ -268,8 +271,8 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
       if (!simState.canExecute())
         return;
       /* here we handle the custom instructions */
-      if (ASSEMBLER.getExeUnit() != null && ASSEMBLER.getExeUnit() instanceof Nios2CustomInstructions) {
-        Nios2CustomInstructions cust = (Nios2CustomInstructions)ASSEMBLER.getExeUnit();
+      if (decoder.getExeUnit() != null && decoder.getExeUnit() instanceof Nios2CustomInstructions) {
+        Nios2CustomInstructions cust = (Nios2CustomInstructions)decoder.getExeUnit();
         if (cust.isValid() && cust.waitingOnReady(this, cState)) return;
       }
       HashMap<Integer,Integer> breakPoints = bPanel.getBreakPoints();
@@ -302,9 +305,9 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
       }
       /* decode instruction */
       int instruction = trans.getReadData(); 
-      ASSEMBLER.decode(instruction);
+      decoder.decode(instruction);
       /* execute instruction */
-      AssemblerExecutionInterface exe = ASSEMBLER.getExeUnit();
+      AssemblerExecutionInterface exe = decoder.getExeUnit();
       lastRegisterWritten = -1;
       while (instrTrace.size() >= CpuDrawSupport.NrOfTraces)
         instrTrace.removeLast();
@@ -317,7 +320,7 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
         if (visible) repaint();
         return;
       }
-      TraceInfo trace = new TraceInfo(pc,instruction,exe.getAsmInstruction(),false);
+      TraceInfo trace = new TraceInfo(pc,instruction,DISASSEMBLER);
       if (!exe.execute(this,cState)) {
         StringBuffer s = new StringBuffer();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -340,7 +343,9 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
 
     public ProcessorState clone() {
       try {
-        return (ProcessorState) super.clone();
+        ProcessorState ret = (ProcessorState) super.clone();
+        ret.decoder = new InstructionDecoder(new Nios2Assembler());
+        return ret;
       } catch (CloneNotSupportedException e) {
         return null;
       }
@@ -392,6 +397,8 @@ public class Nios2State implements SocUpSimulationStateListener,SocProcessorInte
   private SocBusInfo attachedBus;
 
   public static final AssemblerInterface ASSEMBLER = new Nios2Assembler(); 
+  /* decodes the instructions in the trace, which is painted while the simulation goes on */
+  private static final AssemblerInterface DISASSEMBLER = new Nios2Assembler();
   public static String[] registerABINames = {"zero","at","r2","r3","r4","r5","r6","r7",
                                              "r8","r9","r10","r11","r12","r13","r14","r15",
                                              "r16","r17","r18","r19","r20","r21","r22","r23","et","bt",
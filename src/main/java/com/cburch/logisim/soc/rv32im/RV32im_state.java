@@ -71,6 +71,7 @@ import com.cburch.logisim.soc.gui.BreakpointPanel;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
 import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
 import com.cburch.logisim.soc.util.AssemblerInterface;
+import com.cburch.logisim.soc.util.InstructionDecoder;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class RV32im_state implements SocUpSimulationStateListener,SocProcessorInterface {
@@ -90,6 +91,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
     private Integer entryPoint;
     private boolean programLoaded;
     private BreakpointPanel bPanel;
+    private InstructionDecoder decoder;
     
     public ProcessorState(Instance inst) {
       registers = new int[32];
@@ -104,6 +106,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
       visible = false;
       entryPoint = null;
       programLoaded = false;
+      decoder = new InstructionDecoder(new RV32imAssembler());
       AbstractTokenMakerFactory atmf = (AbstractTokenMakerFactory) TokenMakerFactory.getDefaultInstance();
       atmf.putMapping(ASSEMBLER.getHighlightStringIdentifier(), "com.cburch.logisim.soc.rv32im.RV32imSyntaxHighlighter");
       bPanel = new BreakpointPanel(ASSEMBLER.getHighlightStringIdentifier());
@@ -223,9 +226,9 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
       }
       /* decode instruction */
       int instruction = trans.getReadData(); 
-      ASSEMBLER.decode(instruction);
+      decoder.decode(instruction);
       /* execute instruction */
-      AssemblerExecutionInterface exe = ASSEMBLER.getExeUnit();
+      AssemblerExecutionInterface exe = decoder.getExeUnit();
       lastRegisterWritten = -1;
       while (instrTrace.size() >= CpuDrawSupport.NrOfTraces)
         instrTrace.removeLast();
@@ -238,7 +241,7 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
         if (visible) repaint();
         return;
       }
-      TraceInfo trace = new TraceInfo(pc,instruction,exe.getAsmInstruction(),false);
+      TraceInfo trace = new TraceInfo(pc,instruction,DISASSEMBLER);
       if (!exe.execute(this,cState)) {
         StringBuffer s = new StringBuffer();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -261,7 +264,9 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
       
     public ProcessorState clone() {
       try {
-        return (ProcessorState) super.clone();
+        ProcessorState ret = (ProcessorState) super.clone();
+        ret.decoder = new InstructionDecoder(new RV32imAssembler());
+        return ret;
       } catch (CloneNotSupportedException e) {
         return null;
       }
@@ -306,6 +311,8 @@ public class RV32im_state implements SocUpSimulationStateListener,SocProcessorIn
   private SocBusInfo attachedBus;
   
   public static final AssemblerInterface ASSEMBLER = new RV32imAssembler(); 
+  /* decodes the instructions in the trace, which is painted while the simulation goes on */
+  private static final AssemblerInterface DISASSEMBLER = new RV32imAssembler();
   public static String[] registerABINames = {"zero","ra","sp","gp","tp","t0","t1","t2",
                                               "s0","s1","a0","a1","a2","a3","a4","a5",
                                               "a6","a7","s2","s3","s4","s5","s6","s7","s8","s9",
@@ -67,6 +67,8 @@ public abstract class AbstractAssembler implements AssemblerInterface {
   public HashSet<Integer> getAcceptedParameterTypes() { return acceptedParameterTypes; }
   
   public void addAssemblerExecutionUnit( AssemblerExecutionInterface exe ) { exeUnits.add(exe); }
+  
+  ArrayList<AssemblerExecutionInterface> getExeUnits() { return exeUnits; }
 
   public void decode(int instruction) {
     for (AssemblerExecutionInterface exe : exeUnits)
@@ -0,0 +1,105 @@
+/**
+ * This file is part of logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with logisim-evolution. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + College of the Holy Cross
+ *     http://www.holycross.edu
+ *   + Haute École Spécialisée Bernoise/Berner Fachhochschule
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ */
+
+package com.cburch.logisim.soc.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The instruction decoder of one processor core. Every instruction word is handed to the
+ * execution units of the assembler only the first time it is fetched; the unit that claims it is
+ * then copied, decoded for that word and kept, so a word fetched again is executed without being
+ * decoded again. The table is keyed by the word itself, not by the PC, so code that is overwritten
+ * simply gets looked up again. Each core owns its decoder, as the decoded units hold the state of
+ * the instruction being executed; the execution units therefore need a public no-argument
+ * constructor.
+ */
+public class InstructionDecoder {
+
+  private static final int MAX_DECODED = 1 << 12;
+  private static final Object INVALID = new Object();
+
+  private ArrayList<AssemblerExecutionInterface> exeUnits;
+  /* open addressing table from instruction word to its decoded unit (INVALID for words no unit
+   * claims, null for free slots), kept at most half full */
+  private int[] words = new int[2 * MAX_DECODED];
+  private Object[] units = new Object[2 * MAX_DECODED];
+  private int nrOfDecoded = 0;
+  private AssemblerExecutionInterface current;
+
+  public InstructionDecoder(AbstractAssembler assembler) {
+    exeUnits = assembler.getExeUnits();
+  }
+
+  public void decode(int instruction) {
+    int mask = units.length - 1;
+    int slot = hash(instruction) & mask;
+    while (units[slot] != null) {
+      if (words[slot] == instruction) {
+        current = units[slot] == INVALID ? null : (AssemblerExecutionInterface) units[slot];
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    current = decodeNew(instruction);
+    if (nrOfDecoded >= MAX_DECODED) {
+      Arrays.fill(units, null);
+      nrOfDecoded = 0;
+      slot = hash(instruction) & mask;
+    }
+    words[slot] = instruction;
+    units[slot] = current == null ? INVALID : current;
+    nrOfDecoded++;
+  }
+
+  public AssemblerExecutionInterface getExeUnit() {
+    return current;
+  }
+
+  private AssemblerExecutionInterface decodeNew(int instruction) {
+    for (AssemblerExecutionInterface unit : exeUnits) {
+      unit.setBinInstruction(instruction);
+      if (unit.isValid()) {
+        try {
+          AssemblerExecutionInterface copy = unit.getClass().getDeclaredConstructor().newInstance();
+          copy.setBinInstruction(instruction);
+          return copy;
+        } catch (ReflectiveOperationException e) {
+          throw new IllegalStateException("execution unit without public no-argument constructor", e);
+        }
+      }
+    }
+    return null;
+  }
+
+  private static int hash(int instruction) {
+    int h = instruction * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -169,6 +169,11 @@ public class Adder extends InstanceFactory {
     GraphicsUtil.switchToWidth(g, 1);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
@@ -145,6 +145,11 @@ public class BitAdder extends InstanceFactory {
     g.drawLine(x - 5, y + 2, x + 5, y + 2);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     int width = state.getAttributeValue(StdAttr.WIDTH).getWidth();
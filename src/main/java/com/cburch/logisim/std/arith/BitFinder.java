@@ -156,6 +156,11 @@ public class BitFinder extends InstanceFactory {
     GraphicsUtil.drawCenteredText(g, bot, x, y0 + 32);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     int width = state.getAttributeValue(StdAttr.WIDTH).getWidth();
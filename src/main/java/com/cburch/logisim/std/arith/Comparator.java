@@ -125,6 +125,11 @@ public class Comparator extends InstanceFactory {
     painter.drawPort(LT, "<", Direction.WEST);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
@@ -143,6 +143,11 @@ public class Divider extends InstanceFactory {
     GraphicsUtil.switchToWidth(g, 1);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
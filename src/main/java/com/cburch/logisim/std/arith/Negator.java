@@ -85,6 +85,11 @@ public class Negator extends InstanceFactory {
     painter.drawPort(OUT, "-x", Direction.WEST);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
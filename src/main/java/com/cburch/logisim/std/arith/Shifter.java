@@ -174,6 +174,11 @@ public class Shifter extends InstanceFactory {
     }
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // compute output
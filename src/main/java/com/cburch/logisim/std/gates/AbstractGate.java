@@ -562,6 +562,16 @@ abstract class AbstractGate extends InstanceFactory {
 
   protected abstract void paintShape(InstancePainter painter, int width, int height);
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
+  @Override
+  public boolean isBitSliceable() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     GateAttributes attrs = (GateAttributes) state.getAttributeSet();
@@ -252,6 +252,16 @@ class Buffer extends InstanceFactory {
     painter.drawLabel();
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
+  @Override
+  public boolean isBitSliceable() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     Value in = state.getPortValue(1);
@@ -258,6 +258,11 @@ class ControlledBuffer extends InstanceFactory {
     g.translate(-x, -y);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     Value control = state.getPortValue(2);
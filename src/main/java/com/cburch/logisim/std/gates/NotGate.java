@@ -293,6 +293,16 @@ class NotGate extends InstanceFactory {
     GraphicsUtil.switchToWidth(g, 1);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
+  @Override
+  public boolean isBitSliceable() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     Value in = state.getPortValue(1);
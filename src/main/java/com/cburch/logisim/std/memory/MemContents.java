@@ -32,7 +32,13 @@ import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.EventSourceWeakSupport;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MemContents implements Cloneable, HexModel {
   public static MemContents create(int addrBits, int width) {
@@ -77,6 +83,7 @@ public class MemContents implements Cloneable, HexModel {
     else {
       for (int i = 0 ; i < pages.length ; i++) {
         long[] oldValues = pages[i] != null ? pages[i].get(0, pages[i].getLength()) : null;;
+        if (pages[i] != null) pages[i].release();
         pages[i] = MemContentsSub.createPage(PAGE_SIZE, width);
         if (oldValues != null)
           fireBytesChanged(i << PAGE_SIZE_BITS, oldValues.length, oldValues);
@@ -96,7 +103,7 @@ public class MemContents implements Cloneable, HexModel {
       if (val != 0) changed = true;
     }
     if (changed) {
-      pages[index] = null;
+      dropPage(index);
       fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length, oldValues);
     }
   }
@@ -109,11 +116,10 @@ public class MemContents implements Cloneable, HexModel {
     try {
       MemContents ret = (MemContents) super.clone();
       ret.listeners = null;
-      ret.pages = new Page[this.pages.length];
+      // the pages are shared until either memory writes to them
+      ret.pages = this.pages.clone();
       for (int i = 0; i < ret.pages.length; i++) {
-        if (this.pages[i] != null) {
-          ret.pages[i] = this.pages[i].clone();
-        }
+        if (ret.pages[i] != null) ret.pages[i].share();
       }
       return ret;
     } catch (CloneNotSupportedException ex) {
@@ -127,6 +133,26 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
+  /**
+   * Returns the page at an index, which must exist, ready to be written: a page still shared with
+   * a clone is copied first.
+   */
+  private Page ownPage(int index) {
+    Page page = pages[index];
+    if (page.isShared()) {
+      Page copy = page.clone();
+      page.release();
+      pages[index] = copy;
+      return copy;
+    }
+    return page;
+  }
+
+  private void dropPage(int index) {
+    if (pages[index] != null) pages[index].release();
+    pages[index] = null;
+  }
+
   public void fill(long start, long len, long value) {
     if (len == 0) return;
 
@@ -143,8 +169,9 @@ public class MemContents implements Cloneable, HexModel {
       Page page = pages[pageStart];
       if (!page.matches(vals, startOffs, mask)) {
         long[] oldValues = page.get(startOffs, (int) len);
+        page = ownPage(pageStart);
         page.load(startOffs, vals, mask);
-        if (value == 0 && page.isClear()) pages[pageStart] = null;
+        if (value == 0 && page.isClear()) dropPage(pageStart);
         fireBytesChanged(start, len, oldValues);
       }
     } else {
@@ -160,8 +187,9 @@ public class MemContents implements Cloneable, HexModel {
           Page page = pages[pageStart];
           if (!page.matches(vals, startOffs, mask)) {
             long[] oldValues = page.get(startOffs, vals.length);
+            page = ownPage(pageStart);
             page.load(startOffs, vals, mask);
-            if (value == 0 && page.isClear()) pages[pageStart] = null;
+            if (value == 0 && page.isClear()) dropPage(pageStart);
             fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
           }
         }
@@ -178,23 +206,25 @@ public class MemContents implements Cloneable, HexModel {
           Page page = pages[i];
           if (!page.matches(vals, 0, mask)) {
             long[] oldValues = page.get(0, PAGE_SIZE);
+            page = ownPage(i);
             page.load(0, vals, mask);
             fireBytesChanged(i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
           }
         }
       }
       if (endOffs >= 0) {
-        Page page = pages[pageEnd];
-        if (value == 0 && page == null) {
+        if (value == 0 && pages[pageEnd] == null) {
           // nothing to do
         } else {
           ensurePage(pageEnd);
+          Page page = pages[pageEnd];
           long[] vals = new long[endOffs + 1];
           Arrays.fill(vals, value);
           if (!page.matches(vals, 0, mask)) {
             long[] oldValues = page.get(0, endOffs + 1);
+            page = ownPage(pageEnd);
             page.load(0, vals, mask);
-            if (value == 0 && page.isClear()) pages[pageEnd] = null;
+            if (value == 0 && page.isClear()) dropPage(pageEnd);
             fireBytesChanged(pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
           }
         }
@@ -274,10 +304,8 @@ public class MemContents implements Cloneable, HexModel {
     long old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
     long val = value & mask;
     if (old != val) {
-      if (pages[page] == null) {
-        pages[page] = MemContentsSub.createPage(PAGE_SIZE, width);
-      }
-      pages[page].set(offs, val);
+      ensurePage(page);
+      ownPage(page).set(offs, val);
       fireBytesChanged(addr, 1, new long[] {old});
     }
   }
@@ -295,8 +323,9 @@ public class MemContents implements Cloneable, HexModel {
       Page page = pages[pageStart];
       if (!page.matches(values, startOffs, mask)) {
         long[] oldValues = page.get(startOffs, values.length);
+        page = ownPage(pageStart);
         page.load(startOffs, values, mask);
-        if (page.isClear()) pages[pageStart] = null;
+        if (page.isClear()) dropPage(pageStart);
         fireBytesChanged(start, values.length, oldValues);
       }
     } else {
@@ -311,8 +340,9 @@ public class MemContents implements Cloneable, HexModel {
         Page page = pages[pageStart];
         if (!page.matches(vals, startOffs, mask)) {
           long[] oldValues = page.get(startOffs, vals.length);
+          page = ownPage(pageStart);
           page.load(startOffs, vals, mask);
-          if (page.isClear()) pages[pageStart] = null;
+          if (page.isClear()) dropPage(pageStart);
           fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
         }
         nextOffs = vals.length;
@@ -336,10 +366,11 @@ public class MemContents implements Cloneable, HexModel {
         }
         if (page != null) {
           System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-          if (!page.matches(vals, startOffs, mask)) {
+          if (!page.matches(vals, 0, mask)) {
             long[] oldValues = page.get(0, PAGE_SIZE);
+            page = ownPage(i);
             page.load(0, vals, mask);
-            if (page.isClear()) pages[i] = null;
+            if (page.isClear()) dropPage(i);
             fireBytesChanged(i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
           }
         }
@@ -349,10 +380,11 @@ public class MemContents implements Cloneable, HexModel {
         vals = new long[endOffs + 1];
         System.arraycopy(values, offs, vals, 0, endOffs + 1);
         Page page = pages[pageEnd];
-        if (!page.matches(vals, startOffs, mask)) {
+        if (!page.matches(vals, 0, mask)) {
           long[] oldValues = page.get(0, endOffs + 1);
+          page = ownPage(pageEnd);
           page.load(0, vals, mask);
-          if (page.isClear()) pages[pageEnd] = null;
+          if (page.isClear()) dropPage(pageEnd);
           fireBytesChanged(pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
         }
       }
@@ -388,11 +420,10 @@ public class MemContents implements Cloneable, HexModel {
         // clearing locations di..di+n on this page
         fill(dp*PAGE_SIZE+di, n, 0);
       } else {
-        if (dstPage == null)
-          dstPage = pages[dp] = MemContentsSub.createPage(PAGE_SIZE, width);
+        ensurePage(dp);
         // copy locations di..di+n on this page
         long[] vals = srcPage.get(si, n);
-        dstPage.set(di, vals);
+        ownPage(dp).set(di, vals);
       }
       count -= n;
       di += n;
@@ -409,6 +440,67 @@ public class MemContents implements Cloneable, HexModel {
     fireBytesChanged(0,1<<addrBits,null); /* update my listeners */
   }
 
+  /**
+   * Writes the dimensions and the allocated pages to a channel, in the form read back by {@link
+   * #readRaw}. Pages of bytes go to the channel as they are; wider pages are converted to big
+   * endian first.
+   */
+  public void writeRaw(WritableByteChannel out) throws IOException {
+    int used = 0;
+    for (int i = 0; i < pages.length; i++) if (pages[i] != null) used++;
+    ByteBuffer header = ByteBuffer.allocate(12);
+    header.putInt(addrBits).putInt(width).putInt(used);
+    header.flip();
+    writeFully(out, header);
+    for (int i = 0; i < pages.length; i++) {
+      if (pages[i] == null) continue;
+      header.clear();
+      header.putInt(i).putInt(pages[i].getLength());
+      header.flip();
+      writeFully(out, header);
+      writeFully(out, pages[i].toBuffer());
+    }
+  }
+
+  /** Reads memory contents written by {@link #writeRaw}. */
+  public static MemContents readRaw(ReadableByteChannel in) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(12);
+    readFully(in, header);
+    int addrBits = header.getInt();
+    int width = header.getInt();
+    int used = header.getInt();
+    if (addrBits < 0 || addrBits > 32 || width < 1 || width > 64) {
+      throw new IOException("bad memory dimensions " + addrBits + "x" + width);
+    }
+    MemContents ret = create(addrBits, width);
+    for (int k = 0; k < used; k++) {
+      header.clear().limit(8);
+      readFully(in, header);
+      int i = header.getInt();
+      int length = header.getInt();
+      if (i < 0 || i >= ret.pages.length || length < 0 || length > PAGE_SIZE) {
+        throw new IOException("bad memory page " + i);
+      }
+      Page page = MemContentsSub.createPage(length, width);
+      ByteBuffer data = page.toBuffer();
+      readFully(in, data);
+      page.fromBuffer(data);
+      ret.pages[i] = page;
+    }
+    return ret;
+  }
+
+  private static void writeFully(WritableByteChannel out, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) out.write(buf);
+  }
+
+  private static void readFully(ReadableByteChannel in, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      if (in.read(buf) < 0) throw new EOFException();
+    }
+    buf.flip();
+  }
+
   public void setDimensions(int addrBits, int width) {
     if (addrBits == this.addrBits && width == this.width) return;
     this.addrBits = addrBits;
@@ -435,6 +527,7 @@ public class MemContents implements Cloneable, HexModel {
           for (int j = 0; j < m; j++) {
             pages[i].set(j, oldPages[i].get(j));
           }
+          oldPages[i].release();
         }
       }
     }
@@ -458,16 +551,39 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
   
+  /**
+   * A page of values. Clones of a memory share their pages; each page counts the memories holding
+   * it, and a memory about to write to a shared page copies it first. Counts are only decremented
+   * when a memory lets go of a page explicitly, not when it is garbage collected, so a page may
+   * look shared when it no longer is; that costs one needless copy, never a wrong value.
+   */
   static abstract class Page implements Cloneable {
+    private AtomicInteger owners = new AtomicInteger(1);
+
+    /** Returns an unshared deep copy of the page. */
     @Override
     public Page clone() {
       try {
-        return (Page) super.clone();
+        Page ret = (Page) super.clone();
+        ret.owners = new AtomicInteger(1);
+        return ret;
       } catch (CloneNotSupportedException e) {
         return this;
       }
     }
 
+    void share() {
+      owners.incrementAndGet();
+    }
+
+    void release() {
+      owners.decrementAndGet();
+    }
+
+    boolean isShared() {
+      return owners.get() > 1;
+    }
+
     abstract long get(long addr);
 
     long[] get(long start, int len) {
@@ -503,6 +619,15 @@ public class MemContents implements Cloneable, HexModel {
     }
 
     abstract void set(long addr, long value);
+
+    /**
+     * Returns a buffer over the raw values, big endian, positioned at the start. For pages of
+     * bytes this wraps the page itself, for wider pages it is a copy.
+     */
+    abstract ByteBuffer toBuffer();
+
+    /** Loads the raw values from a buffer as returned by toBuffer. */
+    abstract void fromBuffer(ByteBuffer buf);
   }
 
 
@@ -29,6 +29,7 @@
 package com.cburch.logisim.std.memory;
 
 import com.cburch.logisim.prefs.AppPreferences;
+import java.nio.ByteBuffer;
 
 class MemContentsSub {
   private static class BytePage extends MemContents.Page {
@@ -84,6 +85,16 @@ class MemContentsSub {
         }
       }
     }
+
+    @Override
+    ByteBuffer toBuffer() {
+      return ByteBuffer.wrap(data);
+    }
+
+    @Override
+    void fromBuffer(ByteBuffer buf) {
+      if (!buf.hasArray() || buf.array() != data) buf.get(data);
+    }
   }
 
   private static class IntPage extends MemContents.Page {
@@ -137,6 +148,18 @@ class MemContentsSub {
         }
       }
     }
+
+    @Override
+    ByteBuffer toBuffer() {
+      ByteBuffer ret = ByteBuffer.allocate(4 * data.length);
+      ret.asIntBuffer().put(data);
+      return ret;
+    }
+
+    @Override
+    void fromBuffer(ByteBuffer buf) {
+      buf.asIntBuffer().get(data);
+    }
   }
 
   private static class ShortPage extends MemContents.Page {
@@ -176,11 +199,7 @@ class MemContentsSub {
     @Override
     void load(long start, long[] values, long mask) {
       int n = Math.min(values.length, data.length - (int)start);
-      /*
-       * Bugfix in memory writing (by Roy77)
-       * https://github.com/roy77
-       */
-      for (int i = (int)start; i < n; i++) {
+      for (int i = 0; i < n; i++) {
         data[(int)start + i] = (short) (values[i] & mask);
       }
     }
@@ -194,6 +213,18 @@ class MemContentsSub {
         }
       }
     }
+
+    @Override
+    ByteBuffer toBuffer() {
+      ByteBuffer ret = ByteBuffer.allocate(2 * data.length);
+      ret.asShortBuffer().put(data);
+      return ret;
+    }
+
+    @Override
+    void fromBuffer(ByteBuffer buf) {
+      buf.asShortBuffer().get(data);
+    }
   }
 
   private static class LongPage extends MemContents.Page {
@@ -247,6 +278,18 @@ class MemContentsSub {
         }
       }
     }
+
+    @Override
+    ByteBuffer toBuffer() {
+      ByteBuffer ret = ByteBuffer.allocate(8 * data.length);
+      ret.asLongBuffer().put(data);
+      return ret;
+    }
+
+    @Override
+    void fromBuffer(ByteBuffer buf) {
+      buf.asLongBuffer().get(data);
+    }
   }
 
   static MemContents.Page createPage(int size, int bits) {
@@ -97,6 +97,11 @@ public class Rom extends Mem {
       }
     }
 
+    @Override
+    public boolean isParseThreadSafe() {
+      return true;
+    }
+
     @Override
     public String toDisplayString(MemContents value) {
       return S.get("romContentsValue");
@@ -126,6 +126,11 @@ public class BitSelector extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     Value data = state.getPortValue(1);
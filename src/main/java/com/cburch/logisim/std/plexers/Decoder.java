@@ -261,6 +261,11 @@ public class Decoder extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
@@ -262,6 +262,11 @@ public class Demultiplexer extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
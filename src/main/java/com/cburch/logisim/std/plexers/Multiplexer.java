@@ -280,6 +280,11 @@ public class Multiplexer extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     BitWidth data = state.getAttributeValue(StdAttr.WIDTH);
@@ -146,6 +146,11 @@ public class PriorityEncoder extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     BitWidth select = state.getAttributeValue(Plexers.ATTR_SELECT);
@@ -156,6 +156,11 @@ public class BitExtender extends InstanceFactory {
     if (type.equals("input")) painter.drawPort(2);
   }
 
+  @Override
+  public boolean isCombinational() {
+    return true;
+  }
+
   @Override
   public void propagate(InstanceState state) {
     Value in = state.getPortValue(1);
@@ -541,12 +541,7 @@ public class Pin extends InstanceFactory {
     BitWidth width = attrs.width;
     PinState ret = (PinState) state.getData();
     if (ret == null) {
-      Value val = attrs.threeState ? Value.UNKNOWN : Value.FALSE;
-      if (width.getWidth() > 1) {
-        Value[] arr = new Value[width.getWidth()];
-        java.util.Arrays.fill(arr, val);
-        val = Value.create(arr);
-      }
+      Value val = getInitialValue(attrs);
       ret = new PinState(val, val);
       state.setData(ret);
     }
@@ -1090,15 +1085,7 @@ public class Pin extends InstanceFactory {
       Value found = state.getPortValue(0);
       Value toSend = q.intendedValue;
 
-      Object pull = attrs.pull;
-      Value pullTo = null;
-      if (pull == PULL_DOWN) {
-        pullTo = Value.FALSE;
-      } else if (pull == PULL_UP) {
-        pullTo = Value.TRUE;
-      } else if (!attrs.threeState && !state.isCircuitRoot()) {
-        pullTo = Value.FALSE;
-      }
+      Value pullTo = getPullTo(attrs, state.isCircuitRoot());
       if (pullTo != null) {
         toSend = pull2(toSend, attrs.width, pullTo);
         if (state.isCircuitRoot()) {
@@ -1120,29 +1107,60 @@ public class Pin extends InstanceFactory {
 
   public void setValue(InstanceState state, Value value) {
     PinAttributes attrs = (PinAttributes) state.getAttributeSet();
-    Object pull = attrs.pull;
+    getState(state).intendedValue = getIntendedValue(attrs, value);
+  }
 
-    PinState myState = getState(state);
+  private static Value getIntendedValue(PinAttributes attrs, Value value) {
+    Object pull = attrs.pull;
     if (value == Value.NIL) {
-      myState.intendedValue = Value.createUnknown(attrs.width);
+      return Value.createUnknown(attrs.width);
+    } else if (pull == PULL_NONE || pull == null || value.isFullyDefined()) {
+      return value;
     } else {
-      Value sendValue;
-      if (pull == PULL_NONE || pull == null || value.isFullyDefined()) {
-        sendValue = value;
-      } else {
-        Value[] bits = value.getAll();
-        if (pull == PULL_UP) {
-          for (int i = 0; i < bits.length; i++) {
-            if (bits[i] != Value.FALSE) bits[i] = Value.TRUE;
-          }
-        } else if (pull == PULL_DOWN) {
-          for (int i = 0; i < bits.length; i++) {
-            if (bits[i] != Value.TRUE) bits[i] = Value.FALSE;
-          }
+      Value[] bits = value.getAll();
+      if (pull == PULL_UP) {
+        for (int i = 0; i < bits.length; i++) {
+          if (bits[i] != Value.FALSE) bits[i] = Value.TRUE;
+        }
+      } else if (pull == PULL_DOWN) {
+        for (int i = 0; i < bits.length; i++) {
+          if (bits[i] != Value.TRUE) bits[i] = Value.FALSE;
         }
-        sendValue = Value.create(bits);
       }
-      myState.intendedValue = sendValue;
+      return Value.create(bits);
+    }
+  }
+
+  /**
+   * Returns the value that an input pin drives into its circuit when it is set to the given value,
+   * for a subcircuit the value at its port in the enclosing circuit.
+   */
+  public Value getDrivenValue(Instance pin, Value value, boolean isRoot) {
+    PinAttributes attrs = (PinAttributes) pin.getAttributeSet();
+    Value toSend = getIntendedValue(attrs, value);
+    Value pullTo = getPullTo(attrs, isRoot);
+    return pullTo == null ? toSend : pull2(toSend, attrs.width, pullTo);
+  }
+
+  /** Returns the value of an input pin that hasn't been set yet. */
+  public Value getInitialValue(Instance pin) {
+    return getInitialValue((PinAttributes) pin.getAttributeSet());
+  }
+
+  private static Value getInitialValue(PinAttributes attrs) {
+    return Value.repeat(attrs.threeState ? Value.UNKNOWN : Value.FALSE, attrs.width.getWidth());
+  }
+
+  private static Value getPullTo(PinAttributes attrs, boolean isRoot) {
+    Object pull = attrs.pull;
+    if (pull == PULL_DOWN) {
+      return Value.FALSE;
+    } else if (pull == PULL_UP) {
+      return Value.TRUE;
+    } else if (!attrs.threeState && !isRoot) {
+      return Value.FALSE;
+    } else {
+      return null;
     }
   }
 }
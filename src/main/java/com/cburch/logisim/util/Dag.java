@@ -28,14 +28,15 @@
 
 package com.cburch.logisim.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 public class Dag {
   private static class Node {
-    @SuppressWarnings("unused")
     Object data;
 
     HashSet<Node> succs = new HashSet<Node>(); // of Nodes
@@ -60,6 +61,20 @@ public class Dag {
     return true;
   }
 
+  /**
+   * Adds an edge without checking whether it closes a cycle, so that large graphs can be built in
+   * linear time. Cycles are reported by getTopologicalOrder instead.
+   */
+  public void addEdgeUnchecked(Object srcData, Object dstData) {
+    Node src = createNode(srcData);
+    Node dst = createNode(dstData);
+    if (src.succs.add(dst)) ++dst.numPreds;
+  }
+
+  public void addNode(Object data) {
+    createNode(data);
+  }
+
   private boolean canFollow(Node query, Node base) {
     if (base == query) return false;
 
@@ -110,6 +125,30 @@ public class Dag {
     return nodes.get(data);
   }
 
+  /**
+   * Returns all nodes ordered so that each node comes after all its predecessors, or null if the
+   * graph contains a cycle.
+   */
+  public List<Object> getTopologicalOrder() {
+    HashMap<Node, Integer> preds = new HashMap<Node, Integer>();
+    LinkedList<Node> ready = new LinkedList<Node>();
+    for (Node n : nodes.values()) {
+      if (n.numPreds == 0) ready.add(n);
+      else preds.put(n, n.numPreds);
+    }
+    List<Object> ret = new ArrayList<Object>(nodes.size());
+    while (!ready.isEmpty()) {
+      Node n = ready.removeFirst();
+      ret.add(n.data);
+      for (Node next : n.succs) {
+        int left = preds.get(next) - 1;
+        if (left == 0) ready.addLast(next);
+        else preds.put(next, left);
+      }
+    }
+    return ret.size() == nodes.size() ? ret : null;
+  }
+
   public boolean hasPredecessors(Object data) {
     Node from = findNode(data);
     return from != null && from.numPreds != 0;
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MinimizerTest {
+
+	/* a column with the given rows on, the given rows off and all others don't care */
+	private static long[][] column(int inputs, int[] onRows, int[] offRows) {
+		long[] on = Minimizer.newRowSet(inputs);
+		long[] off = Minimizer.newRowSet(inputs);
+		for (int row : onRows)
+			Minimizer.add(on, row);
+		for (int row : offRows)
+			Minimizer.add(off, row);
+		return new long[][] { on, off };
+	}
+
+	/* a random column with one row in ten a don't care */
+	private static long[][] randomColumn(int inputs, Random rand) {
+		long[] on = Minimizer.newRowSet(inputs);
+		long[] off = Minimizer.newRowSet(inputs);
+		for (int row = 0; row < 1 << inputs; row++) {
+			int kind = rand.nextInt(10);
+			if (kind == 0)
+				continue;
+			Minimizer.add(kind % 2 == 0 ? on : off, row);
+		}
+		return new long[][] { on, off };
+	}
+
+	private static boolean contains(long[] set, int row) {
+		return (set[row >>> 6] & (1L << row)) != 0;
+	}
+
+	private static boolean covers(long cube, int row) {
+		int unknowns = Minimizer.unknowns(cube);
+		return (row & ~unknowns) == Minimizer.values(cube);
+	}
+
+	/* checks that the cover holds every on-row and no off-row of the column */
+	private static void assertEquivalent(int inputs, long[] on, long[] off, long[] cover) {
+		for (int row = 0; row < 1 << inputs; row++) {
+			boolean covered = false;
+			for (long cube : cover)
+				covered |= covers(cube, row);
+			if (contains(on, row))
+				assertTrue("on-row " + row + " not covered", covered);
+			if (contains(off, row))
+				assertFalse("off-row " + row + " covered", covered);
+		}
+	}
+
+	@Test
+	public void testRandomColumnsHeuristic() {
+		Random rand = new Random(1);
+		for (int inputs = 1; inputs <= 10; inputs++) {
+			for (int i = 0; i < 20; i++) {
+				long[][] col = randomColumn(inputs, rand);
+				long[] cover = Minimizer.minimize(inputs, col[0], col[1], false);
+				assertEquivalent(inputs, col[0], col[1], cover);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomColumnsExact() {
+		Random rand = new Random(2);
+		for (int inputs = 1; inputs <= 8; inputs++) {
+			for (int i = 0; i < 20; i++) {
+				long[][] col = randomColumn(inputs, rand);
+				long[] heuristic = Minimizer.minimize(inputs, col[0], col[1], false);
+				long[] exact = Minimizer.minimize(inputs, col[0], col[1], true);
+				assertEquivalent(inputs, col[0], col[1], exact);
+				assertTrue(exact.length <= heuristic.length);
+			}
+		}
+	}
+
+	@Test
+	public void testKnownMinima() {
+		/* majority of three inputs: ab + ac + bc */
+		long[][] majority = column(3, new int[] { 3, 5, 6, 7 }, new int[] { 0, 1, 2, 4 });
+		assertEquals(3, Minimizer.minimize(3, majority[0], majority[1], true).length);
+		/* parity of three inputs can not be merged at all */
+		long[][] parity = column(3, new int[] { 1, 2, 4, 7 }, new int[] { 0, 3, 5, 6 });
+		assertEquals(4, Minimizer.minimize(3, parity[0], parity[1], true).length);
+		assertEquals(4, Minimizer.minimize(3, parity[0], parity[1], false).length);
+		/* the don't cares let a single cube cover all on-rows */
+		long[][] dontCare = column(2, new int[] { 1, 3 }, new int[] { 0 });
+		long[] cover = Minimizer.minimize(2, dontCare[0], dontCare[1], true);
+		assertEquals(1, cover.length);
+		assertEquivalent(2, dontCare[0], dontCare[1], cover);
+	}
+
+	@Test
+	public void testCyclicCoreExact() {
+		/* every on-row lies in exactly two of the six primes, so none is
+		 * essential and the search has to find three that cover all */
+		long[][] col = column(3, new int[] { 0, 1, 2, 5, 6, 7 }, new int[] { 3, 4 });
+		long[] cover = Minimizer.minimize(3, col[0], col[1], true);
+		assertEquivalent(3, col[0], col[1], cover);
+		assertEquals(3, cover.length);
+	}
+
+	@Test
+	public void testExactFallsBackOnWideTables() {
+		Random rand = new Random(3);
+		int inputs = Minimizer.MAX_EXACT_INPUTS + 1;
+		long[][] col = randomColumn(inputs, rand);
+		long[] heuristic = Minimizer.minimize(inputs, col[0], col[1], false);
+		long[] exact = Minimizer.minimize(inputs, col[0], col[1], true);
+		assertEquivalent(inputs, col[0], col[1], exact);
+		assertEquals(heuristic.length, exact.length);
+	}
+
+	@Test
+	public void testEmptyOnSet() {
+		long[][] col = column(3, new int[0], new int[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+		assertEquals(0, Minimizer.minimize(3, col[0], col[1], false).length);
+		assertEquals(0, Minimizer.minimize(3, col[0], col[1], true).length);
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedColumnTest {
+
+	private static final Entry[] ENTRIES = { Entry.ZERO, Entry.ONE, Entry.DONT_CARE,
+			Entry.BUS_ERROR, Entry.OSCILLATE_ERROR };
+
+	private static Entry[] randomEntries(int size, Random rand) {
+		Entry[] ret = new Entry[size];
+		for (int i = 0; i < size; i++)
+			ret[i] = ENTRIES[rand.nextInt(ENTRIES.length)];
+		return ret;
+	}
+
+	@Test
+	public void testFreshColumnIsDontCare() {
+		PackedColumn column = new PackedColumn(100);
+		assertEquals(100, column.size());
+		for (int i = 0; i < column.size(); i++)
+			assertEquals(Entry.DONT_CARE, column.get(i));
+	}
+
+	@Test
+	public void testSetGetRoundTrip() {
+		Random rand = new Random(1);
+		int[] sizes = { 1, 2, 31, 32, 33, 64, 1000 };
+		for (int size : sizes) {
+			Entry[] values = randomEntries(size, rand);
+			PackedColumn column = new PackedColumn(size);
+			for (int i = 0; i < size; i++)
+				column.set(i, values[i]);
+			for (int i = 0; i < size; i++)
+				assertEquals("row " + i + " of " + size, values[i], column.get(i));
+			assertEquals(PackedColumn.of(values), column);
+			Entry[] back = column.toArray();
+			for (int i = 0; i < size; i++)
+				assertEquals(values[i], back[i]);
+		}
+	}
+
+	@Test
+	public void testSetReportsChange() {
+		PackedColumn column = new PackedColumn(40);
+		assertFalse(column.set(33, Entry.DONT_CARE));
+		assertTrue(column.set(33, Entry.ONE));
+		assertFalse(column.set(33, Entry.ONE));
+		assertTrue(column.set(33, Entry.DONT_CARE));
+		assertEquals(Entry.DONT_CARE, column.get(33));
+	}
+
+	@Test
+	public void testErrorKindsAreKept() {
+		PackedColumn column = new PackedColumn(8);
+		column.set(2, Entry.OSCILLATE_ERROR);
+		column.set(3, Entry.BUS_ERROR);
+		assertEquals(Entry.OSCILLATE_ERROR, column.get(2));
+		assertEquals(Entry.BUS_ERROR, column.get(3));
+		assertTrue(column.set(2, Entry.BUS_ERROR));
+		assertEquals(Entry.BUS_ERROR, column.get(2));
+		assertTrue(column.set(3, Entry.OSCILLATE_ERROR));
+		assertEquals(Entry.OSCILLATE_ERROR, column.get(3));
+		column.set(3, Entry.ZERO);
+		assertEquals(Entry.ZERO, column.get(3));
+		column.set(3, Entry.BUS_ERROR);
+		assertEquals(Entry.BUS_ERROR, column.get(3));
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		PackedColumn column = PackedColumn.of(randomEntries(70, new Random(2)));
+		column.set(5, Entry.OSCILLATE_ERROR);
+		PackedColumn copy = column.copy();
+		assertNotSame(column, copy);
+		assertEquals(column, copy);
+		assertEquals(column.hashCode(), copy.hashCode());
+		copy.set(5, Entry.ONE);
+		copy.set(69, Entry.ZERO);
+		column.set(69, Entry.ONE);
+		assertEquals(Entry.OSCILLATE_ERROR, column.get(5));
+		assertEquals(Entry.ONE, column.get(69));
+		assertEquals(Entry.ONE, copy.get(5));
+		assertEquals(Entry.ZERO, copy.get(69));
+		assertFalse(column.equals(copy));
+	}
+
+	@Test
+	public void testSameEntry() {
+		PackedColumn column = PackedColumn.of(new Entry[] { Entry.ONE, Entry.ONE, Entry.ZERO,
+				Entry.BUS_ERROR, Entry.OSCILLATE_ERROR });
+		assertTrue(column.sameEntry(0, 1));
+		assertFalse(column.sameEntry(1, 2));
+		assertFalse(column.sameEntry(3, 4));
+	}
+
+	@Test
+	public void testCollectRows() {
+		Random rand = new Random(3);
+		for (int inputs = 0; inputs <= 8; inputs++) {
+			int size = 1 << inputs;
+			PackedColumn column = PackedColumn.of(randomEntries(size, rand));
+			Entry[] kinds = { Entry.ZERO, Entry.ONE, Entry.DONT_CARE };
+			for (Entry kind : kinds) {
+				long[] set = Minimizer.newRowSet(inputs);
+				column.collectRows(kind, set);
+				for (int row = 0; row < size; row++) {
+					boolean in = (set[row >>> 6] & (1L << row)) != 0;
+					assertEquals(kind + " row " + row + " of " + size, column.get(row) == kind, in);
+				}
+				for (int row = size; row < set.length << 6; row++)
+					assertFalse((set[row >>> 6] & (1L << row)) != 0);
+			}
+		}
+	}
+}
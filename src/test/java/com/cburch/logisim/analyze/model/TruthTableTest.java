@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TruthTableTest {
+
+	private AnalyzerModel model;
+	private TruthTable table;
+	private Var a, b, c, y;
+
+	/* y = a and b, c does not matter */
+	private static Entry and(int idx) {
+		return (idx & 6) == 6 ? Entry.ONE : Entry.ZERO;
+	}
+
+	@Before
+	public void setUp() {
+		model = new AnalyzerModel();
+		a = new Var("a", 1);
+		b = new Var("b", 1);
+		c = new Var("c", 1);
+		y = new Var("y", 1);
+		model.setVariables(new ArrayList<Var>(Arrays.asList(a, b, c)),
+				new ArrayList<Var>(Arrays.asList(y)));
+		table = model.getTruthTable();
+		Entry[] values = new Entry[8];
+		for (int i = 0; i < 8; i++)
+			values[i] = and(i);
+		table.setOutputColumn(0, values);
+	}
+
+	@Test
+	public void testOutputEntries() {
+		assertEquals(8, table.getRowCount());
+		assertEquals(8, table.getVisibleRowCount());
+		for (int i = 0; i < 8; i++) {
+			assertEquals(and(i), table.getOutputEntry(i, 0));
+			assertEquals(and(i), table.getVisibleOutputEntry(i, 0));
+		}
+		table.setOutputEntry(5, 0, Entry.DONT_CARE);
+		assertEquals(Entry.DONT_CARE, table.getOutputEntry(5, 0));
+		assertEquals(Entry.DONT_CARE, table.getOutputColumn(0)[5]);
+		assertEquals(Entry.ONE, table.getInputEntry(5, 0));
+		assertEquals(Entry.ZERO, table.getInputEntry(5, 1));
+		assertEquals(Entry.ONE, table.getInputEntry(5, 2));
+	}
+
+	@Test
+	public void testMergeAndExpandRows() {
+		/* c can be made a don't care in every row, since y ignores it */
+		for (int row = 0; row < table.getVisibleRowCount(); row++)
+			assertTrue(table.setVisibleInputEntry(row, 2, Entry.DONT_CARE, false));
+		assertEquals(4, table.getVisibleRowCount());
+		for (int row = 0; row < 4; row++) {
+			assertEquals(Entry.DONT_CARE, table.getVisibleInputEntry(row, 2));
+			assertEquals(1, table.getVisibleRowDcMask(row));
+			assertEquals(2 * row, table.getVisibleRowIndex(row));
+		}
+		/* a can not be merged, as y depends on it */
+		assertFalse(table.setVisibleInputEntry(3, 0, Entry.DONT_CARE, false));
+		assertEquals(4, table.getVisibleRowCount());
+
+		table.expandVisibleRows();
+		assertEquals(8, table.getVisibleRowCount());
+		for (int i = 0; i < 8; i++) {
+			assertEquals(i, table.getVisibleRowIndex(i));
+			assertEquals(and(i), table.getVisibleOutputEntry(i, 0));
+		}
+	}
+
+	@Test
+	public void testOutputEntrySplitsMergedRow() {
+		table.setVisibleInputEntry(6, 2, Entry.DONT_CARE, false);
+		assertEquals(7, table.getVisibleRowCount());
+		assertEquals(6, table.findVisibleRowContaining(7));
+		table.setOutputEntry(7, 0, Entry.ZERO);
+		assertEquals(8, table.getVisibleRowCount());
+		assertEquals(Entry.ONE, table.getOutputEntry(6, 0));
+		assertEquals(Entry.ZERO, table.getOutputEntry(7, 0));
+	}
+
+	@Test
+	public void testForcedMergeCopiesBaseOutputs() {
+		/* rows 4 and 6 differ in y; forcing b to a don't care keeps row 4 */
+		assertTrue(table.setVisibleInputEntry(4, 1, Entry.DONT_CARE, true));
+		assertEquals(7, table.getVisibleRowCount());
+		assertEquals(Entry.ZERO, table.getOutputEntry(4, 0));
+		assertEquals(Entry.ZERO, table.getOutputEntry(6, 0));
+		table.setVisibleInputEntry(4, 1, Entry.ONE, false);
+		assertEquals(8, table.getVisibleRowCount());
+	}
+
+	@Test
+	public void testAddInput() {
+		model.getInputs().add(new Var("d", 1));
+		assertEquals(4, table.getInputColumnCount());
+		assertEquals(16, table.getRowCount());
+		/* the new input is the least significant one, so every old row is doubled */
+		for (int i = 0; i < 16; i++)
+			assertEquals(and(i >> 1), table.getOutputEntry(i, 0));
+	}
+
+	@Test
+	public void testMoveInput() {
+		/* order a, c, b: old index abc moves to acb */
+		model.getInputs().move(c, -1);
+		assertEquals("c", table.getInputHeader(1));
+		for (int i = 0; i < 8; i++) {
+			int old = (i & 4) | ((i & 2) >> 1) | ((i & 1) << 1);
+			assertEquals(and(old), table.getOutputEntry(i, 0));
+		}
+	}
+
+	@Test
+	public void testRemoveInput() {
+		/* y does not depend on c, so removing it loses nothing */
+		model.getInputs().remove(c);
+		assertEquals(4, table.getRowCount());
+		for (int i = 0; i < 4; i++)
+			assertEquals(and(i << 1), table.getOutputEntry(i, 0));
+		/* removing a from the expanded table keeps the rows with a clear */
+		model.getInputs().remove(a);
+		assertEquals(2, table.getRowCount());
+		assertEquals(Entry.ZERO, table.getOutputEntry(0, 0));
+		assertEquals(Entry.ZERO, table.getOutputEntry(1, 0));
+	}
+
+	@Test
+	public void testRemoveInputFromMergedTable() {
+		table.setVisibleInputEntry(0, 2, Entry.DONT_CARE, false);
+		assertEquals(7, table.getVisibleRowCount());
+		/* a is forced to a don't care first, which copies the rows with a
+		 * clear over the ones with a set */
+		model.getInputs().remove(a);
+		assertEquals(4, table.getRowCount());
+		/* the merged row b=0, c=- survives the removal */
+		assertEquals(3, table.getVisibleRowCount());
+		assertEquals(1, table.getVisibleRowDcMask(0));
+		for (int i = 0; i < 4; i++)
+			assertEquals(Entry.ZERO, table.getOutputEntry(i, 0));
+	}
+
+	@Test
+	public void testAddAndRemoveOutput() {
+		Var z = new Var("z", 1);
+		model.getOutputs().add(z);
+		assertEquals(2, table.getOutputColumnCount());
+		for (int i = 0; i < 8; i++) {
+			assertEquals(and(i), table.getOutputEntry(i, 0));
+			assertEquals(Entry.DONT_CARE, table.getOutputEntry(i, 1));
+		}
+		table.setOutputEntry(3, 1, Entry.ONE);
+		model.getOutputs().remove(y);
+		assertEquals(1, table.getOutputColumnCount());
+		assertEquals("z", table.getOutputHeader(0));
+		assertEquals(Entry.ONE, table.getOutputEntry(3, 0));
+		assertEquals(Entry.DONT_CARE, table.getOutputEntry(4, 0));
+	}
+}
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+
+public class CircuitWiresTest {
+
+	private Project proj;
+
+	@After
+	public void tearDown() {
+		if (proj != null)
+			proj.getSimulator().shutDown();
+	}
+
+	private static Component createPin(Location loc, int width) {
+		return createPin(loc, false, width);
+	}
+
+	private static Component createPin(Location loc, boolean output,
+			int width) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	private static CircuitWires build(Iterable<Component> comps) {
+		CircuitWires ret = new CircuitWires(new CircuitLocker());
+		for (Component comp : comps)
+			ret.add(comp);
+		return ret;
+	}
+
+	/**
+	 * Checks that the bundle map and the point numbering of the given wires
+	 * match those built from scratch for the same components.
+	 */
+	private static void assertSameWiring(CircuitWires wires,
+			Iterable<Component> comps, Iterable<Location> everUsed) {
+		CircuitWires.BundleMap actual = wires.getBundleMap();
+		CircuitWires.BundleMap expected = build(comps).getBundleMap();
+		assertEquals(expected.isValid(), actual.isValid());
+		int live = 0;
+		for (int id = 0; id < actual.netIndex.size(); id++)
+			if (actual.netIndex.isLive(id))
+				live++;
+		assertEquals(expected.netIndex.size(), live);
+		for (Location loc : everUsed) {
+			WireBundle exp = expected.getBundleAt(loc);
+			WireBundle act = actual.getBundleAt(loc);
+			if (exp == null) {
+				assertNull(act);
+			} else {
+				assertNotNull(act);
+				assertEquals(exp.points, act.points);
+				assertEquals(exp.getWidth(), act.getWidth());
+				assertEquals(exp.threads == null, act.threads == null);
+				if (exp.threads != null)
+					assertEquals(exp.threads.length, act.threads.length);
+			}
+			int id = actual.netIndex.indexOf(loc);
+			if (expected.netIndex.indexOf(loc) < 0) {
+				assertEquals(-1, id);
+			} else {
+				assertTrue(id >= 0);
+				assertEquals(loc, actual.netIndex.getLocation(id));
+				assertTrue(actual.netIndex.isLive(id));
+				assertEquals(
+						expected.netIndex.getComponents(
+								expected.netIndex.indexOf(loc)).length,
+						actual.netIndex.getComponents(id).length);
+			}
+		}
+		HashSet<WireBundle> expBundles = new HashSet<WireBundle>();
+		for (WireBundle b : expected.getBundles())
+			expBundles.add(b);
+		HashSet<WireBundle> actBundles = new HashSet<WireBundle>();
+		for (WireBundle b : actual.getBundles())
+			actBundles.add(b);
+		assertEquals(expBundles.size(), actBundles.size());
+		HashSet<WidthIncompatibilityData> expWids = expected
+				.getWidthIncompatibilityData();
+		HashSet<WidthIncompatibilityData> actWids = actual
+				.getWidthIncompatibilityData();
+		assertEquals(expWids == null ? 0 : expWids.size(),
+				actWids == null ? 0 : actWids.size());
+	}
+
+	@Test
+	public void testDerivedMapsMatchFullBuilds() {
+		Random rand = new Random(1);
+		ArrayList<Component> comps = new ArrayList<Component>();
+		HashSet<Location> everUsed = new HashSet<Location>();
+		CircuitWires wires = build(comps);
+		wires.getBundleMap();
+		int derived = 0;
+		for (int step = 0; step < 400; step++) {
+			if (!comps.isEmpty() && rand.nextInt(3) == 0) {
+				wires.remove(comps.remove(rand.nextInt(comps.size())));
+			} else {
+				Location a = Location.create(10 * rand.nextInt(20),
+						10 * rand.nextInt(20));
+				Component comp;
+				if (rand.nextInt(5) == 0) {
+					comp = createPin(a, 1 + rand.nextInt(2));
+				} else {
+					Location b = rand.nextBoolean()
+							? a.translate(10 * (1 + rand.nextInt(3)), 0)
+							: a.translate(0, 10 * (1 + rand.nextInt(3)));
+					comp = Wire.create(a, b);
+					everUsed.add(b);
+				}
+				everUsed.add(a);
+				if (!wires.add(comp))
+					continue;
+				comps.add(comp);
+			}
+			if (wires.getBundleMap().changedPoints != null)
+				derived++;
+			assertSameWiring(wires, comps, everUsed);
+		}
+		assertTrue(derived > 0);
+	}
+
+	/** Adds count disjoint wires with a pin at one end of each. */
+	private static CircuitWires createLadder(int count) {
+		ArrayList<Component> comps = new ArrayList<Component>();
+		for (int i = 0; i < count; i++) {
+			Location a = Location.create(0, 20 * i);
+			comps.add(Wire.create(a, a.translate(30, 0)));
+			comps.add(createPin(a, 8));
+		}
+		CircuitWires ret = build(comps);
+		ret.getBundleMap();
+		return ret;
+	}
+
+	/**
+	 * Extends and then shortens one rung of the ladder a number of times,
+	 * checking that each new map is derived from the previous one and, if
+	 * checkSharing is set, shares its tables, and returns the time taken in
+	 * nanoseconds. Small circuits merge or renumber their tables every few
+	 * edits, so they are not checked for sharing.
+	 */
+	private static long timeEdits(CircuitWires wires, int edits,
+			boolean checkSharing) {
+		long start = System.nanoTime();
+		for (int i = 0; i < edits; i++) {
+			CircuitWires.BundleMap before = wires.getBundleMap();
+			Location end = Location.create(30, 20 * (i % 10));
+			Wire w = Wire.create(end, end.translate(10, 0));
+			wires.add(w);
+			CircuitWires.BundleMap after = wires.getBundleMap();
+			assertNotNull(after.changedPoints);
+			assertTrue(after.changedPoints.size() <= 4);
+			if (checkSharing) {
+				assertSame(before.pointBundles, after.pointBundles);
+				assertSame(before.bundles, after.bundles);
+				assertTrue(after.netIndex.isDerivedFrom(before.netIndex));
+				assertTrue(after.netIndex.size()
+						- before.netIndex.size() <= 4);
+			}
+			wires.remove(w);
+			wires.getBundleMap();
+		}
+		return System.nanoTime() - start;
+	}
+
+	@Test
+	public void testEditCostDoesNotDependOnCircuitSize() {
+		CircuitWires small = createLadder(20);
+		CircuitWires large = createLadder(20000);
+		long smallTime = Long.MAX_VALUE;
+		long largeTime = Long.MAX_VALUE;
+		// warm up, then take the best of a few rounds to keep noise out
+		for (int round = 0; round < 5; round++) {
+			smallTime = Math.min(smallTime, timeEdits(small, 200, false));
+			largeTime = Math.min(largeTime, timeEdits(large, 200, true));
+		}
+		// a full rebuild or copy of the large circuit's maps on each edit
+		// would make it about a thousand times slower than the small one
+		assertTrue("small: " + smallTime + "ns, large: " + largeTime + "ns",
+				largeTime < 10 * smallTime);
+	}
+
+	@Test
+	public void testValuesFollowEdits() {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.createNew(loader, null);
+		proj = new Project(file);
+		Circuit circ = new Circuit("main", file, proj);
+		file.addCircuit(circ);
+		int count = 50;
+		ArrayList<Component> inputs = new ArrayList<Component>();
+		CircuitMutation xn = new CircuitMutation(circ);
+		for (int i = 0; i < count; i++) {
+			Location a = Location.create(0, 20 * i);
+			Component in = createPin(a, false, 8);
+			inputs.add(in);
+			xn.add(in);
+			xn.add(Wire.create(a, a.translate(30, 0)));
+			xn.add(createPin(a.translate(30, 10), true, 8));
+		}
+		xn.execute();
+
+		CircuitState state = new CircuitState(proj, circ);
+		state.markComponentsDirty(circ.getNonWires());
+		for (int i = 0; i < count; i++) {
+			Component in = inputs.get(i);
+			Pin.FACTORY.setValue(state.getInstanceState(in),
+					Value.createKnown(BitWidth.create(8), i));
+			state.markComponentAsDirty(in);
+		}
+		state.getPropagator().propagate();
+
+		// bridge and open the gap of random rungs, one at a time; the bridge
+		// is at a right angle, so that it is not merged into the rung
+		Random rand = new Random(1);
+		for (int step = 0; step < 100; step++) {
+			int i = rand.nextInt(count);
+			Location end = Location.create(30, 20 * i);
+			Location out = end.translate(0, 10);
+			Wire bridge = Wire.create(end, out);
+			xn = new CircuitMutation(circ);
+			xn.add(bridge);
+			xn.execute();
+			state.getPropagator().propagate();
+			assertTrue(circ.getWires().contains(bridge));
+			assertEquals(Value.createKnown(BitWidth.create(8), i),
+					state.getValue(out));
+			xn = new CircuitMutation(circ);
+			xn.remove(bridge);
+			xn.execute();
+			state.getPropagator().propagate();
+			assertEquals(Value.createKnown(BitWidth.create(8), i),
+					state.getValue(end));
+			assertTrue(!state.getValue(out).isFullyDefined());
+		}
+		assertNotNull(circ.wires.getBundleMap().changedPoints);
+	}
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledCircuitTest {
+
+	private static final BitWidth WIDTH = BitWidth.create(8);
+
+	private Loader loader = new Loader(null);
+	private Project proj;
+	private Circuit top;
+	private Component cell;
+	private CircuitState state;
+	private ArrayList<Component> inputs = new ArrayList<Component>();
+	private Component output;
+	private Component innerOutput;
+
+	private static Component createPin(Location loc, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.WIDTH, WIDTH);
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	/**
+	 * Builds a circuit holding a XOR gate with pins at its ends and a top
+	 * circuit holding one instance of it with pins at its ends, and
+	 * simulates the top circuit in compiled mode.
+	 */
+	@Before
+	public void setUp() {
+		LogisimFile file = LogisimFile.createNew(loader, null);
+		proj = new Project(file);
+		Circuit inner = new Circuit("inner", file, proj);
+		file.addCircuit(inner);
+		ComponentFactory xor = ((AddTool) loader.getBuiltin()
+				.getLibrary("Gates").getTool("XOR Gate")).getFactory();
+		AttributeSet attrs = xor.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, WIDTH);
+		Component gate = xor.createComponent(Location.create(200, 200), attrs);
+		CircuitMutation xn = new CircuitMutation(inner);
+		xn.add(gate);
+		for (EndData end : gate.getEnds()) {
+			Component pin = createPin(end.getLocation(), end.isOutput());
+			xn.add(pin);
+			if (end.isOutput())
+				innerOutput = pin;
+		}
+		xn.execute();
+
+		top = new Circuit("top", file, proj);
+		file.addCircuit(top);
+		SubcircuitFactory factory = inner.getSubcircuitFactory();
+		cell = factory.createComponent(Location.create(200, 200),
+				factory.createAttributeSet());
+		xn = new CircuitMutation(top);
+		xn.add(cell);
+		for (EndData end : cell.getEnds()) {
+			Component pin = createPin(end.getLocation(), end.isOutput());
+			xn.add(pin);
+			if (end.isOutput())
+				output = pin;
+			else
+				inputs.add(pin);
+		}
+		xn.execute();
+
+		state = new CircuitState(proj, top);
+		state.getPropagator().setCompiledMode(true);
+		state.markComponentsDirty(top.getNonWires());
+	}
+
+	@After
+	public void tearDown() {
+		proj.getSimulator().shutDown();
+	}
+
+	private void simulate(int a, int b) {
+		Pin.FACTORY.setValue(state.getInstanceState(inputs.get(0)),
+				Value.createKnown(WIDTH, a));
+		Pin.FACTORY.setValue(state.getInstanceState(inputs.get(1)),
+				Value.createKnown(WIDTH, b));
+		state.markComponentAsDirty(inputs.get(0));
+		state.markComponentAsDirty(inputs.get(1));
+		state.getPropagator().propagate();
+		assertEquals(Value.createKnown(WIDTH, a ^ b),
+				state.getValue(output.getLocation()));
+	}
+
+	private Value getInnerOutput() {
+		CircuitState sub = ((SubcircuitFactory) cell.getFactory()).getSubstate(
+				state, cell);
+		return sub.getValue(innerOutput.getLocation());
+	}
+
+	@Test
+	public final void testObservedSubstateIsSimulated() {
+		simulate(0x0f, 0x35);
+		assertNotEquals(Value.createKnown(WIDTH, 0x0f ^ 0x35),
+				getInnerOutput());
+
+		Component[] path = new Component[] {cell};
+		state.addObserver(path);
+		state.getPropagator().propagate();
+		assertEquals(Value.createKnown(WIDTH, 0x0f ^ 0x35), getInnerOutput());
+		simulate(0x81, 0x18);
+		assertEquals(Value.createKnown(WIDTH, 0x81 ^ 0x18), getInnerOutput());
+
+		state.removeObserver(path);
+		simulate(0x22, 0x44);
+		assertEquals(Value.createKnown(WIDTH, 0x81 ^ 0x18), getInnerOutput());
+	}
+
+	@Test
+	public final void testObserversAreCounted() {
+		Component[] path = new Component[] {cell};
+		state.addObserver(path);
+		state.addObserver(path);
+		state.removeObserver(path);
+		simulate(0x0f, 0x35);
+		assertEquals(Value.createKnown(WIDTH, 0x0f ^ 0x35), getInnerOutput());
+		state.removeObserver(path);
+		simulate(0x22, 0x44);
+		assertEquals(Value.createKnown(WIDTH, 0x0f ^ 0x35), getInnerOutput());
+	}
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelPropagationTest {
+
+	private static final BitWidth WIDTH = BitWidth.create(8);
+
+	private Loader loader = new Loader(null);
+	private LogisimFile file;
+	private Project proj;
+
+	@After
+	public void tearDown() {
+		if (proj != null)
+			proj.getSimulator().shutDown();
+	}
+
+	private ComponentFactory getFactory(String lib, String name) {
+		return ((AddTool) loader.getBuiltin().getLibrary(lib).getTool(name))
+				.getFactory();
+	}
+
+	private Circuit createCircuit(String name) {
+		if (file == null) {
+			file = LogisimFile.createNew(loader, null);
+			proj = new Project(file);
+		}
+		Circuit ret = new Circuit(name, file, proj);
+		file.addCircuit(ret);
+		return ret;
+	}
+
+	private static Component createPin(Location loc, boolean output,
+			BitWidth width) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.WIDTH, width);
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	/**
+	 * Adds the component and a pin at each of its ends, except the first
+	 * input end if skipInput is set and the output ends if skipOutputs is
+	 * set.
+	 */
+	private static void addWithPins(CircuitMutation xn, Component comp,
+			boolean skipInput, boolean skipOutputs) {
+		xn.add(comp);
+		for (EndData end : comp.getEnds()) {
+			if (end.isOutput() ? skipOutputs : skipInput) {
+				skipInput = end.isOutput() && skipInput;
+				continue;
+			}
+			xn.add(createPin(end.getLocation(), end.isOutput(),
+					end.getWidth()));
+		}
+	}
+
+	private static Location getEnd(Component comp, boolean output) {
+		for (EndData end : comp.getEnds())
+			if (end.isOutput() == output)
+				return end.getLocation();
+		return null;
+	}
+
+	private static void connect(CircuitMutation xn, Location a, Location b) {
+		Location corner = Location.create(b.getX(), a.getY());
+		if (!corner.equals(a))
+			xn.add(Wire.create(a, corner));
+		if (!corner.equals(b))
+			xn.add(Wire.create(corner, b));
+	}
+
+	/**
+	 * Builds a cell circuit holding the given component with pins at its
+	 * ends, a circuit chaining two cells, and a top circuit holding many
+	 * instances of the chain with pins at their ends.
+	 */
+	private Circuit createDesign(Component cellComp, int count) {
+		Circuit cell = createCircuit("cell");
+		CircuitMutation xn = new CircuitMutation(cell);
+		addWithPins(xn, cellComp, false, false);
+		xn.execute();
+
+		Circuit chain = createCircuit("chain");
+		SubcircuitFactory cellFactory = cell.getSubcircuitFactory();
+		Component first = cellFactory.createComponent(Location.create(200, 100),
+				cellFactory.createAttributeSet());
+		Component second = cellFactory.createComponent(
+				Location.create(400, 300), cellFactory.createAttributeSet());
+		xn = new CircuitMutation(chain);
+		addWithPins(xn, first, false, true);
+		addWithPins(xn, second, true, false);
+		xn.execute();
+		xn = new CircuitMutation(chain);
+		connect(xn, getEnd(first, true), getEnd(second, false));
+		xn.execute();
+
+		Circuit top = createCircuit("top");
+		SubcircuitFactory chainFactory = chain.getSubcircuitFactory();
+		xn = new CircuitMutation(top);
+		for (int i = 0; i < count; i++)
+			addWithPins(xn, chainFactory.createComponent(
+					Location.create(200 + 400 * (i % 8), 200 + 400 * (i / 8)),
+					chainFactory.createAttributeSet()), false, false);
+		xn.execute();
+		return top;
+	}
+
+	private static ArrayList<Component> getPins(Circuit circ, boolean output) {
+		ArrayList<Component> ret = new ArrayList<Component>();
+		for (Component comp : circ.getNonWires())
+			if (comp.getFactory() instanceof Pin
+					&& comp.getAttributeSet().getValue(Pin.ATTR_TYPE)
+							.booleanValue() == output)
+				ret.add(comp);
+		return ret;
+	}
+
+	/**
+	 * Simulates the circuit with random inputs and returns the values seen on
+	 * the output pins after each round.
+	 */
+	private static ArrayList<Value> simulate(Circuit circ, boolean parallel,
+			Project proj) {
+		CircuitState state = new CircuitState(proj, circ);
+		Propagator prop = state.getPropagator();
+		prop.setParallel(parallel);
+		ArrayList<Component> inputs = getPins(circ, false);
+		ArrayList<Component> outputs = getPins(circ, true);
+		ArrayList<Value> ret = new ArrayList<Value>();
+		Random rand = new Random(1);
+		state.markComponentsDirty(circ.getNonWires());
+		for (int round = 0; round < 20; round++) {
+			for (Component pin : inputs) {
+				BitWidth width = pin.getAttributeSet().getValue(StdAttr.WIDTH);
+				Value v = Value.createKnown(width,
+						rand.nextInt(1 << width.getWidth()));
+				Pin.FACTORY.setValue(state.getInstanceState(pin), v);
+				state.markComponentAsDirty(pin);
+			}
+			prop.propagate();
+			for (Component pin : outputs)
+				ret.add(state.getValue(pin.getLocation()));
+		}
+		return ret;
+	}
+
+	private Component createGate(String lib, String name) {
+		ComponentFactory factory = getFactory(lib, name);
+		AttributeSet attrs = factory.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, WIDTH);
+		return factory.createComponent(Location.create(200, 200), attrs);
+	}
+
+	@Test
+	public final void testCombinationalDesign() {
+		Circuit top = createDesign(createGate("Gates", "XOR Gate"), 64);
+		assertTrue(ParallelPropagation.isThreadSafe(top));
+		ArrayList<Value> expected = simulate(top, false, proj);
+		assertEquals(20 * 64, expected.size());
+		assertFalse(expected.contains(Value.createUnknown(WIDTH)));
+		assertEquals(expected, simulate(top, true, proj));
+	}
+
+	@Test
+	public final void testStatefulDesign() {
+		Circuit top = createDesign(createGate("Memory", "Register"), 16);
+		assertFalse(ParallelPropagation.isThreadSafe(top));
+		assertEquals(simulate(top, false, proj), simulate(top, true, proj));
+	}
+
+	@Test
+	public final void testSafetyFollowsEdits() {
+		Circuit top = createDesign(createGate("Gates", "XOR Gate"), 2);
+		assertTrue(ParallelPropagation.isThreadSafe(top));
+		Circuit cell = file.getCircuit("cell");
+		CircuitMutation xn = new CircuitMutation(cell);
+		ComponentFactory register = getFactory("Memory", "Register");
+		xn.add(register.createComponent(Location.create(600, 600),
+				register.createAttributeSet()));
+		xn.execute();
+		assertFalse(ParallelPropagation.isThreadSafe(top));
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+	/** A key whose hash codes collide in groups, to reach the collision nodes. */
+	private static class Key {
+		private final int id;
+
+		Key(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && ((Key) other).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id / 3;
+		}
+	}
+
+	private static <K, V> void assertSame(Map<K, V> expected,
+			PersistentMap<K, V> actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+		HashMap<K, V> seen = new HashMap<K, V>();
+		for (Map.Entry<K, V> e : actual)
+			assertNull(seen.put(e.getKey(), e.getValue()));
+		assertEquals(expected, seen);
+		for (Map.Entry<K, V> e : expected.entrySet()) {
+			assertTrue(actual.containsKey(e.getKey()));
+			assertEquals(e.getValue(), actual.get(e.getKey()));
+		}
+	}
+
+	@Test
+	public void testMatchesHashMap() {
+		Random rand = new Random(1);
+		HashMap<Key, Integer> expected = new HashMap<Key, Integer>();
+		PersistentMap<Key, Integer> actual = PersistentMap.empty();
+		for (int step = 0; step < 20000; step++) {
+			Key key = new Key(rand.nextInt(600));
+			if (rand.nextInt(3) == 0) {
+				expected.remove(key);
+				actual = actual.minus(key);
+				assertFalse(actual.containsKey(key));
+			} else {
+				Integer value = Integer.valueOf(step);
+				expected.put(key, value);
+				actual = actual.plus(key, value);
+			}
+			if (step % 1000 == 0)
+				assertSame(expected, actual);
+		}
+		assertSame(expected, actual);
+		for (Key key : new HashMap<Key, Integer>(expected).keySet()) {
+			expected.remove(key);
+			actual = actual.minus(key);
+		}
+		assertSame(expected, actual);
+		assertTrue(actual.isEmpty());
+	}
+
+	@Test
+	public void testUpdatesLeaveOlderMapsAlone() {
+		PersistentMap<Integer, String> empty = PersistentMap.empty();
+		PersistentMap<Integer, String> one = empty.plus(1, "a");
+		PersistentMap<Integer, String> two = one.plus(2, "b");
+		PersistentMap<Integer, String> changed = two.plus(1, "c");
+		PersistentMap<Integer, String> removed = changed.minus(2);
+		assertTrue(empty.isEmpty());
+		assertEquals(1, one.size());
+		assertEquals("a", one.get(1));
+		assertNull(one.get(2));
+		assertEquals("a", two.get(1));
+		assertEquals("b", two.get(2));
+		assertEquals("c", changed.get(1));
+		assertEquals(1, removed.size());
+		assertEquals("c", removed.get(1));
+		assertEquals("b", changed.get(2));
+	}
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Mem;
+import com.cburch.logisim.std.memory.MemContents;
+import com.cburch.logisim.std.memory.Rom;
+import com.cburch.logisim.tools.AddTool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+
+public class ProjectSnapshotTest {
+
+	private Loader loader = new Loader(null);
+	private Project proj;
+
+	@After
+	public void tearDown() {
+		if (proj != null)
+			proj.getSimulator().shutDown();
+	}
+
+	private ComponentFactory getFactory(String lib, String name) {
+		return ((AddTool) loader.getBuiltin().getLibrary(lib).getTool(name))
+				.getFactory();
+	}
+
+	private Component createRom(Location loc, int addrBits, int width,
+			long seed) {
+		MemContents contents = MemContents.create(addrBits, width);
+		Random rand = new Random(seed);
+		// a few sparse pages and one full one
+		for (int addr = 0; addr < 1 << Math.min(addrBits, 12); addr++)
+			contents.set(addr, rand.nextLong());
+		contents.set((1L << addrBits) - 1, rand.nextLong());
+		ComponentFactory rom = getFactory("Memory", "ROM");
+		AttributeSet attrs = rom.createAttributeSet();
+		attrs.setValue(Mem.ADDR_ATTR, BitWidth.create(addrBits));
+		attrs.setValue(Mem.DATA_ATTR, BitWidth.create(width));
+		attrs.setValue(Rom.CONTENTS_ATTR, contents);
+		return rom.createComponent(loc, attrs);
+	}
+
+	/**
+	 * Builds a project whose main circuit holds ROMs of bytes, of wider
+	 * words and of full 64-bit words, a RAM and an instance of a second
+	 * circuit, which itself holds a ROM.
+	 */
+	private LogisimFile createFile() {
+		LogisimFile file = LogisimFile.createNew(loader, null);
+		proj = new Project(file);
+		file.addLibrary(loader.getBuiltin().getLibrary("Memory"));
+		Circuit main = file.getMainCircuit();
+		Circuit sub = new Circuit("sub", file, proj);
+		file.addCircuit(sub);
+
+		CircuitMutation xn = new CircuitMutation(sub);
+		xn.add(createRom(Location.create(100, 100), 10, 16, 1));
+		xn.execute();
+
+		ComponentFactory ram = getFactory("Memory", "RAM");
+		AttributeSet ramAttrs = ram.createAttributeSet();
+		ramAttrs.setValue(Mem.ADDR_ATTR, BitWidth.create(12));
+		ramAttrs.setValue(Mem.DATA_ATTR, BitWidth.create(32));
+		SubcircuitFactory subFactory = sub.getSubcircuitFactory();
+
+		xn = new CircuitMutation(main);
+		xn.add(createRom(Location.create(100, 100), 16, 8, 2));
+		xn.add(createRom(Location.create(100, 400), 14, 24, 3));
+		xn.add(createRom(Location.create(100, 700), 8, 64, 4));
+		xn.add(ram.createComponent(Location.create(600, 100), ramAttrs));
+		xn.add(subFactory.createComponent(Location.create(600, 500),
+				subFactory.createAttributeSet()));
+		xn.execute();
+		return file;
+	}
+
+	private static String toXml(LogisimFile file) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		file.write(out, file.getLoader());
+		return out.toString("UTF-8");
+	}
+
+	private static ArrayList<MemContents> getRomContents(Circuit circ) {
+		ArrayList<MemContents> ret = new ArrayList<MemContents>();
+		for (Component comp : circ.getNonWires()) {
+			MemContents contents = comp.getAttributeSet().getValue(
+					Rom.CONTENTS_ATTR);
+			if (contents != null)
+				ret.add(contents);
+		}
+		return ret;
+	}
+
+	private static void assertSameContents(MemContents expected,
+			MemContents actual) {
+		assertEquals(expected.getLogLength(), actual.getLogLength());
+		assertEquals(expected.getValueWidth(), actual.getValueWidth());
+		for (long addr = 0; addr < 1L << expected.getLogLength(); addr++)
+			assertEquals("address " + addr, expected.get(addr),
+					actual.get(addr));
+	}
+
+	private static void assertSameFile(LogisimFile expected,
+			LogisimFile actual) throws IOException {
+		assertEquals(expected.getCircuits().size(), actual.getCircuits().size());
+		for (Circuit circ : expected.getCircuits()) {
+			Circuit loaded = actual.getCircuit(circ.getName());
+			assertNotNull(circ.getName(), loaded);
+			assertEquals(circ.getNonWires().size(), loaded.getNonWires().size());
+			ArrayList<MemContents> roms = getRomContents(circ);
+			ArrayList<MemContents> loadedRoms = getRomContents(loaded);
+			assertEquals(roms.size(), loadedRoms.size());
+			for (int i = 0; i < roms.size(); i++) {
+				// components come back in no particular order; match by size
+				MemContents rom = roms.get(i);
+				MemContents match = null;
+				for (MemContents c : loadedRoms)
+					if (c.getLogLength() == rom.getLogLength()
+							&& c.getValueWidth() == rom.getValueWidth())
+						match = c;
+				assertNotNull(match);
+				assertSameContents(rom, match);
+			}
+		}
+		assertEquals(toXml(expected), toXml(actual));
+	}
+
+	private static LogisimFile load(byte[] data) throws IOException {
+		return LogisimFile.load(new ByteArrayInputStream(data), new Loader(
+				null));
+	}
+
+	private static byte[] toSnapshot(LogisimFile file) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriter.writeSnapshot(file, out, file.getLoader(), null);
+		return out.toByteArray();
+	}
+
+	@Test
+	public final void testStreamRoundTrip() throws Exception {
+		LogisimFile file = createFile();
+		LogisimFile loaded = load(toSnapshot(file));
+		assertNotNull(loaded);
+		assertSameFile(file, loaded);
+	}
+
+	@Test
+	public final void testFileRoundTrip() throws Exception {
+		LogisimFile file = createFile();
+		File dest = File.createTempFile("snapshot", Loader.LOGISIM_SNAPSHOT_EXTENSION);
+		try {
+			FileOutputStream out = new FileOutputStream(dest);
+			try {
+				file.write(out, loader, dest);
+			} finally {
+				out.close();
+			}
+			LogisimFile loaded = LogisimFile.load(dest, new Loader(null));
+			assertNotNull(loaded);
+			assertSameFile(file, loaded);
+		} finally {
+			dest.delete();
+		}
+	}
+
+	@Test
+	public final void testSubcircuitInstance() throws Exception {
+		LogisimFile loaded = load(toSnapshot(createFile()));
+		Circuit sub = loaded.getCircuit("sub");
+		int instances = 0;
+		for (Component comp : loaded.getMainCircuit().getNonWires()) {
+			if (comp.getFactory() instanceof SubcircuitFactory) {
+				assertSame(sub, ((SubcircuitFactory) comp.getFactory())
+						.getSubcircuit());
+				instances++;
+			}
+		}
+		assertEquals(1, instances);
+	}
+
+	@Test
+	public final void testSnapshotIsStable() throws Exception {
+		byte[] first = toSnapshot(createFile());
+		LogisimFile loaded = load(first);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlWriter.writeSnapshot(loaded, out, loaded.getLoader(), null);
+		assertArrayEquals(first, out.toByteArray());
+	}
+
+	@Test
+	public final void testXmlToSnapshot() throws Exception {
+		// a file read from XML and one read from its snapshot are the same
+		LogisimFile file = createFile();
+		LogisimFile fromXml = load(toXml(file).getBytes("UTF-8"));
+		LogisimFile fromSnapshot = load(toSnapshot(fromXml));
+		assertSameFile(fromXml, fromSnapshot);
+	}
+}
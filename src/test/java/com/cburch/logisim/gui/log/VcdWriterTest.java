@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class VcdWriterTest {
+
+	private static List<String> times(File file) throws IOException {
+		ArrayList<String> ret = new ArrayList<String>();
+		for (String line : Files.readAllLines(file.toPath()))
+			if (line.startsWith("#") || line.startsWith("$comment"))
+				ret.add(line);
+		return ret;
+	}
+
+	@Test
+	public void testResetStartsNewTimeBase() throws IOException {
+		File file = File.createTempFile("logisim", ".vcd");
+		try {
+			VcdWriter writer = new VcdWriter(file, null,
+					new ArrayList<VcdWriter.Signal>());
+			writer.start();
+			writer.stepCompleted(10);
+			writer.stepCompleted(14);
+			writer.simulatorReset();
+			writer.stepCompleted(3);
+			writer.stepCompleted(5);
+			// a clock going backwards without a reset is also taken as one
+			writer.stepCompleted(2);
+			writer.close();
+			List<String> lines = times(file);
+			assertEquals(4, lines.size());
+			assertEquals("#5", lines.get(0));
+			assertTrue(lines.get(1).startsWith("$comment"));
+			assertEquals("#8", lines.get(2));
+			assertTrue(lines.get(3).startsWith("$comment"));
+		} finally {
+			file.delete();
+		}
+	}
+}
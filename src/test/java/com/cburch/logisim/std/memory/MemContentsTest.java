@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks that a clone of a memory and the memory it was cloned from can each
+ * be written without the other seeing the change, for every kind of page.
+ */
+public class MemContentsTest {
+
+	private static final int ADDR_BITS = 14; // four pages
+	private static final int PAGE = 1 << 12;
+	private static final int[] WIDTHS = { 8, 16, 32, 64 };
+
+	private static long mask(int width) {
+		return width == 64 ? -1L : (1L << width) - 1;
+	}
+
+	/** A memory and the values it should hold. */
+	private static class Checked {
+		final MemContents mem;
+		final long[] values;
+		final long mask;
+
+		Checked(MemContents mem, long[] values, int width) {
+			this.mem = mem;
+			this.values = values;
+			this.mask = mask(width);
+		}
+
+		Checked copy() {
+			return new Checked(mem.clone(), values.clone(),
+					mem.getValueWidth());
+		}
+
+		void set(long addr, long value) {
+			mem.set(addr, value);
+			values[(int) addr] = value & mask;
+		}
+
+		void set(int start, long[] vals) {
+			mem.set(start, vals);
+			for (int i = 0; i < vals.length; i++)
+				values[start + i] = vals[i] & mask;
+		}
+
+		void fill(int start, int len, long value) {
+			mem.fill(start, len, value);
+			Arrays.fill(values, start, start + len, value & mask);
+		}
+
+		void clear() {
+			mem.clear();
+			Arrays.fill(values, 0);
+		}
+
+		void check() {
+			for (int i = 0; i < values.length; i++)
+				assertEquals("address " + i, values[i], mem.get(i) & mask);
+		}
+	}
+
+	private static Checked create(int width) {
+		Checked ret = new Checked(MemContents.create(ADDR_BITS, width),
+				new long[1 << ADDR_BITS], width);
+		Random rand = new Random(width);
+		// leave page 2 unallocated
+		for (int i = 0; i < 2 * PAGE; i++)
+			ret.set(i, rand.nextLong());
+		ret.set(3 * PAGE + 7, rand.nextLong());
+		return ret;
+	}
+
+	private static long[] values(int len, long seed) {
+		long[] ret = new long[len];
+		Random rand = new Random(seed);
+		for (int i = 0; i < len; i++)
+			ret[i] = rand.nextLong();
+		return ret;
+	}
+
+	@Test
+	public final void testSet() {
+		for (int width : WIDTHS) {
+			Checked a = create(width);
+			Checked b = a.copy();
+			b.set(5, 0x5a5a5a5a5a5a5a5aL);
+			b.set(2 * PAGE + 1, 3);
+			a.check();
+			a.set(6, 0x1234567812345678L);
+			a.set(3 * PAGE + 7, 0);
+			b.check();
+			a.check();
+		}
+	}
+
+	@Test
+	public final void testSetValues() {
+		for (int width : WIDTHS) {
+			Checked a = create(width);
+			Checked b = a.copy();
+			// across the end of one page, all of the next, and into a third
+			b.set(PAGE - 10, values(PAGE + 30, 1));
+			a.check();
+			a.set(2 * PAGE - 5, values(PAGE + 10, 2));
+			b.check();
+			a.check();
+			// into a page that was never written
+			Checked c = create(width);
+			Checked d = c.copy();
+			d.set(PAGE + 1, values(PAGE + 10, 4));
+			c.check();
+			d.check();
+			// within one page
+			b.set(3 * PAGE + 1, values(20, 3));
+			a.check();
+			b.check();
+		}
+	}
+
+	@Test
+	public final void testFill() {
+		for (int width : WIDTHS) {
+			Checked a = create(width);
+			Checked b = a.copy();
+			b.fill(100, 3 * PAGE, 0x77);
+			a.check();
+			a.fill(PAGE + 3, 2 * PAGE, 0);
+			b.check();
+			a.check();
+			b.fill(10, 20, -1L);
+			a.check();
+			b.check();
+			// ending on a page that was never written
+			Checked c = create(width);
+			Checked d = c.copy();
+			d.fill(PAGE + 1, PAGE + 10, 5);
+			c.check();
+			d.check();
+		}
+	}
+
+	@Test
+	public final void testClear() {
+		for (int width : WIDTHS) {
+			Checked a = create(width);
+			Checked b = a.copy();
+			b.clear();
+			assertTrue(b.mem.isClear());
+			a.check();
+			b.set(1, 1);
+			a.check();
+			b.check();
+
+			Checked c = a.copy();
+			a.clear();
+			c.check();
+		}
+	}
+
+	@Test
+	public final void testCloneOfClone() {
+		for (int width : WIDTHS) {
+			Checked a = create(width);
+			Checked b = a.copy();
+			Checked c = b.copy();
+			c.set(0, 42);
+			b.set(1, 43);
+			a.set(2, 44);
+			a.check();
+			b.check();
+			c.check();
+		}
+	}
+
+	@Test
+	public final void testCopyFrom() {
+		for (int width : WIDTHS) {
+			Checked a = create(width);
+			Checked b = a.copy();
+			Checked src = create(width);
+			src.set(PAGE + 9, 9);
+			b.mem.copyFrom(50, src.mem, PAGE, PAGE);
+			System.arraycopy(src.values, PAGE, b.values, 50, PAGE);
+			a.check();
+			b.check();
+			src.check();
+		}
+	}
+
+	@Test
+	public final void testPageClone() {
+		for (int width : WIDTHS) {
+			long mask = mask(width);
+			MemContents.Page page = MemContentsSub.createPage(16, width);
+			long[] vals = values(16, width);
+			page.load(0, vals, mask);
+			page.share();
+			assertTrue(page.isShared());
+
+			MemContents.Page copy = page.clone();
+			assertNotSame(page, copy);
+			assertEquals(page.getClass(), copy.getClass());
+			assertFalse(copy.isShared());
+			assertTrue(page.isShared());
+			for (int i = 0; i < 16; i++)
+				assertEquals(vals[i] & mask, copy.get(i) & mask);
+
+			copy.set(3, ~vals[3] & mask);
+			copy.load(8, new long[] { 1, 2, 3 }, mask);
+			for (int i = 0; i < 16; i++)
+				assertEquals(vals[i] & mask, page.get(i) & mask);
+			page.set(4, ~vals[4] & mask);
+			assertEquals(vals[4] & mask, copy.get(4) & mask);
+		}
+	}
+}